@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.CoordinateSystem;
+
+import org.opengis.metadata.extent.Extent;
+import org.opengis.metadata.extent.GeographicExtent;
+import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.metadata.identification.Identification;
+import org.opengis.metadata.identification.DataIdentification;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Measures the performance of {@link NetcdfCRS#wrap(CoordinateSystem, NetcdfDataset, java.util.logging.Logger)}
+ * and of {@link NetcdfMetadata} construction and property access on the test files. The files are read in
+ * memory once, so the benchmarks measure the wrapping and attribute lookups rather than disk accesses.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DatasetBenchmark {
+    /**
+     * Name of the {@link TestData} enumeration value of the file to read.
+     */
+    @Param({"NETCDF_2D_GEOGRAPHIC", "NETCDF_4D_PROJECTED"})
+    public String testData;
+
+    /**
+     * The netCDF dataset opened from the test file.
+     */
+    private NetcdfDataset dataset;
+
+    /**
+     * Metadata created from {@link #dataset}, for benchmarking property access.
+     */
+    private NetcdfMetadata metadata;
+
+    /**
+     * Opens the test file.
+     *
+     * @throws IOException if an error occurred while reading the test file.
+     */
+    @Setup
+    public void setup() throws IOException {
+        final TestData file = TestData.valueOf(testData);
+        String location = file.location().toString();
+        location = location.substring(location.lastIndexOf('/') + 1);
+        dataset  = new NetcdfDataset(NetcdfFiles.openInMemory(location, file.content()));
+        metadata = new NetcdfMetadata(dataset);
+    }
+
+    /**
+     * Closes the test file.
+     *
+     * @throws IOException if an error occurred while closing the test file.
+     */
+    @TearDown
+    public void dispose() throws IOException {
+        dataset.close();
+    }
+
+    /**
+     * Wraps all coordinate systems of the dataset.
+     *
+     * @param  bh  the sink where to send the created coordinate reference systems.
+     */
+    @Benchmark
+    public void wrapCRS(final Blackhole bh) {
+        for (final CoordinateSystem cs : dataset.getCoordinateSystems()) {
+            bh.consume(NetcdfCRS.wrap(cs, dataset, null));
+        }
+    }
+
+    /**
+     * Creates the metadata object for the dataset.
+     *
+     * @return the metadata.
+     */
+    @Benchmark
+    public NetcdfMetadata createMetadata() {
+        return new NetcdfMetadata(dataset);
+    }
+
+    /**
+     * Reads the metadata properties most commonly requested by catalogs: title, abstract,
+     * responsible parties, dates, identifiers and geographic bounding boxes.
+     *
+     * @param  bh  the sink where to send the property values.
+     */
+    @Benchmark
+    public void readMetadata(final Blackhole bh) {
+        for (final Identification info : metadata.getIdentificationInfo()) {
+            bh.consume(info.getAbstract());
+            bh.consume(info.getPurpose());
+            bh.consume(info.getCitation().getTitle());
+            bh.consume(info.getCitation().getCitedResponsibleParties());
+            bh.consume(info.getCitation().getDates());
+            bh.consume(info.getCitation().getIdentifiers());
+            for (final Extent extent : ((DataIdentification) info).getExtents()) {
+                for (final GeographicExtent element : extent.getGeographicElements()) {
+                    final GeographicBoundingBox bbox = (GeographicBoundingBox) element;
+                    bh.consume(bbox.getWestBoundLongitude());
+                    bh.consume(bbox.getEastBoundLongitude());
+                    bh.consume(bbox.getSouthBoundLatitude());
+                    bh.consume(bbox.getNorthBoundLatitude());
+                }
+            }
+        }
+        bh.consume(metadata.getDateStamp());
+        bh.consume(metadata.getContacts());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Measures how {@link ParallelTransform} scales with the number of threads.
+ * Each benchmark invocation projects the points of a 1024×1024 grid.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParallelBenchmark {
+    /**
+     * Number of points to transform in each benchmark invocation.
+     */
+    private static final int NUM_POINTS = 1024 * 1024;
+
+    /**
+     * Number of threads in the pool.
+     */
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    /**
+     * The pool where to execute the tasks.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The transform to benchmark.
+     */
+    private MathTransform2D transform;
+
+    /**
+     * The (<var>longitude</var>, <var>latitude</var>) coordinates to project.
+     */
+    private double[] sources;
+
+    /**
+     * The array where to write projected coordinates.
+     */
+    private double[] targets;
+
+    /**
+     * Creates the pool, the transform and the coordinates to transform.
+     */
+    @Setup
+    public void setup() {
+        pool      = new ForkJoinPool(parallelism);
+        transform = new ParallelTransform(new NetcdfProjection(new LambertConformal(), null, null, null), pool);
+        sources   = ProjectionBenchmark.coordinates(NUM_POINTS, new Random(2126357098));
+        targets   = new double[sources.length];
+    }
+
+    /**
+     * Releases the threads.
+     */
+    @TearDown
+    public void dispose() {
+        pool.shutdown();
+    }
+
+    /**
+     * Projects all points.
+     *
+     * @return the projected coordinates.
+     * @throws TransformException should never happen.
+     */
+    @Benchmark
+    public double[] transform() throws TransformException {
+        transform.transform(sources, 0, targets, 0, NUM_POINTS);
+        return targets;
+    }
+}
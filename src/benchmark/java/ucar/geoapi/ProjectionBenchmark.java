@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+
+import org.opengis.referencing.operation.OperationMethod;
+import org.opengis.referencing.operation.TransformException;
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Measures the performance of {@link NetcdfProjection#transform(double[], int, double[], int, int)}
+ * and its {@code float[]}, {@link Point2D} and {@link org.opengis.geometry.DirectPosition} variants,
+ * compared to the {@link LinearApproximation}. The benchmarks are run for the projection of each
+ * {@link ProjectionProvider}. Some projections (e.g. orthographic) can not project all points of the
+ * benchmarked region with their default parameters, in which case some results are NaN.
+ *
+ * <p>The {@link #perPoint()} benchmark reproduces the strategy used before the bulk methods were used,
+ * which was to invoke {@link Projection#latLonToProj(double, double)} for each point. The allocation
+ * rate of both strategies can be compared by running the benchmarks with the {@code -prof gc} option.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ProjectionBenchmark {
+    /**
+     * Number of points to transform in each benchmark invocation.
+     */
+    private static final int NUM_POINTS = 100000;
+
+    /**
+     * Simple class name of the netCDF projection to benchmark.
+     * There is one value for each {@link ProjectionProvider}.
+     */
+    @Param({"AlbersEqualArea", "FlatEarth", "LambertAzimuthalEqualArea", "LambertConformal", "LatLonProjection",
+            "Mercator", "Orthographic", "RotatedLatLon", "RotatedPole", "Stereographic", "TransverseMercator",
+            "UtmProjection", "VerticalPerspectiveView"})
+    public String projectionName;
+
+    /**
+     * The netCDF projection to benchmark.
+     */
+    private Projection projection;
+
+    /**
+     * The wrapper around {@link #projection}.
+     */
+    private NetcdfProjection transform;
+
+    /**
+     * Piecewise-linear approximation of {@link #transform} with a tolerance of 1 metre.
+     */
+    private LinearApproximation approximation;
+
+    /**
+     * The (<var>longitude</var>, <var>latitude</var>) coordinates to project.
+     */
+    private double[] sources;
+
+    /**
+     * The array where to write projected coordinates.
+     */
+    private double[] targets;
+
+    /**
+     * Points reused for each coordinate tuple given to the {@link Point2D} variant.
+     */
+    private Point2D.Double sourcePoint, targetPoint;
+
+    /**
+     * Positions reused for each coordinate tuple given to the {@code DirectPosition} variant.
+     */
+    private SimpleDirectPosition sourcePosition, targetPosition;
+
+    /**
+     * The {@link #sources} coordinates rounded to single precision.
+     */
+    private float[] sourceFloats;
+
+    /**
+     * The array where to write projected coordinates in single precision.
+     */
+    private float[] targetFloats;
+
+    /**
+     * Creates the projection and the coordinates to transform.
+     *
+     * @throws ReflectiveOperationException if the projection can not be instantiated.
+     * @throws TransformException if the approximation can not be computed.
+     */
+    @Setup
+    public void setup() throws ReflectiveOperationException, TransformException {
+        for (final OperationMethod method : NetcdfTransformFactory.getInstance().getAvailableMethods(null)) {
+            final Class<?> type = ((ProjectionProvider<?>) method).delegate();
+            if (type.getSimpleName().equals(projectionName)) {
+                projection = (Projection) type.getConstructor().newInstance();
+                break;
+            }
+        }
+        if (projection == null) {
+            throw new ClassNotFoundException(projectionName);
+        }
+        transform = new NetcdfProjection(projection, null, null, null);
+        approximation = new LinearApproximation(transform, new Rectangle2D.Double(-120, 20, 60, 40), 0.001);
+        sources = coordinates(NUM_POINTS, new Random(2126357098));
+        targets = new double[sources.length];
+        sourceFloats = new float[sources.length];
+        targetFloats = new float[sources.length];
+        for (int i=0; i<sources.length; i++) {
+            sourceFloats[i] = (float) sources[i];
+        }
+        sourcePoint    = new Point2D.Double();
+        targetPoint    = new Point2D.Double();
+        sourcePosition = new SimpleDirectPosition(2);
+        targetPosition = new SimpleDirectPosition(2);
+    }
+
+    /**
+     * Returns random (<var>longitude</var>, <var>latitude</var>) coordinates
+     * in a region where all the benchmarked projections are valid.
+     *
+     * @param  numPts  number of points to create.
+     * @param  random  the random number generator to use.
+     * @return the coordinates of the requested number of points.
+     */
+    static double[] coordinates(final int numPts, final Random random) {
+        final double[] coordinates = new double[numPts * 2];
+        for (int i=0; i<coordinates.length;) {
+            coordinates[i++] = random.nextDouble() *  60 - 120;     // Longitude in [-120 … -60]°
+            coordinates[i++] = random.nextDouble() *  40 +  20;     // Latitude  in [  20 …  60]°
+        }
+        return coordinates;
+    }
+
+    /**
+     * Projects all points using the bulk transform method.
+     *
+     * @return the projected coordinates.
+     * @throws TransformException should never happen.
+     */
+    @Benchmark
+    public double[] bulk() throws TransformException {
+        transform.transform(sources, 0, targets, 0, NUM_POINTS);
+        return targets;
+    }
+
+    /**
+     * Projects all points stored in single precision using the bulk transform method.
+     *
+     * @return the projected coordinates.
+     * @throws TransformException should never happen.
+     */
+    @Benchmark
+    public float[] bulkFloat() throws TransformException {
+        transform.transform(sourceFloats, 0, targetFloats, 0, NUM_POINTS);
+        return targetFloats;
+    }
+
+    /**
+     * Projects all points one by one using the {@link Point2D} variant.
+     *
+     * @return the projected coordinates.
+     * @throws TransformException should never happen.
+     */
+    @Benchmark
+    public double[] point2D() throws TransformException {
+        final double[] sources = this.sources;
+        final double[] targets = this.targets;
+        for (int i=0; i<sources.length; i += 2) {
+            sourcePoint.x = sources[i  ];
+            sourcePoint.y = sources[i+1];
+            transform.transform(sourcePoint, targetPoint);
+            targets[i  ] = targetPoint.x;
+            targets[i+1] = targetPoint.y;
+        }
+        return targets;
+    }
+
+    /**
+     * Projects all points one by one using the {@code DirectPosition} variant.
+     *
+     * @return the projected coordinates.
+     * @throws TransformException should never happen.
+     */
+    @Benchmark
+    public double[] directPosition() throws TransformException {
+        final double[] sources = this.sources;
+        final double[] targets = this.targets;
+        for (int i=0; i<sources.length; i += 2) {
+            sourcePosition.setOrdinate(0, sources[i  ]);
+            sourcePosition.setOrdinate(1, sources[i+1]);
+            transform.transform(sourcePosition, targetPosition);
+            targets[i  ] = targetPosition.getOrdinate(0);
+            targets[i+1] = targetPosition.getOrdinate(1);
+        }
+        return targets;
+    }
+
+    /**
+     * Projects all points using the piecewise-linear approximation.
+     *
+     * @return the projected coordinates.
+     * @throws TransformException should never happen.
+     */
+    @Benchmark
+    public double[] approximated() throws TransformException {
+        approximation.transform(sources, 0, targets, 0, NUM_POINTS);
+        return targets;
+    }
+
+    /**
+     * Projects all points with one {@link ProjectionPoint} allocation per point.
+     * This is the strategy used by the previous implementation of the bulk transform method.
+     *
+     * @return the projected coordinates.
+     */
+    @Benchmark
+    public double[] perPoint() {
+        final double[] sources = this.sources;
+        final double[] targets = this.targets;
+        for (int i=0; i<sources.length; i += 2) {
+            final ProjectionPoint pt = projection.latLonToProj(sources[i+1], sources[i]);
+            targets[i  ] = pt.getX();
+            targets[i+1] = pt.getY();
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.concurrent.TimeUnit;
+import javax.measure.Unit;
+import javax.measure.format.ParserException;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Measures the performance of {@link Units#parse(String)}. The symbols include units recognized
+ * by the JSR-363 parser and units recognized only by the fallback applied after a parsing failure.
+ * The benchmark is also run with 4 threads for measuring contention on the shared parser.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class UnitsBenchmark {
+    /**
+     * The unit symbol to parse.
+     */
+    @Param({"m", "km", "K", "degrees", "metres", "days"})
+    public String symbol;
+
+    /**
+     * Parses the unit symbol in a single thread.
+     *
+     * @return the parsed unit.
+     * @throws ParserException if the symbol can not be parsed.
+     */
+    @Benchmark
+    public Unit<?> parse() throws ParserException {
+        return Units.parse(symbol);
+    }
+
+    /**
+     * Parses the unit symbol concurrently in 4 threads.
+     *
+     * @return the parsed unit.
+     * @throws ParserException if the symbol can not be parsed.
+     */
+    @Benchmark
+    @Threads(4)
+    public Unit<?> parseConcurrently() throws ParserException {
+        return Units.parse(symbol);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.Stereographic;
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.openjdk.jmh.annotations.*;
+
+
+/**
+ * Compares the vectorized projection kernels with the scalar kernel delegating to the netCDF bulk methods.
+ * This benchmark requires the classes compiled by the {@code vector} profile, so it shall be executed with:
+ *
+ * <pre>mvn -Pbenchmark,vector test-compile exec:exec -Djmh.args=VectorBenchmark</pre>
+ *
+ * The kernels are invoked directly on chunks of {@value NetcdfProjection#CHUNK_SIZE} points, which is how
+ * {@link NetcdfProjection} uses them, so the measurements exclude the cost of copying the coordinates
+ * in the chunk buffers.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorBenchmark {
+    /**
+     * Number of chunks to transform in each benchmark invocation.
+     */
+    private static final int NUM_CHUNKS = 200;
+
+    /**
+     * Simple class name of the netCDF projection to benchmark.
+     * There is one value for each projection having a vectorized kernel.
+     */
+    @Param({"Mercator", "Stereographic", "LambertConformal"})
+    public String projectionName;
+
+    /**
+     * Whether to benchmark the inverse projection instead of the forward projection.
+     */
+    @Param({"false", "true"})
+    public boolean inverse;
+
+    /**
+     * The kernel delegating to the netCDF bulk methods.
+     */
+    private ProjectionKernel scalar;
+
+    /**
+     * The vectorized kernel.
+     */
+    private ProjectionKernel vector;
+
+    /**
+     * The coordinates to transform, as {@value #NUM_CHUNKS} chunks of (<var>x</var>, <var>y</var>) rows.
+     */
+    private double[][][] sources;
+
+    /**
+     * The buffer where to write transformed coordinates.
+     */
+    private double[][] target;
+
+    /**
+     * Creates the kernels and the coordinates to transform.
+     *
+     * @throws IllegalStateException if the vectorized kernels are not available.
+     */
+    @Setup
+    public void setup() {
+        final Projection projection;
+        switch (projectionName) {
+            case "Mercator":         projection = new Mercator();         break;
+            case "Stereographic":    projection = new Stereographic();    break;
+            case "LambertConformal": projection = new LambertConformal(); break;
+            default: throw new IllegalArgumentException(projectionName);
+        }
+        scalar = new ProjectionKernel.Scalar(projection, inverse);
+        vector = ProjectionKernel.vectorized(projection, inverse);
+        if (vector == null) {
+            throw new IllegalStateException("Vectorized kernels are not available. Compile with -Pvector on JDK 17+.");
+        }
+        final ProjectionKernel forward = new ProjectionKernel.Scalar(projection, false);
+        final double[] coordinates = ProjectionBenchmark.coordinates(NUM_CHUNKS * NetcdfProjection.CHUNK_SIZE, new Random(2126357098));
+        sources = new double[NUM_CHUNKS][2][NetcdfProjection.CHUNK_SIZE];
+        for (int c=0; c<NUM_CHUNKS; c++) {
+            final double[][] chunk = sources[c];
+            for (int i=0; i<NetcdfProjection.CHUNK_SIZE; i++) {
+                final int p = (c * NetcdfProjection.CHUNK_SIZE + i) * 2;
+                chunk[0][i] = coordinates[p  ];
+                chunk[1][i] = coordinates[p+1];
+            }
+            if (inverse) {
+                final double[][] projected = new double[2][NetcdfProjection.CHUNK_SIZE];
+                forward.transform(chunk, projected);
+                sources[c] = projected;
+            }
+        }
+        target = new double[2][NetcdfProjection.CHUNK_SIZE];
+    }
+
+    /**
+     * Transforms all chunks with the given kernel.
+     */
+    private double[][] run(final ProjectionKernel kernel) {
+        for (final double[][] chunk : sources) {
+            kernel.transform(chunk, target);
+        }
+        return target;
+    }
+
+    /**
+     * Transforms all points with the kernel delegating to the netCDF bulk methods.
+     *
+     * @return the transformed coordinates of the last chunk.
+     */
+    @Benchmark
+    public double[][] scalar() {
+        return run(scalar);
+    }
+
+    /**
+     * Transforms all points with the vectorized kernel.
+     *
+     * @return the transformed coordinates of the last chunk.
+     */
+    @Benchmark
+    public double[][] vector() {
+        return run(vector);
+    }
+}
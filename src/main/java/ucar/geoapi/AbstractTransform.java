@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Arrays;
+import java.io.Serializable;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+
+/**
+ * Base class of math transforms implemented in this package (other than netCDF projections).
+ * Subclasses need to implement at least the {@link #transform(double[], int, double[], int, int)}
+ * method. All other {@code transform(…)} methods delegate to that method.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+abstract class AbstractTransform implements MathTransform, Serializable {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = 2787314837640745417L;
+
+    /**
+     * For subclasses constructors.
+     */
+    AbstractTransform() {
+    }
+
+    /**
+     * Returns {@code true} if this transform is an identity transform.
+     * The default implementation returns {@code false}.
+     */
+    @Override
+    public boolean isIdentity() {
+        return false;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values.
+     * This is the method on which all other {@code transform(…)} methods delegate.
+     *
+     * @param  srcPts  the array containing the source point coordinates.
+     * @param  srcOff  the offset to the first point to be transformed in the source array.
+     * @param  dstPts  the array into which the transformed point coordinates are returned.
+     * @param  dstOff  the offset to the location of the first transformed point in the destination array.
+     * @param  numPts  the number of point objects to be transformed.
+     * @throws TransformException if a point can not be transformed.
+     */
+    @Override
+    public abstract void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts)
+            throws TransformException;
+
+    /**
+     * Returns {@code true} if the source array needs to be copied before to transform the points.
+     * This is the case if the source and destination regions overlap, except if each point is
+     * written at the same location than where it has been read.
+     *
+     * @param  srcPts  the source coordinate array.
+     * @param  srcOff  the offset in the source coordinate array.
+     * @param  srcDim  the dimension of input points.
+     * @param  dstPts  the destination coordinate array.
+     * @param  dstOff  the offset in the destination coordinate array.
+     * @param  dstDim  the dimension of output points.
+     * @param  numPts  the number of points to transform.
+     * @return {@code true} if the source array needs to be copied.
+     */
+    static boolean needsCopy(final Object srcPts, final int srcOff, final int srcDim,
+                             final Object dstPts, final int dstOff, final int dstDim, final int numPts)
+    {
+        if (srcPts != dstPts || (srcOff == dstOff && srcDim == dstDim)) {
+            return false;
+        }
+        return srcOff < dstOff + numPts*dstDim && dstOff < srcOff + numPts*srcDim;
+    }
+
+    /**
+     * Ensures that the given position, if non-null, has the expected number of dimensions.
+     */
+    static void ensureDimensionMatches(final DirectPosition point, final int expected) throws MismatchedDimensionException {
+        if (point != null) {
+            final int dimension = point.getDimension();
+            if (dimension != expected) {
+                throw new MismatchedDimensionException("Expected a position of dimension " + expected +
+                        " but got a position of dimension " + dimension + '.');
+            }
+        }
+    }
+
+    /**
+     * Transforms the specified {@code ptSrc} and stores the result in {@code ptDst}.
+     * This method delegates to {@link #transform(double[], int, double[], int, int)}.
+     *
+     * @param  ptSrc  the specified coordinate point to be transformed.
+     * @param  ptDst  the specified coordinate point that stores the result of transforming {@code ptSrc}, or {@code null}.
+     * @return the coordinate point after transforming {@code ptSrc} and storing the result in {@code ptDst},
+     *         or a newly created point if {@code ptDst} was null.
+     * @throws MismatchedDimensionException if {@code ptSrc} or {@code ptDst} does not have the expected dimension.
+     * @throws TransformException if the point can not be transformed.
+     */
+    @Override
+    public DirectPosition transform(final DirectPosition ptSrc, DirectPosition ptDst)
+            throws MismatchedDimensionException, TransformException
+    {
+        final int srcDim = getSourceDimensions();
+        final int tgtDim = getTargetDimensions();
+        ensureDimensionMatches(ptSrc, srcDim);
+        ensureDimensionMatches(ptDst, tgtDim);
+        final double[] coordinates = new double[Math.max(srcDim, tgtDim)];
+        for (int i=0; i<srcDim; i++) {
+            coordinates[i] = ptSrc.getOrdinate(i);
+        }
+        transform(coordinates, 0, coordinates, 0, 1);
+        if (ptDst == null) {
+            ptDst = new SimpleDirectPosition(tgtDim);
+        }
+        for (int i=0; i<tgtDim; i++) {
+            ptDst.setOrdinate(i, coordinates[i]);
+        }
+        return ptDst;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. This method copies the coordinates by chunks
+     * of {@value NetcdfProjection#CHUNK_SIZE} points in a temporary {@code double[]} array, then delegates
+     * to the method working on doubles. The source array is copied only if the source and destination
+     * regions overlap in a way that would cause a chunk to overwrite coordinates not yet read.
+     */
+    @Override
+    public void transform(float[] srcPts, int srcOff, final float[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        final int srcDim = getSourceDimensions();
+        final int tgtDim = getTargetDimensions();
+        if (needsCopy(srcPts, srcOff, srcDim, dstPts, dstOff, tgtDim, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+            srcOff = 0;
+        }
+        final double[] buffer = buffer(numPts);
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            for (int i = n * srcDim; --i >= 0;) {
+                buffer[i] = srcPts[srcOff + i];
+            }
+            transform(buffer, 0, buffer, 0, n);
+            for (int i = n * tgtDim; --i >= 0;) {
+                dstPts[dstOff + i] = (float) buffer[i];
+            }
+            srcOff += n * srcDim;
+            dstOff += n * tgtDim;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. This method copies the coordinates by chunks
+     * of {@value NetcdfProjection#CHUNK_SIZE} points in a temporary {@code double[]} array, then delegates
+     * to the method working on doubles.
+     */
+    @Override
+    public void transform(final float[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        final int srcDim = getSourceDimensions();
+        final int tgtDim = getTargetDimensions();
+        final double[] buffer = buffer(numPts);
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            for (int i = n * srcDim; --i >= 0;) {
+                buffer[i] = srcPts[srcOff + i];
+            }
+            transform(buffer, 0, dstPts, dstOff, n);
+            srcOff += n * srcDim;
+            dstOff += n * tgtDim;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. This method transforms the coordinates by chunks
+     * of {@value NetcdfProjection#CHUNK_SIZE} points in a temporary {@code double[]} array, then casts the
+     * results to {@code float}.
+     */
+    @Override
+    public void transform(final double[] srcPts, int srcOff, final float[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        final int srcDim = getSourceDimensions();
+        final int tgtDim = getTargetDimensions();
+        final double[] buffer = buffer(numPts);
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            transform(srcPts, srcOff, buffer, 0, n);
+            for (int i = n * tgtDim; --i >= 0;) {
+                dstPts[dstOff + i] = (float) buffer[i];
+            }
+            srcOff += n * srcDim;
+            dstOff += n * tgtDim;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Returns a temporary {@code double[]} array large enough for holding either the source
+     * or the target coordinates of a chunk of at most {@value NetcdfProjection#CHUNK_SIZE} points.
+     */
+    private double[] buffer(final int numPts) {
+        return new double[Math.min(numPts, NetcdfProjection.CHUNK_SIZE) * Math.max(getSourceDimensions(), getTargetDimensions())];
+    }
+
+    /**
+     * Gets the derivative of this transform at a point.
+     * The default implementation throws an exception in all cases.
+     *
+     * @param  point  the coordinate point where to evaluate the derivative.
+     * @return the derivative at the specified point (never {@code null}).
+     * @throws TransformException if the derivative can not be evaluated at the specified point.
+     */
+    @Override
+    public Matrix derivative(final DirectPosition point) throws TransformException {
+        throw new TransformException("Derivative not supported by " + getClass().getSimpleName() + '.');
+    }
+
+    /**
+     * Unsupported operation, since this package does not format <cite>Well-Known Text</cite>.
+     */
+    @Override
+    public String toWKT() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Well-Known Text formatting is not supported by " + getClass().getSimpleName() + '.');
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * A sequence of transforms applied in order. Points are transformed in chunks of
+ * {@value NetcdfProjection#CHUNK_SIZE} points: each chunk goes through all steps in a temporary
+ * buffer before the next chunk is processed, so the intermediate results stay in the CPU cache.
+ *
+ * <p>Instances shall be created by {@link #create(MathTransform, MathTransform)}, which flattens
+ * nested concatenations, drops identity steps and folds adjacent affine steps into a single matrix.
+ * For example a <cite>grid to geographic</cite> chain made of an affine transform followed by an
+ * inverse projection is executed in a single pass over the buffer.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfTransformFactory#createConcatenatedTransform(MathTransform, MathTransform)
+ */
+final class ConcatenatedTransform extends AbstractTransform {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = 5304766451282954745L;
+
+    /**
+     * The transforms to apply in order. This array contains at least two elements.
+     */
+    private final MathTransform[] steps;
+
+    /**
+     * The largest number of dimensions of intermediate points.
+     */
+    private final int maxDimension;
+
+    /**
+     * The inverse of this transform, or {@code null} if not yet computed.
+     */
+    private transient MathTransform inverse;
+
+    /**
+     * Creates a new concatenated transform for the given steps.
+     * Invoked by {@link #create(MathTransform, MathTransform)} only.
+     */
+    private ConcatenatedTransform(final MathTransform[] steps) {
+        this.steps = steps;
+        int max = 0;
+        for (final MathTransform step : steps) {
+            max = Math.max(max, Math.max(step.getSourceDimensions(), step.getTargetDimensions()));
+        }
+        maxDimension = max;
+    }
+
+    /**
+     * Returns a transform equivalent to applying the first transform, then the second one.
+     * This method may return one of the given transforms, an affine transform, or a new
+     * concatenated transform.
+     *
+     * @param  first   the first transform to apply.
+     * @param  second  the transform to apply on the result of the first transform.
+     * @return the concatenation of the two transforms.
+     * @throws MismatchedDimensionException if the target dimension of the first transform
+     *         is not equal to the source dimension of the second transform.
+     */
+    static MathTransform create(final MathTransform first, final MathTransform second) throws MismatchedDimensionException {
+        if (first.getTargetDimensions() != second.getSourceDimensions()) {
+            throw new MismatchedDimensionException("Can not concatenate a transform having " + first.getTargetDimensions()
+                    + " target dimensions with a transform having " + second.getSourceDimensions() + " source dimensions.");
+        }
+        final List<MathTransform> steps = new ArrayList<>();
+        addTo(steps, first);
+        addTo(steps, second);
+        switch (steps.size()) {
+            case 0:  return SimpleAffineTransform.create(new SimpleMatrix(first.getSourceDimensions() + 1));
+            case 1:  return steps.get(0);
+            default: return new ConcatenatedTransform(steps.toArray(new MathTransform[steps.size()]));
+        }
+    }
+
+    /**
+     * Appends the given transform to the given list of steps. Nested concatenations are flattened,
+     * identity transforms are omitted and affine transforms are merged with the previous step if
+     * that step is also affine.
+     */
+    private static void addTo(final List<MathTransform> steps, final MathTransform transform) {
+        if (transform instanceof ConcatenatedTransform) {
+            for (final MathTransform step : ((ConcatenatedTransform) transform).steps) {
+                addTo(steps, step);
+            }
+            return;
+        }
+        if (transform.isIdentity()) {
+            return;
+        }
+        if (transform instanceof SimpleAffineTransform && !steps.isEmpty()) {
+            final int last = steps.size() - 1;
+            final MathTransform previous = steps.get(last);
+            if (previous instanceof SimpleAffineTransform) {
+                final SimpleAffineTransform merged = SimpleAffineTransform.concatenate(
+                        (SimpleAffineTransform) previous, (SimpleAffineTransform) transform);
+                if (merged.isIdentity()) {
+                    steps.remove(last);
+                } else {
+                    steps.set(last, merged);
+                }
+                return;
+            }
+        }
+        steps.add(transform);
+    }
+
+    /**
+     * Returns the dimension of input points, which is the source dimension of the first step.
+     */
+    @Override
+    public int getSourceDimensions() {
+        return steps[0].getSourceDimensions();
+    }
+
+    /**
+     * Returns the dimension of output points, which is the target dimension of the last step.
+     */
+    @Override
+    public int getTargetDimensions() {
+        return steps[steps.length - 1].getTargetDimensions();
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. Points are processed in chunks:
+     * the first step reads from the source array, intermediate steps work in-place in a buffer,
+     * and the last step writes in the destination array.
+     */
+    @Override
+    public void transform(double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        final int srcDim = getSourceDimensions();
+        final int tgtDim = getTargetDimensions();
+        if (needsCopy(srcPts, srcOff, srcDim, dstPts, dstOff, tgtDim, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+            srcOff = 0;
+        }
+        final MathTransform[] steps = this.steps;
+        final int last = steps.length - 1;
+        final double[] buffer = new double[Math.min(numPts, NetcdfProjection.CHUNK_SIZE) * maxDimension];
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            steps[0].transform(srcPts, srcOff, buffer, 0, n);
+            for (int i=1; i<last; i++) {
+                steps[i].transform(buffer, 0, buffer, 0, n);
+            }
+            steps[last].transform(buffer, 0, dstPts, dstOff, n);
+            srcOff += n * srcDim;
+            dstOff += n * tgtDim;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Gets the derivative of this transform at a point. This is the product of the derivatives
+     * of all steps, each step being evaluated at the point transformed by the previous steps.
+     *
+     * @param  point  the coordinate point where to evaluate the derivative.
+     * @return the derivative at the specified point.
+     * @throws TransformException if the derivative can not be evaluated at the specified point.
+     */
+    @Override
+    public Matrix derivative(DirectPosition point) throws TransformException {
+        ensureDimensionMatches(point, getSourceDimensions());
+        Matrix derivative = null;
+        for (final MathTransform step : steps) {
+            final Matrix m = step.derivative(point);
+            derivative = (derivative == null) ? m : SimpleMatrix.product(m, derivative);
+            point = step.transform(point, null);
+        }
+        return derivative;
+    }
+
+    /**
+     * Returns the inverse of this transform, which is the concatenation of the inverse steps in reverse order.
+     *
+     * @return the inverse transform.
+     * @throws NoninvertibleTransformException if a step is not invertible.
+     */
+    @Override
+    public synchronized MathTransform inverse() throws NoninvertibleTransformException {
+        if (inverse == null) {
+            final MathTransform[] inverses = new MathTransform[steps.length];
+            for (int i=0; i<steps.length; i++) {
+                inverses[steps.length - 1 - i] = steps[i].inverse();
+            }
+            final ConcatenatedTransform tr = new ConcatenatedTransform(inverses);
+            tr.inverse = this;
+            inverse = tr;
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns a hash code value for this transform.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(steps) ^ (int) serialVersionUID;
+    }
+
+    /**
+     * Compares this transform with the given object for equality.
+     *
+     * @param  object  the object to compare with this transform.
+     * @return {@code true} if the given object is a concatenation of equal steps.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        return (object instanceof ConcatenatedTransform) && Arrays.equals(steps, ((ConcatenatedTransform) object).steps);
+    }
+
+    /**
+     * Returns a string representation of this transform, listing all steps.
+     */
+    @Override
+    public String toString() {
+        return "Concatenated" + Arrays.toString(steps);
+    }
+}
@@ -0,0 +1,419 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+import org.opengis.metadata.extent.GeographicBoundingBox;
+
+
+/**
+ * An immutable spatial index of values associated to geographic bounding boxes. This index is typically
+ * used for finding which netCDF files cover a point or a box, given the domain of validity of each file.
+ * The index is a R-tree bulk-loaded with the <cite>Sort-Tile-Recursive</cite> (STR) algorithm: boxes are
+ * sorted in vertical slices by longitude, then by latitude inside each slice, and packed in nodes of
+ * {@value #NODE_CAPACITY} leaves. Consecutive nodes are then grouped in parent nodes until a single level remains.
+ * Example:
+ *
+ * <pre>
+ * List&lt;MetadataHarvester.Record&gt; harvested = new ArrayList&lt;&gt;();
+ * try (MetadataHarvester harvester = new MetadataHarvester(8, 64)) {
+ *     harvester.harvest(Paths.get("archive"), harvested::add);
+ * }
+ * DomainIndex&lt;MetadataHarvester.Record&gt; index = DomainIndex.of(harvested);
+ * List&lt;MetadataHarvester.Record&gt; records = index.search(-100, 40);</pre>
+ *
+ * <h2>Antimeridian</h2>
+ * Boxes having a west bound greater than the east bound are interpreted as crossing the antimeridian.
+ * Such boxes are stored with an east bound greater than 180°, and all longitudes are compared modulo 360°.
+ * Consequently a box crossing the antimeridian is stored only once and each value is reported at most
+ * once by a search, regardless on which side of the antimeridian the query is.
+ *
+ * <h2>Performance</h2>
+ * Nodes are stored in flat arrays of primitive values, one array per tree level, with the children
+ * of a node stored consecutively in the level below. Searches do not allocate objects other than
+ * the list of results (when requested).
+ *
+ * <p>Instances of this class are thread-safe.</p>
+ *
+ * @param  <V>  the type of values associated to the boxes.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final class DomainIndex<V> {
+    /**
+     * Maximal number of children in each node.
+     */
+    static final int NODE_CAPACITY = 16;
+
+    /**
+     * Offsets of the bounds of a box in the tuples of {@link #bounds} arrays, and length of those tuples.
+     */
+    private static final int XMIN = 0, XMAX = 1, YMIN = 2, YMAX = 3, STRIDE = 4;
+
+    /**
+     * The values, in the same order than the boxes of the first level of {@link #bounds}.
+     */
+    private final Object[] values;
+
+    /**
+     * The bounds of the boxes at each level, as (<var>xmin</var>, <var>xmax</var>, <var>ymin</var>,
+     * <var>ymax</var>) tuples. Level 0 contains the boxes of {@link #values}. The children of node
+     * <var>i</var> at level <var>L</var> are the nodes {@code i*NODE_CAPACITY} inclusive to
+     * {@code (i+1)*NODE_CAPACITY} exclusive at level <var>L</var>-1. The last level is scanned
+     * entirely by searches.
+     */
+    private final double[][] bounds;
+
+    /**
+     * Creates a new index for the values and boxes collected by the given builder.
+     */
+    private DomainIndex(final Builder<V> builder) {
+        final int count = builder.count;
+        final int[] order = sortTileRecursive(builder.boxes, count);
+        double[] level = reorder(builder.boxes, order);
+        final Object[] items = new Object[count];
+        for (int i=0; i<count; i++) {
+            items[i] = builder.values[order[i]];
+        }
+        /*
+         * Only the boxes are sorted. The upper levels are built by grouping consecutive nodes,
+         * which keeps the children of each node contiguous. Since the boxes are sorted in slices,
+         * consecutive groups are spatially close to each other.
+         */
+        final List<double[]> levels = new ArrayList<>();
+        int n = count;
+        while (true) {
+            levels.add(level);
+            if (n <= NODE_CAPACITY) break;
+            /*
+             * Compute the bounds of the parent nodes, which are the union of
+             * the bounds of each group of NODE_CAPACITY consecutive nodes.
+             */
+            final int parents = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            final double[] union = new double[parents * STRIDE];
+            for (int p=0; p<parents; p++) {
+                final int t = p * STRIDE;
+                union[t+XMIN] = union[t+YMIN] = Double.POSITIVE_INFINITY;
+                union[t+XMAX] = union[t+YMAX] = Double.NEGATIVE_INFINITY;
+                final int end = Math.min(n, (p+1) * NODE_CAPACITY);
+                for (int c = p * NODE_CAPACITY; c < end; c++) {
+                    final int s = c * STRIDE;
+                    union[t+XMIN] = Math.min(union[t+XMIN], level[s+XMIN]);
+                    union[t+XMAX] = Math.max(union[t+XMAX], level[s+XMAX]);
+                    union[t+YMIN] = Math.min(union[t+YMIN], level[s+YMIN]);
+                    union[t+YMAX] = Math.max(union[t+YMAX], level[s+YMAX]);
+                }
+            }
+            level = union;
+            n = parents;
+        }
+        values = items;
+        bounds = levels.toArray(new double[levels.size()][]);
+    }
+
+    /**
+     * Returns the order in which to store the given boxes for packing them in nodes.
+     * The boxes are sorted by the longitude of their center and grouped in vertical slices
+     * of <var>S</var> × {@value #NODE_CAPACITY} boxes where <var>S</var> is the number of slices,
+     * then the boxes in each slice are sorted by the latitude of their center.
+     *
+     * @param  level  the boxes as (<var>xmin</var>, <var>xmax</var>, <var>ymin</var>, <var>ymax</var>) tuples.
+     * @param  n      number of boxes.
+     * @return indices of boxes in the order where to store them.
+     */
+    private static int[] sortTileRecursive(final double[] level, final int n) {
+        final Integer[] order = new Integer[n];
+        for (int i=0; i<n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((i) -> level[i*STRIDE + XMIN] + level[i*STRIDE + XMAX]));
+        final int leaves = (n + NODE_CAPACITY - 1) / NODE_CAPACITY;
+        final int slices = (int) Math.ceil(Math.sqrt(leaves));
+        final int sliceSize = slices * NODE_CAPACITY;
+        final Comparator<Integer> byLatitude = Comparator.comparingDouble((i) -> level[i*STRIDE + YMIN] + level[i*STRIDE + YMAX]);
+        for (int lower=0; lower<n; lower += sliceSize) {
+            Arrays.sort(order, lower, Math.min(n, lower + sliceSize), byLatitude);
+        }
+        final int[] result = new int[n];
+        for (int i=0; i<n; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns a copy of the given boxes in the given order.
+     */
+    private static double[] reorder(final double[] level, final int[] order) {
+        final double[] sorted = new double[order.length * STRIDE];
+        for (int i=0; i<order.length; i++) {
+            System.arraycopy(level, order[i] * STRIDE, sorted, i * STRIDE, STRIDE);
+        }
+        return sorted;
+    }
+
+    /**
+     * Creates an index of the given harvested records. Records without geographic bounding box,
+     * including the records of files that can not be read, are not indexed. Records having a south
+     * bound greater than the north bound, for example because of swapped attributes in the file,
+     * are not indexed neither.
+     *
+     * @param  records  the records to index.
+     * @return an index of the given records.
+     */
+    public static DomainIndex<MetadataHarvester.Record> of(final Iterable<? extends MetadataHarvester.Record> records) {
+        final Builder<MetadataHarvester.Record> builder = new Builder<>();
+        for (final MetadataHarvester.Record record : records) {
+            final double south = record.getSouthBoundLatitude();
+            final double north = record.getNorthBoundLatitude();
+            if (south <= north) {
+                builder.add(record.getWestBoundLongitude(), record.getEastBoundLongitude(), south, north, record);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the number of values in this index.
+     *
+     * @return number of indexed values.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns all values having a box which contains the given point. Points on a box boundary
+     * are considered inside. Longitudes are compared modulo 360°.
+     *
+     * @param  longitude  longitude of the point in degrees.
+     * @param  latitude   latitude of the point in degrees.
+     * @return the values having a box which contains the given point.
+     */
+    public List<V> search(final double longitude, final double latitude) {
+        final List<V> result = new ArrayList<>();
+        search(longitude, longitude, latitude, latitude, result::add);
+        return result;
+    }
+
+    /**
+     * Returns all values having a box which intersects the given box. Arguments are in the same order
+     * than {@link SimpleGeographicBoundingBox} constructor. A west bound greater than the east bound
+     * is interpreted as a box crossing the antimeridian.
+     *
+     * @param  west   the minimal longitude in degrees.
+     * @param  east   the maximal longitude in degrees.
+     * @param  south  the minimal latitude in degrees.
+     * @param  north  the maximal latitude in degrees.
+     * @return the values having a box which intersects the given box.
+     */
+    public List<V> search(final double west, final double east, final double south, final double north) {
+        final List<V> result = new ArrayList<>();
+        search(west, east, south, north, result::add);
+        return result;
+    }
+
+    /**
+     * Gives to the given consumer all values having a box which intersects the given box.
+     * Each value is given at most once, in no particular order.
+     * Boxes with NaN values intersect nothing.
+     *
+     * @param  west    the minimal longitude in degrees.
+     * @param  east    the maximal longitude in degrees.
+     * @param  south   the minimal latitude in degrees.
+     * @param  north   the maximal latitude in degrees.
+     * @param  action  the consumer of values.
+     */
+    public void search(final double west, double east, final double south, final double north,
+                       final Consumer<? super V> action)
+    {
+        if (east < west) {
+            east += 360;
+        }
+        if (!(west <= east && south <= north)) {
+            return;                                         // Empty or NaN query.
+        }
+        double xmin, xmax;
+        if (east - west >= 360) {
+            xmin = -180;
+            xmax = +180;
+        } else {
+            final double shift = Math.floor((west + 180) / 360) * 360;
+            xmin = west - shift;
+            xmax = east - shift;
+        }
+        final int top = bounds.length - 1;
+        final int n = bounds[top].length / STRIDE;
+        for (int i=0; i<n; i++) {
+            search(top, i, xmin, xmax, south, north, action);
+        }
+    }
+
+    /**
+     * Searches recursively in the given node and its children.
+     * The query box shall be normalized as documented in {@link #intersects intersects(…)}.
+     */
+    @SuppressWarnings("unchecked")
+    private void search(final int level, final int node, final double xmin, final double xmax,
+                        final double ymin, final double ymax, final Consumer<? super V> action)
+    {
+        final double[] b = bounds[level];
+        final int s = node * STRIDE;
+        if (!intersects(b[s+XMIN], b[s+XMAX], b[s+YMIN], b[s+YMAX], xmin, xmax, ymin, ymax)) {
+            return;
+        }
+        if (level == 0) {
+            action.accept((V) values[node]);
+            return;
+        }
+        final int end = Math.min(bounds[level - 1].length / STRIDE, (node + 1) * NODE_CAPACITY);
+        for (int child = node * NODE_CAPACITY; child < end; child++) {
+            search(level - 1, child, xmin, xmax, ymin, ymax, action);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given boxes intersect, with longitudes compared modulo 360°.
+     * Both boxes shall have a west bound in the [−180 … 180] range and an east bound in the
+     * [west … west + 360] range, in which case it is sufficient to test shifts of −360°, 0 and +360°.
+     */
+    private static boolean intersects(final double bxmin, final double bxmax, final double bymin, final double bymax,
+                                      final double qxmin, final double qxmax, final double qymin, final double qymax)
+    {
+        if (qymin > bymax || qymax < bymin) {
+            return false;
+        }
+        return (qxmin <= bxmax         && qxmax >= bxmin)
+            || (qxmin - 360 <= bxmax   && qxmax - 360 >= bxmin)
+            || (qxmin + 360 <= bxmax   && qxmax + 360 >= bxmin);
+    }
+
+    /**
+     * Returns a string representation of this index for debugging purpose.
+     */
+    @Override
+    public String toString() {
+        return "DomainIndex[size=" + values.length + ", depth=" + bounds.length + ']';
+    }
+
+
+
+
+    /**
+     * Collects the values and their boxes before to build the index in a single bulk load.
+     * Builders are not thread-safe, but can be fed from the consumer of a {@link MetadataHarvester}
+     * since records are given to the consumer in the harvesting thread.
+     *
+     * @param  <V>  the type of values associated to the boxes.
+     */
+    public static final class Builder<V> {
+        /**
+         * The boxes as (<var>xmin</var>, <var>xmax</var>, <var>ymin</var>, <var>ymax</var>) tuples.
+         */
+        private double[] boxes;
+
+        /**
+         * The values associated to the boxes.
+         */
+        private Object[] values;
+
+        /**
+         * Number of valid values in the {@link #values} array.
+         */
+        private int count;
+
+        /**
+         * Creates an initially empty builder.
+         */
+        public Builder() {
+            boxes  = new double[64 * STRIDE];
+            values = new Object[64];
+        }
+
+        /**
+         * Adds a value associated to the given box. Arguments are in the same order than
+         * {@link SimpleGeographicBoundingBox} constructor. A west bound greater than the east
+         * bound is interpreted as a box crossing the antimeridian. Boxes with NaN values are
+         * ignored, since they could not be found by any search.
+         *
+         * @param  west   the minimal longitude in degrees.
+         * @param  east   the maximal longitude in degrees.
+         * @param  south  the minimal latitude in degrees.
+         * @param  north  the maximal latitude in degrees.
+         * @param  value  the value to associate to the box.
+         * @return {@code true} if the value has been added, or {@code false} if the box is invalid.
+         * @throws IllegalArgumentException if the south bound is greater than the north bound.
+         */
+        public boolean add(final double west, double east, final double south, final double north, final V value) {
+            if (south > north) {
+                throw new IllegalArgumentException("Illegal latitude range: [" + south + " … " + north + "].");
+            }
+            if (east < west) {
+                east += 360;
+            }
+            if (!(west <= east && south <= north)) {
+                return false;                                       // NaN values.
+            }
+            double xmin, xmax;
+            if (east - west >= 360) {
+                xmin = -180;
+                xmax = +180;
+            } else {
+                final double shift = Math.floor((west + 180) / 360) * 360;
+                xmin = west - shift;
+                xmax = east - shift;
+            }
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+                boxes  = Arrays.copyOf(boxes,  count * 2 * STRIDE);
+            }
+            final int s = count * STRIDE;
+            boxes[s+XMIN] = xmin;
+            boxes[s+XMAX] = xmax;
+            boxes[s+YMIN] = south;
+            boxes[s+YMAX] = north;
+            values[count++] = value;
+            return true;
+        }
+
+        /**
+         * Adds a value associated to the given geographic bounding box.
+         *
+         * @param  box    the geographic bounding box of the value.
+         * @param  value  the value to associate to the box.
+         * @return {@code true} if the value has been added, or {@code false} if the box contains NaN values.
+         */
+        public boolean add(final GeographicBoundingBox box, final V value) {
+            return add(box.getWestBoundLongitude(), box.getEastBoundLongitude(),
+                       box.getSouthBoundLatitude(), box.getNorthBoundLatitude(), value);
+        }
+
+        /**
+         * Returns the number of values added to this builder.
+         *
+         * @return number of values.
+         */
+        public int size() {
+            return count;
+        }
+
+        /**
+         * Builds the index from all values added to this builder.
+         * The builder can continue to be used after this method call.
+         *
+         * @return the index of all values added to this builder.
+         */
+        public DomainIndex<V> build() {
+            return new DomainIndex<>(this);
+        }
+    }
+}
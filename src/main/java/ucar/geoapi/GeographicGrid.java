@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+
+/**
+ * The (<var>longitude</var>, <var>latitude</var>) coordinates of all cells of a two-dimensional grid.
+ * Coordinates are stored in two buffers of <var>width</var> × <var>height</var> values in row-major
+ * order, which is the order of netCDF variables having (<var>y</var>, <var>x</var>) dimensions.
+ * Consequently the longitude of the cell at column <var>i</var> and row <var>j</var> is at index
+ * <var>j</var> × <var>width</var> + <var>i</var> in the {@linkplain #getLongitudes() longitudes buffer}.
+ *
+ * <p>Instances of this class are immutable and thread-safe. The buffers returned by the getter methods
+ * are read-only views which can be positioned independently by each caller.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfCRS#getGeographicGrid(boolean)
+ */
+final class GeographicGrid {
+    /**
+     * Minimal number of rows to compute in a single task. This is the number of rows needed
+     * for reaching {@link ParallelTransform#MIN_POINTS_PER_TASK} points, but not less than 1.
+     */
+    private final int minRowsPerTask;
+
+    /**
+     * Number of columns (cells along the <var>x</var> axis) and rows (cells along the <var>y</var> axis).
+     */
+    private final int width, height;
+
+    /**
+     * The longitudes and latitudes in degrees, in row-major order.
+     */
+    private final DoubleBuffer longitudes, latitudes;
+
+    /**
+     * Allocates the buffers for a grid of the given size. Values are computed by {@link #compute compute(…)}.
+     *
+     * @throws ArithmeticException if the grid is too large for being stored in a buffer.
+     */
+    private GeographicGrid(final int width, final int height, final boolean direct) {
+        this.width  = width;
+        this.height = height;
+        final int length = Math.multiplyExact(width, height);
+        if (direct) {
+            final int capacity = Math.multiplyExact(length, Double.BYTES);
+            longitudes = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            latitudes  = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        } else {
+            longitudes = DoubleBuffer.allocate(length);
+            latitudes  = DoubleBuffer.allocate(length);
+        }
+        minRowsPerTask = Math.max(1, ParallelTransform.MIN_POINTS_PER_TASK / Math.max(1, width));
+    }
+
+    /**
+     * Computes the geographic coordinates of all cells of a grid. The grid indices are converted to
+     * projected coordinates by the {@code gridToCRS} transform, then to geographic coordinates by the
+     * {@code toGeographic} transform. Both steps are executed on bands of consecutive rows, with the
+     * bands computed in parallel in the common fork-join pool.
+     *
+     * @param  width         number of cells along the <var>x</var> axis.
+     * @param  height        number of cells along the <var>y</var> axis.
+     * @param  gridToCRS     the two-dimensional transform from grid indices to projected coordinates.
+     * @param  toGeographic  the two-dimensional transform from projected coordinates to (λ,φ) in degrees.
+     * @param  direct        {@code true} for storing the coordinates in direct (off-heap) buffers.
+     * @return the geographic coordinates of all grid cells.
+     * @throws TransformException if a coordinate can not be converted.
+     * @throws ArithmeticException if the grid is too large for being stored in a buffer.
+     */
+    static GeographicGrid compute(final int width, final int height, final MathTransform gridToCRS,
+            final MathTransform toGeographic, final boolean direct) throws TransformException
+    {
+        final GeographicGrid grid = new GeographicGrid(width, height, direct);
+        final Band task = grid.new Band(gridToCRS, toGeographic, 0, height);
+        try {
+            ForkJoinPool.commonPool().invoke(task);
+        } catch (ParallelTransform.Failure e) {
+            Throwable cause = e;
+            do cause = cause.getCause();        // The pool may have wrapped the exception again.
+            while (cause instanceof ParallelTransform.Failure);
+            throw (TransformException) cause;
+        }
+        return grid;
+    }
+
+    /**
+     * A task computing the geographic coordinates of a band of rows. The task is split in two halves
+     * until the number of rows is less than twice {@link #minRowsPerTask}. Each task writes in a range
+     * of the buffers which is disjoint from the ranges of other tasks.
+     */
+    @SuppressWarnings("serial")
+    private final class Band extends RecursiveAction {
+        /** The transforms from grid indices to projected coordinates, then to geographic coordinates. */
+        private final MathTransform gridToCRS, toGeographic;
+
+        /** Index of the first row (inclusive) and last row (exclusive) to compute. */
+        private final int lower, upper;
+
+        /** Creates a new task for the given range of rows. */
+        Band(final MathTransform gridToCRS, final MathTransform toGeographic, final int lower, final int upper) {
+            this.gridToCRS    = gridToCRS;
+            this.toGeographic = toGeographic;
+            this.lower        = lower;
+            this.upper        = upper;
+        }
+
+        /** Computes the coordinates, possibly by splitting this task in two sub-tasks. */
+        @Override
+        protected void compute() {
+            if (upper - lower >= 2*minRowsPerTask) {
+                final int mid = (lower + upper) >>> 1;
+                invokeAll(new Band(gridToCRS, toGeographic, lower, mid),
+                          new Band(gridToCRS, toGeographic, mid, upper));
+                return;
+            }
+            final double[] buffer = new double[NetcdfProjection.CHUNK_SIZE * 2];
+            final int end = upper * width;
+            int index = lower * width;
+            try {
+                while (index < end) {
+                    final int n = Math.min(end - index, NetcdfProjection.CHUNK_SIZE);
+                    for (int k=0; k<n; k++) {
+                        final int p = index + k;
+                        buffer[k*2  ] = p % width;
+                        buffer[k*2+1] = p / width;
+                    }
+                    gridToCRS   .transform(buffer, 0, buffer, 0, n);
+                    toGeographic.transform(buffer, 0, buffer, 0, n);
+                    for (int k=0; k<n; k++) {
+                        longitudes.put(index, buffer[k*2  ]);
+                        latitudes .put(index, buffer[k*2+1]);
+                        index++;
+                    }
+                }
+            } catch (TransformException e) {
+                throw new ParallelTransform.Failure(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cells along the <var>x</var> axis.
+     *
+     * @return number of columns.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the number of cells along the <var>y</var> axis.
+     *
+     * @return number of rows.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns {@code true} if the coordinates are stored in direct (off-heap) buffers.
+     *
+     * @return whether the buffers are direct.
+     */
+    public boolean isDirect() {
+        return longitudes.isDirect();
+    }
+
+    /**
+     * Returns a read-only view over the longitudes in degrees, in row-major order.
+     *
+     * @return the longitudes of all grid cells.
+     */
+    public DoubleBuffer getLongitudes() {
+        return longitudes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view over the latitudes in degrees, in row-major order.
+     *
+     * @return the latitudes of all grid cells.
+     */
+    public DoubleBuffer getLatitudes() {
+        return latitudes.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the longitude of the cell at the given column and row.
+     *
+     * @param  i  the column index, from 0 inclusive to {@linkplain #getWidth() width} exclusive.
+     * @param  j  the row index, from 0 inclusive to {@linkplain #getHeight() height} exclusive.
+     * @return the longitude in degrees.
+     * @throws IndexOutOfBoundsException if an index is out of bounds.
+     */
+    public double getLongitude(final int i, final int j) {
+        return longitudes.get(index(i, j));
+    }
+
+    /**
+     * Returns the latitude of the cell at the given column and row.
+     *
+     * @param  i  the column index, from 0 inclusive to {@linkplain #getWidth() width} exclusive.
+     * @param  j  the row index, from 0 inclusive to {@linkplain #getHeight() height} exclusive.
+     * @return the latitude in degrees.
+     * @throws IndexOutOfBoundsException if an index is out of bounds.
+     */
+    public double getLatitude(final int i, final int j) {
+        return latitudes.get(index(i, j));
+    }
+
+    /**
+     * Returns the index in the buffers of the cell at the given column and row.
+     */
+    private int index(final int i, final int j) {
+        if (i < 0 || i >= width || j < 0 || j >= height) {
+            throw new IndexOutOfBoundsException("Cell (" + i + ", " + j + ") is outside the grid.");
+        }
+        return j * width + i;
+    }
+
+    /**
+     * Returns a string representation of this grid for debugging purpose.
+     */
+    @Override
+    public String toString() {
+        return "GeographicGrid[" + width + " × " + height + (isDirect() ? ", direct]" : "]");
+    }
+}
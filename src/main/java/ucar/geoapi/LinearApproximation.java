@@ -0,0 +1,513 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * A piecewise-linear approximation of a two-dimensional transform. The source domain is divided in
+ * a quadtree of rectangular cells. The exact transform is evaluated only at the cell corners, and
+ * points inside a cell are computed by bilinear interpolation of the corner values. Cells are split
+ * until the interpolation error, measured at the cell center and in the middle of each cell edge,
+ * is not greater than the tolerance specified at construction time.
+ *
+ * <p>This approximation is useful for raster reprojection, where the same transform is evaluated
+ * on millions of pixels. Points outside the domain given at construction time, and points inside
+ * cells where the tolerance could not be reached, are transformed by the exact transform. Cells
+ * where the exact transform fails at all test points (for example cells outside the domain of
+ * validity of a projection) are not split; the exact transform is used in those cells.</p>
+ *
+ * <p>The {@linkplain #inverse() inverse} of this transform is the exact inverse of the wrapped
+ * transform, since the approximation is valid only in the source domain.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfTransformFactory#createApproximateTransform(MathTransform2D, Rectangle2D, double)
+ */
+final class LinearApproximation implements MathTransform2D {
+    /**
+     * Minimal depth of the quadtree. The domain is unconditionally split in at least
+     * 4<sup>{@value}</sup> cells, for reducing the risk that an interpolation error
+     * happens to be small at all test points of a large cell.
+     */
+    static final int MIN_DEPTH = 2;
+
+    /**
+     * Maximal depth of the quadtree. Cells at this depth which do not meet the tolerance
+     * threshold are not split further; the exact transform is used in those cells instead.
+     */
+    static final int MAX_DEPTH = 10;
+
+    /**
+     * The exact transform.
+     */
+    private final MathTransform2D transform;
+
+    /**
+     * The maximal interpolation error, in units of the target coordinates.
+     */
+    private final double tolerance;
+
+    /**
+     * The root of the quadtree, covering the whole domain.
+     */
+    private final Cell root;
+
+    /**
+     * Number of cells where the transform is interpolated, for information purpose.
+     */
+    private int numCells;
+
+    /**
+     * Number of cells where the exact transform is used, for information purpose.
+     *
+     * @see #getExactCellCount()
+     */
+    private int numExactCells;
+
+    /**
+     * A node in the quadtree. If {@link #children} is non-null, then this node has been split in four
+     * cells in the following order: lower-left, lower-right, upper-left, upper-right. Otherwise this
+     * node is a leaf and {@link #corners} contains the target coordinates at the cell corners, or is
+     * {@code null} if the exact transform shall be used.
+     */
+    private static final class Cell {
+        /** The cell bounds in source coordinates. */
+        final double xmin, ymin, xmax, ymax;
+
+        /** The four children, or {@code null} if this cell is a leaf. */
+        Cell[] children;
+
+        /**
+         * The target (<var>x</var>,<var>y</var>) coordinates at the lower-left, lower-right, upper-left
+         * and upper-right corners in that order, or {@code null} for using the exact transform.
+         */
+        double[] corners;
+
+        /** Creates a new cell with the given bounds. */
+        Cell(final double xmin, final double ymin, final double xmax, final double ymax) {
+            this.xmin = xmin;
+            this.ymin = ymin;
+            this.xmax = xmax;
+            this.ymax = ymax;
+        }
+
+        /** Returns the leaf containing the given point, which shall be inside the bounds of this cell. */
+        Cell leaf(final double x, final double y) {
+            Cell cell = this;
+            Cell[] children;
+            while ((children = cell.children) != null) {
+                int i = 0;
+                if (x >= (cell.xmin + cell.xmax) / 2) i  = 1;
+                if (y >= (cell.ymin + cell.ymax) / 2) i |= 2;
+                cell = children[i];
+            }
+            return cell;
+        }
+
+        /**
+         * Interpolates the target coordinates of the given point and stores the result in the given array.
+         * This method shall be invoked only on leaves having non-null {@link #corners}.
+         */
+        void interpolate(final double x, final double y, final double[] dstPts, final int dstOff) {
+            final double[] c = corners;
+            final double u = (x - xmin) / (xmax - xmin);
+            final double v = (y - ymin) / (ymax - ymin);
+            final double a = (1-u)*(1-v), b = u*(1-v), d = (1-u)*v, e = u*v;
+            dstPts[dstOff    ] = a*c[0] + b*c[2] + d*c[4] + e*c[6];
+            dstPts[dstOff + 1] = a*c[1] + b*c[3] + d*c[5] + e*c[7];
+        }
+    }
+
+    /**
+     * Creates a new approximation of the given transform in the given domain.
+     *
+     * @param  transform  the exact transform to approximate.
+     * @param  domain     the domain of source coordinates where to approximate the transform.
+     * @param  tolerance  the maximal interpolation error, in units of the target coordinates.
+     * @throws TransformException if the corners of the domain can not be transformed.
+     */
+    LinearApproximation(final MathTransform2D transform, final Rectangle2D domain, final double tolerance)
+            throws TransformException
+    {
+        Objects.requireNonNull(transform);
+        if (domain.isEmpty()) {
+            throw new IllegalArgumentException("Empty domain: " + domain);
+        }
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Illegal tolerance: " + tolerance);
+        }
+        this.transform = transform;
+        this.tolerance = tolerance;
+        final double xmin = domain.getMinX();
+        final double ymin = domain.getMinY();
+        final double xmax = domain.getMaxX();
+        final double ymax = domain.getMaxY();
+        final double[] corners = {xmin, ymin, xmax, ymin, xmin, ymax, xmax, ymax};
+        transform.transform(corners, 0, corners, 0, 4);
+        root = new Cell(xmin, ymin, xmax, ymax);
+        build(root, corners, 0);
+    }
+
+    /**
+     * Decides whether the given cell can be interpolated, or splits it otherwise.
+     * The exact transform is evaluated at the center and at the middle of each edge.
+     * Those values are reused as corners of the children if the cell needs to be split.
+     * If the exact transform fails at all those points and at all corners, then the cell
+     * is not split since the children would fail too.
+     *
+     * @param  cell     the cell to build.
+     * @param  corners  the exact target coordinates at the cell corners.
+     * @param  depth    depth of the given cell in the quadtree.
+     */
+    private void build(final Cell cell, final double[] corners, final int depth) {
+        final double xc = (cell.xmin + cell.xmax) / 2;
+        final double yc = (cell.ymin + cell.ymax) / 2;
+        final double[] p = {
+            xc, yc,                 // Center
+            xc, cell.ymin,          // Bottom
+            xc, cell.ymax,          // Top
+            cell.xmin, yc,          // Left
+            cell.xmax, yc           // Right
+        };
+        try {
+            transform.transform(p, 0, p, 0, 5);
+        } catch (TransformException e) {
+            /*
+             * The bulk transform may fail because of a single point.
+             * Transform the points individually for keeping the valid ones.
+             */
+            for (int i=0; i<p.length; i += 2) {
+                try {
+                    transform.transform(p, i, p, i, 1);
+                } catch (TransformException f) {
+                    p[i] = p[i+1] = Double.NaN;
+                }
+            }
+        }
+        final double[] c = corners;
+        if (!hasFinite(p) && !hasFinite(c)) {
+            numExactCells++;
+            return;                                 // Leave 'corners' to null for using the exact transform.
+        }
+        if (depth >= MIN_DEPTH
+                && isAccurate(p, 0, (c[0] + c[2] + c[4] + c[6]) / 4, (c[1] + c[3] + c[5] + c[7]) / 4)
+                && isAccurate(p, 2, (c[0] + c[2]) / 2, (c[1] + c[3]) / 2)
+                && isAccurate(p, 4, (c[4] + c[6]) / 2, (c[5] + c[7]) / 2)
+                && isAccurate(p, 6, (c[0] + c[4]) / 2, (c[1] + c[5]) / 2)
+                && isAccurate(p, 8, (c[2] + c[6]) / 2, (c[3] + c[7]) / 2))
+        {
+            cell.corners = corners;
+            numCells++;
+            return;
+        }
+        if (depth >= MAX_DEPTH) {
+            numExactCells++;
+            return;                                 // Leave 'corners' to null for using the exact transform.
+        }
+        final Cell[] children = {
+            new Cell(cell.xmin, cell.ymin, xc, yc),
+            new Cell(xc, cell.ymin, cell.xmax, yc),
+            new Cell(cell.xmin, yc, xc, cell.ymax),
+            new Cell(xc, yc, cell.xmax, cell.ymax)
+        };
+        final int next = depth + 1;
+        build(children[0], new double[] {c[0], c[1], p[2], p[3], p[6], p[7], p[0], p[1]}, next);
+        build(children[1], new double[] {p[2], p[3], c[2], c[3], p[0], p[1], p[8], p[9]}, next);
+        build(children[2], new double[] {p[6], p[7], p[0], p[1], c[4], c[5], p[4], p[5]}, next);
+        build(children[3], new double[] {p[0], p[1], p[8], p[9], p[4], p[5], c[6], c[7]}, next);
+        cell.children = children;
+    }
+
+    /**
+     * Returns {@code true} if the interpolated (<var>x</var>,<var>y</var>) values are close enough
+     * to the exact values stored in the given array at the given offset. NaN values are considered
+     * inaccurate.
+     */
+    private boolean isAccurate(final double[] exact, final int offset, final double x, final double y) {
+        return Math.hypot(exact[offset] - x, exact[offset + 1] - y) <= tolerance;
+    }
+
+    /**
+     * Returns {@code true} if at least one value in the given array is finite.
+     */
+    private static boolean hasFinite(final double[] values) {
+        for (final double value : values) {
+            if (Double.isFinite(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if the given point is inside the approximated domain.
+     */
+    private boolean contains(final double x, final double y) {
+        return x >= root.xmin && x <= root.xmax && y >= root.ymin && y <= root.ymax;
+    }
+
+    /**
+     * Returns the number of cells where the exact transform is used instead of the interpolation.
+     */
+    int getExactCellCount() {
+        return numExactCells;
+    }
+
+    /**
+     * Returns the dimension of input points, which is 2.
+     */
+    @Override
+    public int getSourceDimensions() {
+        return 2;
+    }
+
+    /**
+     * Returns the dimension of output points, which is 2.
+     */
+    @Override
+    public int getTargetDimensions() {
+        return 2;
+    }
+
+    /**
+     * Returns {@code true} if the exact transform is an identity transform.
+     */
+    @Override
+    public boolean isIdentity() {
+        return transform.isIdentity();
+    }
+
+    /**
+     * Transforms a single position.
+     */
+    @Override
+    public DirectPosition transform(final DirectPosition ptSrc, DirectPosition ptDst)
+            throws MismatchedDimensionException, TransformException
+    {
+        if (ptSrc.getDimension() != 2 || (ptDst != null && ptDst.getDimension() != 2)) {
+            throw new MismatchedDimensionException("Expected a two-dimensional position.");
+        }
+        final double[] coordinates = {ptSrc.getOrdinate(0), ptSrc.getOrdinate(1)};
+        transform(coordinates, 0, coordinates, 0, 1);
+        if (ptDst == null) {
+            ptDst = new SimpleDirectPosition(2);
+        }
+        ptDst.setOrdinate(0, coordinates[0]);
+        ptDst.setOrdinate(1, coordinates[1]);
+        return ptDst;
+    }
+
+    /**
+     * Transforms a single point.
+     */
+    @Override
+    public Point2D transform(final Point2D ptSrc, Point2D ptDst) throws TransformException {
+        final double[] coordinates = {ptSrc.getX(), ptSrc.getY()};
+        transform(coordinates, 0, coordinates, 0, 1);
+        if (ptDst == null) {
+            ptDst = new Point2D.Double();
+        }
+        ptDst.setLocation(coordinates[0], coordinates[1]);
+        return ptDst;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. Points inside the domain are interpolated
+     * in their quadtree cell; other points are collected by chunks of {@value NetcdfProjection#CHUNK_SIZE}
+     * points and given to the exact transform in a single call per chunk.
+     */
+    @Override
+    public void transform(final double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        int step = 2;
+        if (srcPts == dstPts && srcOff < dstOff && srcOff + numPts*2 > dstOff) {
+            srcOff += (numPts - 1) * 2;             // Iterate backward for avoiding overwriting sources.
+            dstOff += (numPts - 1) * 2;
+            step = -2;
+        }
+        /*
+         * The exact values are written after all source points of the chunk have been read.
+         * This is safe with overlapping arrays because the iteration direction ensures that
+         * the destination of a point overlaps only the sources of points already read.
+         */
+        final int capacity = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+        final double[] buffer  = new double[capacity * 2];
+        final int[]    targets = new int[capacity];
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            int count = 0;
+            for (int i=0; i<n; i++) {
+                final double x = srcPts[srcOff];
+                final double y = srcPts[srcOff + 1];
+                final Cell cell = contains(x, y) ? root.leaf(x, y) : null;
+                if (cell != null && cell.corners != null) {
+                    cell.interpolate(x, y, dstPts, dstOff);
+                } else {
+                    buffer[count*2    ] = x;
+                    buffer[count*2 + 1] = y;
+                    targets[count++] = dstOff;
+                }
+                srcOff += step;
+                dstOff += step;
+            }
+            if (count != 0) {
+                transform.transform(buffer, 0, buffer, 0, count);
+                for (int i=0; i<count; i++) {
+                    dstPts[targets[i]    ] = buffer[i*2    ];
+                    dstPts[targets[i] + 1] = buffer[i*2 + 1];
+                }
+            }
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. This method copies the coordinates by chunks
+     * of {@value NetcdfProjection#CHUNK_SIZE} points in a temporary {@code double[]} array, then delegates
+     * to the method working on doubles. The source array is copied only if the source and destination
+     * regions overlap in a way that would cause a chunk to overwrite coordinates not yet read.
+     */
+    @Override
+    public void transform(float[] srcPts, int srcOff, final float[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        if (AbstractTransform.needsCopy(srcPts, srcOff, 2, dstPts, dstOff, 2, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*2);
+            srcOff = 0;
+        }
+        final double[] buffer = new double[Math.min(numPts, NetcdfProjection.CHUNK_SIZE) * 2];
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            for (int i = n*2; --i >= 0;) {
+                buffer[i] = srcPts[srcOff + i];
+            }
+            transform(buffer, 0, buffer, 0, n);
+            for (int i = n*2; --i >= 0;) {
+                dstPts[dstOff + i] = (float) buffer[i];
+            }
+            srcOff += n*2;
+            dstOff += n*2;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values.
+     * This method delegates to the method working on {@code double[]} arrays.
+     */
+    @Override
+    public void transform(final float[] srcPts, final int srcOff, final double[] dstPts, final int dstOff, final int numPts)
+            throws TransformException
+    {
+        for (int i=numPts*2; --i >= 0;) {
+            dstPts[dstOff + i] = srcPts[srcOff + i];
+        }
+        transform(dstPts, dstOff, dstPts, dstOff, numPts);
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. This method transforms the coordinates by chunks
+     * of {@value NetcdfProjection#CHUNK_SIZE} points in a temporary {@code double[]} array, then casts the
+     * results to {@code float}.
+     */
+    @Override
+    public void transform(final double[] srcPts, int srcOff, final float[] dstPts, int dstOff, int numPts)
+            throws TransformException
+    {
+        final double[] buffer = new double[Math.min(numPts, NetcdfProjection.CHUNK_SIZE) * 2];
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            transform(srcPts, srcOff, buffer, 0, n);
+            for (int i = n*2; --i >= 0;) {
+                dstPts[dstOff + i] = (float) buffer[i];
+            }
+            srcOff += n*2;
+            dstOff += n*2;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Transforms the given shape. This method delegates to the exact transform.
+     */
+    @Override
+    public Shape createTransformedShape(final Shape shape) throws TransformException {
+        return transform.createTransformedShape(shape);
+    }
+
+    /**
+     * Gets the derivative of this transform at a point.
+     */
+    @Override
+    public Matrix derivative(final DirectPosition point) throws TransformException {
+        if (point.getDimension() != 2) {
+            throw new MismatchedDimensionException("Expected a two-dimensional position.");
+        }
+        return derivative(new Point2D.Double(point.getOrdinate(0), point.getOrdinate(1)));
+    }
+
+    /**
+     * Gets the derivative of this transform at a point. Inside an interpolated cell, this is the
+     * derivative of the bilinear interpolation. Elsewhere this is the derivative of the exact transform.
+     */
+    @Override
+    public Matrix derivative(final Point2D point) throws TransformException {
+        final double x = point.getX();
+        final double y = point.getY();
+        final Cell cell = contains(x, y) ? root.leaf(x, y) : null;
+        if (cell == null || cell.corners == null) {
+            return transform.derivative(point);
+        }
+        final double[] c = cell.corners;
+        final double w = cell.xmax - cell.xmin;
+        final double h = cell.ymax - cell.ymin;
+        final double u = (x - cell.xmin) / w;
+        final double v = (y - cell.ymin) / h;
+        return ProjectionDerivative.matrix(
+                ((1-v)*(c[2] - c[0]) + v*(c[6] - c[4])) / w,  ((1-u)*(c[4] - c[0]) + u*(c[6] - c[2])) / h,
+                ((1-v)*(c[3] - c[1]) + v*(c[7] - c[5])) / w,  ((1-u)*(c[5] - c[1]) + u*(c[7] - c[3])) / h);
+    }
+
+    /**
+     * Returns the exact inverse of the wrapped transform.
+     */
+    @Override
+    public MathTransform2D inverse() throws NoninvertibleTransformException {
+        return transform.inverse();
+    }
+
+    /**
+     * Unsupported operation, since the approximation has no <cite>Well-Known Text</cite> representation.
+     */
+    @Override
+    public String toWKT() throws UnsupportedOperationException {
+        throw new UnsupportedOperationException("Approximated transforms have no WKT representation.");
+    }
+
+    /**
+     * Returns a string representation of this transform.
+     */
+    @Override
+    public String toString() {
+        return "LinearApproximation[" + transform + ", tolerance=" + tolerance
+                + ", cells=" + numCells + ", exact=" + numExactCells + ']';
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Arrays;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * A one-dimensional transform from grid indices to the values of an irregular axis.
+ * Integer indices are mapped to the values stored in a lookup table, and fractional
+ * indices are interpolated linearly between the two nearest values. Indices outside
+ * the table are extrapolated using the first or last segment.
+ *
+ * <p>The inverse transform finds the segment containing a value by binary search.
+ * It is available only if the values are strictly increasing or strictly decreasing.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfCRS#getGridToCRS(int, int)
+ */
+final class LookupTableTransform extends AbstractTransform {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = 4617289387151585937L;
+
+    /**
+     * The axis values. This array contains at least two elements.
+     */
+    private final double[] values;
+
+    /**
+     * {@code +1} if the values are strictly increasing, {@code -1} if they are strictly decreasing,
+     * or 0 if they are not strictly monotonic (in which case this transform is not invertible).
+     */
+    private final int order;
+
+    /**
+     * The inverse of this transform, created when first needed.
+     */
+    private transient MathTransform inverse;
+
+    /**
+     * Creates a new transform for the given axis values.
+     * The array is not cloned; callers shall not modify it after this call.
+     *
+     * @param  values  the axis values. Shall contain at least two elements.
+     * @throws IllegalArgumentException if the array contains less than two elements.
+     */
+    LookupTableTransform(final double[] values) {
+        if (values.length < 2) {
+            throw new IllegalArgumentException("The lookup table needs at least two values.");
+        }
+        this.values = values;
+        int order = Double.compare(values[1], values[0]);
+        for (int i=1; i<values.length; i++) {
+            final double previous = values[i-1];
+            final double current  = values[i];
+            if (!(order > 0 ? current > previous : current < previous)) {
+                order = 0;
+                break;
+            }
+        }
+        this.order = order;
+    }
+
+    /**
+     * Returns the dimension of input points, which is 1.
+     */
+    @Override
+    public int getSourceDimensions() {
+        return 1;
+    }
+
+    /**
+     * Returns the dimension of output points, which is 1.
+     */
+    @Override
+    public int getTargetDimensions() {
+        return 1;
+    }
+
+    /**
+     * Returns the index of the first value of the segment to use for interpolating at the given index.
+     * Indices outside the table are mapped to the first or last segment, for extrapolation.
+     */
+    private int segment(final double index) {
+        final int last = values.length - 2;
+        if (index >= last) return last;
+        if (index <= 0)    return 0;
+        return (int) index;
+    }
+
+    /**
+     * Interpolates the axis value at the given grid index.
+     */
+    private double interpolate(final double index) {
+        final int i = segment(index);
+        final double v0 = values[i];
+        return v0 + (index - i) * (values[i+1] - v0);
+    }
+
+    /**
+     * Transforms grid indices to axis values. Since this transform is one-dimensional,
+     * the points are processed in reverse order if the destination overlaps the source
+     * after it, so no copy is needed.
+     */
+    @Override
+    public void transform(final double[] srcPts, final int srcOff, final double[] dstPts, final int dstOff, final int numPts) {
+        if (srcPts == dstPts && srcOff < dstOff) {
+            for (int i=numPts; --i >= 0;) {
+                dstPts[dstOff + i] = interpolate(srcPts[srcOff + i]);
+            }
+        } else {
+            for (int i=0; i<numPts; i++) {
+                dstPts[dstOff + i] = interpolate(srcPts[srcOff + i]);
+            }
+        }
+    }
+
+    /**
+     * Returns the slope of the segment used for interpolation at the given point.
+     *
+     * @param  point  the grid index where to evaluate the derivative.
+     * @return the derivative at the specified point as a 1×1 matrix.
+     * @throws TransformException if the point is null.
+     */
+    @Override
+    public Matrix derivative(final DirectPosition point) throws TransformException {
+        if (point == null) {
+            throw new TransformException("The derivative of a lookup table depends on the position.");
+        }
+        ensureDimensionMatches(point, 1);
+        final int i = segment(point.getOrdinate(0));
+        final SimpleMatrix m = new SimpleMatrix(1, 1);
+        m.setElement(0, 0, values[i+1] - values[i]);
+        return m;
+    }
+
+    /**
+     * Returns the inverse transform, which maps axis values to fractional grid indices.
+     *
+     * @return the inverse transform.
+     * @throws NoninvertibleTransformException if the axis values are not strictly monotonic.
+     */
+    @Override
+    public synchronized MathTransform inverse() throws NoninvertibleTransformException {
+        if (order == 0) {
+            throw new NoninvertibleTransformException("The axis values are not strictly monotonic.");
+        }
+        if (inverse == null) {
+            inverse = new Inverse();
+        }
+        return inverse;
+    }
+
+    /**
+     * The inverse of the enclosing lookup table transform.
+     */
+    private final class Inverse extends AbstractTransform {
+        /**
+         * For cross-version compatibility.
+         */
+        private static final long serialVersionUID = -2950423659211391738L;
+
+        /**
+         * Returns the dimension of input points, which is 1.
+         */
+        @Override
+        public int getSourceDimensions() {
+            return 1;
+        }
+
+        /**
+         * Returns the dimension of output points, which is 1.
+         */
+        @Override
+        public int getTargetDimensions() {
+            return 1;
+        }
+
+        /**
+         * Returns the index of the first value of the segment containing the given axis value.
+         * Values outside the table are mapped to the first or last segment, for extrapolation.
+         */
+        private int segment(final double value) {
+            final double[] values = LookupTableTransform.this.values;
+            int low  = 0;
+            int high = values.length - 1;
+            while (high - low > 1) {
+                final int mid = (low + high) >>> 1;
+                if ((order > 0) ? values[mid] <= value : values[mid] >= value) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Computes the fractional grid index of the given axis value.
+         */
+        private double index(final double value) {
+            final double[] values = LookupTableTransform.this.values;
+            final int i = segment(value);
+            final double v0 = values[i];
+            return i + (value - v0) / (values[i+1] - v0);
+        }
+
+        /**
+         * Transforms axis values to fractional grid indices.
+         */
+        @Override
+        public void transform(final double[] srcPts, final int srcOff, final double[] dstPts, final int dstOff, final int numPts) {
+            if (srcPts == dstPts && srcOff < dstOff) {
+                for (int i=numPts; --i >= 0;) {
+                    dstPts[dstOff + i] = index(srcPts[srcOff + i]);
+                }
+            } else {
+                for (int i=0; i<numPts; i++) {
+                    dstPts[dstOff + i] = index(srcPts[srcOff + i]);
+                }
+            }
+        }
+
+        /**
+         * Returns the inverse of the slope of the segment containing the given value.
+         */
+        @Override
+        public Matrix derivative(final DirectPosition point) throws TransformException {
+            if (point == null) {
+                throw new TransformException("The derivative of a lookup table depends on the position.");
+            }
+            ensureDimensionMatches(point, 1);
+            final int i = segment(point.getOrdinate(0));
+            final SimpleMatrix m = new SimpleMatrix(1, 1);
+            m.setElement(0, 0, 1 / (values[i+1] - values[i]));
+            return m;
+        }
+
+        /**
+         * Returns the enclosing transform.
+         */
+        @Override
+        public MathTransform inverse() {
+            return LookupTableTransform.this;
+        }
+
+        /**
+         * Returns a string representation of this transform.
+         */
+        @Override
+        public String toString() {
+            return "Inverse" + LookupTableTransform.this;
+        }
+    }
+
+    /**
+     * Returns a hash code value for this transform.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values) ^ (int) serialVersionUID;
+    }
+
+    /**
+     * Compares this transform with the given object for equality.
+     *
+     * @param  object  the object to compare with this transform.
+     * @return {@code true} if the given object is a lookup table with equal values.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        return (object instanceof LookupTableTransform) && Arrays.equals(values, ((LookupTableTransform) object).values);
+    }
+
+    /**
+     * Returns a string representation of this transform.
+     */
+    @Override
+    public String toString() {
+        return "LookupTable[" + values.length + " values from " + values[0] + " to " + values[values.length - 1] + ']';
+    }
+}
@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.DataOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+
+/**
+ * A persistent catalog of harvested metadata, stored in a compact binary file read through a memory mapping.
+ * Opening a catalog does not read the records: numeric values are read from the mapped file when requested,
+ * and strings are decoded from a dictionary of distinct strings when requested. Consequently opening a catalog
+ * of many thousands of files takes a time independent of the number of files. Example:
+ *
+ * <pre>
+ * try (MetadataHarvester harvester = new MetadataHarvester(8, 64)) {
+ *     MetadataCatalog catalog = MetadataCatalog.update(Paths.get("archive.cat"), Paths.get("archive"), harvester);
+ *     for (MetadataCatalog.Entry entry : catalog) {
+ *         System.out.println(entry.getTitle());
+ *     }
+ * }</pre>
+ *
+ * <h2>Incremental update</h2>
+ * The {@link #update update(…)} method compares the time of last modification of each file in a directory
+ * tree with the time stored in the catalog. Only new and modified files are opened, and the records of
+ * deleted files are removed. Files that could not be read are not stored in the catalog, so they are tried
+ * again at each update.
+ *
+ * <h2>File format</h2>
+ * All values are in big-endian byte order. The file starts with a header of {@value #HEADER_SIZE} bytes:
+ * a magic number, the format version, the number of records, the number of strings, the position of the
+ * variable-length area and the position of the string dictionary. The header is followed by the records,
+ * each of them having a size of {@value #RECORD_SIZE} bytes:
+ *
+ * <table class="doc">
+ *   <caption>Record layout</caption>
+ *   <tr><th>Offset</th> <th>Type</th>        <th>Content</th></tr>
+ *   <tr><td>0</td>      <td>4 × int</td>     <td>File path, identifier, title and creator as indices in the dictionary, or -1 if null.</td></tr>
+ *   <tr><td>16</td>     <td>long</td>        <td>Time of last modification of the file.</td></tr>
+ *   <tr><td>24</td>     <td>4 × double</td>  <td>West, east, south and north bounds.</td></tr>
+ *   <tr><td>56</td>     <td>2 × long</td>    <td>Creation date and metadata date, or {@link Long#MIN_VALUE} if none.</td></tr>
+ *   <tr><td>72</td>     <td>long</td>        <td>Position of the CRS descriptions in the variable-length area.</td></tr>
+ *   <tr><td>80</td>     <td>int</td>         <td>Number of CRS descriptions.</td></tr>
+ * </table>
+ *
+ * Each CRS description in the variable-length area is the index of the CRS summary in the dictionary,
+ * followed by the number of elements in the grid to CRS matrix (0 if the transform is not affine),
+ * followed by the matrix elements. The dictionary is the number of strings, followed by the position
+ * of each string relative to the beginning of the characters and the position after the last string,
+ * followed by the characters encoded in UTF-8.
+ *
+ * <p>Instances of this class are immutable and thread-safe.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final class MetadataCatalog extends AbstractList<MetadataCatalog.Entry> {
+    /**
+     * The magic number at the beginning of catalog files.
+     */
+    private static final int MAGIC = 0x4E434154;        // "NCAT" in ASCII.
+
+    /**
+     * Version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the header in bytes.
+     */
+    static final int HEADER_SIZE = 32;
+
+    /**
+     * Size of a record in bytes.
+     */
+    static final int RECORD_SIZE = 84;
+
+    /**
+     * Offsets of record fields, in bytes relative to the beginning of a record.
+     */
+    private static final int FILE = 0, IDENTIFIER = 4, TITLE = 8, CREATOR = 12, LAST_MODIFIED = 16,
+            WEST = 24, EAST = 32, SOUTH = 40, NORTH = 48, CREATION_DATE = 56, METADATA_DATE = 64,
+            CRS_POSITION = 72, CRS_COUNT = 80;
+
+    /**
+     * The mapped content of the catalog file.
+     * Only methods reading values at absolute positions shall be used, for thread-safety.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Number of records.
+     */
+    private final int size;
+
+    /**
+     * Number of strings in the dictionary.
+     */
+    private final int stringCount;
+
+    /**
+     * Position of the table of string positions, and position of the first character.
+     */
+    private final int stringTable, characters;
+
+    /**
+     * Creates a catalog for the given mapped file content.
+     *
+     * @throws IOException if the content is not a catalog in a supported format.
+     */
+    private MetadataCatalog(final ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a metadata catalog.");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported catalog version: " + buffer.getInt(4));
+        }
+        this.buffer = buffer;
+        size        = buffer.getInt(8);
+        stringCount = buffer.getInt(12);
+        stringTable = Math.toIntExact(buffer.getLong(24)) + Integer.BYTES;
+        characters  = stringTable + (stringCount + 1) * Integer.BYTES;
+        if (size < 0 || stringCount < 0 || characters > buffer.capacity()
+                || HEADER_SIZE + (long) size * RECORD_SIZE > buffer.getLong(16))
+        {
+            throw new IOException("Corrupted metadata catalog.");
+        }
+    }
+
+    /**
+     * Opens the given catalog file. The file is mapped in memory but the records are not read.
+     * Note that the mapping stays valid until this catalog is garbage-collected, even if the file
+     * is replaced by {@link #write write(…)} or {@link #update update(…)}.
+     *
+     * @param  file  the catalog file to open.
+     * @return the catalog.
+     * @throws IOException if the file can not be read or is not a catalog in a supported format.
+     */
+    public static MetadataCatalog open(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new MetadataCatalog(buffer);
+        }
+    }
+
+    /**
+     * Writes the given records in a catalog file. Records of files that could not be read are ignored.
+     * The catalog is first written in a temporary file, which then replaces the given file.
+     *
+     * @param  file     the catalog file to write.
+     * @param  records  the records to write.
+     * @throws IOException if an error occurred while writing the file.
+     */
+    public static void write(final Path file, final Iterable<? extends MetadataHarvester.Record> records) throws IOException {
+        final Map<String,Integer> dictionary = new HashMap<>();
+        final List<String> strings = new ArrayList<>();
+        final List<MetadataHarvester.Record> valid = new ArrayList<>();
+        for (final MetadataHarvester.Record record : records) {
+            if (record.getFailure() == null) {
+                valid.add(record);
+            }
+        }
+        /*
+         * First pass: build the dictionary and compute the positions of the variable-length area
+         * and of the dictionary. The second pass will get the same string indices from the map.
+         */
+        long position = HEADER_SIZE + (long) valid.size() * RECORD_SIZE;
+        final long variables = position;
+        for (final MetadataHarvester.Record record : valid) {
+            index(dictionary, strings, record.getFile().toString());
+            index(dictionary, strings, record.getIdentifier());
+            index(dictionary, strings, record.getTitle());
+            index(dictionary, strings, record.getCreator());
+            final List<String> crs = record.getCoordinateReferenceSystems();
+            for (int i=0; i<crs.size(); i++) {
+                index(dictionary, strings, crs.get(i));
+                final double[] elements = record.getGridToCRS(i);
+                position += 2 * Integer.BYTES + ((elements != null) ? elements.length * (long) Double.BYTES : 0);
+            }
+        }
+        final Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream os = Files.newOutputStream(tmp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os)))
+            {
+                out.writeInt (MAGIC);
+                out.writeInt (VERSION);
+                out.writeInt (valid.size());
+                out.writeInt (strings.size());
+                out.writeLong(variables);
+                out.writeLong(position);
+                long crsPosition = variables;
+                for (final MetadataHarvester.Record record : valid) {
+                    out.writeInt   (index(dictionary, strings, record.getFile().toString()));
+                    out.writeInt   (index(dictionary, strings, record.getIdentifier()));
+                    out.writeInt   (index(dictionary, strings, record.getTitle()));
+                    out.writeInt   (index(dictionary, strings, record.getCreator()));
+                    out.writeLong  (record.getLastModified());
+                    out.writeDouble(record.getWestBoundLongitude());
+                    out.writeDouble(record.getEastBoundLongitude());
+                    out.writeDouble(record.getSouthBoundLatitude());
+                    out.writeDouble(record.getNorthBoundLatitude());
+                    out.writeLong  (millis(record.getCreationDate()));
+                    out.writeLong  (millis(record.getMetadataDate()));
+                    out.writeLong  (crsPosition);
+                    final List<String> crs = record.getCoordinateReferenceSystems();
+                    out.writeInt   (crs.size());
+                    for (int i=0; i<crs.size(); i++) {
+                        final double[] elements = record.getGridToCRS(i);
+                        crsPosition += 2 * Integer.BYTES + ((elements != null) ? elements.length * (long) Double.BYTES : 0);
+                    }
+                }
+                for (final MetadataHarvester.Record record : valid) {
+                    final List<String> crs = record.getCoordinateReferenceSystems();
+                    for (int i=0; i<crs.size(); i++) {
+                        final double[] elements = record.getGridToCRS(i);
+                        out.writeInt(index(dictionary, strings, crs.get(i)));
+                        out.writeInt((elements != null) ? elements.length : 0);
+                        if (elements != null) {
+                            for (final double e : elements) {
+                                out.writeDouble(e);
+                            }
+                        }
+                    }
+                }
+                /*
+                 * The string dictionary: number of strings, positions, then characters.
+                 */
+                final byte[][] encoded = new byte[strings.size()][];
+                out.writeInt(encoded.length);
+                int offset = 0;
+                for (int i=0; i<encoded.length; i++) {
+                    encoded[i] = strings.get(i).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(offset);
+                    offset = Math.addExact(offset, encoded[i].length);
+                }
+                out.writeInt(offset);
+                for (final byte[] bytes : encoded) {
+                    out.write(bytes);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Returns the index of the given string in the dictionary, adding the string if needed.
+     * Returns -1 for null strings.
+     */
+    private static int index(final Map<String,Integer> dictionary, final List<String> strings, final String value) {
+        if (value == null) {
+            return -1;
+        }
+        return dictionary.computeIfAbsent(value, (k) -> {
+            strings.add(k);
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * Returns the given date in milliseconds, or {@link Long#MIN_VALUE} if null.
+     */
+    private static long millis(final Date date) {
+        return (date != null) ? date.getTime() : Long.MIN_VALUE;
+    }
+
+    /**
+     * Updates the given catalog file with the netCDF files found in the given directory tree, then opens the
+     * updated catalog. Only the files which are not in the catalog or which have been modified since they have
+     * been cataloged are opened. The records of files which no longer exist are removed. If the catalog file
+     * does not exist, then all netCDF files in the directory tree are harvested.
+     *
+     * <p>Files are identified by their path as produced by walking the given directory, so the same directory
+     * path shall be given at each update. Files deleted while the directory is walked are handled as removed.</p>
+     *
+     * @param  file       the catalog file to update.
+     * @param  directory  root of the directory tree of netCDF files.
+     * @param  harvester  the harvester to use for reading new and modified files.
+     * @return the updated catalog.
+     * @throws IOException if an error occurred while reading the catalog or walking the directory tree.
+     * @throws InterruptedException if the calling thread has been interrupted while waiting for a record.
+     */
+    public static MetadataCatalog update(final Path file, final Path directory, final MetadataHarvester harvester)
+            throws IOException, InterruptedException
+    {
+        /*
+         * The existing catalog is read in a heap buffer instead of being mapped, because the file will
+         * be replaced by write(…) and some platforms can not replace a file while a mapping is open.
+         */
+        final Map<String,Entry> existing = new HashMap<>();
+        if (Files.exists(file)) {
+            for (final Entry entry : new MetadataCatalog(ByteBuffer.wrap(Files.readAllBytes(file)))) {
+                existing.put(entry.getPathName(), entry);
+            }
+        }
+        final List<MetadataHarvester.Record> records = new ArrayList<>();
+        final List<Path> modified = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            final Iterator<Path> it = files.filter(MetadataHarvester::isNetcdf).iterator();
+            while (it.hasNext()) {
+                final Path path = it.next();
+                final long lastModified;
+                try {
+                    lastModified = Files.getLastModifiedTime(path).toMillis();
+                } catch (NoSuchFileException e) {
+                    continue;                           // File deleted during the walk: handle as removed.
+                }
+                final Entry entry = existing.get(path.toString());
+                if (entry != null && entry.getLastModified() == lastModified) {
+                    records.add(entry.toRecord());
+                } else {
+                    modified.add(path);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (!modified.isEmpty() || records.size() != existing.size() || !Files.exists(file)) {
+            harvester.harvest(modified, records::add);
+            write(file, records);
+        }
+        return open(file);
+    }
+
+    /**
+     * Returns the number of records in this catalog.
+     *
+     * @return number of records.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns a view over the record at the given index. This method does not read the record.
+     *
+     * @param  index  index of the record.
+     * @return view over the record at the given index.
+     * @throws IndexOutOfBoundsException if the given index is out of bounds.
+     */
+    @Override
+    public Entry get(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+        }
+        return new Entry(HEADER_SIZE + index * RECORD_SIZE);
+    }
+
+    /**
+     * Returns the string at the given index in the dictionary, or {@code null} if the index is -1.
+     */
+    private String string(final int index) {
+        if (index < 0) {
+            return null;
+        }
+        final int start = characters + buffer.getInt(stringTable + index * Integer.BYTES);
+        final int end   = characters + buffer.getInt(stringTable + (index + 1) * Integer.BYTES);
+        final byte[] bytes = new byte[end - start];
+        for (int i=0; i<bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+
+
+    /**
+     * A view over a record of the catalog. Each method reads the requested value from the mapped file.
+     * Numeric values are read directly, strings are decoded from the dictionary and grid to CRS matrices
+     * are returned as views over the mapped file.
+     */
+    public final class Entry {
+        /**
+         * Position of the record in the mapped file.
+         */
+        private final int position;
+
+        /**
+         * Creates a view over the record at the given position.
+         */
+        Entry(final int position) {
+            this.position = position;
+        }
+
+        /**
+         * Returns the path of the file as a string, as stored in the catalog.
+         */
+        final String getPathName() {
+            return string(buffer.getInt(position + FILE));
+        }
+
+        /**
+         * Returns the file from which the metadata have been read.
+         *
+         * @return the harvested file.
+         */
+        public Path getFile() {
+            return Paths.get(getPathName());
+        }
+
+        /**
+         * Returns the dataset identifier, or {@code null} if none.
+         *
+         * @return the dataset identifier.
+         */
+        public String getIdentifier() {
+            return string(buffer.getInt(position + IDENTIFIER));
+        }
+
+        /**
+         * Returns the dataset title, or {@code null} if none.
+         *
+         * @return the dataset title.
+         */
+        public String getTitle() {
+            return string(buffer.getInt(position + TITLE));
+        }
+
+        /**
+         * Returns the name of the dataset creator, or {@code null} if none.
+         *
+         * @return the dataset creator.
+         */
+        public String getCreator() {
+            return string(buffer.getInt(position + CREATOR));
+        }
+
+        /**
+         * Returns the time of last modification of the file when it has been cataloged,
+         * in milliseconds since January 1st, 1970, or {@link Long#MIN_VALUE} if unknown.
+         *
+         * @return time of last modification of the cataloged file.
+         */
+        public long getLastModified() {
+            return buffer.getLong(position + LAST_MODIFIED);
+        }
+
+        /**
+         * Returns the western-most longitude in degrees, or {@code NaN} if none.
+         *
+         * @return the western bound.
+         */
+        public double getWestBoundLongitude() {
+            return buffer.getDouble(position + WEST);
+        }
+
+        /**
+         * Returns the eastern-most longitude in degrees, or {@code NaN} if none.
+         *
+         * @return the eastern bound.
+         */
+        public double getEastBoundLongitude() {
+            return buffer.getDouble(position + EAST);
+        }
+
+        /**
+         * Returns the southern-most latitude in degrees, or {@code NaN} if none.
+         *
+         * @return the southern bound.
+         */
+        public double getSouthBoundLatitude() {
+            return buffer.getDouble(position + SOUTH);
+        }
+
+        /**
+         * Returns the northern-most latitude in degrees, or {@code NaN} if none.
+         *
+         * @return the northern bound.
+         */
+        public double getNorthBoundLatitude() {
+            return buffer.getDouble(position + NORTH);
+        }
+
+        /**
+         * Returns the dataset creation date, or {@code null} if none.
+         *
+         * @return the dataset creation date.
+         */
+        public Date getCreationDate() {
+            final long t = buffer.getLong(position + CREATION_DATE);
+            return (t != Long.MIN_VALUE) ? new Date(t) : null;
+        }
+
+        /**
+         * Returns the metadata creation date, or {@code null} if none.
+         *
+         * @return the metadata creation date.
+         */
+        public Date getMetadataDate() {
+            final long t = buffer.getLong(position + METADATA_DATE);
+            return (t != Long.MIN_VALUE) ? new Date(t) : null;
+        }
+
+        /**
+         * Returns the position of the description of the CRS at the given index.
+         */
+        private int crs(final int index) {
+            final int count = buffer.getInt(position + CRS_COUNT);
+            if (index < 0 || index >= count) {
+                throw new IndexOutOfBoundsException("Index " + index + " is out of bounds.");
+            }
+            int p = Math.toIntExact(buffer.getLong(position + CRS_POSITION));
+            for (int i=0; i<index; i++) {
+                p += 2 * Integer.BYTES + buffer.getInt(p + Integer.BYTES) * Double.BYTES;
+            }
+            return p;
+        }
+
+        /**
+         * Returns a summary of the coordinate reference systems, as the GeoAPI interface name
+         * followed by the CRS name between brackets. Example: {@code "ProjectedCRS[y x]"}.
+         *
+         * @return summary of the coordinate reference systems (never {@code null}).
+         */
+        public List<String> getCoordinateReferenceSystems() {
+            final int count = buffer.getInt(position + CRS_COUNT);
+            final List<String> crs = new ArrayList<>(count);
+            if (count != 0) {
+                int p = crs(0);
+                for (int i=0; i<count; i++) {
+                    crs.add(string(buffer.getInt(p)));
+                    p += 2 * Integer.BYTES + buffer.getInt(p + Integer.BYTES) * Double.BYTES;
+                }
+            }
+            return crs;
+        }
+
+        /**
+         * Returns a read-only view over the elements of the affine transform from grid indices to coordinates
+         * of the CRS at the given index. The elements are in row-major order in a square matrix of size
+         * <var>n</var>+1 where <var>n</var> is the number of dimensions. The returned buffer reads the values
+         * directly from the mapped file.
+         *
+         * @param  index  index of the CRS in the list returned by {@link #getCoordinateReferenceSystems()}.
+         * @return elements of the grid to CRS matrix, or {@code null} if the transform is not affine.
+         * @throws IndexOutOfBoundsException if the given index is out of bounds.
+         */
+        public DoubleBuffer getGridToCRS(final int index) {
+            final int p = crs(index);
+            final int length = buffer.getInt(p + Integer.BYTES);
+            if (length == 0) {
+                return null;
+            }
+            final ByteBuffer view = buffer.duplicate();
+            view.position(p + 2 * Integer.BYTES).limit(p + 2 * Integer.BYTES + length * Double.BYTES);
+            return view.slice().asDoubleBuffer().asReadOnlyBuffer();
+        }
+
+        /**
+         * Returns the content of this entry as a record, for writing it in an updated catalog.
+         */
+        MetadataHarvester.Record toRecord() {
+            final List<String> crs = getCoordinateReferenceSystems();
+            final List<double[]> gridToCRS = new ArrayList<>(crs.size());
+            for (int i=0; i<crs.size(); i++) {
+                final DoubleBuffer b = getGridToCRS(i);
+                double[] elements = null;
+                if (b != null) {
+                    elements = new double[b.remaining()];
+                    b.get(elements);
+                }
+                gridToCRS.add(elements);
+            }
+            return new MetadataHarvester.Record(getFile(), getIdentifier(), getTitle(), getCreator(),
+                    getWestBoundLongitude(), getEastBoundLongitude(), getSouthBoundLatitude(), getNorthBoundLatitude(),
+                    buffer.getLong(position + CREATION_DATE), buffer.getLong(position + METADATA_DATE),
+                    getLastModified(), crs, gridToCRS);
+        }
+
+        /**
+         * Returns a string representation of this entry, for debugging purpose.
+         */
+        @Override
+        public String toString() {
+            return "Entry[" + getPathName() + ", " + getTitle() + ", " + getCoordinateReferenceSystems() + ']';
+        }
+    }
+}
@@ -0,0 +1,710 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.EnumSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Collections;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import ucar.nc2.NetcdfFile;
+import ucar.nc2.NetcdfFiles;
+import ucar.nc2.dataset.NetcdfDataset;
+import ucar.nc2.dataset.NetcdfDatasets;
+import ucar.nc2.dataset.CoordinateSystem;
+
+import org.opengis.metadata.citation.ResponsibleParty;
+import org.opengis.referencing.crs.CompoundCRS;
+import org.opengis.referencing.crs.ProjectedCRS;
+import org.opengis.referencing.crs.GeographicCRS;
+import org.opengis.referencing.crs.VerticalCRS;
+import org.opengis.referencing.crs.TemporalCRS;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.util.InternationalString;
+
+
+/**
+ * Extracts a summary of the metadata of many netCDF files concurrently. Files are opened in a pool
+ * of worker threads and only their headers and coordinate systems are read. For each file, a flat
+ * {@link Record} is given to a consumer in the thread which invoked a {@code harvest(…)} method.
+ * Example:
+ *
+ * <pre>
+ * try (MetadataHarvester harvester = new MetadataHarvester(8, 64)) {
+ *     harvester.harvest(Paths.get("archive"), (record) -&gt; {
+ *         if (record.getFailure() == null) {
+ *             catalog.add(record);
+ *         }
+ *     });
+ *     System.out.println(harvester.getFileCount() + " files.");
+ * }</pre>
+ *
+ * <h2>Backpressure</h2>
+ * The number of files submitted to the workers but not yet given to the consumer is bounded by the
+ * {@code maxPending} constructor argument. When that limit is reached, no new file is opened until
+ * the consumer has processed a record. Consequently a slow consumer slows down the workers instead
+ * of accumulating records in memory.
+ *
+ * <h2>Error isolation</h2>
+ * A file which can not be read produces a record with a non-null {@linkplain Record#getFailure() failure}
+ * instead of interrupting the harvest, including when the failure is an {@link Error}. Only exceptions
+ * thrown by the consumer, or by the walk of a directory tree, interrupt the harvest.
+ *
+ * <h2>Counters</h2>
+ * The counters accumulate over all harvests done with this harvester. Comparing the
+ * {@linkplain #getWorkerTime(TimeUnit) time spent by workers} with the {@linkplain #getWallTime(TimeUnit)
+ * wall time} multiplied by the parallelism gives the utilization of the worker pool, while the
+ * {@linkplain #getConsumerTime(TimeUnit) time spent in the consumer} tells whether the consumer
+ * is the bottleneck.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public class MetadataHarvester implements AutoCloseable {
+    /**
+     * The file suffixes recognized as netCDF files when walking a directory tree.
+     * Comparisons are case-insensitive.
+     */
+    private static final String[] SUFFIXES = {".nc", ".nc4", ".cdf", ".netcdf"};
+
+    /**
+     * The threads where files are opened.
+     */
+    private final ExecutorService workers;
+
+    /**
+     * Maximal number of files submitted to workers but not yet given to the consumer.
+     */
+    private final int maxPending;
+
+    /**
+     * Number of files read, including the failures.
+     */
+    private final AtomicLong fileCount;
+
+    /**
+     * Number of files that can not be read.
+     */
+    private final AtomicLong failureCount;
+
+    /**
+     * Sum of the size in bytes of the files read successfully.
+     */
+    private final AtomicLong byteCount;
+
+    /**
+     * Sum of the time in nanoseconds spent by workers for reading files.
+     */
+    private final AtomicLong workerTime;
+
+    /**
+     * Sum of the time in nanoseconds spent in the consumer.
+     */
+    private final AtomicLong consumerTime;
+
+    /**
+     * Sum of the time in nanoseconds spent in {@code harvest(…)} methods.
+     */
+    private final AtomicLong wallTime;
+
+    /**
+     * Creates a new harvester.
+     *
+     * @param  parallelism  number of files to read concurrently.
+     * @param  maxPending   maximal number of files submitted to the workers but not yet consumed.
+     *                      Shall be equal or greater than {@code parallelism}.
+     */
+    public MetadataHarvester(final int parallelism, final int maxPending) {
+        if (parallelism <= 0 || maxPending < parallelism) {
+            throw new IllegalArgumentException("Illegal parallelism or maximal number of pending files.");
+        }
+        this.maxPending = maxPending;
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory factory = (task) -> {
+            final Thread thread = new Thread(task, "MetadataHarvester-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        workers      = Executors.newFixedThreadPool(parallelism, factory);
+        fileCount    = new AtomicLong();
+        failureCount = new AtomicLong();
+        byteCount    = new AtomicLong();
+        workerTime   = new AtomicLong();
+        consumerTime = new AtomicLong();
+        wallTime     = new AtomicLong();
+    }
+
+    /**
+     * Harvests the metadata of all netCDF files in the given directory and its sub-directories.
+     * Files are recognized by their {@code ".nc"}, {@code ".nc4"}, {@code ".cdf"} or {@code ".netcdf"}
+     * suffix. The directory tree is walked lazily, so the list of files is never fully in memory.
+     *
+     * @param  directory  root of the directory tree to harvest.
+     * @param  consumer   the consumer to invoke in the calling thread for each file.
+     * @throws IOException if an error occurred while walking the directory tree.
+     * @throws InterruptedException if the calling thread has been interrupted while waiting for a record.
+     */
+    public void harvest(final Path directory, final Consumer<? super Record> consumer)
+            throws IOException, InterruptedException
+    {
+        try (Stream<Path> files = Files.walk(directory)) {
+            final Walk walk = new Walk(files.filter(MetadataHarvester::isNetcdf).iterator());
+            try {
+                harvest(() -> walk, consumer);
+            } catch (UncheckedIOException e) {
+                if (e == walk.failure) {
+                    throw e.getCause();
+                }
+                throw e;                    // Thrown by the consumer.
+            }
+        }
+    }
+
+    /**
+     * Iterator over the files found by walking a directory tree. This iterator remembers the exception
+     * thrown by the walk, for distinguishing it from the exceptions thrown by the consumer.
+     */
+    private static final class Walk implements Iterator<Path> {
+        /** The iterator over the files found by the walk. */
+        private final Iterator<Path> files;
+
+        /** The exception thrown by the walk, or {@code null} if none. */
+        UncheckedIOException failure;
+
+        /** Creates a new iterator over the given files. */
+        Walk(final Iterator<Path> files) {
+            this.files = files;
+        }
+
+        /** Returns whether the walk has more files, remembering the exception if the walk failed. */
+        @Override
+        public boolean hasNext() {
+            try {
+                return files.hasNext();
+            } catch (UncheckedIOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+
+        /** Returns the next file found by the walk, remembering the exception if the walk failed. */
+        @Override
+        public Path next() {
+            try {
+                return files.next();
+            } catch (UncheckedIOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if the given path is a regular file with a netCDF suffix.
+     */
+    static boolean isNetcdf(final Path file) {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (final String suffix : SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return Files.isRegularFile(file);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Harvests the metadata of all given files. The consumer is invoked in the calling thread
+     * exactly once per file, in no particular order.
+     *
+     * @param  files     the files to harvest.
+     * @param  consumer  the consumer to invoke in the calling thread for each file.
+     * @throws InterruptedException if the calling thread has been interrupted while waiting for a record.
+     */
+    public void harvest(final Iterable<? extends Path> files, final Consumer<? super Record> consumer)
+            throws InterruptedException
+    {
+        Objects.requireNonNull(consumer);
+        final long start = System.nanoTime();
+        final BlockingQueue<Record> records = new LinkedBlockingQueue<>();
+        int pending = 0;
+        try {
+            for (final Path file : files) {
+                while (pending >= maxPending) {
+                    consume(records.take(), consumer);
+                    pending--;
+                }
+                workers.execute(() -> records.add(read(file)));
+                pending++;
+                Record record;
+                while ((record = records.poll()) != null) {
+                    consume(record, consumer);
+                    pending--;
+                }
+            }
+            while (pending > 0) {
+                consume(records.take(), consumer);
+                pending--;
+            }
+        } finally {
+            wallTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Gives the given record to the consumer and updates the counters.
+     */
+    private void consume(final Record record, final Consumer<? super Record> consumer) {
+        final long start = System.nanoTime();
+        try {
+            consumer.accept(record);
+        } finally {
+            consumerTime.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads the metadata of the given file. This method is invoked in a worker thread
+     * and never throws an exception; failures are stored in the returned record.
+     * This includes errors such as {@link OutOfMemoryError} or {@link StackOverflowError}
+     * caused by a pathological header, since the harvest waits for a record for each file.
+     */
+    private Record read(final Path path) {
+        final long start = System.nanoTime();
+        Record record;
+        try (NetcdfFile file = NetcdfFiles.open(path.toString())) {
+            final long lastModified = Files.getLastModifiedTime(path).toMillis();
+            final NetcdfDataset dataset = NetcdfDatasets.enhance(file, EnumSet.of(NetcdfDataset.Enhance.CoordSystems), null);
+            record = new Record(path, lastModified, new NetcdfMetadata(file), dataset);
+            byteCount.addAndGet(Files.size(path));
+        } catch (Throwable e) {
+            record = new Record(path, e);
+            failureCount.incrementAndGet();
+        }
+        fileCount.incrementAndGet();
+        workerTime.addAndGet(System.nanoTime() - start);
+        return record;
+    }
+
+    /**
+     * Returns the number of files read, including the files that can not be read.
+     *
+     * @return number of files read.
+     */
+    public long getFileCount() {
+        return fileCount.get();
+    }
+
+    /**
+     * Returns the number of files that can not be read.
+     *
+     * @return number of failures.
+     */
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Returns the sum of the sizes of all files read successfully.
+     *
+     * @return number of bytes in the files read.
+     */
+    public long getByteCount() {
+        return byteCount.get();
+    }
+
+    /**
+     * Returns the sum of the time spent by all workers for reading files.
+     *
+     * @param  unit  the desired time unit.
+     * @return time spent by workers.
+     */
+    public long getWorkerTime(final TimeUnit unit) {
+        return unit.convert(workerTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the sum of the time spent in the consumers.
+     *
+     * @param  unit  the desired time unit.
+     * @return time spent by consumers.
+     */
+    public long getConsumerTime(final TimeUnit unit) {
+        return unit.convert(consumerTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the sum of the time spent in the {@code harvest(…)} methods.
+     *
+     * @param  unit  the desired time unit.
+     * @return elapsed time of all harvests.
+     */
+    public long getWallTime(final TimeUnit unit) {
+        return unit.convert(wallTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the number of files read per second of wall time, or {@code NaN} if no file has been read.
+     *
+     * @return average number of files read per second.
+     */
+    public double getFilesPerSecond() {
+        return fileCount.get() / (wallTime.get() / 1E9);
+    }
+
+    /**
+     * Stops the worker threads. This harvester can not be used anymore after this method call.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Returns a string representation of the counters, for logging purpose.
+     */
+    @Override
+    public String toString() {
+        return "MetadataHarvester[files=" + getFileCount() + ", failures=" + getFailureCount()
+                + ", bytes=" + getByteCount() + ", workerTime=" + getWorkerTime(TimeUnit.MILLISECONDS)
+                + " ms, consumerTime=" + getConsumerTime(TimeUnit.MILLISECONDS)
+                + " ms, wallTime=" + getWallTime(TimeUnit.MILLISECONDS) + " ms]";
+    }
+
+
+
+
+    /**
+     * Summary of the metadata of a single netCDF file. Records are immutable and do not keep
+     * a reference to the netCDF file, which is closed after the record has been created.
+     */
+    public static final class Record {
+        /**
+         * The file from which the metadata have been read.
+         */
+        private final Path file;
+
+        /**
+         * The netCDF {@code "title"} and {@code "id"} attributes, or {@code null} if none.
+         */
+        private final String title, identifier;
+
+        /**
+         * The netCDF {@code "creator_name"} attribute, or {@code null} if none.
+         */
+        private final String creator;
+
+        /**
+         * The geographic bounding box, or {@code NaN} if none.
+         */
+        private final double westBoundLongitude, eastBoundLongitude, southBoundLatitude, northBoundLatitude;
+
+        /**
+         * The netCDF {@code "date_created"} and {@code "metadata_creation"} attributes in milliseconds
+         * since January 1st, 1970, or {@link Long#MIN_VALUE} if none.
+         */
+        private final long creationDate, metadataDate;
+
+        /**
+         * The time of last modification of the file in milliseconds since January 1st, 1970,
+         * or {@link Long#MIN_VALUE} if unknown.
+         */
+        private final long lastModified;
+
+        /**
+         * Summary of the coordinate reference systems, as CRS type followed by the name.
+         */
+        private final List<String> crs;
+
+        /**
+         * Elements of the grid to CRS affine matrices in row-major order, in the same order than {@link #crs}.
+         * Elements are {@code null} for the coordinate systems having at least one irregular axis.
+         */
+        private final List<double[]> gridToCRS;
+
+        /**
+         * The exception that occurred while reading the file, or {@code null} if none.
+         */
+        private final Throwable failure;
+
+        /**
+         * Creates a record for a file read successfully.
+         */
+        Record(final Path file, final long lastModified, final NetcdfMetadata metadata, final NetcdfDataset dataset) {
+            this.file         = file;
+            this.lastModified = lastModified;
+            final InternationalString t = metadata.getTitle();
+            title      = (t != null) ? t.toString() : null;
+            identifier = metadata.getCode();
+            String name = null;
+            for (final ResponsibleParty party : metadata.getCitedResponsibleParties()) {
+                name = party.getIndividualName();
+                if (name != null) break;
+            }
+            creator            = name;
+            westBoundLongitude = metadata.getWestBoundLongitude();
+            eastBoundLongitude = metadata.getEastBoundLongitude();
+            southBoundLatitude = metadata.getSouthBoundLatitude();
+            northBoundLatitude = metadata.getNorthBoundLatitude();
+            creationDate       = millis(metadata.getDate());
+            metadataDate       = millis(metadata.getDateStamp());
+            final List<String>   summary = new ArrayList<>();
+            final List<double[]> matrices = new ArrayList<>();
+            for (final CoordinateSystem cs : dataset.getCoordinateSystems()) {
+                final NetcdfCRS c;
+                try {
+                    c = NetcdfCRS.wrap(cs, dataset, null);
+                } catch (ClassCastException e) {
+                    continue;                   // Coordinate system with axes of unsupported kind.
+                }
+                summary.add(type(c) + '[' + c.getCode() + ']');
+                matrices.add(elements(c));
+            }
+            crs       = Collections.unmodifiableList(summary);
+            gridToCRS = Collections.unmodifiableList(matrices);
+            failure   = null;
+        }
+
+        /**
+         * Creates a record from values read from a {@link MetadataCatalog}.
+         */
+        Record(final Path file, final String identifier, final String title, final String creator,
+               final double westBoundLongitude, final double eastBoundLongitude,
+               final double southBoundLatitude, final double northBoundLatitude,
+               final long creationDate, final long metadataDate, final long lastModified,
+               final List<String> crs, final List<double[]> gridToCRS)
+        {
+            this.file               = file;
+            this.identifier         = identifier;
+            this.title              = title;
+            this.creator            = creator;
+            this.westBoundLongitude = westBoundLongitude;
+            this.eastBoundLongitude = eastBoundLongitude;
+            this.southBoundLatitude = southBoundLatitude;
+            this.northBoundLatitude = northBoundLatitude;
+            this.creationDate       = creationDate;
+            this.metadataDate       = metadataDate;
+            this.lastModified       = lastModified;
+            this.crs                = Collections.unmodifiableList(crs);
+            this.gridToCRS          = Collections.unmodifiableList(gridToCRS);
+            this.failure            = null;
+        }
+
+        /**
+         * Creates a record for a file that can not be read.
+         */
+        Record(final Path file, final Throwable failure) {
+            this.file          = file;
+            this.failure       = failure;
+            title = identifier = creator = null;
+            westBoundLongitude = eastBoundLongitude = southBoundLatitude = northBoundLatitude = Double.NaN;
+            creationDate       = metadataDate = lastModified = Long.MIN_VALUE;
+            crs                = Collections.emptyList();
+            gridToCRS          = Collections.emptyList();
+        }
+
+        /**
+         * Returns the elements of the grid to CRS matrix of the given CRS in row-major order,
+         * or {@code null} if the transform is not affine or can not be computed.
+         */
+        private static double[] elements(final NetcdfCRS crs) {
+            final MathTransform tr;
+            try {
+                tr = crs.getGridToCRS();
+            } catch (RuntimeException e) {
+                return null;                    // Axis values can not be read.
+            }
+            if (!(tr instanceof SimpleAffineTransform)) {
+                return null;
+            }
+            final SimpleMatrix matrix = ((SimpleAffineTransform) tr).getMatrix();
+            final int numCol = matrix.getNumCol();
+            final double[] elements = new double[matrix.getNumRow() * numCol];
+            for (int i=0; i<elements.length; i++) {
+                elements[i] = matrix.getElement(i / numCol, i % numCol);
+            }
+            return elements;
+        }
+
+        /**
+         * Returns the given date in milliseconds, or {@link Long#MIN_VALUE} if null.
+         */
+        private static long millis(final Date date) {
+            return (date != null) ? date.getTime() : Long.MIN_VALUE;
+        }
+
+        /**
+         * Returns the name of the GeoAPI interface implemented by the given CRS.
+         */
+        private static String type(final NetcdfCRS crs) {
+            if (crs instanceof CompoundCRS)   return "CompoundCRS";
+            if (crs instanceof ProjectedCRS)  return "ProjectedCRS";
+            if (crs instanceof GeographicCRS) return "GeographicCRS";
+            if (crs instanceof VerticalCRS)   return "VerticalCRS";
+            if (crs instanceof TemporalCRS)   return "TemporalCRS";
+            return "CRS";
+        }
+
+        /**
+         * Returns the file from which the metadata have been read.
+         *
+         * @return the harvested file.
+         */
+        public Path getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the dataset title, or {@code null} if none.
+         *
+         * @return the dataset title.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        /**
+         * Returns the dataset identifier, or {@code null} if none.
+         *
+         * @return the dataset identifier.
+         */
+        public String getIdentifier() {
+            return identifier;
+        }
+
+        /**
+         * Returns the name of the dataset creator, or {@code null} if none.
+         *
+         * @return the dataset creator.
+         */
+        public String getCreator() {
+            return creator;
+        }
+
+        /**
+         * Returns the western-most longitude in degrees, or {@code NaN} if none.
+         *
+         * @return the western bound.
+         */
+        public double getWestBoundLongitude() {
+            return westBoundLongitude;
+        }
+
+        /**
+         * Returns the eastern-most longitude in degrees, or {@code NaN} if none.
+         *
+         * @return the eastern bound.
+         */
+        public double getEastBoundLongitude() {
+            return eastBoundLongitude;
+        }
+
+        /**
+         * Returns the southern-most latitude in degrees, or {@code NaN} if none.
+         *
+         * @return the southern bound.
+         */
+        public double getSouthBoundLatitude() {
+            return southBoundLatitude;
+        }
+
+        /**
+         * Returns the northern-most latitude in degrees, or {@code NaN} if none.
+         *
+         * @return the northern bound.
+         */
+        public double getNorthBoundLatitude() {
+            return northBoundLatitude;
+        }
+
+        /**
+         * Returns the dataset creation date, or {@code null} if none.
+         *
+         * @return the dataset creation date.
+         */
+        public Date getCreationDate() {
+            return (creationDate != Long.MIN_VALUE) ? new Date(creationDate) : null;
+        }
+
+        /**
+         * Returns the metadata creation date, or {@code null} if none.
+         *
+         * @return the metadata creation date.
+         */
+        public Date getMetadataDate() {
+            return (metadataDate != Long.MIN_VALUE) ? new Date(metadataDate) : null;
+        }
+
+        /**
+         * Returns a summary of the coordinate reference systems, as the GeoAPI interface name
+         * followed by the CRS name between brackets. Example: {@code "ProjectedCRS[y x]"}.
+         *
+         * @return summary of the coordinate reference systems (never {@code null}).
+         */
+        public List<String> getCoordinateReferenceSystems() {
+            return crs;
+        }
+
+        /**
+         * Returns the elements of the affine transform from grid indices to coordinates of the CRS at the
+         * given index in the {@linkplain #getCoordinateReferenceSystems() list of CRS}. The elements are
+         * in row-major order in a square matrix of size <var>n</var>+1 where <var>n</var> is the number
+         * of dimensions. This method returns {@code null} if the CRS has at least one irregular axis.
+         *
+         * @param  index  index of the CRS in the list returned by {@link #getCoordinateReferenceSystems()}.
+         * @return elements of the grid to CRS matrix, or {@code null} if the transform is not affine.
+         * @throws IndexOutOfBoundsException if the given index is out of bounds.
+         */
+        public double[] getGridToCRS(final int index) {
+            final double[] elements = gridToCRS.get(index);
+            return (elements != null) ? elements.clone() : null;
+        }
+
+        /**
+         * Returns the time of last modification of the file when it has been read,
+         * in milliseconds since January 1st, 1970, or {@link Long#MIN_VALUE} if unknown.
+         *
+         * @return time of last modification of the harvested file.
+         */
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Returns the exception that occurred while reading the file, or {@code null} if none.
+         *
+         * @return the failure, or {@code null} if the file has been read successfully.
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * Returns a string representation of this record, for debugging purpose.
+         */
+        @Override
+        public String toString() {
+            return (failure != null) ? "Record[" + file + ", " + failure + ']'
+                                     : "Record[" + file + ", " + title + ", " + crs + ']';
+        }
+    }
+}
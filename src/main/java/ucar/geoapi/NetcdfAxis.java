@@ -7,6 +7,7 @@
 package ucar.geoapi;
 
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 import javax.measure.Unit;
 import javax.measure.format.ParserException;
 
@@ -39,8 +40,17 @@ final class NetcdfAxis extends NetcdfIdentifiedObject implements CoordinateSyste
 
     /**
      * The netCDF coordinate axis wrapped by this {@code NetcdfAxis} instance.
+     * This axis may be replaced by a more complete one when the axis values are first needed.
+     *
+     * @see #completeLater(UnaryOperator)
      */
-    private final CoordinateAxis1D axis;
+    private volatile CoordinateAxis1D axis;
+
+    /**
+     * A function computing a more complete axis from {@link #axis} when the axis values are first
+     * needed, or {@code null} if none or if the function has already been applied.
+     */
+    private transient volatile UnaryOperator<CoordinateAxis1D> completer;
 
     /**
      * The unit, computed when first needed.
@@ -57,6 +67,42 @@ final class NetcdfAxis extends NetcdfIdentifiedObject implements CoordinateSyste
         this.axis = axis;
     }
 
+    /**
+     * Specifies a function to apply on the wrapped axis when the axis values are first needed.
+     * This is used for deferring potentially costly operations such as the conversion of time
+     * values, since many users need only the axis name, direction or units.
+     *
+     * @param  completer  the function computing a more complete axis from the current one.
+     */
+    final void completeLater(final UnaryOperator<CoordinateAxis1D> completer) {
+        this.completer = completer;
+    }
+
+    /**
+     * Returns the wrapped axis after the {@linkplain #completeLater completion} has been applied.
+     * This method shall be invoked instead of reading the {@link #axis} field directly by all
+     * methods needing the axis values.
+     *
+     * <p>The completion may perform I/O operations, so it is executed without holding a lock.
+     * If many threads complete the axis concurrently, the first result is retained. Since the
+     * completion reads the dataset, it shall happen before the dataset is closed.</p>
+     *
+     * @throws IllegalStateException if the completion needs a dataset which has been closed.
+     */
+    private CoordinateAxis1D values() {
+        final UnaryOperator<CoordinateAxis1D> c = completer;
+        if (c != null) {
+            final CoordinateAxis1D completed = c.apply(axis);
+            synchronized (this) {
+                if (completer == c) {
+                    axis = completed;
+                    completer = null;
+                }
+            }
+        }
+        return axis;
+    }
+
     /**
      * Returns the wrapped netCDF axis.
      *
@@ -64,7 +110,7 @@ final class NetcdfAxis extends NetcdfIdentifiedObject implements CoordinateSyste
      */
     @Override
     public CoordinateAxis1D delegate() {
-        return axis;
+        return values();
     }
 
     /**
@@ -141,7 +187,7 @@ final class NetcdfAxis extends NetcdfIdentifiedObject implements CoordinateSyste
      */
     @Override
     public double getMinimumValue() {
-        return axis.getMinValue();
+        return values().getMinValue();
     }
 
     /**
@@ -152,7 +198,7 @@ final class NetcdfAxis extends NetcdfIdentifiedObject implements CoordinateSyste
      */
     @Override
     public double getMaximumValue() {
-        return axis.getMaxValue();
+        return values().getMaxValue();
     }
 
     /**
@@ -14,6 +14,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Formatter;
 import java.util.Objects;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.HashMap;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,7 +32,6 @@ import ucar.nc2.dataset.CoordinateSystem;
 import ucar.nc2.dataset.CoordinateAxis1DTime;
 
 import org.opengis.metadata.extent.Extent;
-import org.opengis.util.FactoryException;
 import org.opengis.referencing.cs.*;
 import org.opengis.referencing.crs.*;
 import org.opengis.referencing.datum.*;
@@ -96,6 +101,26 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
      */
     private transient MathTransform gridToCRS;
 
+    /**
+     * The inverse of {@link #gridToCRS}, computed when first needed.
+     */
+    private transient MathTransform crsToGrid;
+
+    /**
+     * The transform from geographic coordinates to grid coordinates, computed when first needed.
+     * This is the same than {@link #crsToGrid} except that the horizontal coordinates of projected
+     * components are (<var>longitude</var>, <var>latitude</var>) in degrees.
+     */
+    private transient MathTransform geographicToGrid;
+
+    /**
+     * The geographic coordinates of all grid cells, computed when first needed.
+     * Soft reference because the grid may be large and can be recomputed.
+     *
+     * @see #getGeographicGrid(boolean)
+     */
+    private transient SoftReference<GeographicGrid> geographicGrid;
+
     /**
      * Creates a new {@code NetcdfCRS} object wrapping the given netCDF coordinate system.
      * The {@link CoordinateSystem#getCoordinateAxes()} is invoked at construction time and
@@ -183,7 +208,7 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
                         }
                         case RunTime:
                         case Time: {
-                            components.add(new Temporal(netcdfCS, Temporal.complete(axis, file, logger)));
+                            components.add(new Temporal(netcdfCS, axis, file, logger));
                             continue;
                         }
                         case Lat:
@@ -238,6 +263,196 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
         }
     }
 
+    /**
+     * Wrapped CRS for each dataset, for avoiding to wrap the same coordinate system many times.
+     * The CRS are softly referenced, so they are kept after the caller discarded them until the JVM
+     * needs memory. Since a CRS contains (indirectly) a reference to its dataset, the weak dataset keys
+     * are cleared only after the soft references have been cleared. The cache of a dataset is discarded
+     * sooner if the dataset is closed or {@linkplain #releaseCache released}.
+     * All accesses to this map shall be synchronized on the map.
+     */
+    private static final Map<NetcdfDataset, DatasetCache> CACHE = new WeakHashMap<>();
+
+    /**
+     * The queue of keys for which the coordinate system has been garbage-collected.
+     * Those keys are removed from their {@link DatasetCache} at the next cache access.
+     * All accesses to this queue shall be synchronized on {@link #CACHE}.
+     */
+    private static final ReferenceQueue<CoordinateSystem> COLLECTED = new ReferenceQueue<>();
+
+    /**
+     * The wrapped CRS of a single dataset.
+     */
+    private static final class DatasetCache {
+        /**
+         * The file referenced by the dataset when this cache has been created, or {@code null} if none.
+         * The dataset releases this reference when closed, which is how the cache detects that it is
+         * no longer valid. This reference is weak for not retaining a file released by a closed dataset.
+         */
+        private final WeakReference<Object> referencedFile;
+
+        /**
+         * The wrapped CRS for each netCDF coordinate system of the dataset.
+         */
+        final Map<Key, SoftReference<NetcdfCRS>> wrapped;
+
+        /**
+         * Creates an empty cache for the given dataset.
+         */
+        DatasetCache(final NetcdfDataset file) {
+            final Object referenced = file.getReferencedFile();
+            referencedFile = (referenced != null) ? new WeakReference<>(referenced) : null;
+            wrapped = new HashMap<>();
+        }
+
+        /**
+         * Returns {@code true} if the given dataset still references the same file than when this cache
+         * has been created. This method returns {@code false} if the dataset has been closed. Datasets
+         * which did not reference any file are not checked; their cache is discarded only by an explicit
+         * call to {@link NetcdfCRS#releaseCache(NetcdfDataset)} or when the dataset is garbage-collected.
+         */
+        boolean isValid(final NetcdfDataset file) {
+            if (referencedFile == null) {
+                return true;
+            }
+            final Object current = file.getReferencedFile();
+            return current != null && referencedFile.get() == current;
+        }
+    }
+
+    /**
+     * A weak reference to a netCDF coordinate system, compared by identity.
+     * Used as keys in {@link DatasetCache#wrapped}.
+     */
+    private static final class Key extends WeakReference<CoordinateSystem> {
+        /** The identity hash code of the coordinate system. */
+        private final int hash;
+
+        /** The cache which contains this key, or {@code null} if this key is used only for a lookup. */
+        private final DatasetCache owner;
+
+        /** Creates a new key for the given coordinate system, to be stored in the given cache. */
+        Key(final CoordinateSystem cs, final DatasetCache owner) {
+            super(cs, (owner != null) ? COLLECTED : null);
+            this.hash  = System.identityHashCode(cs);
+            this.owner = owner;
+        }
+
+        /** Returns the identity hash code of the coordinate system. */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        /** Compares the referenced coordinate systems by identity. */
+        @Override
+        public boolean equals(final Object other) {
+            if (other == this) {
+                return true;
+            }
+            if (other instanceof Key) {
+                final Object cs = get();
+                return cs != null && cs == ((Key) other).get();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Removes from their cache the keys of all coordinate systems which have been garbage-collected.
+     * This method shall be invoked in a block synchronized on {@link #CACHE}.
+     */
+    private static void expungeCollected() {
+        Key key;
+        while ((key = (Key) COLLECTED.poll()) != null) {
+            key.owner.wrapped.remove(key);
+        }
+    }
+
+    /**
+     * Returns a wrapper for the given netCDF coordinate system, reusing the wrapper created by a previous
+     * call if possible. The cache is specific to the dataset of the given coordinate system, and is discarded
+     * when the dataset is closed, released or garbage-collected. Consequently repeated calls for the same
+     * coordinate system do not repeat the I/O operations performed for completing the temporal axes.
+     *
+     * @param  netcdfCS  the netCDF coordinate system to wrap, or {@code null} if none.
+     * @param  logger    an optional object where to log warnings, or {@code null} if none.
+     * @return a wrapper for the given object, or {@code null} if the {@code netcdfCS} argument was null.
+     * @throws ClassCastException if at least one axis is not an instance of the {@link CoordinateAxis1D} subclass.
+     *
+     * @see #wrap(CoordinateSystem, NetcdfDataset, Logger)
+     * @see #releaseCache(NetcdfDataset)
+     */
+    static NetcdfCRS wrapCached(final CoordinateSystem netcdfCS, final Logger logger) {
+        if (netcdfCS == null) {
+            return null;
+        }
+        final NetcdfDataset file = netcdfCS.getNetcdfDataset();
+        if (file == null) {
+            return wrap(netcdfCS, null, logger);
+        }
+        final Key key = new Key(netcdfCS, null);
+        DatasetCache cache;
+        synchronized (CACHE) {
+            expungeCollected();
+            cache = CACHE.get(file);
+            if (cache != null && !cache.isValid(file)) {
+                cache = null;                       // The dataset has been closed.
+            }
+            if (cache == null) {
+                cache = new DatasetCache(file);
+                CACHE.put(file, cache);
+            }
+            final SoftReference<NetcdfCRS> ref = cache.wrapped.get(key);
+            if (ref != null) {
+                final NetcdfCRS crs = ref.get();
+                if (crs != null) {
+                    return crs;
+                }
+            }
+        }
+        /*
+         * Wrap outside the synchronized block because this operation may perform I/O.
+         * If another thread wrapped the same coordinate system in the meantime, keep
+         * the first instance.
+         */
+        NetcdfCRS crs = wrap(netcdfCS, file, logger);
+        synchronized (CACHE) {
+            final SoftReference<NetcdfCRS> ref = cache.wrapped.get(key);
+            final NetcdfCRS existing = (ref != null) ? ref.get() : null;
+            if (existing != null) {
+                crs = existing;
+            } else {
+                cache.wrapped.put(new Key(netcdfCS, cache), new SoftReference<>(crs));
+            }
+        }
+        return crs;
+    }
+
+    /**
+     * Discards the cached wrappers of the given dataset. This method should be invoked when the dataset
+     * is closed, for releasing the memory sooner and for making sure that no wrapper reading a closed
+     * dataset is returned by a next call to {@link #wrapCached wrapCached(…)}.
+     *
+     * @param  file  the dataset for which to discard the cached wrappers.
+     */
+    static void releaseCache(final NetcdfDataset file) {
+        synchronized (CACHE) {
+            CACHE.remove(file);
+            expungeCollected();
+        }
+    }
+
+    /**
+     * Returns the number of datasets in the cache of wrapped CRS, for testing purpose only.
+     * Entries of garbage-collected datasets are removed before to count.
+     */
+    static int cachedDatasetCount() {
+        synchronized (CACHE) {
+            return CACHE.size();
+        }
+    }
+
     /**
      * Returns the lower index of the sublist containing axes of the given types.
      *
@@ -355,13 +570,10 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
     }
 
     /**
-     * Returns the transform from grid coordinates to this CRS coordinates, or {@code null} if none.
-     *
-     * <h4>Limitation</h4>
-     * Current implementation can build a transform only for regular coordinate systems.
-     * A future implementation may be more general.
+     * Returns the transform from grid coordinates to this CRS coordinates.
+     * Irregular axes are supported by lookup tables, as documented in {@link #getGridToCRS(int, int)}.
      *
-     * @return the transform from grid to this CRS, or {@code null} if none.
+     * @return the transform from grid to this CRS.
      */
     public synchronized MathTransform getGridToCRS() {
         if (gridToCRS == null) {
@@ -372,15 +584,13 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
 
     /**
      * Returns the transform from grid coordinates to this CRS coordinates in the given
-     * range of dimensions.
-     *
-     * <h4>Limitation</h4>
-     * Current implementation can build a transform only for regular axes.
-     * A future implementation may be more general.
+     * range of dimensions. Regular axes are mapped by an affine transform. Irregular axes
+     * are mapped by a lookup table interpolating linearly between the axis values, applied
+     * on the corresponding dimension only.
      *
      * @param  lowerDimension  index of the first dimension for which to get the transform.
      * @param  upperDimension  index after the last dimension for which to get the transform.
-     * @return the transform from grid to this CRS in the given range of dimensions, or {@code null} if none.
+     * @return the transform from grid to this CRS in the given range of dimensions.
      * @throws IllegalArgumentException if the given dimensions are not in the
      *         [0 … {@linkplain #getDimension() dimension}] range.
      */
@@ -390,22 +600,158 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
         }
         final int numDimensions = upperDimension - lowerDimension;
         final SimpleMatrix matrix = new SimpleMatrix(numDimensions + 1);
+        final MathTransform[] lookups = new MathTransform[numDimensions];
         for (int i=0; i<numDimensions; i++) {
             final CoordinateAxis1D axis = axes[lowerDimension + i].delegate();
-            if (!axis.isRegular()) {
-                return null;
+            if (axis.isRegular()) {
+                final double scale = axis.getIncrement();
+                if (!Double.isNaN(scale) && scale != 0) {
+                    matrix.setElement(i, i, nice(scale));
+                    matrix.setElement(i, numDimensions, nice(axis.getStart()));
+                    continue;
+                }
             }
-            final double scale = axis.getIncrement();
-            if (Double.isNaN(scale) || scale == 0) {
-                return null;
+            final double[] values = axis.getCoordValues().clone();
+            if (values.length >= 2) {
+                lookups[i] = new LookupTableTransform(values);
+            } else if (values.length == 1) {
+                matrix.setElement(i, numDimensions, values[0]);     // Arbitrary scale of 1 (the identity).
             }
-            matrix.setElement(i, i, nice(scale));
-            matrix.setElement(i, numDimensions, nice(axis.getStart()));
         }
-        try {
-            return Factories.getFactory(MathTransformFactory.class).createAffineTransform(matrix);
-        } catch (FactoryException e) {
-            throw new IllegalStateException(e);
+        MathTransform tr = SimpleAffineTransform.create(matrix);
+        for (int i=0; i<numDimensions; i++) {
+            if (lookups[i] != null) {
+                tr = ConcatenatedTransform.create(tr, PassThroughTransform.create(i, lookups[i], numDimensions - (i+1)));
+            }
+        }
+        return tr;
+    }
+
+    /**
+     * Returns the transform from coordinates in this CRS to fractional grid indices.
+     * This is the inverse of {@link #getGridToCRS()}: regular axes are inverted in closed form
+     * and irregular axes by binary search in the axis values.
+     *
+     * @return the transform from this CRS to grid indices.
+     * @throws NoninvertibleTransformException if an axis is irregular and not strictly monotonic.
+     */
+    public synchronized MathTransform getCRSToGrid() throws NoninvertibleTransformException {
+        if (crsToGrid == null) {
+            crsToGrid = getGridToCRS().inverse();
+        }
+        return crsToGrid;
+    }
+
+    /**
+     * Returns the transform from geographic coordinates to the coordinates of this CRS, or {@code null}
+     * if this CRS has no projected component. Subclasses override this method for projected and
+     * compound CRS.
+     */
+    MathTransform fromGeographic() {
+        return null;
+    }
+
+    /**
+     * Returns the transform from geographic coordinates to grid indices.
+     * See {@link #toGridIndicesFromGeographic(double[], int, int[], int, int)}.
+     */
+    private synchronized MathTransform getGeographicToGrid() throws NoninvertibleTransformException {
+        if (geographicToGrid == null) {
+            final MathTransform projection = fromGeographic();
+            geographicToGrid = (projection != null) ? ConcatenatedTransform.create(projection, getCRSToGrid()) : getCRSToGrid();
+        }
+        return geographicToGrid;
+    }
+
+    /**
+     * Returns the (<var>longitude</var>, <var>latitude</var>) coordinates of all cells of this projected CRS.
+     * The grid indices are converted by {@link #getGridToCRS()}, then by the inverse of the projection.
+     * Both steps are executed in parallel on bands of rows. The result is cached in this CRS and reused
+     * by subsequent calls, unless a different storage is requested or the memory is needed for other purpose.
+     *
+     * @param  direct  {@code true} for storing the coordinates in direct (off-heap) buffers,
+     *                 or {@code false} for storing them in Java arrays.
+     * @return the geographic coordinates of all grid cells.
+     * @throws IllegalStateException if this CRS is not a two-dimensional projected CRS.
+     * @throws ArithmeticException if the grid is too large for being stored in a buffer.
+     * @throws TransformException if a coordinate can not be converted.
+     */
+    public synchronized GeographicGrid getGeographicGrid(final boolean direct) throws TransformException {
+        GeographicGrid grid = (geographicGrid != null) ? geographicGrid.get() : null;
+        if (grid == null || grid.isDirect() != direct) {
+            final MathTransform projection = fromGeographic();
+            if (projection == null || axes.length != 2) {
+                throw new IllegalStateException("Not a two-dimensional projected CRS.");
+            }
+            grid = GeographicGrid.compute(Math.toIntExact(getSize(0)), Math.toIntExact(getSize(1)),
+                                          getGridToCRS(), projection.inverse(), direct);
+            geographicGrid = new SoftReference<>(grid);
+        }
+        return grid;
+    }
+
+    /**
+     * Finds the grid indices of the cells nearest to the given coordinates in this CRS.
+     * Coordinates are given as consecutive tuples of {@linkplain #getDimension() dimension}
+     * values, and indices are written in the same layout. Coordinates outside the grid
+     * get the index -1 in the dimensions where they are outside.
+     *
+     * @param  coordinates  the coordinates in this CRS.
+     * @param  srcOff       index of the first coordinate value to convert.
+     * @param  indices      where to write the grid indices.
+     * @param  dstOff       index where to write the first grid index.
+     * @param  numPts       number of points to convert.
+     * @throws TransformException if a coordinate can not be converted.
+     */
+    public void toGridIndices(final double[] coordinates, final int srcOff,
+                              final int[] indices, final int dstOff, final int numPts) throws TransformException
+    {
+        toGridIndices(getCRSToGrid(), coordinates, srcOff, indices, dstOff, numPts);
+    }
+
+    /**
+     * Finds the grid indices of the cells nearest to the given coordinates, with the horizontal
+     * coordinates of projected components given as (<var>longitude</var>, <var>latitude</var>)
+     * in degrees. Those coordinates are projected before to be converted to grid indices.
+     * Other coordinates are in the units of this CRS. If this CRS has no projected component,
+     * then this method is equivalent to {@link #toGridIndices(double[], int, int[], int, int)}.
+     *
+     * @param  coordinates  the coordinates with geographic horizontal components.
+     * @param  srcOff       index of the first coordinate value to convert.
+     * @param  indices      where to write the grid indices.
+     * @param  dstOff       index where to write the first grid index.
+     * @param  numPts       number of points to convert.
+     * @throws TransformException if a coordinate can not be converted.
+     */
+    public void toGridIndicesFromGeographic(final double[] coordinates, final int srcOff,
+                                            final int[] indices, final int dstOff, final int numPts) throws TransformException
+    {
+        toGridIndices(getGeographicToGrid(), coordinates, srcOff, indices, dstOff, numPts);
+    }
+
+    /**
+     * Implementation of {@code toGridIndices(…)} methods. Points are converted in chunks
+     * of {@value NetcdfProjection#CHUNK_SIZE} points through a temporary buffer.
+     */
+    private void toGridIndices(final MathTransform toGrid, final double[] coordinates, int srcOff,
+                               final int[] indices, int dstOff, int numPts) throws TransformException
+    {
+        final int dimension = axes.length;
+        final long[] sizes = new long[dimension];
+        for (int i=0; i<dimension; i++) {
+            sizes[i] = getSize(i);
+        }
+        final double[] buffer = new double[Math.min(numPts, NetcdfProjection.CHUNK_SIZE) * dimension];
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            toGrid.transform(coordinates, srcOff, buffer, 0, n);
+            final int length = n * dimension;
+            for (int i=0; i<length; i++) {
+                final double index = Math.floor(buffer[i] + 0.5);
+                indices[dstOff++] = (index >= 0 && index < sizes[i % dimension]) ? (int) index : -1;
+            }
+            srcOff += length;
+            numPts -= n;
         }
     }
 
@@ -463,6 +809,27 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
         public List<CoordinateReferenceSystem> getComponents() {
             return components;
         }
+
+        /**
+         * Returns the transform projecting the horizontal coordinates of all projected components,
+         * or {@code null} if none.
+         */
+        @Override
+        MathTransform fromGeographic() {
+            final int dimension = getDimension();
+            MathTransform tr = null;
+            int offset = 0;
+            for (final CoordinateReferenceSystem component : components) {
+                final MathTransform projection = ((NetcdfCRS) component).fromGeographic();
+                final int n = ((NetcdfCRS) component).getDimension();
+                if (projection != null) {
+                    final MathTransform step = PassThroughTransform.create(offset, projection, dimension - (offset + n));
+                    tr = (tr != null) ? ConcatenatedTransform.create(tr, step) : step;
+                }
+                offset += n;
+            }
+            return tr;
+        }
     }
 
 
@@ -483,9 +850,15 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
         private final long origin;
 
         /**
-         * Wraps the given coordinate system.
+         * Wraps the given coordinate system. The conversion of the axis to a {@link CoordinateAxis1DTime}
+         * is deferred until the axis values are needed, because that conversion reads all time values.
+         *
+         * @param  cs          the netCDF coordinate system to wrap.
+         * @param  netcdfAxis  the time axis.
+         * @param  file        the originating dataset, or {@code null} if none.
+         * @param  logger      an optional object where to log warnings, or {@code null} if none.
          */
-        Temporal(final CoordinateSystem cs, final CoordinateAxis netcdfAxis) {
+        Temporal(final CoordinateSystem cs, final CoordinateAxis netcdfAxis, final NetcdfDataset file, final Logger logger) {
             super(cs, Collections.singletonList(netcdfAxis));
             final String unitSymbol = netcdfAxis.getUnitsString();
             final DateUnit unit;
@@ -495,37 +868,78 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
                 throw new IllegalArgumentException("Unknown unit symbol: " + unitSymbol, e);
             }
             origin = unit.getDateOrigin().getTime();
-            getAxis(0).unit = Units.SECOND.multiply(unit.getTimeUnit().getValueInSeconds());
+            final NetcdfAxis axis = getAxis(0);
+            axis.unit = Units.SECOND.multiply(unit.getTimeUnit().getValueInSeconds());
+            if (file != null && !(netcdfAxis instanceof CoordinateAxis1DTime)) {
+                final Object referenced = file.getReferencedFile();
+                final WeakReference<Object> opened = (referenced != null) ? new WeakReference<>(referenced) : null;
+                axis.completeLater((a) -> (CoordinateAxis1D) complete(a, file, opened, logger));
+            }
         }
 
         /**
          * If the given axis is not an instance of {@link CoordinateAxis1DTime}, tries to build
          * a {@code CoordinateAxis1DTime} now. Otherwise returns the axis unchanged. This method
-         * can be invoked before to pass the axis to the constructor, if desired.
+         * is invoked by {@link NetcdfAxis} when the axis values are first needed. If the values
+         * can not be read for a reason other than the closing of the dataset, the warning is logged
+         * and the axis is returned unchanged.
          *
          * @param  axis    the axis to check.
          * @param  file    the originating dataset, or {@code null} if none.
+         * @param  opened  the file referenced by the dataset when the axis has been wrapped, or {@code null}.
          * @param  logger  an optional object where to log warnings, or {@code null} if none.
          * @return the axis as an (@link CoordinateAxis1DTime} if possible.
+         * @throws IllegalStateException if the dataset has been closed before the axis values have been read.
          */
-        static CoordinateAxis complete(CoordinateAxis axis, final NetcdfDataset file, final Logger logger) {
-            if (!(axis instanceof CoordinateAxis1DTime) && file != null) try {
-                final Formatter formatter = (logger != null) ? new Formatter() : null;
-                axis = CoordinateAxis1DTime.factory(file, axis, formatter);
-                if (formatter != null) {
-                    final StringBuilder buffer = (StringBuilder) formatter.out();
-                    if (buffer.length() != 0) {
-                        logger.logp(Level.WARNING, NetcdfCRS.class.getName(), "wrap", buffer.toString());
-                    }
+        static CoordinateAxis complete(CoordinateAxis axis, final NetcdfDataset file,
+                final WeakReference<Object> opened, final Logger logger)
+        {
+            if (!(axis instanceof CoordinateAxis1DTime) && file != null) {
+                if (isClosed(file, opened)) {
+                    throw closed(axis, null);
                 }
-            } catch (IOException e) {
-                if (logger != null) {
-                    logger.logp(Level.WARNING, NetcdfCRS.class.getName(), "wrap", e.toString(), e);
+                try {
+                    final Formatter formatter = (logger != null) ? new Formatter() : null;
+                    axis = CoordinateAxis1DTime.factory(file, axis, formatter);
+                    if (formatter != null) {
+                        final StringBuilder buffer = (StringBuilder) formatter.out();
+                        if (buffer.length() != 0) {
+                            logger.logp(Level.WARNING, NetcdfCRS.class.getName(), "wrap", buffer.toString());
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    if (isClosed(file, opened)) {
+                        throw closed(axis, e);
+                    }
+                    if (logger != null) {
+                        logger.logp(Level.WARNING, NetcdfCRS.class.getName(), "wrap", e.toString(), e);
+                    }
                 }
             }
             return axis;
         }
 
+        /**
+         * Returns {@code true} if the given dataset no longer references the file that it was referencing
+         * when the axis has been wrapped. Datasets which did not reference any file are not checked.
+         */
+        private static boolean isClosed(final NetcdfDataset file, final WeakReference<Object> opened) {
+            if (opened == null) {
+                return false;
+            }
+            final Object current = file.getReferencedFile();
+            return current == null || opened.get() != current;
+        }
+
+        /**
+         * Creates the exception to throw when the values of the given axis are requested
+         * after the dataset has been closed.
+         */
+        private static IllegalStateException closed(final CoordinateAxis axis, final Exception cause) {
+            return new IllegalStateException("Can not read the values of the \"" + axis.getShortName()
+                    + "\" axis because the dataset has been closed.", cause);
+        }
+
         /**
          * Returns the coordinate system, which is {@code this}.
          */
@@ -737,6 +1151,15 @@ class NetcdfCRS extends NetcdfIdentifiedObject implements CoordinateReferenceSys
             return projection;
         }
 
+        /**
+         * Returns the transform from (<var>longitude</var>, <var>latitude</var>) to the coordinates
+         * of this CRS, or {@code null} if this CRS is not two-dimensional.
+         */
+        @Override
+        MathTransform fromGeographic() {
+            return (getDimension() == 2) ? getConversionFromBase().getMathTransform() : null;
+        }
+
         /**
         * Returns the projection domain of validity.
         */
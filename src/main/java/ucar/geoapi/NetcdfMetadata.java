@@ -12,8 +12,12 @@ import java.util.Locale;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
 import java.net.URI;
 import java.net.URISyntaxException;
 import ucar.nc2.NetcdfFile;
@@ -41,8 +45,11 @@ import org.opengis.util.InternationalString;
 
 /**
  * A {@link Metadata} implementation backed by a netCDF {@link NetcdfFile} object.
- * All getter methods fetch their values from the netCDF file, so change to the netCDF
- * file content will be immediately reflected in this class.
+ * The global attributes of the netCDF file are indexed by their case-insensitive names
+ * at construction time, and the values parsed by getter methods (numbers, dates, topic
+ * categories, <i>etc.</i>) are memoized. Consequently walking the whole metadata tree
+ * costs a time proportional to the number of attributes, but changes to the netCDF
+ * global attributes after construction are not reflected in this class.
  *
  * <p>Unless otherwise noted in the javadoc, this implementation defines a one-to-one relationship
  * between the metadata attributes and netCDF attributes. This simple model allows us to implement
@@ -107,14 +114,39 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
      */
     protected final NetcdfFile file;
 
+    /**
+     * The global attributes of the netCDF file, indexed by their names in lower case.
+     * If many attributes have the same name ignoring case, only the first one is retained.
+     */
+    private final Map<String,Attribute> attributes;
+
+    /**
+     * The attribute values parsed by getter methods, for avoiding to parse them again.
+     * Keys are attribute names in lower case prefixed by a character identifying the
+     * kind of parsing. Missing values are represented by {@link #NONE}.
+     */
+    private final ConcurrentHashMap<String,Object> values;
+
+    /**
+     * Sentinel value in {@link #values} for attributes that are missing or have an empty value.
+     */
+    private static final Object NONE = new Object();
+
     /**
      * Creates a new metadata object as a wrapper around the given netCDF file.
+     * This constructor takes a snapshot of the global attributes of the given file.
      *
      * @param file  the netCDF file.
      */
     public NetcdfMetadata(final NetcdfFile file) {
         Objects.requireNonNull(file);
         this.file = file;
+        final Collection<Attribute> globals = file.getGlobalAttributes();
+        attributes = new HashMap<>(globals.size() * 2);
+        for (final Attribute attribute : globals) {
+            attributes.putIfAbsent(attribute.getShortName().toLowerCase(Locale.ROOT), attribute);
+        }
+        values = new ConcurrentHashMap<>();
     }
 
     /**
@@ -141,11 +173,45 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
         return flag ? Collections.singleton(this) : Collections.<NetcdfMetadata>emptySet();
     }
 
+    /**
+     * Returns the global attribute of the given case-insensitive name, or {@code null} if none.
+     * This method uses the index built at construction time instead of scanning the attributes.
+     */
+    private Attribute findAttribute(final String name) {
+        return attributes.get(name.toLowerCase(Locale.ROOT));
+    }
+
     /**
      * Returns {@code true} if the netCDF file contains an attribute of the given name.
      */
     private boolean hasAttribute(final String name) {
-        return file.findGlobalAttributeIgnoreCase(name) != null;
+        return findAttribute(name) != null;
+    }
+
+    /**
+     * Returns the memoized value of the given attribute, computing it if needed.
+     * Exceptions thrown by the parser are propagated and the value is not memoized,
+     * so the exception will be thrown again on next invocation.
+     *
+     * @param  kind    a character identifying the kind of parsing.
+     * @param  name    the case-insensitive attribute name.
+     * @param  parser  the function computing the value from the attribute name, may return {@code null}.
+     * @return the memoized value, or {@code null} if none.
+     */
+    private Object memoize(final char kind, final String name, final Function<String,?> parser) {
+        final String key = kind + name.toLowerCase(Locale.ROOT);
+        Object value = values.get(key);
+        if (value == null) {
+            value = parser.apply(name);
+            if (value == null) {
+                value = NONE;
+            }
+            final Object previous = values.putIfAbsent(key, value);
+            if (previous != null) {
+                value = previous;
+            }
+        }
+        return (value != NONE) ? value : null;
     }
 
     /**
@@ -157,7 +223,15 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
      * @return the non-empty attribute value, or {@code null} if none.
      */
     private String getString(final String name) {
-        final Attribute attribute = file.findGlobalAttributeIgnoreCase(name);
+        return (String) memoize('S', name, this::parseString);
+    }
+
+    /**
+     * Returns the value of the given attribute as a trimmed non-empty string, without memoization.
+     * This method is invoked by {@link #getString(String)} the first time a value is requested.
+     */
+    private String parseString(final String name) {
+        final Attribute attribute = findAttribute(name);
         if (attribute != null && attribute.isString()) {
             String value = attribute.getStringValue();
             if (value != null && !(value = value.trim()).isEmpty()) {
@@ -175,8 +249,10 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
      * @return the non-empty attribute value in upper-case, or {@code null} if none.
      */
     private String getUpperCase(final String name) {
-        final String value = getString(name);
-        return (value != null) ? value.toUpperCase() : null;
+        return (String) memoize('U', name, (n) -> {
+            final String value = getString(n);
+            return (value != null) ? value.toUpperCase() : null;
+        });
     }
 
     /**
@@ -200,21 +276,24 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
      * @throws NumberFormatException if the number can not be parsed.
      */
     private double getDouble(final String name) throws NumberFormatException {
-        final Attribute attribute = file.findGlobalAttributeIgnoreCase(name);
-        if (attribute != null) {
-            if (attribute.isString()) {
-                final String value = attribute.getStringValue();
-                if (value != null) {
-                    return Double.parseDouble(value);
-                }
-            } else {
-                final Number value = attribute.getNumericValue();
-                if (value != null) {
-                    return value.doubleValue();
+        final Double value = (Double) memoize('D', name, (n) -> {
+            final Attribute attribute = findAttribute(n);
+            if (attribute != null) {
+                if (attribute.isString()) {
+                    final String text = attribute.getStringValue();
+                    if (text != null) {
+                        return Double.parseDouble(text);
+                    }
+                } else {
+                    final Number number = attribute.getNumericValue();
+                    if (number != null) {
+                        return number.doubleValue();
+                    }
                 }
             }
-        }
-        return Double.NaN;
+            return null;
+        });
+        return (value != null) ? value : Double.NaN;
     }
 
     /**
@@ -225,11 +304,11 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
      * @return the attribute value, or {@code null} if none or can not be parsed.
      */
     private Date getDate(final String name) {
-        final String value = getString(name);
-        if (value != null) {
-            return parseDate(value);
-        }
-        return null;
+        final Date date = (Date) memoize('T', name, (n) -> {
+            final String value = getString(n);
+            return (value != null) ? parseDate(value) : null;
+        });
+        return (date != null) ? (Date) date.clone() : null;      // Clone because Date is mutable.
     }
 
     /**
@@ -372,14 +451,18 @@ final class NetcdfMetadata extends Wrapper implements Metadata, DataIdentificati
      * Returns the netCDF {@code "topic_category"} attribute value, or an empty set if none.
      */
     @Override
+    @SuppressWarnings("unchecked")
     public Collection<TopicCategory> getTopicCategories() {
-        final String value = getUpperCase("topic_category");
-        if (value == null) return Collections.emptySet();
-        final Set<TopicCategory> categories = new HashSet<>();
-        for (final String element : value.split(",")) {
-            categories.add(TopicCategory.valueOf(element.replace(' ', '_').trim()));
-        }
-        return categories;
+        final Collection<TopicCategory> categories = (Collection<TopicCategory>) memoize('C', "topic_category", (n) -> {
+            final String value = getUpperCase(n);
+            if (value == null) return null;
+            final Set<TopicCategory> elements = new HashSet<>();
+            for (final String element : value.split(",")) {
+                elements.add(TopicCategory.valueOf(element.replace(' ', '_').trim()));
+            }
+            return Collections.unmodifiableSet(elements);
+        });
+        return (categories != null) ? categories : Collections.<TopicCategory>emptySet();
     }
 
     /**
@@ -12,9 +12,9 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Objects;
 import java.awt.Shape;
-import java.awt.geom.Path2D;
-import java.awt.geom.PathIterator;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.PathIterator;
 import java.util.Collection;
 
 import ucar.unidata.util.Parameter;
@@ -25,6 +25,7 @@ import ucar.unidata.geoloc.ProjectionPoint;
 import ucar.unidata.geoloc.projection.ProjectionAdapter;
 
 import org.opengis.metadata.extent.Extent;
+import org.opengis.metadata.extent.GeographicBoundingBox;
 import org.opengis.geometry.DirectPosition;
 import org.opengis.geometry.MismatchedDimensionException;
 import org.opengis.metadata.quality.PositionalAccuracy;
@@ -54,6 +55,24 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
      */
     private static final long serialVersionUID = 6497844299422453709L;
 
+    /**
+     * Maximal number of points to give in a single call to the netCDF bulk transform methods.
+     * The temporary buffers used by {@link #transform(double[], int, double[], int, int)} are
+     * allocated for this number of points, which is small enough for fitting in the CPU cache.
+     */
+    static final int CHUNK_SIZE = 512;
+
+    /**
+     * Default tolerance of {@link #createTransformedShape(Shape)} for the forward projection, in kilometres.
+     */
+    static final double SHAPE_TOLERANCE = 0.001;
+
+    /**
+     * Default tolerance of {@link #createTransformedShape(Shape)} for the inverse projection, in degrees.
+     * This is approximately one metre on the Earth surface.
+     */
+    static final double SHAPE_ANGULAR_TOLERANCE = 1E-5;
+
     /**
      * The source CRS, which determine the number of source dimensions.
      *
@@ -92,6 +111,30 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
      */
     private transient MathTransform2D inverse;
 
+    /**
+     * The calculator of projection derivatives, or {@code null} if not yet created.
+     * Will be created by {@link #derivative()} when first needed.
+     */
+    private transient ProjectionDerivative derivative;
+
+    /**
+     * The loop applying the projection on chunks of points, or {@code null} if not yet created.
+     * Will be created by {@link #kernel()} when first needed.
+     */
+    private transient ProjectionKernel kernel;
+
+    /**
+     * The domain of validity, or {@link #NO_DOMAIN} if none, or {@code null} if not yet computed.
+     * Will be created by {@link #domain()} when first needed.
+     */
+    private transient SimpleGeographicBoundingBox domain;
+
+    /**
+     * Sentinel value for {@link #domain} meaning that the netCDF projection does not declare a domain.
+     */
+    private static final SimpleGeographicBoundingBox NO_DOMAIN =
+            new SimpleGeographicBoundingBox(Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+
     /**
      * Creates a new wrapper for the given netCDF projection object.
      *
@@ -123,6 +166,7 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
         projection =  other.projection;
         isInverse  = !other.isInverse;
         inverse    =  other;
+        domain     =  other.domain;
     }
 
     /**
@@ -353,17 +397,50 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
         return true;
     }
 
+    /**
+     * Returns a buffer for transforming the given number of points with the netCDF bulk methods.
+     * The netCDF bulk methods infer the number of points from the array length, so the buffer
+     * needs to be reallocated for the last chunk if that chunk is smaller than {@value #CHUNK_SIZE}.
+     *
+     * @param  buffer  the buffer used for the previous chunk, or {@code null} if none.
+     * @param  numPts  number of points in the chunk to transform.
+     * @return a buffer of size 2 × {@code numPts}.
+     */
+    private static double[][] buffer(final double[][] buffer, final int numPts) {
+        return (buffer != null && buffer[0].length == numPts) ? buffer : new double[2][numPts];
+    }
+
+    /**
+     * Returns the loop to use for transforming chunks of points, creating it when first needed.
+     * This is a vectorized kernel if one is available for the projection, or a kernel delegating
+     * to the netCDF bulk methods otherwise. Since kernels are immutable, concurrent creations are harmless.
+     *
+     * @see ProjectionKernel#create(Projection, boolean)
+     */
+    private ProjectionKernel kernel() {
+        ProjectionKernel k = kernel;
+        if (k == null) {
+            kernel = k = ProjectionKernel.create(projection, isInverse);
+        }
+        return k;
+    }
+
     /**
      * Transforms an arbitrary amount of points from the given source array to the given destination array.
-     * This method delegates to one of the following methods for each point:
+     * The points are copied in temporary buffers by chunks of at most {@value #CHUNK_SIZE} points, then each
+     * chunk is given to the netCDF bulk methods. No object is allocated per point. If the library has been
+     * compiled with the {@code vector} profile, some projections use SIMD kernels instead of the netCDF
+     * bulk methods (see {@link ProjectionKernel}).
      *
-     * <ul>
-     *   <li>{@link Projection#latLonToProj(LatLonPoint)} for the forward projection.</li>
-     *   <li>{@link Projection#projToLatLon(ProjectionPoint)} for the inverse projection.</li>
-     * </ul>
+     * @param  srcPts  the array containing the source point coordinates.
+     * @param  srcOff  the offset to the first point to be transformed in the source array.
+     * @param  dstPts  the array into which the transformed point coordinates are returned. May be the same than {@code srcPts}.
+     * @param  dstOff  the offset to the location of the first transformed point that is stored in the destination array.
+     * @param  numPts  the number of point objects to be transformed.
+     * @throws TransformException if a point can not be transformed.
      */
     @Override
-    public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts)
+    public void transform(double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts)
             throws TransformException
     {
         final int srcDim = getSourceDimensions();
@@ -372,23 +449,131 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
             srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
             srcOff = 0;
         }
-        while (--numPts >= 0) {
-            if (isInverse) {
-                final LatLonPoint pt = projection.projToLatLon(srcPts[srcOff], srcPts[srcOff+1]);
-                dstPts[dstOff]   = pt.getLongitude();
-                dstPts[dstOff+1] = pt.getLatitude();
-            } else {
-                final ProjectionPoint pt = projection.latLonToProj(srcPts[srcOff+1], srcPts[srcOff]);
-                dstPts[dstOff  ] = pt.getX();
-                dstPts[dstOff+1] = pt.getY();
+        transform(srcPts, srcOff, srcDim, dstPts, dstOff, dstDim, numPts);
+    }
+
+    /**
+     * Transforms points stored with arbitrary strides between consecutive points. For each point,
+     * only the two coordinates at the point offset are read and written; other coordinates are left
+     * untouched. This is used by {@link PassThroughTransform} for projecting the horizontal coordinates
+     * of multi-dimensional tuples directly in the destination array.
+     *
+     * <p>Each chunk of {@value #CHUNK_SIZE} points is fully read before it is written.
+     * If the source and destination regions overlap in other ways than the same offsets
+     * and the same strides, then the caller shall copy the source array first.</p>
+     *
+     * @param  srcPts     the array containing the source point coordinates.
+     * @param  srcOff     the offset to the first coordinate to be transformed in the source array.
+     * @param  srcStride  the number of array elements between two consecutive source points.
+     * @param  dstPts     the array into which the transformed point coordinates are returned.
+     * @param  dstOff     the offset to the first coordinate to write in the destination array.
+     * @param  dstStride  the number of array elements between two consecutive destination points.
+     * @param  numPts     the number of point objects to be transformed.
+     */
+    final void transform(final double[] srcPts, final int srcOff, final int srcStride,
+                         final double[] dstPts, final int dstOff, final int dstStride, final int numPts)
+    {
+        transformChunks(srcPts, srcOff, srcStride, dstPts, dstOff, dstStride, numPts);
+    }
+
+    /**
+     * Transforms points in chunks of at most {@value #CHUNK_SIZE} points. This is the loop on which all
+     * {@code transform(…)} methods working on arrays delegate. The source and destination arrays can be
+     * {@code float[]} or {@code double[]} in any combination: each chunk is loaded in temporary buffers
+     * by {@link #load load(…)}, transformed by the {@linkplain #kernel() kernel}, then written back by
+     * {@link #store store(…)}. Only those two methods depend on the array types.
+     *
+     * @param  srcPts     the {@code float[]} or {@code double[]} array containing the source point coordinates.
+     * @param  srcOff     the offset to the first coordinate to be transformed in the source array.
+     * @param  srcStride  the number of array elements between two consecutive source points.
+     * @param  dstPts     the {@code float[]} or {@code double[]} array where to write the transformed coordinates.
+     * @param  dstOff     the offset to the first coordinate to write in the destination array.
+     * @param  dstStride  the number of array elements between two consecutive destination points.
+     * @param  numPts     the number of point objects to be transformed.
+     */
+    private void transformChunks(final Object srcPts, int srcOff, final int srcStride,
+                                 final Object dstPts, int dstOff, final int dstStride, int numPts)
+    {
+        final ProjectionKernel kernel = kernel();
+        double[][] source = null, target = null;
+        while (numPts > 0) {
+            final int n = Math.min(numPts, CHUNK_SIZE);
+            source = buffer(source, n);
+            target = buffer(target, n);
+            load(srcPts, srcOff, srcStride, source, n);
+            kernel.transform(source, target);
+            store(target, n, dstPts, dstOff, dstStride);
+            srcOff += n * srcStride;
+            dstOff += n * dstStride;
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Copies the first two coordinates of {@code n} points from the given array to the given buffers,
+     * widening {@code float} values to {@code double} if needed.
+     *
+     * @param  srcPts  the {@code float[]} or {@code double[]} array containing the source point coordinates.
+     * @param  srcOff  the offset of the first coordinate to copy.
+     * @param  stride  the number of array elements between two consecutive points.
+     * @param  buffer  the buffers where to store the <var>x</var> and <var>y</var> coordinates.
+     * @param  n       the number of points to copy.
+     */
+    private static void load(final Object srcPts, int srcOff, final int stride, final double[][] buffer, final int n) {
+        final double[] b0 = buffer[0];
+        final double[] b1 = buffer[1];
+        if (srcPts instanceof float[]) {
+            final float[] src = (float[]) srcPts;
+            for (int i=0; i<n; i++) {
+                b0[i] = src[srcOff  ];
+                b1[i] = src[srcOff+1];
+                srcOff += stride;
+            }
+        } else {
+            final double[] src = (double[]) srcPts;
+            for (int i=0; i<n; i++) {
+                b0[i] = src[srcOff  ];
+                b1[i] = src[srcOff+1];
+                srcOff += stride;
+            }
+        }
+    }
+
+    /**
+     * Copies {@code n} points from the given buffers to the first two coordinates of each point in the
+     * given array, rounding the values to {@code float} if needed. Other coordinates are left untouched.
+     *
+     * @param  buffer  the buffers containing the <var>x</var> and <var>y</var> coordinates.
+     * @param  n       the number of points to copy.
+     * @param  dstPts  the {@code float[]} or {@code double[]} array where to write the coordinates.
+     * @param  dstOff  the offset of the first coordinate to write.
+     * @param  stride  the number of array elements between two consecutive points.
+     */
+    private static void store(final double[][] buffer, final int n, final Object dstPts, int dstOff, final int stride) {
+        final double[] b0 = buffer[0];
+        final double[] b1 = buffer[1];
+        if (dstPts instanceof float[]) {
+            final float[] dst = (float[]) dstPts;
+            for (int i=0; i<n; i++) {
+                dst[dstOff  ] = (float) b0[i];
+                dst[dstOff+1] = (float) b1[i];
+                dstOff += stride;
+            }
+        } else {
+            final double[] dst = (double[]) dstPts;
+            for (int i=0; i<n; i++) {
+                dst[dstOff  ] = b0[i];
+                dst[dstOff+1] = b1[i];
+                dstOff += stride;
             }
-            srcOff += srcDim;
-            dstOff += dstDim;
         }
     }
 
     /**
-     * Transforms a list of coordinate point ordinal values.
+     * Transforms a list of coordinate point ordinal values. The {@code float} values are widened to
+     * {@code double} in temporary buffers, transformed by the same netCDF bulk methods than the ones
+     * used for {@code double[]} arrays, then rounded back to {@code float}. Consequently the results
+     * are the same than the ones computed by the {@code double[]} variant, rounded to {@code float}.
      *
      * @param  srcPts  the array containing the source point coordinates.
      * @param  srcOff  the offset to the first point to be transformed in the source array.
@@ -403,27 +588,20 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
     {
         final int srcDim = getSourceDimensions();
         final int dstDim = getTargetDimensions();
-        final SimpleDirectPosition ptSrc = new SimpleDirectPosition(srcDim);
-        final SimpleDirectPosition ptDst = new SimpleDirectPosition(dstDim);
         if (srcPts == dstPts && needsCopy(srcOff, srcDim, dstOff, dstDim, numPts)) {
-            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + srcDim*numPts);
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
             srcOff = 0;
         }
-        while (--numPts >= 0) {
-            arraycopy(srcPts, srcOff, ptSrc.coordinates, 0, srcDim);
-            transform(ptSrc, ptDst);
-            arraycopy(ptDst.coordinates, 0, dstPts, dstOff, dstDim);
-            srcOff += srcDim;
-            dstOff += dstDim;
-        }
+        transformChunks(srcPts, srcOff, srcDim, dstPts, dstOff, dstDim, numPts);
     }
 
     /**
-     * Transforms a list of coordinate point ordinal values.
+     * Transforms a list of coordinate point ordinal values. The {@code float} values are widened
+     * to {@code double} in temporary buffers, then transformed by the netCDF bulk methods.
      *
      * @param  srcPts  the array containing the source point coordinates.
      * @param  srcOff  the offset to the first point to be transformed in the source array.
-     * @param  dstPts  the array into which the transformed point coordinates are returned. May be the same than {@code srcPts}.
+     * @param  dstPts  the array into which the transformed point coordinates are returned.
      * @param  dstOff  the offset to the location of the first transformed point that is stored in the destination array.
      * @param  numPts  the number of point objects to be transformed.
      * @throws TransformException if a point can not be transformed.
@@ -434,23 +612,16 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
     {
         final int srcDim = getSourceDimensions();
         final int dstDim = getTargetDimensions();
-        final SimpleDirectPosition ptSrc = new SimpleDirectPosition(srcDim);
-        final SimpleDirectPosition ptDst = new SimpleDirectPosition(dstDim);
-        while (--numPts >= 0) {
-            arraycopy(srcPts, srcOff, ptSrc.coordinates, 0, srcDim);
-            transform(ptSrc, ptDst);
-            System.arraycopy(ptDst.coordinates, 0, dstPts, dstOff, dstDim);
-            srcOff += srcDim;
-            dstOff += dstDim;
-        }
+        transformChunks(srcPts, srcOff, srcDim, dstPts, dstOff, dstDim, numPts);
     }
 
     /**
-     * Transforms a list of coordinate point ordinal values.
+     * Transforms a list of coordinate point ordinal values. The points are transformed by the netCDF
+     * bulk methods in temporary buffers, then the results are rounded to {@code float}.
      *
      * @param  srcPts  the array containing the source point coordinates.
      * @param  srcOff  the offset to the first point to be transformed in the source array.
-     * @param  dstPts  the array into which the transformed point coordinates are returned. May be the same than {@code srcPts}.
+     * @param  dstPts  the array into which the transformed point coordinates are returned.
      * @param  dstOff  the offset to the location of the first transformed point that is stored in the destination array.
      * @param  numPts the number of point objects to be transformed.
      * @throws TransformException if a point can not be transformed.
@@ -461,63 +632,209 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
     {
         final int srcDim = getSourceDimensions();
         final int dstDim = getTargetDimensions();
-        final SimpleDirectPosition ptSrc = new SimpleDirectPosition(srcDim);
-        final SimpleDirectPosition ptDst = new SimpleDirectPosition(dstDim);
-        while (--numPts >= 0) {
-            System.arraycopy(srcPts, srcOff, ptSrc.coordinates, 0, srcDim);
-            transform(ptSrc, ptDst);
-            arraycopy(ptDst.coordinates, 0, dstPts, dstOff, dstDim);
-            srcOff += srcDim;
-            dstOff += dstDim;
-        }
+        transformChunks(srcPts, srcOff, srcDim, dstPts, dstOff, dstDim, numPts);
+    }
+
+    /**
+     * Transforms the specified shape. The returned shape is a view projecting the outline of the given shape
+     * on the fly, one segment at a time, when its path iterator is traversed. Segments are densified until the
+     * straight lines of the projected shape are within one metre of the exact curves (approximated as
+     * {@value #SHAPE_TOLERANCE} km in projected units or {@value #SHAPE_ANGULAR_TOLERANCE}° in geographic units).
+     * Iterating over the projected outline needs a constant amount of memory regardless the shape size.
+     * The given shape is not copied, so it shall not be modified while the returned shape is in use.
+     *
+     * <p>Since the projection is deferred, failures can not be reported by this method.
+     * Points that can not be projected are replaced by NaN coordinates in the returned shape.</p>
+     *
+     * @param  shape  the Shape to transform.
+     * @return the transformed shape.
+     * @throws TransformException never thrown by this implementation; see above for the handling of failures.
+     *
+     * @see ProjectedShape
+     */
+    @Override
+    public Shape createTransformedShape(final Shape shape) throws TransformException {
+        return createTransformedShape(shape, isInverse ? SHAPE_ANGULAR_TOLERANCE : SHAPE_TOLERANCE);
     }
 
     /**
-     * Like {@link System#arraycopy(Object, int, Object, int, int)}, but cast {@code float}
-     * to {@code double} during the copy operation.
+     * Transforms the specified shape with the given tolerance. Each segment of the given shape is split
+     * until the projected midpoint of each piece is closer than {@code tolerance} to the straight line
+     * joining the projected ends of that piece.
+     *
+     * @param  shape      the Shape to transform.
+     * @param  tolerance  maximal distance between the projected shape and its approximation by straight lines,
+     *                    in units of the target CRS (kilometres for the forward projection, degrees for the inverse).
+     * @return the transformed shape, computed on the fly from the given shape.
+     *         Points that can not be projected are replaced by NaN coordinates.
      */
-    private static void arraycopy(float[] srcPts, int srcOff, double[] dstPts, int dstOff, int length) {
-        while (--length >= 0) {
-            dstPts[dstOff++] = srcPts[srcOff++];
+    Shape createTransformedShape(final Shape shape, final double tolerance) {
+        return new ProjectedShape(shape, this, tolerance);
+    }
+
+    /**
+     * Transforms the given envelope and returns the bounds of the result. The edges of the envelope are
+     * densified as in {@link #createTransformedShape(Shape)}, so the result includes the curved parts of
+     * the projected edges which are missed by the transformation of the corners alone.
+     *
+     * <p>For the forward projection, the envelope is expressed in (<var>longitude</var>, <var>latitude</var>)
+     * degrees and is first clipped to the {@linkplain #getDomainOfValidity() domain of validity}.
+     * Longitudes may exceed ±180° for envelopes crossing the antimeridian. The envelope is shifted by
+     * multiples of 360° before clipping, so any longitude range overlapping the domain gives a result.</p>
+     *
+     * <p>For the inverse projection, the longitudes of the projected outline are unwrapped when they jump
+     * across the antimeridian. The returned longitude range is either [−180 … 180]° if the outline encircles
+     * a pole, or a range starting in [−180 … 180)° which may end after 180° if it crosses the antimeridian.
+     * A pole located inside the envelope extends the latitude range up to that pole.</p>
+     *
+     * @param  envelope  the envelope to transform, in units of the source CRS.
+     * @return bounds of the transformed envelope in units of the target CRS,
+     *         or {@code null} if the envelope is outside the domain of validity.
+     * @throws TransformException if the envelope can not be transformed.
+     */
+    public Rectangle2D transformEnvelope(Rectangle2D envelope) throws TransformException {
+        if (!isInverse) {
+            final SimpleGeographicBoundingBox box = domain();
+            if (box == NO_DOMAIN) {
+                return new ProjectedShape(envelope, this, SHAPE_TOLERANCE).getBounds2D();
+            }
+            final double ymin = Math.max(envelope.getMinY(), box.getSouthBoundLatitude());
+            final double ymax = Math.min(envelope.getMaxY(), box.getNorthBoundLatitude());
+            if (!(ymin <= ymax)) {
+                return null;
+            }
+            double xmin = envelope.getMinX(), xmax = envelope.getMaxX();
+            final double west = box.getWestBoundLongitude();
+            final double east = box.getEastBoundLongitude();
+            if (east - west >= 360) {
+                return transformClipped(xmin, xmax, ymin, ymax, null);
+            }
+            if (xmax - xmin >= 360) {
+                return transformClipped(west, east, ymin, ymax, null);
+            }
+            /*
+             * Shift the envelope by a multiple of 360° in the frame of the domain, so that the envelope
+             * ends in the [west … west+360) range. The part of the envelope before the west bound of the
+             * domain may still intersect the east part of the domain after a shift of 360°, in which case
+             * the result is the union of the projections of the two parts.
+             */
+            final double shift = Math.ceil((west - xmax) / 360) * 360;
+            xmin += shift;
+            xmax += shift;
+            final Rectangle2D bounds = transformClipped(Math.max(xmin, west), Math.min(xmax, east), ymin, ymax, null);
+            if (xmin < west) {
+                return transformClipped(xmin + 360, east, ymin, ymax, bounds);
+            }
+            return bounds;
+        }
+        /*
+         * Inverse projection: compute the bounds of the densified outline with longitudes unwrapped,
+         * i.e. shifted by a multiple of 360° when two consecutive points are more than 180° apart.
+         */
+        double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+        double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+        double previous = Double.NaN, offset = 0;
+        final double[] b = new double[6];
+        final ProjectedShape outline = new ProjectedShape(envelope, this, SHAPE_ANGULAR_TOLERANCE);
+        for (final PathIterator it = outline.getPathIterator(null); !it.isDone(); it.next()) {
+            if (it.currentSegment(b) != PathIterator.SEG_CLOSE) {
+                double x = b[0] + offset;
+                final double y = b[1];
+                if (Double.isNaN(x) || Double.isNaN(y)) {
+                    continue;
+                }
+                if (x - previous > 180) {
+                    x -= 360;
+                    offset -= 360;
+                } else if (previous - x > 180) {
+                    x += 360;
+                    offset += 360;
+                }
+                previous = x;
+                if (x < xmin) xmin = x;
+                if (x > xmax) xmax = x;
+                if (y < ymin) ymin = y;
+                if (y > ymax) ymax = y;
+            }
+        }
+        if (!(xmin <= xmax && ymin <= ymax)) {
+            return null;
+        }
+        /*
+         * If a pole is inside the envelope, the latitudes extend up to that pole and all longitudes
+         * are included. This case is usually detected by the unwrapping as well, since the outline
+         * encircles the pole, but not if the outline touches the pole or is partially invalid.
+         */
+        for (int pole = -90; pole <= 90; pole += 180) {
+            final ProjectionPoint pt = projection.latLonToProj(pole, 0);
+            final double px = pt.getX(), py = pt.getY();
+            if (px >= envelope.getMinX() && px <= envelope.getMaxX() &&
+                py >= envelope.getMinY() && py <= envelope.getMaxY())
+            {
+                ymin = Math.min(ymin, pole);
+                ymax = Math.max(ymax, pole);
+                xmin = -180;
+                xmax = +180;
+            }
+        }
+        if (xmax - xmin >= 360) {
+            xmin = -180;
+            xmax = +180;
+        } else {
+            final double shift = Math.floor((xmin + 180) / 360) * 360;
+            xmin -= shift;
+            xmax -= shift;
         }
+        ymin = Math.max(ymin, -90);
+        ymax = Math.min(ymax, +90);
+        return new Rectangle2D.Double(xmin, ymin, xmax - xmin, ymax - ymin);
     }
 
     /**
-     * Like {@link System#arraycopy(Object, int, Object, int, int)}, but cast {@code double}
-     * to {@code float} during the copy operation.
+     * Projects the given geographic envelope, already clipped to the domain of validity, and adds the
+     * result to the given bounds. This is a helper method for {@link #transformEnvelope(Rectangle2D)}.
+     *
+     * @param  xmin    the minimal longitude in degrees.
+     * @param  xmax    the maximal longitude in degrees.
+     * @param  ymin    the minimal latitude in degrees.
+     * @param  ymax    the maximal latitude in degrees.
+     * @param  bounds  the bounds where to add the result, or {@code null} if none.
+     * @return the union of the given bounds with the projected envelope, or {@code bounds} if the envelope is empty.
      */
-    private static void arraycopy(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int length) {
-        while (--length >= 0) {
-            dstPts[dstOff++] = (float) srcPts[srcOff++];
+    private Rectangle2D transformClipped(final double xmin, final double xmax, final double ymin, final double ymax,
+                                         final Rectangle2D bounds)
+    {
+        if (!(xmin <= xmax)) {
+            return bounds;
         }
+        final Rectangle2D envelope = new Rectangle2D.Double(xmin, ymin, xmax - xmin, ymax - ymin);
+        final Rectangle2D result = new ProjectedShape(envelope, this, SHAPE_TOLERANCE).getBounds2D();
+        if (bounds != null) {
+            result.add(bounds);
+        }
+        return result;
     }
 
     /**
-     * Transforms the specified shape. The default implementation returns a new shape with
-     * the transform of all control points.
+     * Projects the given geographic bounding box and returns the bounds of the result. This method always
+     * applies the forward projection, even if this transform is the inverse one. A bounding box with a west
+     * bound greater than its east bound is interpreted as crossing the antimeridian.
      *
-     * @param  shape  the Shape to transform.
-     * @return the transformed shape.
-     * @throws TransformException if a transform failed.
+     * @param  box  the geographic bounding box to project.
+     * @return bounds of the projected box, or {@code null} if the box is outside the domain of validity.
+     * @throws TransformException if the box can not be projected.
+     *
+     * @see #transformEnvelope(Rectangle2D)
      */
-    @Override
-    public Shape createTransformedShape(final Shape shape) throws TransformException {
-        final PathIterator it = shape.getPathIterator(null);
-        final Path2D path = new Path2D.Double(it.getWindingRule());
-        final double[] b = new double[6];
-        while (!it.isDone()) {
-            final int mode = it.currentSegment(b);
-            switch (mode) {
-                case PathIterator.SEG_CLOSE:   path.closePath(); break;
-                case PathIterator.SEG_MOVETO:  transform(b, 0, b, 0, 1); path.moveTo (b[0], b[1]); break;
-                case PathIterator.SEG_LINETO:  transform(b, 0, b, 0, 1); path.lineTo (b[0], b[1]); break;
-                case PathIterator.SEG_QUADTO:  transform(b, 0, b, 0, 2); path.quadTo (b[0], b[1], b[2], b[3]); break;
-                case PathIterator.SEG_CUBICTO: transform(b, 0, b, 0, 3); path.curveTo(b[0], b[1], b[2], b[3], b[4], b[5]); break;
-                default: throw new AssertionError(mode);
-            }
-            it.next();
+    public Rectangle2D transformEnvelope(final GeographicBoundingBox box) throws TransformException {
+        final double west = box.getWestBoundLongitude();
+        double east = box.getEastBoundLongitude();
+        if (east < west) {
+            east += 360;
         }
-        return path;
+        final double south = box.getSouthBoundLatitude();
+        final Rectangle2D envelope = new Rectangle2D.Double(west, south, east - west, box.getNorthBoundLatitude() - south);
+        return (isInverse ? (NetcdfProjection) inverse() : this).transformEnvelope(envelope);
     }
 
     /**
@@ -535,8 +852,9 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
     }
 
     /**
-     * Gets the derivative of this transform at a point. The default implementation throws
-     * an exception in all cases.
+     * Gets the derivative of this transform at a point. The derivative of the forward projection is computed
+     * by closed-form formulas when the projection provider defines them, or by finite differences otherwise.
+     * The derivative of the inverse projection is the inverse of the forward derivative at the projected point.
      *
      * @param  point  the coordinate point where to evaluate the derivative.
      * @return the derivative at the specified point (never {@code null}).
@@ -544,7 +862,78 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
      */
     @Override
     public Matrix derivative(final Point2D point) throws TransformException {
-        throw new TransformException();
+        return transform(new double[] {point.getX(), point.getY()}, 0, null, 0, true);
+    }
+
+    /**
+     * Transforms a single coordinate point in an array, and optionally computes the transform derivative
+     * at that location. Invoking this method is more efficient than invoking {@code transform(…)} and
+     * {@code derivative(…)} separately, because the inverse projection needs to transform the point
+     * anyway for computing its derivative.
+     *
+     * @param  srcPts    the array containing the source coordinates (can not be {@code null}).
+     * @param  srcOff    the offset to the point to be transformed in the source array.
+     * @param  dstPts    the array into which the transformed coordinates is returned, or {@code null}.
+     * @param  dstOff    the offset to the location of the transformed point that is stored in the destination array.
+     * @param  derivate  {@code true} for computing the derivative, or {@code false} if not needed.
+     * @return the matrix of the transform derivative at the given source position,
+     *         or {@code null} if the {@code derivate} argument is {@code false}.
+     * @throws TransformException if the point can not be transformed or if the derivative is singular.
+     */
+    public Matrix transform(final double[] srcPts, final int srcOff,
+                            final double[] dstPts, final int dstOff,
+                            final boolean derivate) throws TransformException
+    {
+        final double x = srcPts[srcOff];
+        final double y = srcPts[srcOff + 1];
+        final double λ, φ;
+        if (isInverse) {
+            final LatLonPoint pt = projection.projToLatLon(ProjectionPoint.create(x, y));
+            λ = pt.getLongitude();
+            φ = pt.getLatitude();
+            if (dstPts != null) {
+                dstPts[dstOff    ] = λ;
+                dstPts[dstOff + 1] = φ;
+            }
+        } else {
+            λ = x;
+            φ = y;
+            if (dstPts != null) {
+                final ProjectionPoint pt = projection.latLonToProj(φ, λ);
+                dstPts[dstOff    ] = pt.getX();
+                dstPts[dstOff + 1] = pt.getY();
+            }
+        }
+        if (!derivate) {
+            return null;
+        }
+        final SimpleMatrix matrix = derivative().derivative(λ, φ);
+        if (isInverse) {
+            ProjectionDerivative.invert(matrix);
+        }
+        return matrix;
+    }
+
+    /**
+     * Returns the calculator of projection derivatives, creating it when first needed.
+     * This method uses the closed-form formulas of the projection provider if they exist,
+     * or falls back on finite differences otherwise. Since the calculator is immutable,
+     * concurrent creations are harmless.
+     */
+    private ProjectionDerivative derivative() {
+        ProjectionDerivative d = derivative;
+        if (d == null) {
+            try {
+                d = (provider != null) ? provider.derivative(projection) : NetcdfTransformFactory.derivative(projection);
+            } catch (IllegalArgumentException e) {
+                d = null;       // A parameter is missing. Fallback on finite differences.
+            }
+            if (d == null) {
+                d = new ProjectionDerivative.FiniteDifference(projection);
+            }
+            derivative = d;
+        }
+        return d;
     }
 
     /**
@@ -560,18 +949,65 @@ final class NetcdfProjection extends NetcdfIdentifiedObject
 
     /**
      * Returns the domain of validity declared by the netCDF projection, or {@code null} if none.
+     * The domain is computed when first needed, then the same instance is returned on every call.
      *
      * @see ucar.unidata.geoloc.ProjectionImpl#getDefaultMapAreaLL()
      */
     @Override
     public Extent getDomainOfValidity() {
-        final LatLonRect domain = ProjectionAdapter.factory(projection).getDefaultMapAreaLL();
-        if (domain != null) {
-            return new SimpleGeographicBoundingBox(
-                    domain.getLonMin(), domain.getLonMax(),
-                    domain.getLatMin(), domain.getLatMax());
+        final SimpleGeographicBoundingBox d = domain();
+        return (d != NO_DOMAIN) ? d : null;
+    }
+
+    /**
+     * Returns the domain of validity, computing it when first needed. If the netCDF projection does
+     * not declare a domain, then this method returns {@link #NO_DOMAIN}. Since the bounding box is
+     * immutable, concurrent creations are harmless.
+     */
+    private SimpleGeographicBoundingBox domain() {
+        SimpleGeographicBoundingBox d = domain;
+        if (d == null) {
+            final LatLonRect area = ProjectionAdapter.factory(projection).getDefaultMapAreaLL();
+            if (area != null) {
+                d = new SimpleGeographicBoundingBox(area.getLonMin(), area.getLonMax(),
+                                                    area.getLatMin(), area.getLatMax());
+            } else {
+                d = NO_DOMAIN;
+            }
+            domain = d;
         }
-        return null;
+        return d;
+    }
+
+    /**
+     * Returns {@code true} if the given point is inside the domain of validity. Longitudes are compared
+     * modulo 360°. If the netCDF projection does not declare a domain, then this method returns {@code true}
+     * for all points. This method does not allocate objects, so it can be invoked for every request.
+     *
+     * @param  longitude  the longitude in degrees.
+     * @param  latitude   the latitude in degrees.
+     * @return whether the given point is inside the domain of validity.
+     */
+    public boolean contains(final double longitude, final double latitude) {
+        final SimpleGeographicBoundingBox d = domain();
+        return (d == NO_DOMAIN) || d.contains(longitude, latitude);
+    }
+
+    /**
+     * Returns {@code true} if the given box intersects the domain of validity. Arguments are in the same
+     * order than {@link SimpleGeographicBoundingBox} constructor. A west bound greater than the east bound
+     * is interpreted as a box crossing the antimeridian. If the netCDF projection does not declare a domain,
+     * then this method returns {@code true} for all boxes. This method does not allocate objects.
+     *
+     * @param  west   the minimal longitude in degrees.
+     * @param  east   the maximal longitude in degrees.
+     * @param  south  the minimal latitude in degrees.
+     * @param  north  the maximal latitude in degrees.
+     * @return whether the given box intersects the domain of validity.
+     */
+    public boolean intersects(final double west, final double east, final double south, final double north) {
+        final SimpleGeographicBoundingBox d = domain();
+        return (d == NO_DOMAIN) || d.intersects(west, east, south, north);
     }
 
     /** Not yet implemented. */
@@ -8,17 +8,26 @@ package ucar.geoapi;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.List;
+import java.util.TreeMap;
 import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.awt.geom.Rectangle2D;
 
 import ucar.unidata.geoloc.projection.*;                // For javadoc.
 
 import org.opengis.util.FactoryException;
 import org.opengis.util.NoSuchIdentifierException;
 import org.opengis.metadata.citation.Citation;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.parameter.ParameterValue;
 import org.opengis.parameter.ParameterValueGroup;
+import org.opengis.parameter.GeneralParameterValue;
 import org.opengis.parameter.ParameterNotFoundException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.opengis.referencing.cs.CoordinateSystem;
@@ -138,6 +147,24 @@ public class NetcdfTransformFactory implements MathTransformFactory {
      */
     private final Set<OperationMethod> methods;
 
+    /**
+     * Maximal number of transforms retained by {@link #createParameterizedTransform(ParameterValueGroup)}.
+     */
+    static final int CACHE_SIZE = 64;
+
+    /**
+     * The transforms created by {@link #createParameterizedTransform(ParameterValueGroup)},
+     * in least recently used order. Keys are created by {@link #cacheKey cacheKey(…)}.
+     * All accesses to this map shall be synchronized on the map.
+     */
+    private final Map<List<Object>, MathTransform> cache;
+
+    /**
+     * Number of {@link #createParameterizedTransform(ParameterValueGroup)} invocations
+     * which found or did not find the transform in the cache.
+     */
+    private final AtomicLong cacheHits, cacheMisses;
+
     /**
      * Creates a new factory.
      *
@@ -160,6 +187,13 @@ public class NetcdfTransformFactory implements MathTransformFactory {
         add(new ProjectionProvider.UTM                 (existings));
         add(new ProjectionProvider.Perspective         (existings));
         methods = Collections.unmodifiableSet(new LinkedHashSet<OperationMethod>(providers.values()));
+        cache = new LinkedHashMap<List<Object>, MathTransform>(CACHE_SIZE, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(final Map.Entry<List<Object>, MathTransform> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        cacheHits   = new AtomicLong();
+        cacheMisses = new AtomicLong();
     }
 
     /**
@@ -179,6 +213,23 @@ public class NetcdfTransformFactory implements MathTransformFactory {
         return INSTANCE;
     }
 
+    /**
+     * Returns the closed-form derivative calculator for the given netCDF projection, or {@code null} if none.
+     * This is used for projections wrapped without a reference to the provider that created them.
+     *
+     * @param  projection  the projection for which to compute derivatives.
+     * @return the derivative calculator, or {@code null} if no provider has a closed-form derivative.
+     */
+    static ProjectionDerivative derivative(final ucar.unidata.geoloc.Projection projection) {
+        for (final OperationMethod method : INSTANCE.methods) {
+            final ProjectionDerivative derivative = ((ProjectionProvider<?>) method).derivative(projection);
+            if (derivative != null) {
+                return derivative;
+            }
+        }
+        return null;
+    }
+
     /**
      * Returns the provider of this factory. This method returns {@code "NetCDF"} since
      * the code doing the actual coordinate transform work is the netCDF Java library.
@@ -252,6 +303,10 @@ public class NetcdfTransformFactory implements MathTransformFactory {
      *   <li>The domain shall be a subset of {[-180,180)×(-90,90)}.</li>
      * </ul>
      *
+     * <p>Transforms are cached: invoking this method many times with equal parameter values returns
+     * the same immutable transform instance. The cache retains the {@value #CACHE_SIZE} most recently
+     * used transforms.</p>
+     *
      * @param  parameters  the parameter values.
      * @return the parameterized transform.
      * @throws FactoryException if the object creation failed. This exception is thrown
@@ -264,7 +319,27 @@ public class NetcdfTransformFactory implements MathTransformFactory {
         final String method = parameters.getDescriptor().getName().getCode();
         final ProjectionProvider<?> provider = providers.get(method);
         if (provider != null) try {
-            return new NetcdfProjection(provider.createProjection(parameters), provider, null, null);
+            final List<Object> key = cacheKey(provider, parameters);
+            if (key != null) {
+                synchronized (cache) {
+                    final MathTransform cached = cache.get(key);
+                    if (cached != null) {
+                        cacheHits.incrementAndGet();
+                        return cached;
+                    }
+                }
+                cacheMisses.incrementAndGet();
+            }
+            MathTransform transform = new NetcdfProjection(provider.createProjection(parameters), provider, null, null);
+            if (key != null) {
+                synchronized (cache) {
+                    final MathTransform existing = cache.putIfAbsent(key, transform);
+                    if (existing != null) {
+                        transform = existing;       // Created concurrently by another thread.
+                    }
+                }
+            }
+            return transform;
         } catch (ParameterNotFoundException e) {
             throw new FactoryException("Illegal parameters for the \"" + method +
                     "\" projection: " + e.getLocalizedMessage(), e);
@@ -273,32 +348,150 @@ public class NetcdfTransformFactory implements MathTransformFactory {
     }
 
     /**
-     * Not yet implemented.
+     * Returns the key to use in the cache of transforms created from the given parameters.
+     * The key contains the netCDF projection name followed by (<var>name</var>, <var>value</var>) pairs
+     * sorted by parameter names. Numbers are normalized to {@link Double} values without negative zero,
+     * so that parameters specified as integers or as {@code -0.0} share the same cache entry.
      *
-     * @hidden
+     * @param  provider    the provider of the projection to create.
+     * @param  parameters  the parameter values.
+     * @return the cache key, or {@code null} if some parameter values can not be used in a key.
+     */
+    private static List<Object> cacheKey(final ProjectionProvider<?> provider, final ParameterValueGroup parameters) {
+        final Map<String,Object> values = new TreeMap<>();
+        for (final GeneralParameterValue param : parameters.values()) {
+            if (!(param instanceof ParameterValue<?>)) {
+                return null;
+            }
+            Object value = ((ParameterValue<?>) param).getValue();
+            if (value instanceof Number) {
+                value = ((Number) value).doubleValue() + 0.0;      // Adding 0 converts -0 to +0.
+            } else if (value != null && !(value instanceof String) && !(value instanceof Boolean)) {
+                return null;
+            }
+            values.put(param.getDescriptor().getName().getCode(), value);
+        }
+        final List<Object> key = new ArrayList<>(values.size() * 2 + 1);
+        key.add(provider.getCode());
+        for (final Map.Entry<String,Object> entry : values.entrySet()) {
+            key.add(entry.getKey());
+            key.add(entry.getValue());
+        }
+        return key;
+    }
+
+    /**
+     * Returns the number of {@link #createParameterizedTransform(ParameterValueGroup)} invocations
+     * which returned a transform from the cache.
+     *
+     * @return number of cache hits since this factory creation.
+     */
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    /**
+     * Returns the number of {@link #createParameterizedTransform(ParameterValueGroup)} invocations
+     * which needed to create a new transform.
+     *
+     * @return number of cache misses since this factory creation.
+     */
+    public long getCacheMissCount() {
+        return cacheMisses.get();
+    }
+
+    /**
+     * Creates a transform which splits large arrays of coordinates in chunks transformed in parallel.
+     * The returned transform delegates all work to the given transform, which shall be thread-safe
+     * (this is the case of all transforms created by this factory). The results are identical to
+     * the results of the given transform; only the execution of the methods working on arrays is
+     * distributed over the threads of the given pool. Small arrays are transformed in the calling
+     * thread.
+     *
+     * @param  transform  the transform to execute in parallel.
+     * @param  pool       the pool where to execute the tasks, or {@code null} for the
+     *                    {@linkplain ForkJoinPool#commonPool() common pool}.
+     * @return a transform executing the given transform in the given pool.
+     */
+    public MathTransform2D createParallelTransform(final MathTransform2D transform, final ForkJoinPool pool) {
+        return new ParallelTransform(transform, (pool != null) ? pool : ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a piecewise-linear approximation of the given transform in the given domain.
+     * The exact transform is evaluated only at the corners of a grid of cells, which are split
+     * until the bilinear interpolation inside each cell is accurate to the given tolerance.
+     * This is useful for raster reprojection, where the same transform is evaluated on a large
+     * number of pixels. Points outside the domain are transformed by the exact transform.
+     *
+     * @param  transform  the exact transform to approximate.
+     * @param  domain     the domain of source coordinates where to approximate the transform.
+     * @param  tolerance  the maximal interpolation error, in units of the target coordinates
+     *                    (usually kilometres for netCDF projections).
+     * @return an approximation of the given transform.
+     * @throws TransformException if the given transform can not be evaluated at the domain corners.
+     */
+    public MathTransform2D createApproximateTransform(final MathTransform2D transform, final Rectangle2D domain,
+            final double tolerance) throws TransformException
+    {
+        return new LinearApproximation(transform, domain, tolerance);
+    }
+
+    /**
+     * Creates an affine transform from a matrix. The matrix size shall be
+     * (<var>target dimension</var> + 1) × (<var>source dimension</var> + 1)
+     * and its last row shall be [0 0 … 0 1]. The returned transform has specialized code paths
+     * for the identity transform, for scales and translations, and for the two- and three-dimensional cases.
+     *
+     * @param  matrix  the matrix used to define the affine transform.
+     * @return the affine transform.
+     * @throws FactoryException if the given matrix is not affine.
      */
     @Override
     public MathTransform createAffineTransform(final Matrix matrix) throws FactoryException {
-        throw new FactoryException("Not supported yet.");
+        try {
+            return SimpleAffineTransform.create(matrix);
+        } catch (IllegalArgumentException e) {
+            throw new FactoryException(e.getMessage(), e);
+        }
     }
 
     /**
-     * Not yet implemented.
+     * Creates a transform by concatenating two existing transforms. The returned transform applies
+     * {@code transform1} followed by {@code transform2}. Identity transforms are omitted and adjacent
+     * affine transforms are merged in a single matrix. Arrays of coordinates are transformed in chunks,
+     * each chunk going through all steps before the next chunk is processed.
      *
-     * @hidden
+     * @param  transform1  the first transform to apply to points.
+     * @param  transform2  the second transform to apply to points.
+     * @return the concatenated transform.
+     * @throws FactoryException if the target dimension of {@code transform1} is not equal
+     *         to the source dimension of {@code transform2}.
      */
     @Override
     public MathTransform createConcatenatedTransform(final MathTransform transform1,
                                                      final MathTransform transform2)
             throws FactoryException
     {
-        throw new FactoryException("Not supported yet.");
+        try {
+            return ConcatenatedTransform.create(transform1, transform2);
+        } catch (MismatchedDimensionException e) {
+            throw new FactoryException(e.getMessage(), e);
+        }
     }
 
     /**
-     * Not yet implemented.
+     * Creates a transform which applies the given sub-transform on a range of coordinates and passes
+     * the other coordinates unchanged. For example a two-dimensional projection can be applied on the
+     * horizontal coordinates of (<var>time</var>, <var>height</var>, <var>x</var>, <var>y</var>) tuples.
+     * Arrays of tuples are transformed in bulk without copying the coordinates passed through
+     * in temporary buffers.
      *
-     * @hidden
+     * @param  firstAffectedCoordinate  index of the first coordinate given to the sub-transform.
+     * @param  subTransform             the transform to apply on the affected coordinates.
+     * @param  numTrailingCoordinates   number of coordinates after the affected ones.
+     * @return the pass-through transform.
+     * @throws FactoryException if an argument is invalid.
      */
     @Override
     public MathTransform createPassThroughTransform(final int firstAffectedCoordinate,
@@ -306,7 +499,11 @@ public class NetcdfTransformFactory implements MathTransformFactory {
                                                     final int numTrailingCoordinates)
             throws FactoryException
     {
-        throw new FactoryException("Not supported yet.");
+        try {
+            return PassThroughTransform.create(firstAffectedCoordinate, subTransform, numTrailingCoordinates);
+        } catch (IllegalArgumentException e) {
+            throw new FactoryException(e.getMessage(), e);
+        }
     }
 
     /**
@@ -0,0 +1,357 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.geometry.MismatchedDimensionException;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * A transform which splits large arrays of coordinates in chunks transformed in parallel.
+ * All transformations are delegated to the wrapped transform, which shall be thread-safe.
+ * Since each point is transformed by the same code than the sequential path, the results
+ * are identical to the results of the wrapped transform.
+ *
+ * <p>Only the methods working on arrays are parallelized. Arrays of less than
+ * {@value #MIN_POINTS_PER_TASK} points are transformed in the calling thread.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfTransformFactory#createParallelTransform(MathTransform2D, ForkJoinPool)
+ */
+final class ParallelTransform implements MathTransform2D {
+    /**
+     * Minimal number of points to transform in a single task. Arrays smaller than twice this
+     * amount are not split, because the cost of task scheduling would exceed the benefit.
+     */
+    static final int MIN_POINTS_PER_TASK = 8 * NetcdfProjection.CHUNK_SIZE;
+
+    /**
+     * The transform to execute in parallel.
+     */
+    private final MathTransform2D transform;
+
+    /**
+     * The pool where to execute the tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The inverse of this transform, created when first needed.
+     */
+    private ParallelTransform inverse;
+
+    /**
+     * Creates a new transform executing the given transform in the given pool.
+     *
+     * @param  transform  the transform to execute in parallel. Shall be thread-safe.
+     * @param  pool       the pool where to execute the tasks.
+     */
+    ParallelTransform(final MathTransform2D transform, final ForkJoinPool pool) {
+        Objects.requireNonNull(transform);
+        Objects.requireNonNull(pool);
+        this.transform = transform;
+        this.pool      = pool;
+    }
+
+    /**
+     * Creates a new transform as the inverse of the given one.
+     */
+    private ParallelTransform(final ParallelTransform other, final MathTransform2D inverse) {
+        this.transform = inverse;
+        this.pool      = other.pool;
+        this.inverse   = other;
+    }
+
+    /**
+     * Returns the dimension of input points, which is the same than the wrapped transform.
+     */
+    @Override
+    public int getSourceDimensions() {
+        return transform.getSourceDimensions();
+    }
+
+    /**
+     * Returns the dimension of output points, which is the same than the wrapped transform.
+     */
+    @Override
+    public int getTargetDimensions() {
+        return transform.getTargetDimensions();
+    }
+
+    /**
+     * Returns {@code true} if the wrapped transform is an identity transform.
+     */
+    @Override
+    public boolean isIdentity() {
+        return transform.isIdentity();
+    }
+
+    /**
+     * Transforms a single position. This method delegates to the wrapped transform in the calling thread.
+     */
+    @Override
+    public DirectPosition transform(final DirectPosition ptSrc, final DirectPosition ptDst)
+            throws MismatchedDimensionException, TransformException
+    {
+        return transform.transform(ptSrc, ptDst);
+    }
+
+    /**
+     * Transforms a single point. This method delegates to the wrapped transform in the calling thread.
+     */
+    @Override
+    public Point2D transform(final Point2D ptSrc, final Point2D ptDst) throws TransformException {
+        return transform.transform(ptSrc, ptDst);
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, in parallel if the array is large enough.
+     */
+    @Override
+    public void transform(double[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws TransformException {
+        if (numPts < 2*MIN_POINTS_PER_TASK) {
+            transform.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            final int srcDim = getSourceDimensions();
+            if (srcPts == dstPts && overlaps(srcOff, srcDim, dstOff, getTargetDimensions(), numPts)) {
+                srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+                srcOff = 0;
+            }
+            execute(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, in parallel if the array is large enough.
+     */
+    @Override
+    public void transform(float[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws TransformException {
+        if (numPts < 2*MIN_POINTS_PER_TASK) {
+            transform.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            final int srcDim = getSourceDimensions();
+            if (srcPts == dstPts && overlaps(srcOff, srcDim, dstOff, getTargetDimensions(), numPts)) {
+                srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+                srcOff = 0;
+            }
+            execute(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, in parallel if the array is large enough.
+     */
+    @Override
+    public void transform(float[] srcPts, int srcOff, double[] dstPts, int dstOff, int numPts) throws TransformException {
+        if (numPts < 2*MIN_POINTS_PER_TASK) {
+            transform.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            execute(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values, in parallel if the array is large enough.
+     */
+    @Override
+    public void transform(double[] srcPts, int srcOff, float[] dstPts, int dstOff, int numPts) throws TransformException {
+        if (numPts < 2*MIN_POINTS_PER_TASK) {
+            transform.transform(srcPts, srcOff, dstPts, dstOff, numPts);
+        } else {
+            execute(srcPts, srcOff, dstPts, dstOff, numPts);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the source array needs to be copied before to transform the points in parallel.
+     * This is a stricter condition than the one tested by the sequential transforms, because the chunks
+     * are not processed in increasing index order. The only case where the source can be overwritten
+     * safely is when each point is written at the same location than where it has been read.
+     *
+     * @param  srcOff  the offset in the source coordinate array.
+     * @param  srcDim  the dimension of input points.
+     * @param  dstOff  the offset in the destination coordinate array.
+     * @param  dstDim  the dimension of output points.
+     * @param  numPts  the number of points to transform.
+     * @return {@code true} if the source array needs to be copied.
+     */
+    private static boolean overlaps(final int srcOff, final int srcDim, final int dstOff, final int dstDim, final int numPts) {
+        if (srcOff == dstOff && srcDim == dstDim) {
+            return false;
+        }
+        return srcOff < dstOff + numPts*dstDim && dstOff < srcOff + numPts*srcDim;
+    }
+
+    /**
+     * Transforms the given range of points in the given pool and waits for completion.
+     * The arrays can be {@code double[]} or {@code float[]}.
+     */
+    private void execute(final Object srcPts, final int srcOff, final Object dstPts, final int dstOff, final int numPts)
+            throws TransformException
+    {
+        try {
+            pool.invoke(new Task(srcPts, srcOff, dstPts, dstOff, numPts));
+        } catch (Failure e) {
+            Throwable cause = e;
+            do cause = cause.getCause();        // The pool may have wrapped the exception again.
+            while (cause instanceof Failure);
+            throw (TransformException) cause;
+        }
+    }
+
+    /**
+     * Wrapper for a {@link TransformException} thrown in a worker thread.
+     * This exception is unwrapped by {@link #execute execute(…)}.
+     * This class is also used by {@link GeographicGrid}.
+     */
+    static final class Failure extends RuntimeException {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -3167858271463604398L;
+
+        /** Wraps the given exception. */
+        Failure(final TransformException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * A task transforming a range of points. The task is split in two halves
+     * until the number of points is less than twice {@value #MIN_POINTS_PER_TASK}.
+     */
+    @SuppressWarnings("serial")
+    private final class Task extends RecursiveAction {
+        /** The source and destination arrays, as {@code double[]} or {@code float[]}. */
+        private final Object srcPts, dstPts;
+
+        /** Index of the first coordinate to read or write, and number of points. */
+        private final int srcOff, dstOff, numPts;
+
+        /** Creates a new task for the given range of points. */
+        Task(final Object srcPts, final int srcOff, final Object dstPts, final int dstOff, final int numPts) {
+            this.srcPts = srcPts;
+            this.srcOff = srcOff;
+            this.dstPts = dstPts;
+            this.dstOff = dstOff;
+            this.numPts = numPts;
+        }
+
+        /** Transforms the points, possibly by splitting this task in two sub-tasks. */
+        @Override
+        protected void compute() {
+            if (numPts >= 2*MIN_POINTS_PER_TASK) {
+                final int half = numPts >>> 1;
+                invokeAll(new Task(srcPts, srcOff, dstPts, dstOff, half),
+                          new Task(srcPts, srcOff + half * getSourceDimensions(),
+                                   dstPts, dstOff + half * getTargetDimensions(), numPts - half));
+                return;
+            }
+            try {
+                if (srcPts instanceof double[]) {
+                    if (dstPts instanceof double[]) {
+                        transform.transform((double[]) srcPts, srcOff, (double[]) dstPts, dstOff, numPts);
+                    } else {
+                        transform.transform((double[]) srcPts, srcOff, (float[]) dstPts, dstOff, numPts);
+                    }
+                } else {
+                    if (dstPts instanceof double[]) {
+                        transform.transform((float[]) srcPts, srcOff, (double[]) dstPts, dstOff, numPts);
+                    } else {
+                        transform.transform((float[]) srcPts, srcOff, (float[]) dstPts, dstOff, numPts);
+                    }
+                }
+            } catch (TransformException e) {
+                throw new Failure(e);
+            }
+        }
+    }
+
+    /**
+     * Transforms the given shape. This method delegates to the wrapped transform in the calling thread.
+     */
+    @Override
+    public Shape createTransformedShape(final Shape shape) throws TransformException {
+        return transform.createTransformedShape(shape);
+    }
+
+    /**
+     * Gets the derivative of this transform at a point. This method delegates to the wrapped transform.
+     */
+    @Override
+    public Matrix derivative(final DirectPosition point) throws TransformException {
+        return transform.derivative(point);
+    }
+
+    /**
+     * Gets the derivative of this transform at a point. This method delegates to the wrapped transform.
+     */
+    @Override
+    public Matrix derivative(final Point2D point) throws TransformException {
+        return transform.derivative(point);
+    }
+
+    /**
+     * Returns the inverse of this transform, executed in the same pool.
+     */
+    @Override
+    public synchronized MathTransform2D inverse() throws NoninvertibleTransformException {
+        if (inverse == null) {
+            inverse = new ParallelTransform(this, transform.inverse());
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns the <cite>Well-Known Text</cite> of the wrapped transform.
+     */
+    @Override
+    public String toWKT() throws UnsupportedOperationException {
+        return transform.toWKT();
+    }
+
+    /**
+     * Returns a hash code value for this transform.
+     */
+    @Override
+    public int hashCode() {
+        return transform.hashCode() ^ pool.hashCode();
+    }
+
+    /**
+     * Compares this transform with the given object for equality.
+     *
+     * @param  object  the object to compare with this transform.
+     * @return {@code true} if the given object wraps an equal transform executed in the same pool.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (object instanceof ParallelTransform) {
+            final ParallelTransform other = (ParallelTransform) object;
+            return transform.equals(other.transform) && pool == other.pool;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a string representation of this transform.
+     */
+    @Override
+    public String toString() {
+        return "Parallel[" + transform + ", parallelism=" + pool.getParallelism() + ']';
+    }
+}
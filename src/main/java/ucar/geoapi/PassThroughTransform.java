@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * A transform applying a sub-transform on a consecutive range of ordinates, and passing the other
+ * ordinates unchanged. For example a two-dimensional map projection can be applied on the horizontal
+ * ordinates of (<var>time</var>, <var>height</var>, <var>x</var>, <var>y</var>) tuples.
+ *
+ * <p>Arrays of coordinates are processed in bulk. The ordinates passed unchanged are copied directly
+ * from the source array to the destination array (or not copied at all when transforming in-place),
+ * and netCDF projections read and write their ordinates directly in the strided arrays.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfTransformFactory#createPassThroughTransform(int, MathTransform, int)
+ */
+final class PassThroughTransform extends AbstractTransform {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = -1917519622183212880L;
+
+    /**
+     * Index of the first ordinate given to the sub-transform.
+     */
+    private final int firstAffectedOrdinate;
+
+    /**
+     * Number of ordinates after the ones given to the sub-transform.
+     */
+    private final int numTrailingOrdinates;
+
+    /**
+     * The transform to apply on the affected ordinates.
+     */
+    private final MathTransform subTransform;
+
+    /**
+     * The inverse of this transform, or {@code null} if not yet computed.
+     */
+    private transient MathTransform inverse;
+
+    /**
+     * Creates a new pass-through transform.
+     * Invoked by {@link #create(int, MathTransform, int)} only.
+     */
+    private PassThroughTransform(final int firstAffectedOrdinate, final MathTransform subTransform, final int numTrailingOrdinates) {
+        this.firstAffectedOrdinate = firstAffectedOrdinate;
+        this.subTransform          = subTransform;
+        this.numTrailingOrdinates  = numTrailingOrdinates;
+    }
+
+    /**
+     * Returns a transform applying the given sub-transform on a range of ordinates. This method returns
+     * the sub-transform itself if there is no ordinate to pass through, and an affine transform if the
+     * sub-transform is affine.
+     *
+     * @param  firstAffectedOrdinate  index of the first affected ordinate.
+     * @param  subTransform           the sub-transform to apply on the affected ordinates.
+     * @param  numTrailingOrdinates   number of trailing ordinates to pass through.
+     * @return the pass-through transform.
+     * @throws IllegalArgumentException if an argument is negative.
+     */
+    static MathTransform create(final int firstAffectedOrdinate, final MathTransform subTransform, final int numTrailingOrdinates) {
+        Objects.requireNonNull(subTransform);
+        if (firstAffectedOrdinate < 0 || numTrailingOrdinates < 0) {
+            throw new IllegalArgumentException("Negative number of pass-through ordinates.");
+        }
+        if (firstAffectedOrdinate == 0 && numTrailingOrdinates == 0) {
+            return subTransform;
+        }
+        if (subTransform instanceof PassThroughTransform) {
+            final PassThroughTransform other = (PassThroughTransform) subTransform;
+            return new PassThroughTransform(firstAffectedOrdinate + other.firstAffectedOrdinate, other.subTransform,
+                                            numTrailingOrdinates  + other.numTrailingOrdinates);
+        }
+        if (subTransform instanceof SimpleAffineTransform) {
+            final SimpleMatrix sub = ((SimpleAffineTransform) subTransform).getMatrix();
+            final int subSrc = sub.getNumCol() - 1;
+            final int subTgt = sub.getNumRow() - 1;
+            final int srcDim = firstAffectedOrdinate + subSrc + numTrailingOrdinates;
+            final int tgtDim = firstAffectedOrdinate + subTgt + numTrailingOrdinates;
+            final SimpleMatrix matrix = new SimpleMatrix(tgtDim + 1, srcDim + 1);
+            for (int i=0; i<firstAffectedOrdinate; i++) {
+                matrix.setElement(i, i, 1);
+            }
+            for (int j=0; j<subTgt; j++) {
+                for (int i=0; i<subSrc; i++) {
+                    matrix.setElement(firstAffectedOrdinate + j, firstAffectedOrdinate + i, sub.getElement(j, i));
+                }
+                matrix.setElement(firstAffectedOrdinate + j, srcDim, sub.getElement(j, subSrc));
+            }
+            for (int i=0; i<numTrailingOrdinates; i++) {
+                matrix.setElement(firstAffectedOrdinate + subTgt + i, firstAffectedOrdinate + subSrc + i, 1);
+            }
+            matrix.setElement(tgtDim, srcDim, 1);
+            return SimpleAffineTransform.create(matrix);
+        }
+        return new PassThroughTransform(firstAffectedOrdinate, subTransform, numTrailingOrdinates);
+    }
+
+    /**
+     * Returns the dimension of input points.
+     */
+    @Override
+    public int getSourceDimensions() {
+        return firstAffectedOrdinate + subTransform.getSourceDimensions() + numTrailingOrdinates;
+    }
+
+    /**
+     * Returns the dimension of output points.
+     */
+    @Override
+    public int getTargetDimensions() {
+        return firstAffectedOrdinate + subTransform.getTargetDimensions() + numTrailingOrdinates;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. The ordinates passed through are copied
+     * directly in the destination array. If the sub-transform is a two-dimensional netCDF projection,
+     * the affected ordinates are read and written directly in the strided arrays. Otherwise they are
+     * gathered in a buffer by chunks of {@value NetcdfProjection#CHUNK_SIZE} points.
+     */
+    @Override
+    public void transform(double[] srcPts, int srcOff, final double[] dstPts, final int dstOff, int numPts)
+            throws TransformException
+    {
+        final int srcDim = getSourceDimensions();
+        final int tgtDim = getTargetDimensions();
+        if (needsCopy(srcPts, srcOff, srcDim, dstPts, dstOff, tgtDim, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+            srcOff = 0;
+        }
+        final int subSrc = subTransform.getSourceDimensions();
+        final int subTgt = subTransform.getTargetDimensions();
+        /*
+         * Copy the ordinates passed through, unless they are already at their final location
+         * (in-place transformation). This is done before the sub-transform is applied because
+         * the source array may have been copied above if the regions were overlapping.
+         */
+        if (srcPts != dstPts || srcOff != dstOff) {
+            int s = srcOff, d = dstOff;
+            for (int i=0; i<numPts; i++) {
+                System.arraycopy(srcPts, s, dstPts, d, firstAffectedOrdinate);
+                System.arraycopy(srcPts, s + firstAffectedOrdinate + subSrc,
+                                 dstPts, d + firstAffectedOrdinate + subTgt, numTrailingOrdinates);
+                s += srcDim;
+                d += tgtDim;
+            }
+        }
+        int s = srcOff + firstAffectedOrdinate;
+        int d = dstOff + firstAffectedOrdinate;
+        if (subTransform instanceof NetcdfProjection && subSrc == 2 && subTgt == 2) {
+            ((NetcdfProjection) subTransform).transform(srcPts, s, srcDim, dstPts, d, tgtDim, numPts);
+            return;
+        }
+        final double[] buffer = new double[Math.min(numPts, NetcdfProjection.CHUNK_SIZE) * Math.max(subSrc, subTgt)];
+        while (numPts > 0) {
+            final int n = Math.min(numPts, NetcdfProjection.CHUNK_SIZE);
+            for (int i=0; i<n; i++) {
+                System.arraycopy(srcPts, s, buffer, i*subSrc, subSrc);
+                s += srcDim;
+            }
+            subTransform.transform(buffer, 0, buffer, 0, n);
+            for (int i=0; i<n; i++) {
+                System.arraycopy(buffer, i*subTgt, dstPts, d, subTgt);
+                d += tgtDim;
+            }
+            numPts -= n;
+        }
+    }
+
+    /**
+     * Gets the derivative of this transform at a point. This is the derivative of the sub-transform
+     * surrounded by the identity matrix for the ordinates passed through.
+     *
+     * @param  point  the coordinate point where to evaluate the derivative.
+     * @return the derivative at the specified point.
+     * @throws TransformException if the derivative can not be evaluated at the specified point.
+     */
+    @Override
+    public Matrix derivative(final DirectPosition point) throws TransformException {
+        final int srcDim = getSourceDimensions();
+        ensureDimensionMatches(point, srcDim);
+        final int subSrc = subTransform.getSourceDimensions();
+        final int subTgt = subTransform.getTargetDimensions();
+        SimpleDirectPosition subPoint = null;
+        if (point != null) {
+            subPoint = new SimpleDirectPosition(subSrc);
+            for (int i=0; i<subSrc; i++) {
+                subPoint.setOrdinate(i, point.getOrdinate(firstAffectedOrdinate + i));
+            }
+        }
+        final Matrix sub = subTransform.derivative(subPoint);
+        final SimpleMatrix matrix = new SimpleMatrix(getTargetDimensions(), srcDim);
+        for (int i=0; i<firstAffectedOrdinate; i++) {
+            matrix.setElement(i, i, 1);
+        }
+        for (int j=0; j<subTgt; j++) {
+            for (int i=0; i<subSrc; i++) {
+                matrix.setElement(firstAffectedOrdinate + j, firstAffectedOrdinate + i, sub.getElement(j, i));
+            }
+        }
+        for (int i=0; i<numTrailingOrdinates; i++) {
+            matrix.setElement(firstAffectedOrdinate + subTgt + i, firstAffectedOrdinate + subSrc + i, 1);
+        }
+        return matrix;
+    }
+
+    /**
+     * Returns the inverse of this transform, which passes through the same ordinates.
+     *
+     * @return the inverse transform.
+     * @throws NoninvertibleTransformException if the sub-transform is not invertible.
+     */
+    @Override
+    public synchronized MathTransform inverse() throws NoninvertibleTransformException {
+        if (inverse == null) {
+            final PassThroughTransform tr = new PassThroughTransform(firstAffectedOrdinate, subTransform.inverse(), numTrailingOrdinates);
+            tr.inverse = this;
+            inverse = tr;
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns a hash code value for this transform.
+     */
+    @Override
+    public int hashCode() {
+        return subTransform.hashCode() + 31*(firstAffectedOrdinate + 31*numTrailingOrdinates);
+    }
+
+    /**
+     * Compares this transform with the given object for equality.
+     *
+     * @param  object  the object to compare with this transform.
+     * @return {@code true} if the given object passes through the same ordinates around an equal sub-transform.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (object instanceof PassThroughTransform) {
+            final PassThroughTransform other = (PassThroughTransform) object;
+            return firstAffectedOrdinate == other.firstAffectedOrdinate &&
+                   numTrailingOrdinates  == other.numTrailingOrdinates  &&
+                   subTransform.equals(other.subTransform);
+        }
+        return false;
+    }
+
+    /**
+     * Returns a string representation of this transform.
+     */
+    @Override
+    public String toString() {
+        return "PassThrough[" + firstAffectedOrdinate + ", " + subTransform + ", " + numTrailingOrdinates + ']';
+    }
+}
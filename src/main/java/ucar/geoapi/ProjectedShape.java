@@ -0,0 +1,417 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.awt.Shape;
+import java.awt.Rectangle;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.AffineTransform;
+import java.util.NoSuchElementException;
+
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+
+
+/**
+ * A shape computed on the fly by applying a map projection on another shape. The projection is applied
+ * by the {@link PathIterator} returned by {@link #getPathIterator(AffineTransform)}, one segment at a time
+ * when the consumer asks for it. Consequently the memory needed for iterating over the projected shape
+ * is independent of the shape size, and no intermediate {@link Path2D} is created.
+ *
+ * <p>This class keeps a reference to the source shape without copying it. The source shape shall not be
+ * modified while the projected shape is in use, since changes can not be detected: the path iterator would
+ * reflect the changes while the cached bounds and the path used by {@code contains(…)} would not.</p>
+ *
+ * <p>Because straight lines and Bézier curves in the source space are generally curved after projection,
+ * each source segment is evaluated parametrically and subdivided until the projected midpoint of each
+ * piece is closer to the straight line between the projected ends than a given tolerance. This applies
+ * also to the implicit line added by {@link PathIterator#SEG_CLOSE}. All segments of the projected shape
+ * are straight lines. Points that can not be projected are replaced by NaN, as done by
+ * {@link LinearApproximation}.</p>
+ *
+ * <p>The {@code contains(…)} and {@code intersects(…)} methods need the whole geometry;
+ * they are implemented on a {@link Path2D} created when first needed.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfProjection#createTransformedShape(Shape)
+ */
+final class ProjectedShape implements Shape {
+    /**
+     * Maximal number of times that a source segment is split in two halves.
+     * A segment is approximated by at most 2<sup>{@value}</sup> straight lines.
+     */
+    static final int MAX_DEPTH = 10;
+
+    /**
+     * The shape to project. Shall not be modified while this projected shape is in use.
+     */
+    private final Shape shape;
+
+    /**
+     * The map projection to apply.
+     */
+    private final MathTransform2D transform;
+
+    /**
+     * Maximal distance between the projected shape and the straight lines approximating it,
+     * in units of the projection target.
+     */
+    private final double tolerance;
+
+    /**
+     * The bounds of the projected shape, or {@code null} if not yet computed.
+     */
+    private Rectangle2D bounds;
+
+    /**
+     * The projected shape in memory, or {@code null} if not yet computed.
+     * This is needed only by the {@code contains(…)} and {@code intersects(…)} methods.
+     */
+    private Path2D path;
+
+    /**
+     * Creates a new view of the given shape projected by the given transform.
+     * The given shape is not copied and shall not be modified while the projected shape is in use.
+     *
+     * @param shape      the shape to project.
+     * @param transform  the map projection to apply.
+     * @param tolerance  maximal distance between the projected shape and the straight lines approximating it.
+     */
+    ProjectedShape(final Shape shape, final MathTransform2D transform, final double tolerance) {
+        this.shape     = shape;
+        this.transform = transform;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Returns an iterator projecting the outline of the source shape on the fly.
+     *
+     * @param  at  an optional transform to apply on the projected coordinates, or {@code null}.
+     * @return an iterator over the projected outline.
+     */
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at) {
+        return new Iterator(shape.getPathIterator(null), at);
+    }
+
+    /**
+     * Returns an iterator projecting the outline of the source shape on the fly.
+     * The flatness argument is ignored since the iterator returns only straight lines.
+     *
+     * @param  at        an optional transform to apply on the projected coordinates, or {@code null}.
+     * @param  flatness  ignored.
+     * @return an iterator over the projected outline.
+     */
+    @Override
+    public PathIterator getPathIterator(final AffineTransform at, final double flatness) {
+        return getPathIterator(at);
+    }
+
+    /**
+     * Returns the bounds of the projected shape. This method iterates over the projected outline
+     * without storing it, then caches the result.
+     */
+    @Override
+    public synchronized Rectangle2D getBounds2D() {
+        if (bounds == null) {
+            double xmin = Double.POSITIVE_INFINITY, ymin = Double.POSITIVE_INFINITY;
+            double xmax = Double.NEGATIVE_INFINITY, ymax = Double.NEGATIVE_INFINITY;
+            final double[] b = new double[6];
+            for (final PathIterator it = getPathIterator(null); !it.isDone(); it.next()) {
+                if (it.currentSegment(b) != PathIterator.SEG_CLOSE) {
+                    final double x = b[0], y = b[1];
+                    if (x < xmin) xmin = x;
+                    if (x > xmax) xmax = x;
+                    if (y < ymin) ymin = y;
+                    if (y > ymax) ymax = y;
+                }
+            }
+            bounds = (xmin <= xmax && ymin <= ymax) ? new Rectangle2D.Double(xmin, ymin, xmax - xmin, ymax - ymin)
+                                                   : new Rectangle2D.Double();
+        }
+        return (Rectangle2D) bounds.clone();
+    }
+
+    /**
+     * Returns the bounds of the projected shape rounded to integer values.
+     */
+    @Override
+    public Rectangle getBounds() {
+        return getBounds2D().getBounds();
+    }
+
+    /**
+     * Returns the projected shape in memory, creating it when first needed.
+     */
+    private synchronized Path2D path() {
+        if (path == null) {
+            final PathIterator it = getPathIterator(null);
+            path = new Path2D.Double(it.getWindingRule());
+            path.append(it, false);
+        }
+        return path;
+    }
+
+    /** Tests if the given point is inside the projected shape. */
+    @Override public boolean contains(double x, double y)                     {return path().contains(x, y);}
+    @Override public boolean contains(Point2D p)                              {return path().contains(p);}
+    @Override public boolean contains(double x, double y, double w, double h) {return path().contains(x, y, w, h);}
+    @Override public boolean contains(Rectangle2D r)                          {return path().contains(r);}
+
+    /** Tests if the given rectangle intersects the projected shape. */
+    @Override public boolean intersects(double x, double y, double w, double h) {return path().intersects(x, y, w, h);}
+    @Override public boolean intersects(Rectangle2D r)                          {return path().intersects(r);}
+
+    /**
+     * The iterator over the projected outline. This iterator reads one segment of the source shape at
+     * a time, and splits it recursively as needed. The recursivity is implemented with a stack of at most
+     * {@value #MAX_DEPTH} points, so the memory usage does not depend on the number of segments.
+     */
+    private final class Iterator implements PathIterator {
+        /** The iterator over the outline of the source shape. */
+        private final PathIterator source;
+
+        /** The transform to apply on projected coordinates, or {@code null} if none. */
+        private final AffineTransform at;
+
+        /** Type of the source segment being split: {@code SEG_LINETO}, {@code SEG_QUADTO} or {@code SEG_CUBICTO}. */
+        private int sourceType;
+
+        /** Start point followed by the control points and end point of the source segment being split. */
+        private final double[] control = new double[8];
+
+        /** Source coordinates of the start of the current subpath, and of the current point. */
+        private double moveX, moveY, lastX, lastY;
+
+        /** Projected coordinates of the start of the current subpath. */
+        private double moveProjX, moveProjY;
+
+        /** Parameter value (from 0 to 1) and projected coordinates of the start of the piece being tested. */
+        private double t0, x0, y0;
+
+        /** Parameter values and projected coordinates of the ends of the pieces to test, as a stack. */
+        private final double[] stackT, stackX, stackY;
+
+        /** Number of elements in the stack. */
+        private int depth;
+
+        /** Whether a {@code SEG_CLOSE} needs to be emitted after the current source segment. */
+        private boolean pendingClose;
+
+        /** Type of the current output segment, or -1 if the iteration is finished. */
+        private int type;
+
+        /** Coordinates of the current output segment. */
+        private double x, y;
+
+        /** Temporary points for the projection of a single point. */
+        private final Point2D.Double sourcePoint, targetPoint;
+
+        /** Temporary buffer for the {@code float[]} variant of {@code currentSegment(…)}. */
+        private final double[] buffer = new double[2];
+
+        /** Creates a new iterator over the given source outline. */
+        Iterator(final PathIterator source, final AffineTransform at) {
+            this.source = source;
+            this.at     = (at != null && !at.isIdentity()) ? at : null;
+            stackT      = new double[MAX_DEPTH + 1];
+            stackX      = new double[MAX_DEPTH + 1];
+            stackY      = new double[MAX_DEPTH + 1];
+            sourcePoint = new Point2D.Double();
+            targetPoint = new Point2D.Double();
+            advance();
+        }
+
+        /** Returns the winding rule of the source shape. */
+        @Override
+        public int getWindingRule() {
+            return source.getWindingRule();
+        }
+
+        /** Returns whether there is no more segment. */
+        @Override
+        public boolean isDone() {
+            return type < 0;
+        }
+
+        /** Moves to the next projected segment. */
+        @Override
+        public void next() {
+            if (type >= 0) {
+                advance();
+            }
+        }
+
+        /** Returns the current projected segment. */
+        @Override
+        public int currentSegment(final float[] coords) {
+            final int t = currentSegment(buffer);
+            coords[0] = (float) buffer[0];
+            coords[1] = (float) buffer[1];
+            return t;
+        }
+
+        /** Returns the current projected segment. */
+        @Override
+        public int currentSegment(final double[] coords) {
+            if (type < 0) {
+                throw new NoSuchElementException();
+            }
+            coords[0] = x;
+            coords[1] = y;
+            if (at != null && type != SEG_CLOSE) {
+                at.transform(coords, 0, coords, 0, 1);
+            }
+            return type;
+        }
+
+        /**
+         * Projects the given source point and stores the result in {@link #targetPoint}.
+         * Points that can not be projected are replaced by NaN.
+         */
+        private void project(final double sx, final double sy) {
+            sourcePoint.x = sx;
+            sourcePoint.y = sy;
+            try {
+                transform.transform(sourcePoint, targetPoint);
+            } catch (TransformException e) {
+                targetPoint.x = Double.NaN;
+                targetPoint.y = Double.NaN;
+            }
+        }
+
+        /**
+         * Projects the point of the source segment at the given parameter value.
+         * The result is stored in {@link #targetPoint}.
+         */
+        private void evaluate(final double t) {
+            final double[] c = control;
+            final double s = 1 - t;
+            switch (sourceType) {
+                case SEG_LINETO: {
+                    project(s*c[0] + t*c[2],
+                            s*c[1] + t*c[3]);
+                    break;
+                }
+                case SEG_QUADTO: {
+                    final double a = s*s, b = 2*s*t, d = t*t;
+                    project(a*c[0] + b*c[2] + d*c[4],
+                            a*c[1] + b*c[3] + d*c[5]);
+                    break;
+                }
+                case SEG_CUBICTO: {
+                    final double a = s*s*s, b = 3*s*s*t, d = 3*s*t*t, e = t*t*t;
+                    project(a*c[0] + b*c[2] + d*c[4] + e*c[6],
+                            a*c[1] + b*c[3] + d*c[5] + e*c[7]);
+                    break;
+                }
+                default: throw new AssertionError(sourceType);
+            }
+        }
+
+        /**
+         * Prepares the splitting of a source segment ending at the given projected point.
+         * The start of the segment shall be stored in {@code control[0…1]}.
+         */
+        private void startSegment(final int sourceType, final double endX, final double endY) {
+            this.sourceType = sourceType;
+            t0 = 0;
+            stackT[0] = 1;
+            stackX[0] = endX;
+            stackY[0] = endY;
+            depth = 1;
+        }
+
+        /**
+         * Computes the next projected segment. This method continues the splitting of the current
+         * source segment if any, or reads the next source segment otherwise.
+         */
+        private void advance() {
+            if (depth == 0) {
+                if (pendingClose) {
+                    pendingClose = false;
+                    type = SEG_CLOSE;
+                    return;
+                }
+                if (source.isDone()) {
+                    type = -1;
+                    return;
+                }
+                final double[] c = control;
+                final int sourceType = source.currentSegment(c);
+                source.next();
+                switch (sourceType) {
+                    case SEG_MOVETO: {
+                        moveX = lastX = c[0];
+                        moveY = lastY = c[1];
+                        project(lastX, lastY);
+                        moveProjX = x0 = x = targetPoint.x;
+                        moveProjY = y0 = y = targetPoint.y;
+                        type = SEG_MOVETO;
+                        return;
+                    }
+                    case SEG_CLOSE: {
+                        if (lastX == moveX && lastY == moveY) {
+                            type = SEG_CLOSE;
+                            return;
+                        }
+                        c[0] = lastX; c[2] = lastX = moveX;
+                        c[1] = lastY; c[3] = lastY = moveY;
+                        startSegment(SEG_LINETO, moveProjX, moveProjY);
+                        pendingClose = true;
+                        break;
+                    }
+                    default: {
+                        // Shift the control points for inserting the start point in c[0…1].
+                        final int n = (sourceType == SEG_LINETO) ? 2 : (sourceType == SEG_QUADTO) ? 4 : 6;
+                        System.arraycopy(c, 0, c, 2, n);
+                        c[0] = lastX;
+                        c[1] = lastY;
+                        lastX = c[n];
+                        lastY = c[n+1];
+                        project(lastX, lastY);
+                        startSegment(sourceType, targetPoint.x, targetPoint.y);
+                        break;
+                    }
+                }
+            }
+            /*
+             * Split the current piece until its projected midpoint is close enough to the chord,
+             * then emit a line to the end of that piece.
+             */
+            while (true) {
+                final int top = depth - 1;
+                final double t1 = stackT[top];
+                final double x1 = stackX[top];
+                final double y1 = stackY[top];
+                if (depth <= MAX_DEPTH) {
+                    final double tm = (t0 + t1) / 2;
+                    evaluate(tm);
+                    final double xm = targetPoint.x;
+                    final double ym = targetPoint.y;
+                    if (Math.hypot(xm - (x0 + x1) / 2, ym - (y0 + y1) / 2) > tolerance) {
+                        stackT[depth] = tm;
+                        stackX[depth] = xm;
+                        stackY[depth] = ym;
+                        depth++;
+                        continue;
+                    }
+                }
+                t0 = t1;
+                x  = x0 = x1;
+                y  = y0 = y1;
+                depth = top;
+                type = SEG_LINETO;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.io.Serializable;
+
+import ucar.nc2.constants.CF;
+import ucar.unidata.util.Parameter;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+import ucar.unidata.geoloc.projection.UtmProjection;
+
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * Computes the derivative (Jacobian matrix) of a netCDF map projection at a given geographic location.
+ * Instances are created by {@link ProjectionProvider#createDerivative(Projection)} for the projections
+ * having a closed-form derivative, or by {@link FiniteDifference} for other projections.
+ *
+ * <p>All projections in this class use the spherical formulas of the netCDF library, as published in
+ * <cite>Snyder, J.P. (1987). Map Projections - A Working Manual</cite>. Input coordinates are
+ * (<var>longitude</var>, <var>latitude</var>) in degrees, and the derivatives are in units
+ * of the projected coordinates (usually kilometres) per degree.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+abstract class ProjectionDerivative implements Serializable {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = -3586021451709389474L;
+
+    /**
+     * Conversion factor from degrees to radians.
+     */
+    static final double D = Math.PI / 180;
+
+    /**
+     * Conversion factor for the Earth radius, which netCDF projections declare in metres
+     * while the projected coordinates are in kilometres.
+     */
+    private static final double KILOMETRE = 1000;
+
+    /**
+     * For subclasses constructors.
+     */
+    ProjectionDerivative() {
+    }
+
+    /**
+     * Computes the derivative of the forward projection at the given geographic location.
+     * The matrix elements are (∂x/∂λ, ∂x/∂φ) in the first row and (∂y/∂λ, ∂y/∂φ) in the second row.
+     *
+     * @param  λ  the longitude in degrees.
+     * @param  φ  the latitude in degrees.
+     * @return the Jacobian matrix at the given location.
+     */
+    abstract SimpleMatrix derivative(double λ, double φ);
+
+    /**
+     * Creates a 2×2 matrix with the given elements.
+     */
+    static SimpleMatrix matrix(final double m00, final double m01, final double m10, final double m11) {
+        final SimpleMatrix m = new SimpleMatrix(2);
+        m.setElement(0, 0, m00);
+        m.setElement(0, 1, m01);
+        m.setElement(1, 0, m10);
+        m.setElement(1, 1, m11);
+        return m;
+    }
+
+    /**
+     * Inverts in-place the given 2×2 matrix. This is used for computing the derivative of the inverse
+     * projection, which is the inverse of the derivative of the forward projection at the same location.
+     *
+     * @param  m  the matrix to invert.
+     * @throws NoninvertibleTransformException if the matrix is singular.
+     */
+    static void invert(final SimpleMatrix m) throws NoninvertibleTransformException {
+        final double m00 = m.getElement(0, 0);
+        final double m01 = m.getElement(0, 1);
+        final double m10 = m.getElement(1, 0);
+        final double m11 = m.getElement(1, 1);
+        final double det = m00*m11 - m01*m10;
+        if (!(det != 0) || Double.isInfinite(det)) {        // Use '!' for catching NaN.
+            throw new NoninvertibleTransformException("Singular derivative matrix.");
+        }
+        m.setElement(0, 0,  m11 / det);
+        m.setElement(0, 1, -m01 / det);
+        m.setElement(1, 0, -m10 / det);
+        m.setElement(1, 1,  m00 / det);
+    }
+
+    /**
+     * Returns the value of the given netCDF projection parameter. If the parameter is an array
+     * (for example {@code standard_parallel}) and the given index is greater than the last index,
+     * then the last value is returned.
+     *
+     * @param  projection  the projection from which to get a parameter value.
+     * @param  name        the netCDF parameter name.
+     * @param  index       index of the value for array parameters, or 0 for scalar parameters.
+     * @return the parameter value.
+     * @throws IllegalArgumentException if the projection does not declare the requested parameter.
+     */
+    static double value(final Projection projection, final String name, final int index) {
+        for (final Parameter param : projection.getProjectionParameters()) {
+            if (name.equals(param.getName()) && !param.isString()) {
+                return param.getNumericValue(Math.min(index, param.getLength() - 1));
+            }
+        }
+        throw new IllegalArgumentException("No \"" + name + "\" parameter in \"" + projection.getClassName() + "\" projection.");
+    }
+
+    /**
+     * Returns the value of the given netCDF projection parameter, or the given default value if none.
+     */
+    static double value(final Projection projection, final String name, final double defaultValue) {
+        for (final Parameter param : projection.getProjectionParameters()) {
+            if (name.equals(param.getName()) && !param.isString()) {
+                return param.getNumericValue();
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Returns the Earth radius declared by the given projection, in kilometres.
+     */
+    static double earthRadius(final Projection projection) {
+        return value(projection, CF.EARTH_RADIUS, 0) / KILOMETRE;
+    }
+
+
+
+    /**
+     * Derivative approximated by central finite differences. This is used for the projections
+     * which have no closed-form derivative in this class, in particular {@link UtmProjection}.
+     * If the central meridian is known, the samples are kept on the same side of the antimeridian
+     * (λ₀ ± 180°) by moving the location by at most two steps, since a projection is discontinuous there.
+     */
+    static final class FiniteDifference extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 3237745734302591227L;
+
+        /** The increment in degrees used for computing the finite differences. */
+        private static final double STEP = 1E-4;
+
+        /** Maximal distance in degrees from the central meridian of the location where samples are centred. */
+        private static final double LIMIT = 180 - 2*STEP;
+
+        /** The projection for which to compute the derivatives. */
+        private final Projection projection;
+
+        /** Central meridian in degrees, or NaN if unknown. */
+        private final double λ0;
+
+        /** Creates a new finite differences calculator for the given projection. */
+        FiniteDifference(final Projection projection) {
+            this.projection = projection;
+            double λ0 = value(projection, CF.LONGITUDE_OF_CENTRAL_MERIDIAN, Double.NaN);
+            if (Double.isNaN(λ0)) {
+                λ0 = value(projection, CF.LONGITUDE_OF_PROJECTION_ORIGIN, Double.NaN);
+                if (Double.isNaN(λ0) && projection instanceof UtmProjection) {
+                    λ0 = 6 * ((UtmProjection) projection).getZone() - 183;
+                }
+            }
+            this.λ0 = λ0;
+        }
+
+        /** Approximates the derivative at the given location. */
+        @Override
+        SimpleMatrix derivative(double λ, final double φ) {
+            final double Δλ = Math.IEEEremainder(λ - λ0, 360);         // NaN if the central meridian is unknown.
+            if (Math.abs(Δλ) > LIMIT) {
+                λ += Math.copySign(LIMIT, Δλ) - Δλ;
+            }
+            final double φn = Math.min(φ + STEP,  90);
+            final double φs = Math.max(φ - STEP, -90);
+            final ProjectionPoint east  = projection.latLonToProj(φ,  λ + STEP);
+            final ProjectionPoint west  = projection.latLonToProj(φ,  λ - STEP);
+            final ProjectionPoint north = projection.latLonToProj(φn, λ);
+            final ProjectionPoint south = projection.latLonToProj(φs, λ);
+            final double Δλs = 2*STEP;
+            final double Δφs = φn - φs;
+            return matrix((east .getX() - west .getX()) / Δλs, (north.getX() - south.getX()) / Δφs,
+                          (east .getY() - west .getY()) / Δλs, (north.getY() - south.getY()) / Δφs);
+        }
+    }
+
+
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.LatLonProjection},
+     * which is the identity matrix.
+     */
+    static final class Identity extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -2937364530785520066L;
+
+        /** Returns the identity matrix. */
+        @Override
+        SimpleMatrix derivative(final double λ, final double φ) {
+            return new SimpleMatrix(2);
+        }
+    }
+
+
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.Mercator}.
+     * The projection is <var>x</var> = <var>A</var>⋅Δλ and <var>y</var> = <var>A</var>⋅atanh(sin φ)
+     * where <var>A</var> = <var>R</var>⋅cos(φ₁).
+     */
+    static final class Mercator extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 7431006606493342453L;
+
+        /** The <var>A</var> coefficient multiplied by the degree to radian factor. */
+        private final double A;
+
+        /** Precomputes the constants of the given projection. */
+        Mercator(final Projection projection) {
+            A = earthRadius(projection) * Math.cos(D * value(projection, CF.STANDARD_PARALLEL, 0)) * D;
+        }
+
+        /** Computes the derivative at the given location. */
+        @Override
+        SimpleMatrix derivative(final double λ, final double φ) {
+            return matrix(A, 0, 0, A / Math.cos(D * φ));
+        }
+    }
+
+
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.FlatEarth}.
+     * The projection rotates by an angle θ the coordinates
+     * <var>u</var> = <var>R</var>⋅cos φ⋅(λ − λ₀) and <var>v</var> = <var>R</var>⋅(φ − φ₀).
+     */
+    static final class FlatEarth extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -4716305830128420263L;
+
+        /** Longitude of projection origin in degrees. */
+        private final double λ0;
+
+        /** Sine and cosine of the rotation angle, multiplied by the Earth radius and the degree to radian factor. */
+        private final double sinθ, cosθ;
+
+        /** Precomputes the constants of the given projection. */
+        FlatEarth(final Projection projection) {
+            final double θ = D * value(projection, ucar.unidata.geoloc.projection.FlatEarth.ROTATIONANGLE, 0.0);
+            final double R = earthRadius(projection) * D;
+            λ0   = value(projection, CF.LONGITUDE_OF_PROJECTION_ORIGIN, 0);
+            sinθ = R * Math.sin(θ);
+            cosθ = R * Math.cos(θ);
+        }
+
+        /** Computes the derivative at the given location. */
+        @Override
+        SimpleMatrix derivative(final double λ, double φ) {
+            φ *= D;
+            final double dudλ = Math.cos(φ);
+            final double dudφ = -Math.sin(φ) * D * (λ - λ0);
+            return matrix(cosθ * dudλ,   cosθ * dudφ - sinθ,
+                          sinθ * dudλ,   sinθ * dudφ + cosθ);
+        }
+    }
+
+
+
+    /**
+     * Derivative of the projections rotating the sphere, which are
+     * {@link ucar.unidata.geoloc.projection.RotatedLatLon} and {@link ucar.unidata.geoloc.projection.RotatedPole}.
+     * Those projections multiply the unit vector <var>p</var> = (cos φ⋅cos λ, cos φ⋅sin λ, sin φ)
+     * by a rotation matrix <var>M</var>, then convert the result <var>q</var> to
+     * λ′ = atan2(<var>q₁</var>, <var>q₀</var>) and φ′ = asin(<var>q₂</var>).
+     * The columns of <var>M</var> are the images of the axes of the unit sphere, obtained by projecting
+     * two points on the equator. This avoids duplicating the conventions of each projection about the
+     * rotation parameters.
+     */
+    static final class Rotation extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 2289712917546373092L;
+
+        /** The rotation matrix in row-major order. */
+        private final double[] M;
+
+        /** Computes the rotation matrix of the given projection. */
+        Rotation(final Projection projection) {
+            M = new double[9];
+            column(projection.latLonToProj(0,  0), 0);
+            column(projection.latLonToProj(0, 90), 1);
+            M[2] = M[3]*M[7] - M[6]*M[4];                       // Third column is the cross product
+            M[5] = M[6]*M[1] - M[0]*M[7];                       // of the two first ones.
+            M[8] = M[0]*M[4] - M[3]*M[1];
+        }
+
+        /** Stores in the given column of the matrix the unit vector of the given projected point. */
+        private void column(final ProjectionPoint pt, final int i) {
+            final double λ = D * pt.getX();
+            final double φ = D * pt.getY();
+            final double cosφ = Math.cos(φ);
+            M[i  ] = cosφ * Math.cos(λ);
+            M[i+3] = cosφ * Math.sin(λ);
+            M[i+6] = Math.sin(φ);
+        }
+
+        /** Computes the derivative at the given location. */
+        @Override
+        SimpleMatrix derivative(double λ, double φ) {
+            λ *= D;
+            φ *= D;
+            final double sinφ = Math.sin(φ);
+            final double cosφ = Math.cos(φ);
+            final double sinλ = Math.sin(λ);
+            final double cosλ = Math.cos(λ);
+            final double[] p   = { cosφ * cosλ,  cosφ * sinλ, sinφ};     // Unit vector.
+            final double[] dpλ = {-cosφ * sinλ,  cosφ * cosλ, 0};        // ∂p/∂λ
+            final double[] dpφ = {-sinφ * cosλ, -sinφ * sinλ, cosφ};     // ∂p/∂φ
+            final double[] q   = new double[3];
+            final double[] dqλ = new double[3];
+            final double[] dqφ = new double[3];
+            for (int j=0; j<3; j++) {
+                for (int i=0; i<3; i++) {
+                    final double m = M[j*3 + i];
+                    q  [j] += m * p  [i];
+                    dqλ[j] += m * dpλ[i];
+                    dqφ[j] += m * dpφ[i];
+                }
+            }
+            final double r2 = q[0]*q[0] + q[1]*q[1];
+            final double r  = Math.sqrt(r2);
+            return matrix((q[0]*dqλ[1] - q[1]*dqλ[0]) / r2,   (q[0]*dqφ[1] - q[1]*dqφ[0]) / r2,
+                          dqλ[2] / r,                         dqφ[2] / r);
+        }
+    }
+
+
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.TransverseMercator} (spherical case).
+     * The projection is <var>x</var> = <var>s</var>⋅atanh(<var>B</var>) and
+     * <var>y</var> = <var>s</var>⋅(atan2(tan φ, cos Δλ) − φ₀)
+     * where <var>B</var> = cos φ⋅sin Δλ and <var>s</var> = <var>R</var>⋅<var>k₀</var>.
+     */
+    static final class TransverseMercator extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -5061497858219962549L;
+
+        /** Central meridian in degrees. */
+        private final double λ0;
+
+        /** The scale (<var>R</var>⋅<var>k₀</var>) multiplied by the degree to radian factor. */
+        private final double s;
+
+        /** Precomputes the constants of the given projection. */
+        TransverseMercator(final Projection projection) {
+            λ0 = value(projection, CF.LONGITUDE_OF_CENTRAL_MERIDIAN, 0);
+            s  = earthRadius(projection) * value(projection, CF.SCALE_FACTOR_AT_CENTRAL_MERIDIAN, 0) * D;
+        }
+
+        /** Computes the derivative at the given location. */
+        @Override
+        SimpleMatrix derivative(final double λ, double φ) {
+            final double Δλ   = D * (λ - λ0);
+            φ *= D;
+            final double sinφ = Math.sin(φ);
+            final double cosφ = Math.cos(φ);
+            final double sinΔ = Math.sin(Δλ);
+            final double cosΔ = Math.cos(Δλ);
+            final double B    = cosφ * sinΔ;
+            final double tanφ = sinφ / cosφ;
+            final double dB   = s / (1 - B*B);
+            final double dA   = s / (tanφ*tanφ + cosΔ*cosΔ);
+            return matrix( dB * cosφ * cosΔ,   dB * -sinφ * sinΔ,
+                           dA * tanφ * sinΔ,   dA * cosΔ / (cosφ*cosφ));
+        }
+    }
+
+
+
+    /**
+     * Derivative of azimuthal projections. Those projections have the form
+     * <var>x</var> = <var>k</var>⋅cos φ⋅sin Δλ and
+     * <var>y</var> = <var>k</var>⋅(cos φ₀⋅sin φ − sin φ₀⋅cos φ⋅cos Δλ)
+     * where <var>k</var> is a function of cos <var>c</var> = sin φ₀⋅sin φ + cos φ₀⋅cos φ⋅cos Δλ.
+     */
+    abstract static class Azimuthal extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -8919776612648913521L;
+
+        /** Longitude of projection origin in degrees. */
+        private final double λ0;
+
+        /** Sine and cosine of the latitude of projection origin. */
+        private final double sinφ0, cosφ0;
+
+        /** The Earth radius in kilometres. */
+        final double R;
+
+        /** Precomputes the constants of the given projection. */
+        Azimuthal(final Projection projection) {
+            final double φ0 = D * value(projection, CF.LATITUDE_OF_PROJECTION_ORIGIN, 0);
+            λ0    = value(projection, CF.LONGITUDE_OF_PROJECTION_ORIGIN, 0);
+            sinφ0 = Math.sin(φ0);
+            cosφ0 = Math.cos(φ0);
+            R     = earthRadius(projection);
+        }
+
+        /**
+         * Returns the <var>k</var> factor for the given cos <var>c</var> value in element 0 of the given array,
+         * and the derivative of <var>k</var> with respect to cos <var>c</var> in element 1.
+         */
+        abstract void k(double cosc, double[] k);
+
+        /** Computes the derivative at the given location. */
+        @Override
+        final SimpleMatrix derivative(final double λ, double φ) {
+            final double Δλ   = D * (λ - λ0);
+            φ *= D;
+            final double sinφ = Math.sin(φ);
+            final double cosφ = Math.cos(φ);
+            final double sinΔ = Math.sin(Δλ);
+            final double cosΔ = Math.cos(Δλ);
+            final double X    = cosφ * sinΔ;
+            final double Y    = cosφ0 * sinφ - sinφ0 * cosφ * cosΔ;
+            final double[] k  = new double[2];
+            k(sinφ0 * sinφ + cosφ0 * cosφ * cosΔ, k);
+            final double dcdλ = -cosφ0 * cosφ * sinΔ;                   // ∂(cos c)/∂λ
+            final double dcdφ =  sinφ0 * cosφ - cosφ0 * sinφ * cosΔ;    // ∂(cos c)/∂φ
+            return matrix(D * (k[0] *  cosφ * cosΔ          + X * k[1] * dcdλ),
+                          D * (k[0] * -sinφ * sinΔ          + X * k[1] * dcdφ),
+                          D * (k[0] *  sinφ0 * cosφ * sinΔ  + Y * k[1] * dcdλ),
+                          D * (k[0] * (cosφ0 * cosφ + sinφ0 * sinφ * cosΔ) + Y * k[1] * dcdφ));
+        }
+    }
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.Stereographic}
+     * with <var>k</var> = 2⋅<var>R</var>⋅<var>k₀</var> / (1 + cos <var>c</var>).
+     */
+    static final class Stereographic extends Azimuthal {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 4505549405102939003L;
+
+        /** Two times the Earth radius multiplied by the scale factor. */
+        private final double scale;
+
+        /** Precomputes the constants of the given projection. */
+        Stereographic(final Projection projection) {
+            super(projection);
+            scale = 2 * R * value(projection, CF.SCALE_FACTOR_AT_PROJECTION_ORIGIN, 1.0);
+        }
+
+        /** Computes <var>k</var> and its derivative. */
+        @Override
+        void k(final double cosc, final double[] k) {
+            final double d = 1 + cosc;
+            k[0] = scale / d;
+            k[1] = -k[0] / d;
+        }
+    }
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.LambertAzimuthalEqualArea}
+     * with <var>k</var> = <var>R</var>⋅√(2 / (1 + cos <var>c</var>)).
+     */
+    static final class LambertAzimuthal extends Azimuthal {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 4070618651307917473L;
+
+        /** Precomputes the constants of the given projection. */
+        LambertAzimuthal(final Projection projection) {
+            super(projection);
+        }
+
+        /** Computes <var>k</var> and its derivative. */
+        @Override
+        void k(final double cosc, final double[] k) {
+            final double d = 1 + cosc;
+            k[0] = R * Math.sqrt(2 / d);
+            k[1] = -k[0] / (2*d);
+        }
+    }
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.Orthographic}
+     * with <var>k</var> = <var>R</var>.
+     */
+    static final class Orthographic extends Azimuthal {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -2354924281591581127L;
+
+        /** Precomputes the constants of the given projection. */
+        Orthographic(final Projection projection) {
+            super(projection);
+        }
+
+        /** Computes <var>k</var> and its derivative. */
+        @Override
+        void k(final double cosc, final double[] k) {
+            k[0] = R;
+            k[1] = 0;
+        }
+    }
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.VerticalPerspectiveView}
+     * with <var>k</var> = <var>R</var>⋅(<var>P</var> − 1) / (<var>P</var> − cos <var>c</var>)
+     * where <var>P</var> = 1 + <var>H</var>/<var>R</var>.
+     */
+    static final class VerticalPerspective extends Azimuthal {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -6519547186253431546L;
+
+        /** The <var>P</var> constant, which is the distance of the perspective point from the centre of the Earth. */
+        private final double P;
+
+        /** Precomputes the constants of the given projection. */
+        VerticalPerspective(final Projection projection) {
+            super(projection);
+            P = 1 + value(projection, CF.PERSPECTIVE_POINT_HEIGHT, 0) / value(projection, CF.EARTH_RADIUS, 0);
+        }
+
+        /** Computes <var>k</var> and its derivative. */
+        @Override
+        void k(final double cosc, final double[] k) {
+            final double d = P - cosc;
+            k[0] = R * (P - 1) / d;
+            k[1] = k[0] / d;
+        }
+    }
+
+
+
+    /**
+     * Derivative of conic projections. Those projections have the form
+     * <var>x</var> = ρ⋅sin θ and <var>y</var> = ρ₀ − ρ⋅cos θ where θ = <var>n</var>⋅Δλ
+     * and ρ is a function of the latitude only.
+     */
+    abstract static class Conic extends ProjectionDerivative {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 5722993913216932244L;
+
+        /** Central meridian in degrees. */
+        private final double λ0;
+
+        /** The cone constant. */
+        final double n;
+
+        /** Precomputes the constants of the given projection. */
+        Conic(final Projection projection, final double n) {
+            this.λ0 = value(projection, CF.LONGITUDE_OF_CENTRAL_MERIDIAN, 0);
+            this.n  = n;
+        }
+
+        /**
+         * Returns ρ for the given latitude in radians in element 0 of the given array,
+         * and the derivative of ρ with respect to the latitude in element 1.
+         */
+        abstract void ρ(double φ, double[] ρ);
+
+        /** Computes the derivative at the given location. */
+        @Override
+        final SimpleMatrix derivative(final double λ, final double φ) {
+            final double[] ρ = new double[2];
+            ρ(D * φ, ρ);
+            final double θ    = n * D * (λ - λ0);
+            final double sinθ = Math.sin(θ);
+            final double cosθ = Math.cos(θ);
+            final double nρ   = n * ρ[0];
+            return matrix(D * nρ * cosθ,   D *  ρ[1] * sinθ,
+                          D * nρ * sinθ,   D * -ρ[1] * cosθ);
+        }
+    }
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.LambertConformal}
+     * with ρ = <var>R</var>⋅<var>F</var> / tanⁿ(π/4 + φ/2).
+     */
+    static final class LambertConformal extends Conic {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -2722420040052117223L;
+
+        /** The Earth radius multiplied by the <var>F</var> constant. */
+        private final double RF;
+
+        /** Precomputes the constants of the given projection. */
+        LambertConformal(final Projection projection) {
+            this(projection, D * value(projection, CF.STANDARD_PARALLEL, 0),
+                             D * value(projection, CF.STANDARD_PARALLEL, 1));
+        }
+
+        /** Precomputes the constants of the given projection with the given standard parallels in radians. */
+        private LambertConformal(final Projection projection, final double φ1, final double φ2) {
+            super(projection, (Math.abs(φ1 - φ2) < 1E-10) ? Math.sin(φ1) :
+                    Math.log(Math.cos(φ1) / Math.cos(φ2)) /
+                    Math.log(Math.tan(Math.PI/4 + φ2/2) / Math.tan(Math.PI/4 + φ1/2)));
+            RF = earthRadius(projection) * Math.cos(φ1) * Math.pow(Math.tan(Math.PI/4 + φ1/2), n) / n;
+        }
+
+        /** Computes ρ and its derivative. */
+        @Override
+        void ρ(final double φ, final double[] ρ) {
+            ρ[0] = RF / Math.pow(Math.tan(Math.PI/4 + φ/2), n);
+            ρ[1] = -n * ρ[0] / Math.cos(φ);
+        }
+    }
+
+    /**
+     * Derivative of {@link ucar.unidata.geoloc.projection.AlbersEqualArea}
+     * with ρ = <var>R</var>⋅√(<var>C</var> − 2<var>n</var>⋅sin φ) / <var>n</var>.
+     */
+    static final class Albers extends Conic {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 6036419434342016932L;
+
+        /** The Earth radius in kilometres. */
+        private final double R;
+
+        /** The <var>C</var> constant. */
+        private final double C;
+
+        /** Precomputes the constants of the given projection. */
+        Albers(final Projection projection) {
+            this(projection, D * value(projection, CF.STANDARD_PARALLEL, 0),
+                             D * value(projection, CF.STANDARD_PARALLEL, 1));
+        }
+
+        /** Precomputes the constants of the given projection with the given standard parallels in radians. */
+        private Albers(final Projection projection, final double φ1, final double φ2) {
+            super(projection, (Math.abs(φ1 - φ2) < 1E-10) ? Math.sin(φ1) : (Math.sin(φ1) + Math.sin(φ2)) / 2);
+            final double cosφ1 = Math.cos(φ1);
+            R = earthRadius(projection);
+            C = cosφ1*cosφ1 + 2*n*Math.sin(φ1);
+        }
+
+        /** Computes ρ and its derivative. */
+        @Override
+        void ρ(final double φ, final double[] ρ) {
+            final double r = Math.sqrt(C - 2*n*Math.sin(φ));
+            ρ[0] = R * r / n;
+            ρ[1] = -R * Math.cos(φ) / r;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationTargetException;
+
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionImpl;
+import ucar.unidata.geoloc.projection.ProjectionAdapter;
+
+
+/**
+ * The loop applying a netCDF projection on a chunk of points stored in primitive arrays.
+ * The default kernel delegates to the netCDF bulk methods. Faster kernels using the
+ * {@code jdk.incubator.vector} module may be available for some projections when this
+ * library has been compiled with the {@code vector} Maven profile, in which case the
+ * classes in the {@code src/vector/java} directory are loaded by reflection.
+ *
+ * <p>Vectorized kernels are used only if all the following conditions are met:</p>
+ * <ul>
+ *   <li>This library has been compiled with {@code mvn -Pvector install} on JDK 17 or later.</li>
+ *   <li>The application is executed with the {@code --add-modules jdk.incubator.vector} option.</li>
+ *   <li>The {@value #VECTOR_PROPERTY} system property is not set to {@code false}.</li>
+ * </ul>
+ *
+ * Otherwise the scalar kernel is used. Both kernels produce the same results within the accuracy
+ * documented by the vectorized kernels.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfProjection#transform(double[], int, double[], int, int)
+ */
+abstract class ProjectionKernel {
+    /**
+     * The system property to set to {@code false} for disabling the vectorized kernels.
+     */
+    static final String VECTOR_PROPERTY = "ucar.geoapi.vector";
+
+    /**
+     * The {@code VectorKernels.create(Projection, boolean)} method,
+     * or {@code null} if vectorized kernels are not available.
+     */
+    private static final Method VECTOR_FACTORY;
+    static {
+        Method factory = null;
+        try {
+            if (!"false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY))) {
+                factory = Class.forName("ucar.geoapi.VectorKernels")
+                        .getDeclaredMethod("create", Projection.class, Boolean.TYPE);
+            }
+        } catch (ReflectiveOperationException | LinkageError | SecurityException e) {
+            // Not compiled with the "vector" profile, or executed on a JDK older than 17.
+        }
+        VECTOR_FACTORY = factory;
+    }
+
+    /**
+     * For subclasses constructors.
+     */
+    ProjectionKernel() {
+    }
+
+    /**
+     * Returns the kernel to use for the given netCDF projection. This method returns a vectorized
+     * kernel if one is available for the given projection, or the scalar kernel otherwise.
+     *
+     * @param  projection  the netCDF projection.
+     * @param  inverse     {@code true} for the inverse projection, or {@code false} for the forward projection.
+     * @return the kernel to use for the given projection.
+     */
+    static ProjectionKernel create(final Projection projection, final boolean inverse) {
+        final ProjectionKernel kernel = vectorized(projection, inverse);
+        return (kernel != null) ? kernel : new Scalar(projection, inverse);
+    }
+
+    /**
+     * Returns a vectorized kernel for the given projection, or {@code null} if none.
+     *
+     * @param  projection  the netCDF projection.
+     * @param  inverse     {@code true} for the inverse projection, or {@code false} for the forward projection.
+     * @return the vectorized kernel, or {@code null} if none.
+     */
+    static ProjectionKernel vectorized(final Projection projection, final boolean inverse) {
+        if (VECTOR_FACTORY != null) try {
+            return (ProjectionKernel) VECTOR_FACTORY.invoke(null, projection, inverse);
+        } catch (IllegalAccessException | InvocationTargetException | LinkageError e) {
+            // The "jdk.incubator.vector" module is not available. Fallback on scalar kernel.
+        }
+        return null;
+    }
+
+    /**
+     * Transforms all points in the given source buffer and stores the result in the given target buffer.
+     * Both buffers store the (<var>x</var>,<var>y</var>) or (<var>longitude</var>,<var>latitude</var>)
+     * coordinates in their first and second rows respectively. The number of points is the length of
+     * the rows, which shall be the same in both buffers.
+     *
+     * @param  source  the coordinates to transform.
+     * @param  target  where to store the transformed coordinates. Rows may be replaced by this method.
+     */
+    abstract void transform(double[][] source, double[][] target);
+
+    /**
+     * A kernel delegating to the bulk methods of the netCDF library:
+     *
+     * <ul>
+     *   <li>{@link ProjectionImpl#latLonToProj(double[][], double[][], int, int)} for the forward projection.</li>
+     *   <li>{@link ProjectionImpl#projToLatLon(double[][], double[][])} for the inverse projection.</li>
+     * </ul>
+     *
+     * Most netCDF projections override those methods with loops working directly on primitive arrays,
+     * so no {@link ucar.unidata.geoloc.LatLonPoint} or {@link ucar.unidata.geoloc.ProjectionPoint}
+     * is allocated per point.
+     */
+    static final class Scalar extends ProjectionKernel {
+        /** The netCDF projection providing the bulk methods. */
+        private final ProjectionImpl projection;
+
+        /** {@code true} for the inverse projection. */
+        private final boolean inverse;
+
+        /** Creates a new kernel for the given projection. */
+        Scalar(final Projection projection, final boolean inverse) {
+            this.projection = ProjectionAdapter.factory(projection);
+            this.inverse    = inverse;
+        }
+
+        /** Delegates to the netCDF bulk methods, then reorders the target rows. */
+        @Override
+        void transform(final double[][] source, final double[][] target) {
+            final double[] x, y;
+            if (inverse) {
+                projection.projToLatLon(source, target);
+                x = target[ProjectionImpl.INDEX_LON];
+                y = target[ProjectionImpl.INDEX_LAT];
+            } else {
+                projection.latLonToProj(source, target, 1, 0);
+                x = target[ProjectionImpl.INDEX_X];
+                y = target[ProjectionImpl.INDEX_Y];
+            }
+            target[0] = x;
+            target[1] = y;
+        }
+    }
+}
@@ -303,6 +303,30 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
         return parameters.parameter(CF.EARTH_RADIUS).doubleValue();
     }
 
+    /**
+     * Returns the derivative calculator for the given projection, or {@code null} if none.
+     * This method verifies the projection type, then delegates to {@link #createDerivative(Projection)}.
+     *
+     * @param  projection  the projection for which to compute derivatives.
+     * @return the derivative calculator, or {@code null} if this provider has no closed-form derivative.
+     */
+    final ProjectionDerivative derivative(final Projection projection) {
+        final Class<P> type = delegate();
+        return type.isInstance(projection) ? createDerivative(type.cast(projection)) : null;
+    }
+
+    /**
+     * Creates the closed-form derivative calculator for the given projection. The default implementation
+     * returns {@code null}, in which case {@link NetcdfProjection} approximates the derivatives by finite
+     * differences. Subclasses override this method when the projection has a closed-form derivative.
+     *
+     * @param  projection  the projection for which to compute derivatives.
+     * @return the derivative calculator, or {@code null} if none.
+     */
+    ProjectionDerivative createDerivative(final P projection) {
+        return null;
+    }
+
     /**
      * Provider for the {@link AlbersEqualArea} projection.
      */
@@ -330,6 +354,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                        value(p, CF.FALSE_NORTHING) / KILOMETRE,
                                        earthRadius(p)              / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final AlbersEqualArea p) {
+            return new ProjectionDerivative.Albers(p);
+        }
     }
 
     /**
@@ -353,6 +380,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                  value(p, FlatEarth.ROTATIONANGLE),
                                  earthRadius(p) / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final FlatEarth p) {
+            return new ProjectionDerivative.FlatEarth(p);
+        }
     }
 
     /**
@@ -378,6 +408,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                                  value(p, CF.FALSE_NORTHING) / KILOMETRE,
                                                  earthRadius(p)              / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final LambertAzimuthalEqualArea p) {
+            return new ProjectionDerivative.LambertAzimuthal(p);
+        }
     }
 
     /**
@@ -407,6 +440,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                         value(p, CF.FALSE_NORTHING) / KILOMETRE,
                                         earthRadius(p)              / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final LambertConformal p) {
+            return new ProjectionDerivative.LambertConformal(p);
+        }
     }
 
     /**
@@ -422,6 +458,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
         @Override protected LatLonProjection createProjection(final ParameterValueGroup p) {
             return new LatLonProjection();
         }
+        @Override ProjectionDerivative createDerivative(final LatLonProjection p) {
+            return new ProjectionDerivative.Identity();
+        }
     }
 
     /**
@@ -449,6 +488,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                 value(p, CF.FALSE_NORTHING) / KILOMETRE,
                                 earthRadius(p)              / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final Mercator p) {
+            return new ProjectionDerivative.Mercator(p);
+        }
     }
 
     /**
@@ -470,6 +512,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                     value(p, CF.LONGITUDE_OF_PROJECTION_ORIGIN),
                                     earthRadius(p) / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final Orthographic p) {
+            return new ProjectionDerivative.Orthographic(p);
+        }
     }
 
     /**
@@ -491,6 +536,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                      value(p, RotatedLatLon.GRID_SOUTH_POLE_LONGITUDE),
                                      value(p, RotatedLatLon.GRID_SOUTH_POLE_ANGLE));
         }
+        @Override ProjectionDerivative createDerivative(final RotatedLatLon p) {
+            return new ProjectionDerivative.Rotation(p);
+        }
     }
 
     /**
@@ -510,6 +558,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
             return new RotatedPole(value(p, CF.GRID_NORTH_POLE_LATITUDE),
                                    value(p, CF.GRID_NORTH_POLE_LONGITUDE));
         }
+        @Override ProjectionDerivative createDerivative(final RotatedPole p) {
+            return new ProjectionDerivative.Rotation(p);
+        }
     }
 
     /**
@@ -539,6 +590,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                      value(p, CF.FALSE_NORTHING) / KILOMETRE,
                                      earthRadius(p)              / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final Stereographic p) {
+            return new ProjectionDerivative.Stereographic(p);
+        }
     }
 
     /**
@@ -566,6 +620,9 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                           value(p, CF.FALSE_NORTHING) / KILOMETRE,
                                           earthRadius(p)              / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final TransverseMercator p) {
+            return new ProjectionDerivative.TransverseMercator(p);
+        }
     }
 
     /**
@@ -616,5 +673,8 @@ abstract class ProjectionProvider<P extends Projection> extends NetcdfIdentified
                                                value(p, CF.FALSE_EASTING)            / KILOMETRE,
                                                value(p, CF.FALSE_NORTHING)           / KILOMETRE);
         }
+        @Override ProjectionDerivative createDerivative(final VerticalPerspectiveView p) {
+            return new ProjectionDerivative.VerticalPerspective(p);
+        }
     }
 }
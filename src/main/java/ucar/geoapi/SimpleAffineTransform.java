@@ -0,0 +1,393 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Arrays;
+
+import org.opengis.geometry.DirectPosition;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+
+/**
+ * An affine transform of arbitrary dimensions, backed by a matrix of size
+ * (<var>target dimension</var> + 1) × (<var>source dimension</var> + 1).
+ * The last matrix row shall be [0 0 … 0 1]; projective transforms are not supported.
+ *
+ * <p>Instances shall be created by {@link #create(Matrix)}, which selects a specialized
+ * subclass for the identity transform, for transforms made only of scale factors and
+ * translation terms, and for general transforms in two or three dimensions.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ *
+ * @see NetcdfTransformFactory#createAffineTransform(Matrix)
+ */
+class SimpleAffineTransform extends AbstractTransform {
+    /**
+     * For cross-version compatibility.
+     */
+    private static final long serialVersionUID = -6370548702361815658L;
+
+    /**
+     * Number of dimensions of source and target points.
+     */
+    final int srcDim, tgtDim;
+
+    /**
+     * The matrix elements in row-major order, omitting the last row.
+     * The length of this array is {@code tgtDim * (srcDim + 1)}.
+     */
+    final double[] elements;
+
+    /**
+     * The inverse of this transform, or {@code null} if not yet computed.
+     */
+    private transient MathTransform inverse;
+
+    /**
+     * Creates a new affine transform for the given matrix elements.
+     * Invoked by {@link #create(Matrix)} only.
+     */
+    SimpleAffineTransform(final int srcDim, final int tgtDim, final double[] elements) {
+        this.srcDim   = srcDim;
+        this.tgtDim   = tgtDim;
+        this.elements = elements;
+    }
+
+    /**
+     * Creates an affine transform for the given matrix.
+     *
+     * @param  matrix  the matrix of the affine transform.
+     * @return the affine transform for the given matrix.
+     * @throws IllegalArgumentException if the given matrix is not affine.
+     */
+    static SimpleAffineTransform create(final Matrix matrix) {
+        final int numRow = matrix.getNumRow();
+        final int numCol = matrix.getNumCol();
+        if (numRow == 0 || numCol == 0) {
+            throw new IllegalArgumentException("Empty matrix.");
+        }
+        final int srcDim = numCol - 1;
+        final int tgtDim = numRow - 1;
+        for (int i=0; i<numCol; i++) {
+            if (matrix.getElement(tgtDim, i) != (i == srcDim ? 1 : 0)) {
+                throw new IllegalArgumentException("Not an affine transform: the last matrix row shall be [0 … 0 1].");
+            }
+        }
+        final double[] elements = new double[tgtDim * numCol];
+        boolean isDiagonal = (srcDim == tgtDim);
+        boolean isIdentity = isDiagonal;
+        for (int k=0, j=0; j<tgtDim; j++) {
+            for (int i=0; i<numCol; i++) {
+                final double e = matrix.getElement(j, i);
+                elements[k++] = e;
+                if (i == j) {
+                    isIdentity &= (e == 1);
+                } else if (e != 0) {
+                    isIdentity = false;
+                    if (i != srcDim) {
+                        isDiagonal = false;
+                    }
+                }
+            }
+        }
+        if (isIdentity) return new Identity(srcDim, elements);
+        if (isDiagonal) return new ScaleTranslate(srcDim, elements);
+        if (srcDim == 2 && tgtDim == 2) return new TwoD(elements);
+        if (srcDim == 3 && tgtDim == 3) return new ThreeD(elements);
+        return new SimpleAffineTransform(srcDim, tgtDim, elements);
+    }
+
+    /**
+     * Returns an affine transform equivalent to applying the first transform, then the second one.
+     *
+     * @param  first   the first transform to apply.
+     * @param  second  the transform to apply on the result of the first transform.
+     * @return the concatenation of the two transforms.
+     * @throws IllegalArgumentException if the dimensions do not match.
+     */
+    static SimpleAffineTransform concatenate(final SimpleAffineTransform first, final SimpleAffineTransform second) {
+        return create(SimpleMatrix.product(second.getMatrix(), first.getMatrix()));
+    }
+
+    /**
+     * Returns the dimension of input points.
+     */
+    @Override
+    public final int getSourceDimensions() {
+        return srcDim;
+    }
+
+    /**
+     * Returns the dimension of output points.
+     */
+    @Override
+    public final int getTargetDimensions() {
+        return tgtDim;
+    }
+
+    /**
+     * Returns a copy of the matrix of this affine transform, including the last row.
+     *
+     * @return the matrix of this transform.
+     */
+    final SimpleMatrix getMatrix() {
+        final SimpleMatrix matrix = new SimpleMatrix(tgtDim + 1, srcDim + 1);
+        for (int k=0, j=0; j<tgtDim; j++) {
+            for (int i=0; i<=srcDim; i++) {
+                matrix.setElement(j, i, elements[k++]);
+            }
+        }
+        matrix.setElement(tgtDim, srcDim, 1);
+        return matrix;
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values. This is the general implementation
+     * for any number of dimensions; subclasses override this method with specialized kernels.
+     */
+    @Override
+    public void transform(double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts) {
+        if (needsCopy(srcPts, srcOff, srcDim, dstPts, dstOff, tgtDim, numPts)) {
+            srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+            srcOff = 0;
+        }
+        final double[] elements = this.elements;
+        final double[] buffer = new double[tgtDim];     // Needed for in-place transforms.
+        while (--numPts >= 0) {
+            int k = 0;
+            for (int j=0; j<tgtDim; j++) {
+                double sum = 0;
+                for (int i=0; i<srcDim; i++) {
+                    sum += elements[k++] * srcPts[srcOff + i];
+                }
+                buffer[j] = sum + elements[k++];
+            }
+            System.arraycopy(buffer, 0, dstPts, dstOff, tgtDim);
+            srcOff += srcDim;
+            dstOff += tgtDim;
+        }
+    }
+
+    /**
+     * Returns the derivative of this transform, which is the same at every point.
+     *
+     * @param  point  ignored (can be {@code null}).
+     * @return the matrix without its translation terms and without its last row.
+     */
+    @Override
+    public Matrix derivative(final DirectPosition point) {
+        ensureDimensionMatches(point, srcDim);
+        final SimpleMatrix matrix = new SimpleMatrix(tgtDim, srcDim);
+        for (int j=0; j<tgtDim; j++) {
+            for (int i=0; i<srcDim; i++) {
+                matrix.setElement(j, i, elements[j*(srcDim + 1) + i]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Returns the inverse of this transform.
+     *
+     * @return the inverse transform.
+     * @throws NoninvertibleTransformException if the matrix is not square or is singular.
+     */
+    @Override
+    public synchronized MathTransform inverse() throws NoninvertibleTransformException {
+        if (inverse == null) {
+            final SimpleAffineTransform tr = create(getMatrix().inverse());
+            tr.inverse = this;
+            inverse = tr;
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns a hash code value for this transform.
+     */
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(elements) + 31*srcDim;
+    }
+
+    /**
+     * Compares this transform with the given object for equality.
+     *
+     * @param  object  the object to compare with this transform.
+     * @return {@code true} if the given object is an affine transform with the same matrix.
+     */
+    @Override
+    public boolean equals(final Object object) {
+        if (object instanceof SimpleAffineTransform) {
+            final SimpleAffineTransform other = (SimpleAffineTransform) object;
+            return srcDim == other.srcDim && tgtDim == other.tgtDim && Arrays.equals(elements, other.elements);
+        }
+        return false;
+    }
+
+    /**
+     * Returns a string representation of this transform, listing the matrix rows.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder("Affine[");
+        for (int j=0; j<tgtDim; j++) {
+            if (j != 0) buffer.append(", ");
+            buffer.append(Arrays.toString(Arrays.copyOfRange(elements, j*(srcDim + 1), (j+1)*(srcDim + 1))));
+        }
+        return buffer.append(']').toString();
+    }
+
+
+
+    /**
+     * The identity transform.
+     */
+    static final class Identity extends SimpleAffineTransform {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 2430931581458452431L;
+
+        /** Creates an identity transform of the given dimension. */
+        Identity(final int dimension, final double[] elements) {
+            super(dimension, dimension, elements);
+        }
+
+        /** Returns {@code true} since this transform is the identity transform. */
+        @Override
+        public boolean isIdentity() {
+            return true;
+        }
+
+        /** Copies the coordinates. */
+        @Override
+        public void transform(final double[] srcPts, final int srcOff, final double[] dstPts, final int dstOff, final int numPts) {
+            System.arraycopy(srcPts, srcOff, dstPts, dstOff, numPts * srcDim);
+        }
+
+        /** Returns this transform, which is its own inverse. */
+        @Override
+        public MathTransform inverse() {
+            return this;
+        }
+    }
+
+
+
+    /**
+     * An affine transform made only of scale factors and translation terms.
+     */
+    static final class ScaleTranslate extends SimpleAffineTransform {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -4398917245390522853L;
+
+        /** The scale factors and translation terms for each dimension. */
+        private final double[] scales, offsets;
+
+        /** Creates a transform for the given matrix elements. */
+        ScaleTranslate(final int dimension, final double[] elements) {
+            super(dimension, dimension, elements);
+            scales  = new double[dimension];
+            offsets = new double[dimension];
+            for (int i=0; i<dimension; i++) {
+                scales [i] = elements[i * (dimension + 2)];
+                offsets[i] = elements[i * (dimension + 1) + dimension];
+            }
+        }
+
+        /** Applies the scale factors and translation terms. */
+        @Override
+        public void transform(double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts) {
+            if (needsCopy(srcPts, srcOff, srcDim, dstPts, dstOff, tgtDim, numPts)) {
+                srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*srcDim);
+                srcOff = 0;
+            }
+            final double[] scales  = this.scales;
+            final double[] offsets = this.offsets;
+            final int dimension = srcDim;
+            while (--numPts >= 0) {
+                for (int i=0; i<dimension; i++) {
+                    dstPts[dstOff++] = srcPts[srcOff++] * scales[i] + offsets[i];
+                }
+            }
+        }
+    }
+
+
+
+    /**
+     * A general affine transform in two dimensions.
+     */
+    static final class TwoD extends SimpleAffineTransform {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = 4536476003391566633L;
+
+        /** The matrix elements. */
+        private final double m00, m01, m02, m10, m11, m12;
+
+        /** Creates a transform for the given matrix elements. */
+        TwoD(final double[] elements) {
+            super(2, 2, elements);
+            m00 = elements[0]; m01 = elements[1]; m02 = elements[2];
+            m10 = elements[3]; m11 = elements[4]; m12 = elements[5];
+        }
+
+        /** Transforms the points with an unrolled kernel. */
+        @Override
+        public void transform(double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts) {
+            if (needsCopy(srcPts, srcOff, 2, dstPts, dstOff, 2, numPts)) {
+                srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*2);
+                srcOff = 0;
+            }
+            while (--numPts >= 0) {
+                final double x = srcPts[srcOff++];
+                final double y = srcPts[srcOff++];
+                dstPts[dstOff++] = m00*x + m01*y + m02;
+                dstPts[dstOff++] = m10*x + m11*y + m12;
+            }
+        }
+    }
+
+
+
+    /**
+     * A general affine transform in three dimensions.
+     */
+    static final class ThreeD extends SimpleAffineTransform {
+        /** For cross-version compatibility. */
+        private static final long serialVersionUID = -2263738318327380713L;
+
+        /** The matrix elements. */
+        private final double m00, m01, m02, m03, m10, m11, m12, m13, m20, m21, m22, m23;
+
+        /** Creates a transform for the given matrix elements. */
+        ThreeD(final double[] elements) {
+            super(3, 3, elements);
+            m00 = elements[0]; m01 = elements[1]; m02 = elements[ 2]; m03 = elements[ 3];
+            m10 = elements[4]; m11 = elements[5]; m12 = elements[ 6]; m13 = elements[ 7];
+            m20 = elements[8]; m21 = elements[9]; m22 = elements[10]; m23 = elements[11];
+        }
+
+        /** Transforms the points with an unrolled kernel. */
+        @Override
+        public void transform(double[] srcPts, int srcOff, final double[] dstPts, int dstOff, int numPts) {
+            if (needsCopy(srcPts, srcOff, 3, dstPts, dstOff, 3, numPts)) {
+                srcPts = Arrays.copyOfRange(srcPts, srcOff, srcOff + numPts*3);
+                srcOff = 0;
+            }
+            while (--numPts >= 0) {
+                final double x = srcPts[srcOff++];
+                final double y = srcPts[srcOff++];
+                final double z = srcPts[srcOff++];
+                dstPts[dstOff++] = m00*x + m01*y + m02*z + m03;
+                dstPts[dstOff++] = m10*x + m11*y + m12*z + m13;
+                dstPts[dstOff++] = m20*x + m21*y + m22*z + m23;
+            }
+        }
+    }
+}
@@ -193,6 +193,65 @@ final class SimpleGeographicBoundingBox implements GeographicBoundingBox, Extent
         return Collections.singleton(this);
     }
 
+    /**
+     * Returns {@code true} if this box contains the given point. Longitudes are compared modulo 360°,
+     * so a point at 190°E is considered equal to 170°W. Points on the box boundary are included.
+     * This method returns {@code false} if any value is NaN.
+     *
+     * @param  longitude  the longitude in degrees.
+     * @param  latitude   the latitude in degrees.
+     * @return whether this box contains the given point.
+     */
+    final boolean contains(final double longitude, final double latitude) {
+        if (!(latitude >= southBoundLatitude && latitude <= northBoundLatitude)) {
+            return false;
+        }
+        final double span = eastBoundLongitude - westBoundLongitude;
+        if (span >= 360) {
+            return !Double.isNaN(longitude);
+        }
+        return shift(longitude, westBoundLongitude) <= span;        // False if NaN.
+    }
+
+    /**
+     * Returns {@code true} if this box intersects the given box. Arguments are in the same order than
+     * the constructor. A west bound greater than the east bound is interpreted as a box crossing the
+     * antimeridian, and longitudes are compared modulo 360°. Boxes touching only by their boundary
+     * are considered intersecting. This method returns {@code false} if any value is NaN.
+     *
+     * @param  west   the minimal longitude of the box to test, in degrees.
+     * @param  east   the maximal longitude of the box to test, in degrees.
+     * @param  south  the minimal latitude of the box to test, in degrees.
+     * @param  north  the maximal latitude of the box to test, in degrees.
+     * @return whether this box intersects the given box.
+     */
+    final boolean intersects(final double west, double east, final double south, final double north) {
+        if (!(south <= northBoundLatitude && north >= southBoundLatitude)) {
+            return false;
+        }
+        if (east < west) {
+            east += 360;
+        }
+        final double span  = eastBoundLongitude - westBoundLongitude;
+        final double other = east - west;
+        if (span >= 360 || other >= 360) {
+            return span >= 0 && other >= 0;                         // False if NaN.
+        }
+        final double start = shift(west, westBoundLongitude);       // In [0 … 360).
+        return start <= span || start + other >= 360;               // False if NaN.
+    }
+
+    /**
+     * Returns the given longitude minus the given origin, shifted by a multiple of 360° in the [0 … 360) range.
+     */
+    private static double shift(final double longitude, final double origin) {
+        double delta = (longitude - origin) % 360;
+        if (delta < 0) {
+            delta += 360;
+        }
+        return delta;
+    }
+
     /**
      * Returns {@code true} if the given floating point values are equal.
      */
@@ -7,6 +7,7 @@
 package ucar.geoapi;
 
 import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
 import ucar.ma2.MAMatrix;
 
 
@@ -27,6 +28,14 @@ final class SimpleMatrix extends MAMatrix implements Matrix {
         }
     }
 
+    /**
+     * Creates a matrix of size {@code numRow}&nbsp;×&nbsp;{@code numCol}.
+     * All elements are initialized to 0.
+     */
+    SimpleMatrix(final int numRow, final int numCol) {
+        super(numRow, numCol);
+    }
+
     /**
      * Creates a copy of given matrix.
      */
@@ -65,6 +74,91 @@ final class SimpleMatrix extends MAMatrix implements Matrix {
         return true;
     }
 
+    /**
+     * Returns the product of the given matrices. The number of columns of the first matrix
+     * shall be equal to the number of rows of the second matrix.
+     *
+     * @param  a  the first matrix.
+     * @param  b  the second matrix.
+     * @return the <var>a</var> × <var>b</var> product.
+     * @throws IllegalArgumentException if the matrix sizes do not match.
+     */
+    static SimpleMatrix product(final Matrix a, final Matrix b) {
+        final int numRow = a.getNumRow();
+        final int numCol = b.getNumCol();
+        final int common = a.getNumCol();
+        if (common != b.getNumRow()) {
+            throw new IllegalArgumentException("Mismatched matrix sizes.");
+        }
+        final SimpleMatrix product = new SimpleMatrix(numRow, numCol);
+        for (int j=0; j<numRow; j++) {
+            for (int i=0; i<numCol; i++) {
+                double sum = 0;
+                for (int k=0; k<common; k++) {
+                    sum += a.getElement(j, k) * b.getElement(k, i);
+                }
+                product.setElement(j, i, sum);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Returns the inverse of this matrix, computed by Gauss-Jordan elimination with partial pivoting.
+     *
+     * @return the inverse of this matrix.
+     * @throws NoninvertibleTransformException if this matrix is not square or is singular.
+     */
+    SimpleMatrix inverse() throws NoninvertibleTransformException {
+        final int size = getNumRow();
+        if (size != getNumCol()) {
+            throw new NoninvertibleTransformException("Non-square matrix.");
+        }
+        final double[][] m = new double[size][size * 2];
+        for (int j=0; j<size; j++) {
+            for (int i=0; i<size; i++) {
+                m[j][i] = getElement(j, i);
+            }
+            m[j][size + j] = 1;
+        }
+        for (int k=0; k<size; k++) {
+            int pivot = k;
+            for (int j=k+1; j<size; j++) {
+                if (Math.abs(m[j][k]) > Math.abs(m[pivot][k])) {
+                    pivot = j;
+                }
+            }
+            final double[] row = m[pivot];
+            final double p = row[k];
+            if (!(p != 0) || Double.isInfinite(p)) {        // Use '!' for catching NaN.
+                throw new NoninvertibleTransformException("Singular matrix.");
+            }
+            m[pivot] = m[k];
+            m[k] = row;
+            for (int i=0; i<row.length; i++) {
+                row[i] /= p;
+            }
+            for (int j=0; j<size; j++) {
+                if (j != k) {
+                    final double[] other = m[j];
+                    final double f = other[k];
+                    if (f != 0) {
+                        for (int i=0; i<row.length; i++) {
+                            other[i] -= f * row[i];
+                        }
+                    }
+                }
+            }
+        }
+        final SimpleMatrix inverse = new SimpleMatrix(size, size);
+        for (int j=0; j<size; j++) {
+            for (int i=0; i<size; i++) {
+                inverse.setElement(j, i, m[j][size + i]);
+            }
+        }
+        return inverse;
+    }
+
     /**
      * Returns a clone of this matrix.
      */
@@ -6,6 +6,7 @@
  */
 package ucar.geoapi;
 
+import java.util.concurrent.ConcurrentHashMap;
 import javax.measure.Unit;
 import javax.measure.format.UnitFormat;
 import javax.measure.format.ParserException;
@@ -89,9 +90,26 @@ final class Units {
 
     /**
      * The object to use for getting a unit from its symbol.
-     * This is created when first needed by {@link #parse(String)}.
+     * This is created when first needed by {@link #unitFormat(String)}.
+     * Concurrent threads may fetch this object twice, which is harmless
+     * since the service returns a shared instance. Since JSR-363 does not
+     * require {@link UnitFormat} to be thread-safe, all parsings are
+     * synchronized on this instance.
      */
-    private static UnitFormat unitFormat;
+    private static volatile UnitFormat unitFormat;
+
+    /**
+     * Maximal number of entries in the {@link #CACHE}. When this limit is reached, new symbols are parsed
+     * at each request but the cached entries are kept. The number of distinct unit symbols found in netCDF
+     * files is usually much smaller than this limit, so the limit is only a protection against misuse.
+     */
+    static final int CACHE_CAPACITY = 1000;
+
+    /**
+     * Units parsed by {@link #parse(String)}, for avoiding to parse the same symbols again.
+     * Only successful parsings are cached, including the ones resolved by the fallbacks.
+     */
+    private static final ConcurrentHashMap<String, Unit<?>> CACHE = new ConcurrentHashMap<>();
 
     /**
      * Do not allow instantiation of this class.
@@ -100,24 +118,59 @@ final class Units {
     }
 
     /**
-     * Parses the given symbol using the {@link UnitFormat} instance provided by whatever JSR-363
-     * implementation is found on the classpath. The same instance is reused for all units to parse.
+     * Returns the {@link UnitFormat} instance provided by whatever JSR-363 implementation is found
+     * on the classpath. This method does not synchronize; see {@link #unitFormat} for the rationale.
+     * Callers shall synchronize on the returned instance when using it.
+     *
+     * @param  symbol  the symbol to parse, used only in the exception message.
      */
-    static synchronized Unit<?> parse(final String symbol) throws ParserException {
-        if (unitFormat == null) {
+    private static UnitFormat unitFormat(final String symbol) throws ParserException {
+        UnitFormat format = unitFormat;
+        if (format == null) {
             ServiceProvider provider = ServiceProvider.current();
             if (provider != null) {
                 UnitFormatService fs = provider.getUnitFormatService();
                 if (fs != null) {
-                    unitFormat = fs.getUnitFormat();
+                    format = fs.getUnitFormat();
                 }
             }
-            if (unitFormat == null) {
+            if (format == null) {
                 throw new ParserException("Can not parse unit symbol because no UnitFormat has been found on the classpath.", symbol, 0);
             }
+            unitFormat = format;
         }
+        return format;
+    }
+
+    /**
+     * Parses the given symbol using the {@link UnitFormat} instance provided by whatever JSR-363
+     * implementation is found on the classpath. Results are cached, so the same symbol is parsed
+     * only once. This method can be invoked concurrently, and does not block if the symbol is in
+     * the cache. Otherwise the parsing is serialized with other parsings.
+     */
+    static Unit<?> parse(final String symbol) throws ParserException {
+        Unit<?> unit = CACHE.get(symbol);
+        if (unit == null) {
+            unit = parseUncached(symbol);
+            if (CACHE.size() < CACHE_CAPACITY) {
+                final Unit<?> existing = CACHE.putIfAbsent(symbol, unit);
+                if (existing != null) {
+                    unit = existing;
+                }
+            }
+        }
+        return unit;
+    }
+
+    /**
+     * Parses the given symbol without looking in the cache.
+     */
+    private static Unit<?> parseUncached(final String symbol) throws ParserException {
+        final UnitFormat format = unitFormat(symbol);
         try {
-            return unitFormat.parse(symbol);
+            synchronized (format) {
+                return format.parse(symbol);
+            }
         } catch (ParserException e) {
             /*
              * Workaround for symbols found in some netCDF files
@@ -13,6 +13,7 @@ import org.opengis.referencing.datum.Ellipsoid;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.dataset.CoordinateSystem;
+import ucar.nc2.dataset.NetcdfDataset;
 import ucar.unidata.geoloc.Earth;
 import ucar.unidata.geoloc.EarthEllipsoid;
 
@@ -43,8 +44,8 @@ public abstract class Wrapper {
 
     /**
      * Creates a metadata object as a wrapper around the given netCDF file.
-     * All getter methods fetch their values from the netCDF file, so changes to the netCDF
-     * file content will be immediately reflected in the {@code Metadata} object.
+     * The global attributes of the netCDF file are indexed when this method is invoked,
+     * so changes to those attributes after this call are not reflected in the {@code Metadata} object.
      *
      * @param  file  the netCDF file, or {@code null} if none.
      * @return metadata for the given file, or {@code null} if the argument was null.
@@ -101,13 +102,43 @@ public abstract class Wrapper {
      *       is stable during the lifetime of this returned CRS instance.</li>
      * </ul>
      *
+     * <h2>Caching</h2>
+     * Wrappers are cached for each dataset, so invoking this method many times for the same coordinate system
+     * returns the same instance without repeating the I/O operations. Cached wrappers may be discarded when
+     * the JVM needs memory. The cache of a dataset is discarded when the dataset is closed or garbage-collected.
+     * Closing is detected only for datasets referencing an underlying file; callers closing other datasets
+     * should invoke {@link #release(NetcdfDataset)}.
+     *
+     * <h2>Temporal axes</h2>
+     * The values of temporal axes are read from the dataset when first requested, for example by
+     * {@link org.opengis.referencing.cs.CoordinateSystemAxis#getMinimumValue()} or by {@link #delegate()}
+     * on the axis. Callers needing those values shall request them before to close the dataset.
+     * Requesting them for the first time after the dataset has been closed causes an
+     * {@link IllegalStateException}. If the values can not be read for another reason,
+     * a warning is logged and the axis delegate is a plain {@link ucar.nc2.dataset.CoordinateAxis1D}
+     * instead of a {@link ucar.nc2.dataset.CoordinateAxis1DTime}.
+     *
      * @param  netcdfCS  the netCDF coordinate system to wrap, or {@code null} if none.
      * @return a wrapper for the given object, or {@code null} if the argument was null.
      * @throws ClassCastException if at least one axis is not an instance of the
      *         {@link ucar.nc2.dataset.CoordinateAxis1D} subclass.
      */
     public static CoordinateReferenceSystem wrap(final CoordinateSystem netcdfCS) {
-        return NetcdfCRS.wrap(netcdfCS, netcdfCS.getNetcdfDataset(), Logger.getLogger("ucar.geoapi"));
+        return NetcdfCRS.wrapCached(netcdfCS, Logger.getLogger("ucar.geoapi"));
+    }
+
+    /**
+     * Discards the wrappers cached by {@link #wrap(CoordinateSystem)} for the given dataset.
+     * This method should be invoked after the dataset has been closed. It is needed only for
+     * datasets which do not reference an underlying file, since the closing of other datasets
+     * is detected automatically, but invoking it in all cases releases the memory sooner.
+     *
+     * @param  file  the dataset for which to discard the cached wrappers, or {@code null} if none.
+     */
+    public static void release(final NetcdfDataset file) {
+        if (file != null) {
+            NetcdfCRS.releaseCache(file);
+        }
     }
 
     /**
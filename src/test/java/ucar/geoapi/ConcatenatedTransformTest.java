@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link ConcatenatedTransform} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class ConcatenatedTransformTest {
+    /**
+     * Creates a two-dimensional scale and translation.
+     */
+    private static SimpleAffineTransform affine(final double scale, final double offset) {
+        final SimpleMatrix matrix = new SimpleMatrix(3);
+        matrix.setElement(0, 0, scale);
+        matrix.setElement(1, 1, scale);
+        matrix.setElement(0, 2, offset);
+        matrix.setElement(1, 2, offset);
+        return SimpleAffineTransform.create(matrix);
+    }
+
+    /**
+     * Tests the folding of affine transforms and the removal of identity steps.
+     */
+    @Test
+    public void testSimplification() {
+        final MathTransform identity = SimpleAffineTransform.create(new SimpleMatrix(3));
+        final MathTransform scale    = affine(2, 0);
+        final MathTransform merged   = ConcatenatedTransform.create(scale, affine(0.5, 0));
+        assertTrue(merged.isIdentity());
+        assertSame(scale, ConcatenatedTransform.create(identity, scale));
+
+        final NetcdfProjection projection = new NetcdfProjection(new LambertConformal(), null, null, null);
+        final MathTransform chain = ConcatenatedTransform.create(
+                ConcatenatedTransform.create(scale, affine(1, 3)), projection.inverse());
+        assertTrue(chain instanceof ConcatenatedTransform);
+        assertEquals("Concatenated[" + affine(2, 3) + ", " + projection.inverse() + ']', chain.toString());
+    }
+
+    /**
+     * Verifies that the chunked pipeline gives the same results than applying the steps one after the other.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testPipeline() throws TransformException {
+        final SimpleAffineTransform gridToCRS = affine(2.5, -1000);
+        final MathTransform projection = new NetcdfProjection(new LambertConformal(), null, null, null).inverse();
+        final MathTransform chain = ConcatenatedTransform.create(gridToCRS, projection);
+        final int numPts = NetcdfProjection.CHUNK_SIZE * 3 + 7;
+        final double[] grid = new double[numPts * 2];
+        for (int i=0; i<grid.length; i++) {
+            grid[i] = (i * 37) % 800;
+        }
+        final double[] expected = new double[grid.length];
+        gridToCRS .transform(grid,     0, expected, 0, numPts);
+        projection.transform(expected, 0, expected, 0, numPts);
+        final double[] actual = new double[grid.length];
+        chain.transform(grid, 0, actual, 0, numPts);
+        assertArrayEquals(expected, actual, 0);
+
+        chain.inverse().transform(actual, 0, actual, 0, numPts);
+        assertArrayEquals(grid, actual, 1E-6);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Set;
+import java.util.List;
+import java.util.Random;
+import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link DomainIndex} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class DomainIndexTest {
+    /**
+     * Returns {@code true} if the given longitude ranges intersect, computed in a simple but slow way.
+     * Ranges having a west bound greater than the east bound cross the antimeridian.
+     */
+    private static boolean intersects(final double w1, double e1, final double w2, double e2) {
+        if (e1 < w1) e1 += 360;
+        if (e2 < w2) e2 += 360;
+        if (e1 - w1 >= 360 || e2 - w2 >= 360) {
+            return true;
+        }
+        for (int k=-2; k<=2; k++) {
+            if (w2 + 360*k <= e1 && e2 + 360*k >= w1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compares the results of random searches with a linear scan of all boxes.
+     */
+    @Test
+    public void testRandomSearches() {
+        final Random random = new Random(7826401735L);
+        final double[][] boxes = new double[5000][];
+        final DomainIndex.Builder<Integer> builder = new DomainIndex.Builder<>();
+        for (int i=0; i<boxes.length; i++) {
+            final double west  = random.nextDouble() * 360 - 180;
+            final double south = random.nextDouble() * 170 - 90;
+            double east = west + random.nextDouble() * 20;
+            if (east > 180) east -= 360;                    // Crossing the antimeridian.
+            final double north = Math.min(90, south + random.nextDouble() * 20);
+            boxes[i] = new double[] {west, east, south, north};
+            assertTrue(builder.add(west, east, south, north, i));
+        }
+        final DomainIndex<Integer> index = builder.build();
+        assertEquals(boxes.length, index.size());
+        for (int q=0; q<500; q++) {
+            final double west  = random.nextDouble() * 360 - 180;
+            final double south = random.nextDouble() * 180 - 90;
+            double east = (q % 3 == 0) ? west : west + random.nextDouble() * 30;
+            if (east > 180) east -= 360;
+            final double north = Math.min(90, south + random.nextDouble() * 10);
+            final List<Integer> found = index.search(west, east, south, north);
+            final Set<Integer> expected = new HashSet<>();
+            for (int i=0; i<boxes.length; i++) {
+                final double[] b = boxes[i];
+                if (south <= b[3] && north >= b[2] && intersects(b[0], b[1], west, east)) {
+                    expected.add(i);
+                }
+            }
+            assertEquals("Duplicated values.", found.size(), new HashSet<>(found).size());
+            assertEquals(expected, new HashSet<>(found));
+        }
+    }
+
+    /**
+     * Tests boxes and queries crossing the antimeridian.
+     */
+    @Test
+    public void testAntimeridian() {
+        final DomainIndex.Builder<String> builder = new DomainIndex.Builder<>();
+        builder.add(170, -170, -10, 10, "Pacific");
+        builder.add(-180, 180, 60,  90, "Arctic");
+        builder.add(-10,   10, -10, 10, "Atlantic");
+        assertFalse(builder.add(Double.NaN, 10, -10, 10, "Invalid"));
+        final DomainIndex<String> index = builder.build();
+        assertEquals(3, index.size());
+        assertEquals(Collections.singletonList("Pacific"),  index.search( 175, 0));
+        assertEquals(Collections.singletonList("Pacific"),  index.search(-175, 0));
+        assertEquals(Collections.singletonList("Pacific"),  index.search( 185, 0));
+        assertEquals(Collections.singletonList("Atlantic"), index.search( 360, 0));
+        assertEquals(Collections.singletonList("Arctic"),   index.search(  90, 80));
+        assertEquals(Collections.emptyList(),               index.search(  90, 0));
+        assertEquals(Collections.singletonList("Pacific"),  index.search(160, -160, -1, 1));
+        final List<String> all = index.search(-180, 180, -90, 90);
+        Collections.sort(all);
+        assertEquals(Arrays.asList("Arctic", "Atlantic", "Pacific"), all);
+    }
+
+    /**
+     * Verifies that {@link DomainIndex#of(Iterable)} skips the records which can not be indexed,
+     * including records having swapped latitude bounds, instead of failing the whole bulk load.
+     */
+    @Test
+    public void testInvalidRecords() {
+        final Path file = Paths.get("test.nc");
+        final List<MetadataHarvester.Record> records = Arrays.asList(
+                record(file, -10, 10, -10,  10),
+                record(file, -10, 10,  10, -10),                // Swapped latitudes.
+                record(file, -10, 10, Double.NaN, Double.NaN),
+                new MetadataHarvester.Record(file, new Exception("Unreadable file.")));
+        final DomainIndex<MetadataHarvester.Record> index = DomainIndex.of(records);
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList(records.get(0)), index.search(0, 0));
+    }
+
+    /**
+     * Creates a record having the given geographic bounding box and no other metadata.
+     */
+    private static MetadataHarvester.Record record(final Path file, final double west, final double east,
+                                                   final double south, final double north)
+    {
+        return new MetadataHarvester.Record(file, null, null, null, west, east, south, north,
+                Long.MIN_VALUE, Long.MIN_VALUE, Long.MIN_VALUE, Collections.emptyList(), Collections.emptyList());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+import java.awt.geom.Rectangle2D;
+import ucar.unidata.geoloc.projection.LambertConformal;
+import ucar.unidata.geoloc.projection.Orthographic;
+
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link LinearApproximation} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class LinearApproximationTest {
+    /**
+     * Verifies that the interpolated values are close to the exact values in the whole domain,
+     * and that points outside the domain are transformed exactly.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testAccuracy() throws TransformException {
+        final double tolerance = 0.01;                          // 10 metres.
+        final NetcdfProjection exact = new NetcdfProjection(new LambertConformal(), null, null, null);
+        final LinearApproximation approx = new LinearApproximation(exact, new Rectangle2D.Double(-120, 20, 40, 30), tolerance);
+        final Random random = new Random(1837470213);
+        final int numPts = 10000;
+        final double[] sources = new double[numPts * 2];
+        for (int i=0; i<sources.length; i += 2) {
+            sources[i  ] = random.nextDouble() * 50 - 125;     // Some points are outside the domain.
+            sources[i+1] = random.nextDouble() * 30 +  20;
+        }
+        final double[] expected = new double[sources.length];
+        final double[] actual   = new double[sources.length];
+        exact .transform(sources, 0, expected, 0, numPts);
+        approx.transform(sources, 0, actual,   0, numPts);
+        for (int i=0; i<sources.length; i += 2) {
+            final double error = Math.hypot(expected[i] - actual[i], expected[i+1] - actual[i+1]);
+            if (sources[i] < -120 || sources[i] > -80) {
+                assertEquals(0, error, 0);
+            } else {
+                // The tolerance is verified at test points only, so allow some margin elsewhere.
+                assertTrue(approx.toString(), error <= 2*tolerance);
+            }
+        }
+        /*
+         * In-place transformation with overlapping regions shall give the same results.
+         */
+        final double[] shared = new double[sources.length + 6];
+        System.arraycopy(sources, 0, shared, 0, sources.length);
+        approx.transform(shared, 0, shared, 6, numPts);
+        for (int i=0; i<actual.length; i++) {
+            assertEquals(actual[i], shared[i + 6], 0);
+        }
+        /*
+         * Transformation of float arrays, which is done by chunks. Use overlapping regions for
+         * testing the copy of sources, and compare with the transformation of the same values
+         * as doubles.
+         */
+        final float[] floats = new float[sources.length + 6];
+        for (int i=0; i<sources.length; i++) {
+            floats[i + 6] = (float) sources[i];
+            shared[i] = floats[i + 6];
+        }
+        approx.transform(shared, 0, actual, 0, numPts);
+        approx.transform(floats, 6, floats, 0, numPts);
+        for (int i=0; i<actual.length; i++) {
+            assertEquals((float) actual[i], floats[i], 0);
+        }
+    }
+
+    /**
+     * Tests an approximation over a domain which extends outside the visible hemisphere of an
+     * orthographic projection. Cells where the projection has no finite value shall not be split
+     * down to the maximal depth, and points in those cells shall be transformed exactly.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testDomainOutsideProjection() throws TransformException {
+        final NetcdfProjection exact = new NetcdfProjection(new Orthographic(0, 0), null, null, null);
+        final LinearApproximation approx = new LinearApproximation(exact, new Rectangle2D.Double(0, -80, 180, 160), 0.1);
+        final int fullDepth = 1 << (2 * LinearApproximation.MAX_DEPTH);
+        assertTrue(approx.toString(), approx.getExactCellCount() < fullDepth / 64);
+        final double[] sources = {
+            45, 10,                     // Visible point.
+           135, 10,                     // Point on the far side of the globe.
+           170, -60                     // Point on the far side of the globe.
+        };
+        final double[] expected = new double[sources.length];
+        final double[] actual   = new double[sources.length];
+        exact .transform(sources, 0, expected, 0, 3);
+        approx.transform(sources, 0, actual,   0, 3);
+        assertEquals(expected[0], actual[0], 0.2);
+        assertEquals(expected[1], actual[1], 0.2);
+        for (int i=2; i<sources.length; i++) {
+            assertEquals(expected[i], actual[i], 0);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+import org.opengis.referencing.operation.NoninvertibleTransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link LookupTableTransform} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class LookupTableTransformTest {
+    /**
+     * Tests interpolation, extrapolation and the inverse transform on increasing values.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testIncreasing() throws TransformException {
+        final LookupTableTransform tr = new LookupTableTransform(new double[] {10, 12, 20, 21});
+        final double[] indices = {0, 1, 2.5, 3, -1, 4};
+        final double[] values  = new double[indices.length];
+        tr.transform(indices, 0, values, 0, indices.length);
+        assertArrayEquals(new double[] {10, 12, 20.5, 21, 8, 22}, values, 1E-12);
+        tr.inverse().transform(values, 0, values, 0, values.length);
+        assertArrayEquals(indices, values, 1E-12);
+    }
+
+    /**
+     * Tests the inverse transform on decreasing values, as found in latitude axes stored from north to south.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testDecreasing() throws TransformException {
+        final LookupTableTransform tr = new LookupTableTransform(new double[] {88.5, 85.1, 81.7, 78.3, 74.9});
+        final double[] values = {88.5, 83.4, 74.9, 90};
+        final double[] indices = values.clone();
+        tr.inverse().transform(indices, 0, indices, 0, indices.length);
+        assertArrayEquals(new double[] {0, 1.5, 4, -1.5/3.4}, indices, 1E-12);
+        tr.transform(indices, 0, indices, 0, indices.length);
+        assertArrayEquals(values, indices, 1E-12);
+    }
+
+    /**
+     * Verifies that non-monotonic values can be transformed but not inverted.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testNonMonotonic() throws TransformException {
+        final MathTransform tr = new LookupTableTransform(new double[] {1, 3, 2});
+        final double[] values = {1.5};
+        tr.transform(values, 0, values, 0, 1);
+        assertEquals(2.5, values[0], 0);
+        try {
+            tr.inverse();
+            fail("Non-monotonic values shall not be invertible.");
+        } catch (NoninvertibleTransformException e) {
+            // This is the expected exception.
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Map;
+import java.util.List;
+import java.util.TreeMap;
+import java.io.InputStream;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link MetadataCatalog} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class MetadataCatalogTest {
+    /**
+     * A temporary directory where to copy the test files and write the catalog.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Copies the given test file in the given directory.
+     */
+    private static Path copy(final TestData file, final Path directory) throws Exception {
+        final Path target = directory.resolve(file.name() + ".nc");
+        try (InputStream in = file.location().openStream()) {
+            Files.copy(in, target);
+        }
+        return target;
+    }
+
+    /**
+     * Verifies that the given catalog entry contains the same values than the given record.
+     */
+    private static void assertEntryEquals(final MetadataHarvester.Record expected, final MetadataCatalog.Entry actual) {
+        assertEquals(expected.getFile(),               actual.getFile());
+        assertEquals(expected.getIdentifier(),         actual.getIdentifier());
+        assertEquals(expected.getTitle(),              actual.getTitle());
+        assertEquals(expected.getCreator(),            actual.getCreator());
+        assertEquals(expected.getLastModified(),       actual.getLastModified());
+        assertEquals(expected.getWestBoundLongitude(), actual.getWestBoundLongitude(), 0);
+        assertEquals(expected.getEastBoundLongitude(), actual.getEastBoundLongitude(), 0);
+        assertEquals(expected.getSouthBoundLatitude(), actual.getSouthBoundLatitude(), 0);
+        assertEquals(expected.getNorthBoundLatitude(), actual.getNorthBoundLatitude(), 0);
+        assertEquals(expected.getCreationDate(),       actual.getCreationDate());
+        assertEquals(expected.getMetadataDate(),       actual.getMetadataDate());
+        final List<String> crs = expected.getCoordinateReferenceSystems();
+        assertEquals(crs, actual.getCoordinateReferenceSystems());
+        for (int i=0; i<crs.size(); i++) {
+            final double[]     elements = expected.getGridToCRS(i);
+            final DoubleBuffer buffer   = actual.getGridToCRS(i);
+            if (elements == null) {
+                assertNull(buffer);
+            } else {
+                final double[] copy = new double[buffer.remaining()];
+                buffer.get(copy);
+                assertArrayEquals(elements, copy, 0);
+            }
+        }
+    }
+
+    /**
+     * Writes the records of the test files in a catalog, then reads the catalog.
+     *
+     * @throws Exception if an error occurred while copying the test files or writing the catalog.
+     */
+    @Test
+    public void testWriteAndOpen() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        copy(TestData.NETCDF_2D_GEOGRAPHIC, directory);
+        copy(TestData.NETCDF_4D_PROJECTED,  directory);
+        final Map<Path,MetadataHarvester.Record> records = new TreeMap<>();
+        try (MetadataHarvester harvester = new MetadataHarvester(2, 2)) {
+            harvester.harvest(directory, (record) -> assertNull(records.put(record.getFile(), record)));
+        }
+        assertEquals(2, records.size());
+        final Path file = directory.resolve("catalog.bin");
+        MetadataCatalog.write(file, records.values());
+        final MetadataCatalog catalog = MetadataCatalog.open(file);
+        assertEquals(2, catalog.size());
+        for (final MetadataCatalog.Entry entry : catalog) {
+            assertEntryEquals(records.get(entry.getFile()), entry);
+        }
+        final MetadataCatalog.Entry entry = catalog.get(0);
+        assertTrue(entry.getLastModified() > 0);
+    }
+
+    /**
+     * Tests the incremental update of a catalog. Only new and modified files shall be read.
+     *
+     * @throws Exception if an error occurred while copying the test files or updating the catalog.
+     */
+    @Test
+    public void testUpdate() throws Exception {
+        final Path directory = folder.newFolder("data").toPath();
+        final Path file = folder.getRoot().toPath().resolve("catalog.bin");
+        final Path geographic = copy(TestData.NETCDF_2D_GEOGRAPHIC, directory);
+        try (MetadataHarvester harvester = new MetadataHarvester(2, 2)) {
+            MetadataCatalog catalog = MetadataCatalog.update(file, directory, harvester);
+            assertEquals(1, catalog.size());
+            assertEquals(1, harvester.getFileCount());
+
+            catalog = MetadataCatalog.update(file, directory, harvester);
+            assertEquals("Unchanged file shall not be read again.", 1, harvester.getFileCount());
+            assertEquals(1, catalog.size());
+
+            copy(TestData.NETCDF_4D_PROJECTED, directory);
+            catalog = MetadataCatalog.update(file, directory, harvester);
+            assertEquals("Only the new file shall be read.", 2, harvester.getFileCount());
+            assertEquals(2, catalog.size());
+
+            Files.setLastModifiedTime(geographic, FileTime.fromMillis(Files.getLastModifiedTime(geographic).toMillis() + 5000));
+            catalog = MetadataCatalog.update(file, directory, harvester);
+            assertEquals("Only the modified file shall be read.", 3, harvester.getFileCount());
+            assertEquals(2, catalog.size());
+
+            Files.delete(geographic);
+            catalog = MetadataCatalog.update(file, directory, harvester);
+            assertEquals(3, harvester.getFileCount());
+            assertEquals(1, catalog.size());
+            assertEquals("NETCDF_4D_PROJECTED.nc", catalog.get(0).getFile().getFileName().toString());
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.TreeMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link MetadataHarvester} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class MetadataHarvesterTest {
+    /**
+     * A temporary directory where to copy the test files.
+     */
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Copies the given test file in the given directory. A copy is needed because
+     * the test files may be in a JAR file, in which case they have no path.
+     */
+    private static Path copy(final TestData file, final Path directory) throws Exception {
+        final Path target = directory.resolve(file.name() + ".nc");
+        try (InputStream in = file.location().openStream()) {
+            Files.copy(in, target);
+        }
+        return target;
+    }
+
+    /**
+     * Harvests the test files together with a file that does not exist,
+     * and verifies that the missing file does not prevent the other files to be read.
+     *
+     * @throws Exception if an error occurred while copying the test files or waiting for the records.
+     */
+    @Test
+    public void testHarvest() throws Exception {
+        final Path directory  = folder.getRoot().toPath();
+        final Path geographic = copy(TestData.NETCDF_2D_GEOGRAPHIC, directory);
+        final Path projected  = copy(TestData.NETCDF_4D_PROJECTED,  directory);
+        final Path missing    = geographic.resolveSibling("missing.nc");
+        final List<Path> files = Arrays.asList(geographic, missing, projected);
+        final Map<Path,MetadataHarvester.Record> records = new TreeMap<>();
+        try (MetadataHarvester harvester = new MetadataHarvester(2, 2)) {
+            harvester.harvest(files, (record) -> assertNull(records.put(record.getFile(), record)));
+            assertEquals(3, harvester.getFileCount());
+            assertEquals(1, harvester.getFailureCount());
+            assertTrue(harvester.getByteCount() > 0);
+        }
+        assertEquals(3, records.size());
+        assertNotNull(records.get(missing).getFailure());
+
+        MetadataHarvester.Record record = records.get(geographic);
+        assertNull(record.getFailure());
+        assertEquals("Test data from Sea Surface Temperature Analysis Model", record.getTitle());
+        assertEquals("NOAA/NWS/NCEP", record.getCreator());
+        assertEquals(-180, record.getWestBoundLongitude(), 0);
+        assertEquals( 180, record.getEastBoundLongitude(), 0);
+        assertEquals( -90, record.getSouthBoundLatitude(), 0);
+        assertEquals(  90, record.getNorthBoundLatitude(), 0);
+        assertEquals(1127347200000L, record.getCreationDate().getTime());
+        assertEquals(1, record.getCoordinateReferenceSystems().size());
+        assertTrue(record.getCoordinateReferenceSystems().get(0).startsWith("GeographicCRS["));
+
+        record = records.get(projected);
+        assertNull(record.getFailure());
+        assertEquals(1, record.getCoordinateReferenceSystems().size());
+        assertTrue(record.getCoordinateReferenceSystems().get(0).startsWith("CompoundCRS["));
+    }
+
+    /**
+     * Verifies that an {@link UncheckedIOException} thrown by the consumer is propagated unchanged
+     * when harvesting a directory, instead of being unwrapped as if it was thrown by the walk.
+     *
+     * @throws Exception if an error occurred while copying the test files or waiting for the records.
+     */
+    @Test
+    public void testConsumerFailure() throws Exception {
+        final Path directory = folder.getRoot().toPath();
+        copy(TestData.NETCDF_2D_GEOGRAPHIC, directory);
+        final UncheckedIOException failure = new UncheckedIOException(new IOException("Consumer failure."));
+        try (MetadataHarvester harvester = new MetadataHarvester(1, 1)) {
+            harvester.harvest(directory, (record) -> {throw failure;});
+            fail("Expected the exception thrown by the consumer.");
+        } catch (UncheckedIOException e) {
+            assertSame(failure, e);
+        }
+    }
+}
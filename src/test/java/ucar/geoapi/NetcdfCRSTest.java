@@ -8,14 +8,17 @@ package ucar.geoapi;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.logging.Logger;
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import javax.measure.Unit;
 import javax.measure.IncommensurableException;
 
 import ucar.nc2.dataset.NetcdfDataset;
 import ucar.nc2.dataset.CoordinateSystem;
+import ucar.nc2.dataset.CoordinateAxis1DTime;
 
 import org.opengis.metadata.Identifier;
 import org.opengis.referencing.crs.SingleCRS;
@@ -35,6 +38,8 @@ import org.opengis.referencing.datum.TemporalDatum;
 import org.opengis.referencing.IdentifiedObject;
 import org.opengis.referencing.ReferenceIdentifier;
 import org.opengis.referencing.operation.Projection;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
 import org.opengis.parameter.ParameterValueGroup;
 import org.opengis.test.referencing.OperationValidator;
 import org.opengis.test.referencing.CRSValidator;
@@ -289,6 +294,8 @@ public final strictfp class NetcdfCRSTest extends IOTestCase {
             assertAxisEquals("time", Units.SECOND,             time.getAxis(0));
             assertNameEquals("time z0 y0 x0", crs);
             assertEquals("Time since 1992-1-1 UTC", new Date(0L), temporalCRS.getDatum().getOrigin());
+            assertTrue("Time axis shall be completed when values are requested.",
+                    ((NetcdfAxis) time.getAxis(0)).delegate() instanceof CoordinateAxis1DTime);
             /*
              * Following part is specific to ProjectedCRS.
              */
@@ -321,6 +328,177 @@ public final strictfp class NetcdfCRSTest extends IOTestCase {
         }
     }
 
+    /**
+     * Verifies that wrapping the same netCDF coordinate system many times returns the cached instance,
+     * and that the cache is specific to each dataset.
+     *
+     * @throws IOException if an error occurred while reading the test file.
+     */
+    @Test
+    public void testWrapCache() throws IOException {
+        final CoordinateReferenceSystem first;
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            final CoordinateSystem cs = assertSingleton(file.getCoordinateSystems());
+            first = NetcdfCRS.wrapCached(cs, null);
+            assertSame(first, NetcdfCRS.wrapCached(cs, null));
+        }
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            final CoordinateSystem cs = assertSingleton(file.getCoordinateSystems());
+            final CoordinateReferenceSystem other = NetcdfCRS.wrapCached(cs, null);
+            assertNotSame(first, other);
+            assertSame(other, NetcdfCRS.wrapCached(cs, null));
+        }
+    }
+
+    /**
+     * Verifies that the values of a temporal axis read before the dataset is closed
+     * are still available after the dataset has been closed.
+     *
+     * @throws IOException if an error occurred while reading the test file.
+     */
+    @Test
+    public void testTemporalAxisAfterClose() throws IOException {
+        final CoordinateSystemAxis axis;
+        final double minimum, maximum;
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            crs = Wrapper.wrap(assertSingleton(file.getCoordinateSystems()));
+            separateComponents("Expected a (projected + vertical + time) CRS.", ProjectedCRS.class, true);
+            axis = temporalCRS.getCoordinateSystem().getAxis(0);
+            minimum = axis.getMinimumValue();
+            maximum = axis.getMaximumValue();
+            assertTrue(maximum >= minimum);
+        }
+        assertEquals(minimum, axis.getMinimumValue(), 0);
+        assertEquals(maximum, axis.getMaximumValue(), 0);
+        assertTrue("Time axis shall have been completed before the dataset was closed.",
+                ((NetcdfAxis) axis).delegate() instanceof CoordinateAxis1DTime);
+    }
+
+    /**
+     * Verifies that requesting the values of a temporal axis for the first time after the dataset
+     * has been closed causes a clear exception instead of reading from the closed file.
+     *
+     * @throws IOException if an error occurred while reading the test file.
+     */
+    @Test
+    public void testTemporalAxisReadAfterClose() throws IOException {
+        final CoordinateSystemAxis axis;
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            crs = Wrapper.wrap(assertSingleton(file.getCoordinateSystems()));
+            separateComponents("Expected a (projected + vertical + time) CRS.", ProjectedCRS.class, true);
+            axis = temporalCRS.getCoordinateSystem().getAxis(0);
+        }
+        try {
+            axis.getMinimumValue();
+            fail("Expected an exception since the dataset has been closed.");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("closed"));
+        }
+    }
+
+    /**
+     * Verifies that the cache of wrapped CRS keeps the wrappers after the caller discarded them,
+     * and that the cache of a dataset is discarded when the dataset is released.
+     *
+     * @throws Exception if an error occurred while reading the test file or waiting for the garbage collector.
+     */
+    @Test
+    public void testWrapCacheRelease() throws Exception {
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            final CoordinateSystem cs = assertSingleton(file.getCoordinateSystems());
+            final WeakReference<NetcdfCRS> ref = new WeakReference<>(NetcdfCRS.wrapCached(cs, null));
+            System.gc();
+            Thread.sleep(10);
+            final NetcdfCRS crs = NetcdfCRS.wrapCached(cs, null);
+            assertSame("The cache shall retain the CRS discarded by the caller.", ref.get(), crs);
+            final int count = NetcdfCRS.cachedDatasetCount();
+            Wrapper.release(file);
+            assertEquals(count - 1, NetcdfCRS.cachedDatasetCount());
+            assertNotSame(crs, NetcdfCRS.wrapCached(cs, null));
+        }
+    }
+
+    /**
+     * Tests the conversion of coordinates to grid indices, both from the CRS coordinates
+     * and from geographic coordinates.
+     *
+     * @throws IOException if an error occurred while reading the test file.
+     * @throws TransformException if an error occurred while converting coordinates.
+     */
+    @Test
+    public void testToGridIndices() throws IOException, TransformException {
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            final NetcdfCRS crs = NetcdfCRS.wrap(assertSingleton(file.getCoordinateSystems()), file, null);
+            final int dimension = crs.getDimension();
+            final int[] expected = new int[dimension * 3];
+            for (int i=0; i<expected.length; i++) {
+                expected[i] = (int) ((i * 7) % crs.getSize(i % dimension));
+            }
+            final double[] coordinates = new double[expected.length];
+            for (int i=0; i<expected.length; i++) {
+                coordinates[i] = expected[i] + 0.25;                // Not exactly on cell center.
+            }
+            crs.getGridToCRS().transform(coordinates, 0, coordinates, 0, 3);
+            final int[] indices = new int[expected.length];
+            crs.toGridIndices(coordinates, 0, indices, 0, 3);
+            assertArrayEquals(expected, indices);
+            /*
+             * Replace the projected coordinates by geographic coordinates.
+             * The projected CRS is the first component (x, y) of the compound CRS.
+             */
+            final MathTransform projection = ((ProjectedCRS) ((CompoundCRS) crs).getComponents().get(0)).getConversionFromBase().getMathTransform();
+            projection.inverse().transform(coordinates, 0, coordinates, 0, 1);
+            projection.inverse().transform(coordinates, dimension, coordinates, dimension, 1);
+            projection.inverse().transform(coordinates, dimension*2, coordinates, dimension*2, 1);
+            Arrays.fill(indices, 0);
+            crs.toGridIndicesFromGeographic(coordinates, 0, indices, 0, 3);
+            assertArrayEquals(expected, indices);
+            /*
+             * Coordinates outside the grid.
+             */
+            coordinates[0] = Double.NaN;
+            crs.toGridIndicesFromGeographic(coordinates, 0, indices, 0, 1);
+            assertEquals(-1, indices[0]);
+        }
+    }
+
+    /**
+     * Tests the computation of geographic coordinates of all cells of a projected grid.
+     * The values are compared with the conversion of individual points.
+     *
+     * @throws IOException if an error occurred while reading the test file.
+     * @throws TransformException if an error occurred while converting coordinates.
+     */
+    @Test
+    public void testGeographicGrid() throws IOException, TransformException {
+        try (NetcdfDataset file = openDataset(TestData.NETCDF_4D_PROJECTED)) {
+            final CompoundCRS compound = (CompoundCRS) NetcdfCRS.wrap(assertSingleton(file.getCoordinateSystems()), file, null);
+            final NetcdfCRS projected = (NetcdfCRS) compound.getComponents().get(0);
+            final GeographicGrid grid = projected.getGeographicGrid(false);
+            assertEquals("width",  projected.getSize(0), grid.getWidth());
+            assertEquals("height", projected.getSize(1), grid.getHeight());
+            assertFalse(grid.isDirect());
+            assertSame("Expected cached grid.", grid, projected.getGeographicGrid(false));
+            final MathTransform toGeographic = ((ProjectedCRS) projected).getConversionFromBase().getMathTransform().inverse();
+            final MathTransform gridToCRS = projected.getGridToCRS();
+            final double[] point = new double[2];
+            for (int j=0; j<grid.getHeight(); j += 7) {
+                for (int i=0; i<grid.getWidth(); i += 5) {
+                    point[0] = i;
+                    point[1] = j;
+                    gridToCRS.transform(point, 0, point, 0, 1);
+                    toGeographic.transform(point, 0, point, 0, 1);
+                    assertEquals("longitude", point[0], grid.getLongitude(i, j), 1E-9);
+                    assertEquals("latitude",  point[1], grid.getLatitude (i, j), 1E-9);
+                }
+            }
+            final GeographicGrid direct = projected.getGeographicGrid(true);
+            assertTrue(direct.isDirect());
+            assertEquals(grid.getLongitudes(), direct.getLongitudes());
+            assertEquals(grid.getLatitudes(),  direct.getLatitudes());
+        }
+    }
+
     /**
      * Returns the concatenation of the given message with the given extension.
      * This method returns the given extension if the message is null or empty.
@@ -7,7 +7,10 @@
 package ucar.geoapi;
 
 import java.util.Date;
+import java.util.Collection;
 import java.io.IOException;
+import ucar.nc2.Group;
+import ucar.nc2.Attribute;
 import ucar.nc2.NetcdfFile;
 
 import org.opengis.metadata.Metadata;
@@ -20,6 +23,8 @@ import org.opengis.test.Validators;
 
 import org.junit.Test;
 
+import static org.junit.Assert.*;
+
 
 /**
  * Tests the {@link NetcdfMetadata} class.
@@ -145,4 +150,97 @@ public final strictfp class NetcdfMetadataTest extends IOTestCase {
                 "metadataStandardName",                                                    "ISO 19115-2:2009(E)");
         }
     }
+
+    /**
+     * Creates an in-memory netCDF file with the given global attributes.
+     */
+    private static NetcdfFile create(final Attribute... attributes) {
+        final Group.Builder root = Group.builder().setName("");
+        for (final Attribute attribute : attributes) {
+            root.addAttribute(attribute);
+        }
+        return NetcdfFile.builder().setRootGroup(root).build();
+    }
+
+    /**
+     * Verifies that attributes are found regardless of the case of their names,
+     * and that the first attribute is retained when many names differ only by case.
+     *
+     * @throws IOException if an error occurred while closing the file.
+     */
+    @Test
+    public void testCaseInsensitiveLookup() throws IOException {
+        try (NetcdfFile file = create(new Attribute("TITLE",              "  Upper case title "),
+                                      new Attribute("title",              "Lower case title"),
+                                      new Attribute("Geospatial_Lon_Min", -40.5),
+                                      new Attribute("GEOSPATIAL_LON_MAX", "12.25")))
+        {
+            final NetcdfMetadata metadata = new NetcdfMetadata(file);
+            assertEquals("Upper case title", metadata.getTitle().toString());
+            assertEquals(-40.5, metadata.getWestBoundLongitude(), 0);
+            assertEquals(12.25, metadata.getEastBoundLongitude(), 0);
+        }
+    }
+
+    /**
+     * Verifies that missing and blank attributes are reported as missing,
+     * including on the second invocation when the absence has been memoized.
+     *
+     * @throws IOException if an error occurred while closing the file.
+     */
+    @Test
+    public void testMissingAttributes() throws IOException {
+        try (NetcdfFile file = create(new Attribute("purpose", "   "))) {
+            final NetcdfMetadata metadata = new NetcdfMetadata(file);
+            for (int i=0; i<2; i++) {
+                assertNull(metadata.getPurpose());
+                assertNull(metadata.getAbstract());
+                assertNull(metadata.getDate());
+                assertTrue(Double.isNaN(metadata.getSouthBoundLatitude()));
+                assertTrue(metadata.getTopicCategories().isEmpty());
+            }
+        }
+    }
+
+    /**
+     * Verifies that dates are cloned, so that callers modifying a returned date
+     * do not change the value returned by the next invocation.
+     *
+     * @throws IOException if an error occurred while closing the file.
+     */
+    @Test
+    public void testDatesAreCloned() throws IOException {
+        try (NetcdfFile file = create(new Attribute("date_created", "2005-09-22T00:00:00Z"))) {
+            final NetcdfMetadata metadata = new NetcdfMetadata(file);
+            final Date date = metadata.getDate();
+            assertEquals(new Date(1127347200000L), date);
+            assertNotSame(date, metadata.getDate());
+            date.setTime(0);
+            assertEquals(new Date(1127347200000L), metadata.getDate());
+        }
+    }
+
+    /**
+     * Verifies that topic categories are parsed once and returned in an unmodifiable collection.
+     *
+     * @throws IOException if an error occurred while closing the file.
+     */
+    @Test
+    public void testTopicCategories() throws IOException {
+        try (NetcdfFile file = create(new Attribute("Topic_Category", "oceans, climatology meteorology atmosphere"))) {
+            final NetcdfMetadata metadata = new NetcdfMetadata(file);
+            final Collection<TopicCategory> categories = metadata.getTopicCategories();
+            assertEquals(2, categories.size());
+            assertTrue(categories.contains(TopicCategory.OCEANS));
+            assertTrue(categories.contains(TopicCategory.CLIMATOLOGY_METEOROLOGY_ATMOSPHERE));
+            assertSame(categories, metadata.getTopicCategories());
+            try {
+                categories.add(TopicCategory.BIOTA);
+                fail("Topic categories shall be unmodifiable.");
+            } catch (UnsupportedOperationException e) {
+                // This is the expected exception.
+            }
+            assertEquals(2, metadata.getTopicCategories().size());
+        }
+    }
 }
@@ -7,10 +7,26 @@
 package ucar.geoapi;
 
 import java.util.Random;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.projection.AlbersEqualArea;
+import ucar.unidata.geoloc.projection.FlatEarth;
+import ucar.unidata.geoloc.projection.LambertAzimuthalEqualArea;
+import ucar.unidata.geoloc.projection.LambertConformal;
+import ucar.unidata.geoloc.projection.LatLonProjection;
 import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.Orthographic;
+import ucar.unidata.geoloc.projection.RotatedLatLon;
+import ucar.unidata.geoloc.projection.RotatedPole;
+import ucar.unidata.geoloc.projection.Stereographic;
+import ucar.unidata.geoloc.projection.TransverseMercator;
+import ucar.unidata.geoloc.projection.UtmProjection;
+import ucar.unidata.geoloc.projection.VerticalPerspectiveView;
 
 import org.opengis.metadata.extent.GeographicBoundingBox;
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform2D;
 import org.opengis.referencing.operation.SingleOperation;
 import org.opengis.referencing.operation.TransformException;
 import org.opengis.test.referencing.TransformTestCase;
@@ -47,8 +63,7 @@ public final strictfp class NetcdfProjectionTest extends TransformTestCase {
 
     /**
      * Creates a new test case initialized with a default {@linkplain #tolerance tolerance}
-     * threshold. The "{@linkplain #isDerivativeSupported is derivative supported}" flag is
-     * set to {@code false} since the netCDF library does not implement projection derivatives.
+     * threshold.
      */
     public NetcdfProjectionTest() {
         validators = Validators.DEFAULT;
@@ -190,5 +205,223 @@ public final strictfp class NetcdfProjectionTest extends TransformTestCase {
         assertBetween("eastBoundLongitude",  -58, +180, box.getEastBoundLongitude());
         assertBetween("southBoundLatitude",  -90,  -43, box.getSouthBoundLatitude());
         assertBetween("northBoundLatitude",   43,  +90, box.getNorthBoundLatitude());
+        assertSame("Expected cached instance.", box, operation.getDomainOfValidity());
+    }
+
+    /**
+     * Tests {@link NetcdfProjection#contains(double, double)} and
+     * {@link NetcdfProjection#intersects(double, double, double, double)}.
+     */
+    @Test
+    public void testDomainPredicates() {
+        final NetcdfProjection projection = new NetcdfProjection(new Mercator(), null, null, null);
+        final GeographicBoundingBox box = (GeographicBoundingBox) projection.getDomainOfValidity();
+        final double west  = box.getWestBoundLongitude();
+        final double east  = box.getEastBoundLongitude();
+        final double south = box.getSouthBoundLatitude();
+        final double north = box.getNorthBoundLatitude();
+        final double λ = (west  + east ) / 2;
+        final double φ = (south + north) / 2;
+        assertTrue (projection.contains(λ,       φ));
+        assertTrue (projection.contains(λ + 360, φ));
+        assertTrue (projection.contains(west,    south));
+        assertFalse(projection.contains(west - 1, φ));
+        assertFalse(projection.contains(λ, Double.NaN));
+        assertTrue (projection.intersects(west - 10, west + 1, φ, φ + 1));
+        assertTrue (projection.intersects(east - 1, west + 1, φ, φ + 1));        // Crossing the antimeridian.
+        assertFalse(projection.intersects(west - 10, west - 1, φ, φ + 1));
+        assertFalse(projection.intersects(λ, λ + 1, Double.NaN, φ));
+    }
+
+    /**
+     * Tests {@link NetcdfProjection#derivative(Point2D)} by comparing with finite differences,
+     * for projections having a closed-form derivative and for the UTM projection using the fallback.
+     * Also verifies that the derivative of the inverse projection is the inverse matrix.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testDerivative() throws TransformException {
+        final double R = 6371.229;
+        final Projection[] projections = {
+            new LatLonProjection(),
+            new Mercator                 (-100, 20,              0, 0, R),
+            new TransverseMercator       (40, -100, 0.9996,      0, 0, R),
+            new Stereographic            (60, -100, 0.95,        0, 0, R),
+            new LambertAzimuthalEqualArea(40, -100,              0, 0, R),
+            new Orthographic             (40, -100,                    R),
+            new LambertConformal         (40, -100, 30, 50,      0, 0, R),
+            new AlbersEqualArea          (40, -100, 30, 50,      0, 0, R),
+            new FlatEarth                (40, -100, 30,                R),
+            new RotatedLatLon            (-40, -100, 10),
+            new RotatedPole              (50, 80),
+            new VerticalPerspectiveView  (40, -100, R, 35800,        0, 0),
+            new UtmProjection            (14, true)
+        };
+        final double step = 1E-6;
+        for (final Projection projection : projections) {
+            final MathTransform2D forward = new NetcdfProjection(projection, null, null, null);
+            final MathTransform2D inverse = forward.inverse();
+            final String name = projection.getClassName();
+            for (final Point2D point : new Point2D[] {new Point2D.Double(-97, 43), new Point2D.Double(-104, 36)}) {
+                final Matrix m = forward.derivative(point);
+                final double x = point.getX();
+                final double y = point.getY();
+                final Point2D e = forward.transform(new Point2D.Double(x + step, y), null);
+                final Point2D w = forward.transform(new Point2D.Double(x - step, y), null);
+                final Point2D n = forward.transform(new Point2D.Double(x, y + step), null);
+                final Point2D s = forward.transform(new Point2D.Double(x, y - step), null);
+                final double[] expected = {
+                    (e.getX() - w.getX()) / (2*step),  (n.getX() - s.getX()) / (2*step),
+                    (e.getY() - w.getY()) / (2*step),  (n.getY() - s.getY()) / (2*step)
+                };
+                for (int i=0; i<expected.length; i++) {
+                    final double value = m.getElement(i >>> 1, i & 1);
+                    assertEquals(name, expected[i], value, 1E-5 * Math.max(1, Math.abs(expected[i])));
+                }
+                final Matrix mi = inverse.derivative(forward.transform(point, null));
+                for (int j=0; j<2; j++) {
+                    for (int i=0; i<2; i++) {
+                        final double product = m.getElement(j, 0) * mi.getElement(0, i)
+                                             + m.getElement(j, 1) * mi.getElement(1, i);
+                        assertEquals(name, (i == j) ? 1 : 0, product, 1E-9);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests {@link ProjectionDerivative.FiniteDifference} at the antimeridian of the projection,
+     * where the samples on both sides would be projected on opposite edges of the map.
+     */
+    @Test
+    public void testFiniteDifferenceAtAntimeridian() {
+        final Mercator projection = new Mercator(-100, 20, 0, 0, 6371.229);
+        final ProjectionDerivative exact = new ProjectionDerivative.Mercator(projection);
+        final ProjectionDerivative approx = new ProjectionDerivative.FiniteDifference(projection);
+        for (final double λ : new double[] {80, -280, 79.99995, 80.00005}) {
+            final SimpleMatrix expected = exact .derivative(λ, 30);
+            final SimpleMatrix actual   = approx.derivative(λ, 30);
+            for (int j=0; j<2; j++) {
+                for (int i=0; i<2; i++) {
+                    assertEquals(expected.getElement(j, i), actual.getElement(j, i), 1E-4);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests {@link NetcdfProjection#transformEnvelope(Rectangle2D)} for the forward projection.
+     * The result is compared with the bounds of a dense sampling of the envelope edges.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testTransformEnvelope() throws TransformException {
+        final NetcdfProjection projection = new NetcdfProjection(
+                new LambertConformal(40, -100, 30, 50, 0, 0, 6371.229), null, null, null);
+        final Rectangle2D envelope = new Rectangle2D.Double(-120, 30, 40, 20);
+        final Rectangle2D bounds = projection.transformEnvelope(envelope);
+        final Rectangle2D expected = new Rectangle2D.Double();
+        final Point2D point = new Point2D.Double();
+        for (int i=0; i<=4000; i++) {
+            final double t = i / 4000.0;
+            for (int edge=0; edge<4; edge++) {
+                switch (edge) {
+                    case 0: point.setLocation(envelope.getMinX() + t*envelope.getWidth(), envelope.getMinY()); break;
+                    case 1: point.setLocation(envelope.getMinX() + t*envelope.getWidth(), envelope.getMaxY()); break;
+                    case 2: point.setLocation(envelope.getMinX(), envelope.getMinY() + t*envelope.getHeight()); break;
+                    case 3: point.setLocation(envelope.getMaxX(), envelope.getMinY() + t*envelope.getHeight()); break;
+                }
+                projection.transform(point, point);
+                if (i == 0 && edge == 0) {
+                    expected.setRect(point.getX(), point.getY(), 0, 0);
+                } else {
+                    expected.add(point);
+                }
+            }
+        }
+        final double tolerance = 2 * NetcdfProjection.SHAPE_TOLERANCE;
+        assertEquals("xmin", expected.getMinX(), bounds.getMinX(), tolerance);
+        assertEquals("xmax", expected.getMaxX(), bounds.getMaxX(), tolerance);
+        assertEquals("ymin", expected.getMinY(), bounds.getMinY(), tolerance);
+        assertEquals("ymax", expected.getMaxY(), bounds.getMaxY(), tolerance);
+        /*
+         * The southern edge is an arc lower than the corners. Transforming only the corners would miss it.
+         */
+        final Point2D corner = projection.transform(new Point2D.Double(-120, 30), null);
+        assertTrue(bounds.getMinY() < corner.getY() - 10);
+    }
+
+    /**
+     * Tests {@link NetcdfProjection#transformEnvelope(GeographicBoundingBox)} with a box crossing the
+     * antimeridian, and {@link NetcdfProjection#transformEnvelope(Rectangle2D)} with longitudes shifted
+     * by 360°, against a projection having a regional domain of validity.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testTransformEnvelopeAcrossAntimeridian() throws TransformException {
+        final NetcdfProjection projection = new NetcdfProjection(new Mercator(), null, null, null);
+        final GeographicBoundingBox domain = (GeographicBoundingBox) projection.getDomainOfValidity();
+        final double west = domain.getWestBoundLongitude();
+        final double east = domain.getEastBoundLongitude();
+        final double φ    = (domain.getSouthBoundLatitude() + domain.getNorthBoundLatitude()) / 2;
+        assertBetween("Test requires a regional domain.", -170, 150, west);
+        assertBetween("Test requires a regional domain.", west + 30, 170, east);
+        /*
+         * Box from 170°E to 20° after the west bound of the domain, crossing the antimeridian.
+         * Only the [west … west+20] part intersects the domain.
+         */
+        final Rectangle2D expected = projection.transformEnvelope(new Rectangle2D.Double(west, φ, 20, 10));
+        final GeographicBoundingBox box = new GeographicBoundingBox() {
+            @Override public double  getWestBoundLongitude() {return 170;}
+            @Override public double  getEastBoundLongitude() {return west + 20;}
+            @Override public double  getSouthBoundLatitude() {return φ;}
+            @Override public double  getNorthBoundLatitude() {return φ + 10;}
+            @Override public Boolean getInclusion()          {return Boolean.TRUE;}
+        };
+        Rectangle2D bounds = projection.transformEnvelope(box);
+        assertNotNull("Box crossing the antimeridian shall intersect the domain.", bounds);
+        assertEquals("xmin", expected.getMinX(), bounds.getMinX(), 1E-6);
+        assertEquals("xmax", expected.getMaxX(), bounds.getMaxX(), 1E-6);
+        assertEquals("ymin", expected.getMinY(), bounds.getMinY(), 1E-6);
+        assertEquals("ymax", expected.getMaxY(), bounds.getMaxY(), 1E-6);
+        /*
+         * Same envelope than the expected one, but with longitudes shifted by 360°.
+         */
+        bounds = projection.transformEnvelope(new Rectangle2D.Double(west + 360, φ, 20, 10));
+        assertNotNull("Shifted envelope shall intersect the domain.", bounds);
+        assertEquals("xmin", expected.getMinX(), bounds.getMinX(), 1E-6);
+        assertEquals("xmax", expected.getMaxX(), bounds.getMaxX(), 1E-6);
+        assertNull(projection.transformEnvelope(new Rectangle2D.Double(east + 365, φ, 5, 10)));
+    }
+
+    /**
+     * Tests {@link NetcdfProjection#transformEnvelope(Rectangle2D)} for inverse projections
+     * of envelopes containing a pole or crossing the antimeridian.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testInverseTransformEnvelope() throws TransformException {
+        final double R = 6371.229;
+        NetcdfProjection projection = new NetcdfProjection(new Stereographic(90, -100, 0.95, 0, 0, R), null, null, null);
+        Rectangle2D bounds = ((NetcdfProjection) projection.inverse()).transformEnvelope(new Rectangle2D.Double(-1000, -1000, 2000, 2000));
+        assertEquals("xmin", -180, bounds.getMinX(), 0);
+        assertEquals("xmax", +180, bounds.getMaxX(), 0);
+        assertEquals("ymax",   90, bounds.getMaxY(), 0);
+        assertBetween("ymin", 75, 85, bounds.getMinY());
+        /*
+         * Mercator projection centered on the antimeridian. An envelope of ±1000 km
+         * around the central meridian spans approximately ±9° of longitude.
+         */
+        projection = new NetcdfProjection(new Mercator(180, 0, 0, 0, R), null, null, null);
+        bounds = ((NetcdfProjection) projection.inverse()).transformEnvelope(new Rectangle2D.Double(-1000, 0, 2000, 1000));
+        final double Δλ = Math.toDegrees(1000 / R);
+        assertEquals("xmin", 180 - Δλ, bounds.getMinX(), 1E-6);
+        assertEquals("xmax", 180 + Δλ, bounds.getMaxX(), 1E-6);
+        assertEquals("ymin", 0, bounds.getMinY(), 1E-6);
     }
 }
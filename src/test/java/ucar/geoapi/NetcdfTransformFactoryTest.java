@@ -191,6 +191,30 @@ public final strictfp class NetcdfTransformFactoryTest extends TestCase {
         }
     }
 
+    /**
+     * Tests the cache of transforms created by {@link NetcdfTransformFactory#createParameterizedTransform(ParameterValueGroup)}.
+     *
+     * @throws FactoryException if an error occurred while using the {@linkplain #factory}.
+     */
+    @Test
+    public void testTransformCache() throws FactoryException {
+        final NetcdfTransformFactory factory = (NetcdfTransformFactory) this.factory;
+        final ParameterValueGroup group = factory.getDefaultParameters("Mercator");
+        group.parameter(CF.STANDARD_PARALLEL).setValue(17.5);
+        final MathTransform first = factory.createParameterizedTransform(group);
+        final long hits = factory.getCacheHitCount();
+        final ParameterValueGroup copy = factory.getDefaultParameters("Mercator");
+        copy.parameter(CF.STANDARD_PARALLEL).setValue(17.5);
+        copy.parameter(CF.FALSE_EASTING).setValue(-0.0);
+        assertSame("Expected the cached instance.", first, factory.createParameterizedTransform(copy));
+        assertEquals("cacheHits", hits + 1, factory.getCacheHitCount());
+
+        copy.parameter(CF.STANDARD_PARALLEL).setValue(18);
+        final long misses = factory.getCacheMissCount();
+        assertNotSame("Expected a new instance.", first, factory.createParameterizedTransform(copy));
+        assertEquals("cacheMisses", misses + 1, factory.getCacheMissCount());
+    }
+
     /**
      * Generates a list of all supported projections and their parameters in Javadoc format.
      * The output of this method can be copy-and-pasted in the {@link NetcdfTransformFactory}
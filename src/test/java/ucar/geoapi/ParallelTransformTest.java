@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link ParallelTransform} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class ParallelTransformTest {
+    /**
+     * Number of points to transform. Shall be large enough for causing the split in many tasks.
+     */
+    private static final int NUM_POINTS = 20 * ParallelTransform.MIN_POINTS_PER_TASK + 17;
+
+    /**
+     * Returns random (<var>longitude</var>, <var>latitude</var>) coordinates.
+     */
+    private static double[] coordinates(final int length) {
+        final Random random = new Random(775487307);
+        final double[] coordinates = new double[length];
+        for (int i=0; i<length; i++) {
+            coordinates[i] = random.nextDouble() * 40 + ((i & 1) == 0 ? -120 : 20);
+        }
+        return coordinates;
+    }
+
+    /**
+     * Verifies that the parallel execution gives the same results than the sequential execution.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testConsistency() throws TransformException {
+        final NetcdfProjection sequential = new NetcdfProjection(new LambertConformal(), null, null, null);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final MathTransform2D parallel = new ParallelTransform(sequential, pool);
+            final double[] sources  = coordinates(NUM_POINTS * 2);
+            final double[] expected = new double[sources.length];
+            final double[] actual   = new double[sources.length];
+            sequential.transform(sources, 0, expected, 0, NUM_POINTS);
+            parallel  .transform(sources, 0, actual,   0, NUM_POINTS);
+            assertArrayEquals(expected, actual, 0);
+            /*
+             * Same test with source and target in the same array, with overlapping regions.
+             * The source array needs to be copied before the parallel execution.
+             */
+            final double[] shared = new double[sources.length + 10];
+            System.arraycopy(sources, 0, shared, 10, sources.length);
+            parallel.transform(shared, 10, shared, 4, NUM_POINTS);
+            for (int i=0; i<expected.length; i++) {
+                assertEquals(expected[i], shared[i + 4], 0);
+            }
+            /*
+             * Same test with the float variant and in-place transformation.
+             */
+            final float[] floats = new float[sources.length];
+            for (int i=0; i<floats.length; i++) floats[i] = (float) sources[i];
+            final float[] expectedFloats = new float[floats.length];
+            sequential.transform(floats, 0, expectedFloats, 0, NUM_POINTS);
+            parallel  .transform(floats, 0, floats, 0, NUM_POINTS);
+            assertArrayEquals(expectedFloats, floats, 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
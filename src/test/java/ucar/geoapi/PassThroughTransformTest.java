@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.opengis.referencing.operation.Matrix;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link PassThroughTransform} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class PassThroughTransformTest {
+    /**
+     * Creates (<var>time</var>, <var>x</var>, <var>y</var>, <var>height</var>) tuples.
+     */
+    private static double[] tuples(final int numPts) {
+        final double[] coordinates = new double[numPts * 4];
+        for (int i=0; i<numPts; i++) {
+            coordinates[i*4    ] = i;
+            coordinates[i*4 + 1] = (i * 37) % 800 - 400;
+            coordinates[i*4 + 2] = (i * 53) % 600 - 300;
+            coordinates[i*4 + 3] = -i;
+        }
+        return coordinates;
+    }
+
+    /**
+     * Verifies that projecting the horizontal coordinates of four-dimensional tuples gives the same
+     * results than projecting the two-dimensional coordinates separately, and that the other
+     * coordinates are passed unchanged.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testTransform() throws TransformException {
+        final MathTransform projection = new NetcdfProjection(new LambertConformal(), null, null, null).inverse();
+        final MathTransform transform  = PassThroughTransform.create(1, projection, 1);
+        assertEquals(4, transform.getSourceDimensions());
+        assertEquals(4, transform.getTargetDimensions());
+
+        final int numPts = NetcdfProjection.CHUNK_SIZE * 2 + 5;
+        final double[] source = tuples(numPts);
+        final double[] horizontal = new double[numPts * 2];
+        for (int i=0; i<numPts; i++) {
+            horizontal[i*2    ] = source[i*4 + 1];
+            horizontal[i*2 + 1] = source[i*4 + 2];
+        }
+        projection.transform(horizontal, 0, horizontal, 0, numPts);
+        final double[] actual = new double[source.length];
+        transform.transform(source, 0, actual, 0, numPts);
+        for (int i=0; i<numPts; i++) {
+            assertEquals("time",   source[i*4],         actual[i*4],     0);
+            assertEquals("x",      horizontal[i*2],     actual[i*4 + 1], 0);
+            assertEquals("y",      horizontal[i*2 + 1], actual[i*4 + 2], 0);
+            assertEquals("height", source[i*4 + 3],     actual[i*4 + 3], 0);
+        }
+        /*
+         * In-place transformation, then back to the original coordinates.
+         */
+        transform.transform(source, 0, source, 0, numPts);
+        assertArrayEquals(actual, source, 0);
+        transform.inverse().transform(source, 0, source, 0, numPts);
+        assertArrayEquals(tuples(numPts), source, 1E-6);
+    }
+
+    /**
+     * Tests the derivative, which shall be the projection derivative surrounded by identity.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testDerivative() throws TransformException {
+        final MathTransform projection = new NetcdfProjection(new LambertConformal(), null, null, null);
+        final MathTransform transform  = PassThroughTransform.create(1, projection, 1);
+        final SimpleDirectPosition point = new SimpleDirectPosition(4);
+        point.setOrdinate(1, -95);
+        point.setOrdinate(2,  45);
+        final Matrix derivative = transform.derivative(point);
+        final SimpleDirectPosition horizontal = new SimpleDirectPosition(2);
+        horizontal.setOrdinate(0, -95);
+        horizontal.setOrdinate(1,  45);
+        final Matrix expected = projection.derivative(horizontal);
+        for (int j=0; j<4; j++) {
+            for (int i=0; i<4; i++) {
+                final double e;
+                if (j >= 1 && j <= 2 && i >= 1 && i <= 2) {
+                    e = expected.getElement(j-1, i-1);
+                } else {
+                    e = (i == j) ? 1 : 0;
+                }
+                assertEquals(e, derivative.getElement(j, i), 0);
+            }
+        }
+    }
+
+    /**
+     * Tests the simplifications performed by {@link PassThroughTransform#create(int, MathTransform, int)}.
+     */
+    @Test
+    public void testSimplification() {
+        final MathTransform projection = new NetcdfProjection(new LambertConformal(), null, null, null);
+        assertSame(projection, PassThroughTransform.create(0, projection, 0));
+        assertEquals(PassThroughTransform.create(2, projection, 1),
+                     PassThroughTransform.create(1, PassThroughTransform.create(1, projection, 1), 0));
+
+        final SimpleMatrix scale = new SimpleMatrix(2);
+        scale.setElement(0, 0, 3);
+        scale.setElement(0, 1, 4);
+        final MathTransform affine = PassThroughTransform.create(1, SimpleAffineTransform.create(scale), 1);
+        assertTrue(affine instanceof SimpleAffineTransform);
+        final SimpleMatrix matrix = ((SimpleAffineTransform) affine).getMatrix();
+        assertEquals(1, matrix.getElement(0, 0), 0);
+        assertEquals(3, matrix.getElement(1, 1), 0);
+        assertEquals(4, matrix.getElement(1, 3), 0);
+        assertEquals(1, matrix.getElement(2, 2), 0);
+        assertEquals(1, matrix.getElement(3, 3), 0);
+    }
+}
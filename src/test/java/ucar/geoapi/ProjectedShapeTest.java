@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.awt.Shape;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.PathIterator;
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.opengis.referencing.operation.MathTransform2D;
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link ProjectedShape} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class ProjectedShapeTest {
+    /**
+     * Creates the projection to test, which is a Lambert Conic Conformal projection
+     * with central meridian at 105°W. Parallels are arcs of circle in this projection.
+     */
+    private static NetcdfProjection projection() {
+        return new NetcdfProjection(new LambertConformal(), null, null, null);
+    }
+
+    /**
+     * Projects a segment along the 45°N parallel. The projected vertices shall all be on the parallel,
+     * and the projected shape shall reach the southernmost point of the arc on the central meridian.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testDensification() throws TransformException {
+        final NetcdfProjection projection = projection();
+        final MathTransform2D  inverse    = projection.inverse();
+        final Shape shape = projection.createTransformedShape(new Line2D.Double(-135, 45, -75, 45));
+        final double[] buffer = new double[6];
+        int count = 0;
+        for (final PathIterator it = shape.getPathIterator(null); !it.isDone(); it.next()) {
+            assertEquals(count == 0 ? PathIterator.SEG_MOVETO : PathIterator.SEG_LINETO, it.currentSegment(buffer));
+            final Point2D p = inverse.transform(new Point2D.Double(buffer[0], buffer[1]), null);
+            assertEquals("latitude", 45, p.getY(), 1E-9);
+            count++;
+        }
+        assertTrue("Expected densification of the segment.", count > 10);
+        final Point2D start  = projection.transform(new Point2D.Double(-135, 45), null);
+        final Point2D middle = projection.transform(new Point2D.Double(-105, 45), null);
+        final Rectangle2D bounds = shape.getBounds2D();
+        assertTrue("The arc is lower than its ends.", middle.getY() < start.getY() - 100);
+        assertEquals("Southernmost point of the arc.", middle.getY(), bounds.getMinY(), NetcdfProjection.SHAPE_TOLERANCE);
+        assertEquals("Start point.", start.getX(), bounds.getMinX(), 1E-9);
+    }
+
+    /**
+     * Projects a closed rectangle. The implicit line of the {@code SEG_CLOSE} segment shall be densified
+     * too, and the result shall contain the projection of a point inside the rectangle.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testClosedShape() throws TransformException {
+        final NetcdfProjection projection = projection();
+        final Shape shape = projection.createTransformedShape(new Rectangle2D.Double(-120, 30, 40, 20));
+        final double[] buffer = new double[6];
+        int count = 0, last = -1;
+        final PathIterator it = shape.getPathIterator(null);
+        assertEquals(PathIterator.WIND_NON_ZERO, it.getWindingRule());
+        for (; !it.isDone(); it.next()) {
+            last = it.currentSegment(buffer);
+            count++;
+        }
+        assertEquals(PathIterator.SEG_CLOSE, last);
+        assertTrue("Expected densification of the edges.", count > 20);
+        assertTrue(shape.contains(projection.transform(new Point2D.Double(-100, 40), null)));
+        assertFalse(shape.contains(projection.transform(new Point2D.Double(-100, 55), null)));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.Stereographic;
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+
+/**
+ * Tests the {@link ProjectionKernel} class. The vectorized kernels are tested only if the library
+ * has been compiled with the {@code vector} profile; otherwise the corresponding tests are skipped.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class ProjectionKernelTest {
+    /**
+     * Creates a chunk of random (<var>longitude</var>, <var>latitude</var>) coordinates, including some
+     * points outside the domain handled by the vectorized loops and a number of points which is not
+     * a multiple of the vector length.
+     */
+    private static double[][] coordinates() {
+        final Random random = new Random(4823105907L);
+        final double[][] coordinates = new double[2][NetcdfProjection.CHUNK_SIZE - 3];
+        for (int i=0; i<coordinates[0].length; i++) {
+            coordinates[0][i] = random.nextDouble() * 400 - 200;
+            coordinates[1][i] = random.nextDouble() * 170 - 85;
+        }
+        coordinates[1][10] = 89.999;
+        coordinates[1][20] = Double.NaN;
+        return coordinates;
+    }
+
+    /**
+     * Verifies that the scalar kernel gives the same results than the netCDF single point methods.
+     */
+    @Test
+    public void testScalar() {
+        final Projection projection = new Mercator(-100, 20, 500, -300, 6371.229);
+        final double[][] source = coordinates();
+        final double[][] target = new double[2][source[0].length];
+        new ProjectionKernel.Scalar(projection, false).transform(source, target);
+        for (int i=0; i<source[0].length; i++) {
+            final ProjectionPoint pt = projection.latLonToProj(source[1][i], source[0][i]);
+            assertEquals("x", pt.getX(), target[0][i], 1E-9);
+            assertEquals("y", pt.getY(), target[1][i], 1E-9);
+        }
+    }
+
+    /**
+     * Compares the vectorized Mercator kernel with the scalar kernel, in both directions.
+     */
+    @Test
+    public void testVectorMercator() {
+        final Projection projection = new Mercator(-100, 20, 500, -300, 6371.229);
+        final ProjectionKernel forward = ProjectionKernel.vectorized(projection, false);
+        final ProjectionKernel inverse = ProjectionKernel.vectorized(projection, true);
+        assumeNotNull(forward, inverse);
+        final double[][] source   = coordinates();
+        final double[][] expected = new double[2][source[0].length];
+        final double[][] actual   = new double[2][source[0].length];
+        new ProjectionKernel.Scalar(projection, false).transform(source, expected);
+        forward.transform(source, actual);
+        for (int i=0; i<source[0].length; i++) {
+            final double tolerance = Math.abs(source[1][i]) <= 80 ? 1E-9 : 1E-4;
+            assertEquals("x", expected[0][i], actual[0][i], tolerance);
+            assertEquals("y", expected[1][i], actual[1][i], tolerance);
+        }
+        new ProjectionKernel.Scalar(projection, true).transform(expected, source);
+        inverse.transform(expected, actual);
+        for (int i=0; i<source[0].length; i++) {
+            assertEquals("λ", source[0][i], actual[0][i], 1E-11);
+            assertEquals("φ", source[1][i], actual[1][i], 1E-11);
+        }
+    }
+
+    /**
+     * Compares the vectorized kernels of the given projection with the scalar kernels, in both directions.
+     * The vectorized kernels are created only if they agree with the scalar kernels on a grid of points,
+     * so this method fails if the kernels are unavailable while the Mercator kernel is available.
+     *
+     * @param projection  the projection to test.
+     * @param linear      the tolerance on projected coordinates, in kilometres.
+     * @param angular     the tolerance on geographic coordinates, in degrees.
+     */
+    private static void compareWithScalar(final Projection projection, final double linear, final double angular) {
+        assumeNotNull(ProjectionKernel.vectorized(new Mercator(), false));
+        final ProjectionKernel forward = ProjectionKernel.vectorized(projection, false);
+        final ProjectionKernel inverse = ProjectionKernel.vectorized(projection, true);
+        assertNotNull("Forward kernel shall agree with the netCDF projection.", forward);
+        assertNotNull("Inverse kernel shall agree with the netCDF projection.", inverse);
+        final double[][] source   = coordinates();
+        final double[][] expected = new double[2][source[0].length];
+        final double[][] actual   = new double[2][source[0].length];
+        new ProjectionKernel.Scalar(projection, false).transform(source, expected);
+        forward.transform(source, actual);
+        for (int i=0; i<source[0].length; i++) {
+            assertEquals("x", expected[0][i], actual[0][i], linear);
+            assertEquals("y", expected[1][i], actual[1][i], linear);
+        }
+        new ProjectionKernel.Scalar(projection, true).transform(expected, source);
+        inverse.transform(expected, actual);
+        for (int i=0; i<source[0].length; i++) {
+            assertEquals("λ", source[0][i], actual[0][i], angular);
+            assertEquals("φ", source[1][i], actual[1][i], angular);
+        }
+    }
+
+    /**
+     * Compares the vectorized stereographic kernels with the scalar kernels,
+     * for a polar and an oblique projection.
+     */
+    @Test
+    public void testVectorStereographic() {
+        compareWithScalar(new Stereographic(90, -100, 0.95, 0, 0, 6371.229), 1E-9, 1E-9);
+        compareWithScalar(new Stereographic(40, -100, 1, 500, -300, 6371.229), 1E-9, 1E-9);
+    }
+
+    /**
+     * Compares the vectorized Lambert conformal conic kernels with the scalar kernels,
+     * for projections in the northern and southern hemispheres.
+     */
+    @Test
+    public void testVectorLambertConformal() {
+        compareWithScalar(new LambertConformal( 40, -100,  30,  50, 0, 0, 6371.229), 1E-9, 1E-9);
+        compareWithScalar(new LambertConformal(-35,  140, -30, -50, 0, 0, 6371.229), 1E-9, 1E-9);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.Random;
+
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link SimpleAffineTransform} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class SimpleAffineTransformTest {
+    /**
+     * Creates a matrix from the given rows.
+     */
+    private static SimpleMatrix matrix(final double[]... rows) {
+        final SimpleMatrix matrix = new SimpleMatrix(rows.length, rows[0].length);
+        for (int j=0; j<rows.length; j++) {
+            for (int i=0; i<rows[j].length; i++) {
+                matrix.setElement(j, i, rows[j][i]);
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Tests the selection of specialized implementations.
+     */
+    @Test
+    public void testCreate() {
+        assertTrue(SimpleAffineTransform.create(new SimpleMatrix(4)) instanceof SimpleAffineTransform.Identity);
+        assertTrue(SimpleAffineTransform.create(matrix(
+                new double[] {2, 0, 3},
+                new double[] {0, 4, 5},
+                new double[] {0, 0, 1})) instanceof SimpleAffineTransform.ScaleTranslate);
+        assertTrue(SimpleAffineTransform.create(matrix(
+                new double[] {2, 1, 3},
+                new double[] {0, 4, 5},
+                new double[] {0, 0, 1})) instanceof SimpleAffineTransform.TwoD);
+        try {
+            SimpleAffineTransform.create(matrix(new double[] {2, 1}, new double[] {1, 1}));
+            fail("Projective transforms shall not be accepted.");
+        } catch (IllegalArgumentException e) {
+            // This is the expected exception.
+        }
+    }
+
+    /**
+     * Tests the transformation of points by the 2D kernel, including in-place and overlapping arrays.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testTwoDimensional() throws TransformException {
+        final MathTransform tr = SimpleAffineTransform.create(matrix(
+                new double[] {2, 1, 3},
+                new double[] {-1, 4, 5},
+                new double[] {0, 0, 1}));
+        final double[] points = {1, 2, 3, 4, 0, 0};
+        tr.transform(points, 0, points, 2, 2);
+        assertArrayEquals(new double[] {1, 2, 7, 12, 13, 18}, points, 0);
+        tr.inverse().transform(points, 2, points, 2, 2);
+        assertArrayEquals(new double[] {1, 2, 1, 2, 3, 4}, points, 1E-14);
+    }
+
+    /**
+     * Tests the general kernel with a transform from 3 to 2 dimensions,
+     * and the general and specialized kernels in three dimensions.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testGeneral() throws TransformException {
+        MathTransform tr = SimpleAffineTransform.create(matrix(
+                new double[] {1, 0, 2, 10},
+                new double[] {0, 3, 0, 20},
+                new double[] {0, 0, 0,  1}));
+        final double[] points = {1, 2, 3, 4, 5, 6};
+        final double[] result = new double[4];
+        tr.transform(points, 0, result, 0, 2);
+        assertArrayEquals(new double[] {17, 26, 26, 35}, result, 0);
+
+        tr = SimpleAffineTransform.create(matrix(
+                new double[] {1, 2, 0, 1},
+                new double[] {0, 1, 0, 2},
+                new double[] {3, 0, 1, 3},
+                new double[] {0, 0, 0, 1}));
+        assertTrue(tr instanceof SimpleAffineTransform.ThreeD);
+        tr.transform(points, 0, points, 0, 2);
+        assertArrayEquals(new double[] {6, 4, 9, 15, 7, 21}, points, 0);
+        tr.inverse().transform(points, 0, points, 0, 2);
+        assertArrayEquals(new double[] {1, 2, 3, 4, 5, 6}, points, 1E-14);
+    }
+
+    /**
+     * Tests the {@code float[]} variants on more points than the size of a chunk,
+     * including an in-place transformation where the source and target dimensions differ.
+     *
+     * @throws TransformException should never happen.
+     */
+    @Test
+    public void testFloatArrays() throws TransformException {
+        final MathTransform tr = SimpleAffineTransform.create(matrix(
+                new double[] {1, 0, 2, 10},
+                new double[] {0, 3, 0, 20},
+                new double[] {0, 0, 0,  1}));
+        final int numPts = NetcdfProjection.CHUNK_SIZE * 2 + 17;
+        final Random random = new Random(6180724461L);
+        final float[]  source = new float[numPts * 3];
+        final double[] widened = new double[source.length];
+        for (int i=0; i<source.length; i++) {
+            widened[i] = source[i] = random.nextInt(1000);
+        }
+        final double[] expected = new double[numPts * 2];
+        tr.transform(widened, 0, expected, 0, numPts);
+
+        final double[] doubles = new double[expected.length];
+        tr.transform(source, 0, doubles, 0, numPts);
+        assertArrayEquals(expected, doubles, 0);
+
+        final float[] floats = new float[expected.length];
+        tr.transform(widened, 0, floats, 0, numPts);
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(expected[i], floats[i], 0);
+        }
+        tr.transform(source, 0, source, 0, numPts);
+        for (int i=0; i<expected.length; i++) {
+            assertEquals(expected[i], source[i], 0);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import java.util.stream.IntStream;
+import javax.measure.Unit;
+import javax.measure.format.ParserException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+
+/**
+ * Tests the {@link Units} class.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+public final strictfp class UnitsTest {
+    /**
+     * Tests the parsing of symbols recognized by the fallback applied after a parser failure,
+     * and verifies that the result is cached.
+     *
+     * @throws ParserException should never happen.
+     */
+    @Test
+    public void testParse() throws ParserException {
+        assertSame(Units.DEGREE,    Units.parse("degrees"));
+        assertSame(Units.METRE,     Units.parse("metres"));
+        assertSame(Units.KILOMETRE, Units.parse("kilometer"));
+        assertSame(Units.DAY,       Units.parse("days"));
+        assertSame(Units.parse("degrees"), Units.parse("degrees"));
+        assertEquals(Units.METRE, Units.parse("m"));
+    }
+
+    /**
+     * Parses symbols from many threads and verifies that the results are the same
+     * than the ones obtained in a single thread.
+     *
+     * @throws ParserException should never happen.
+     */
+    @Test
+    public void testConcurrentParse() throws ParserException {
+        final String[] symbols = {"m", "km", "s", "Pa", "rad", "degrees", "metres", "hours", "ppm", "arcsec"};
+        final Unit<?>[] expected = new Unit<?>[symbols.length];
+        for (int i=0; i<symbols.length; i++) {
+            expected[i] = Units.parse(symbols[i]);
+        }
+        IntStream.range(0, 10000).parallel().forEach((n) -> {
+            final int i = n % symbols.length;
+            assertEquals(symbols[i], expected[i], Units.parse(symbols[i]));
+        });
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.projection.Mercator;
+import ucar.unidata.geoloc.projection.Stereographic;
+import ucar.unidata.geoloc.projection.LambertConformal;
+
+
+/**
+ * Factory of vectorized projection kernels. This class is compiled only with the {@code vector}
+ * Maven profile and is loaded by reflection from {@link ProjectionKernel}, so the default build
+ * does not depend on the {@code jdk.incubator.vector} module.
+ *
+ * <p>Before to be returned, each kernel is compared against the netCDF bulk methods on a grid
+ * of points covering the projection domain. If the results differ by more than the tolerance
+ * documented in the kernel class (for example because a future netCDF version changed its
+ * formulas), then the kernel is discarded and the netCDF bulk methods are used instead.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+final class VectorKernels {
+    /**
+     * Do not allow instantiation of this class.
+     */
+    private VectorKernels() {
+    }
+
+    /**
+     * Returns a vectorized kernel for the given projection, or {@code null} if none.
+     * This method is invoked by reflection from {@link ProjectionKernel#vectorized(Projection, boolean)}.
+     *
+     * @param  projection  the netCDF projection.
+     * @param  inverse     {@code true} for the inverse projection, or {@code false} for the forward projection.
+     * @return the vectorized kernel, or {@code null} if none.
+     */
+    static ProjectionKernel create(final Projection projection, final boolean inverse) {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        final ProjectionKernel kernel;
+        final double tolerance;
+        if (projection instanceof Mercator) {
+            kernel    = new VectorMercator(projection, inverse);
+            tolerance = inverse ? VectorMercator.ANGULAR_TOLERANCE : VectorMercator.LINEAR_TOLERANCE;
+        } else if (projection instanceof Stereographic) {
+            kernel    = new VectorStereographic(projection, inverse);
+            tolerance = inverse ? VectorStereographic.ANGULAR_TOLERANCE : VectorStereographic.LINEAR_TOLERANCE;
+        } else if (projection instanceof LambertConformal) {
+            kernel    = new VectorLambertConformal(projection, inverse);
+            tolerance = inverse ? VectorLambertConformal.ANGULAR_TOLERANCE : VectorLambertConformal.LINEAR_TOLERANCE;
+        } else {
+            return null;
+        }
+        return agree(kernel, projection, inverse, tolerance) ? kernel : null;
+    }
+
+    /**
+     * Verifies that the given kernel produces the same results than the netCDF bulk methods,
+     * within the given tolerance, on a grid of points covering the projection domain.
+     *
+     * @param  kernel      the vectorized kernel to verify.
+     * @param  projection  the netCDF projection implemented by the kernel.
+     * @param  inverse     whether the kernel is for the inverse projection.
+     * @param  tolerance   maximal difference allowed between the kernel and the netCDF bulk methods.
+     * @return whether the kernel agrees with the netCDF bulk methods.
+     */
+    private static boolean agree(final ProjectionKernel kernel, final Projection projection,
+                                 final boolean inverse, final double tolerance)
+    {
+        final int n = 24;
+        double[][] source = new double[2][n*n];
+        for (int j=0; j<n; j++) {
+            for (int i=0; i<n; i++) {
+                source[0][j*n + i] = (i - (n-1) / 2.0) * (358.0 / n);
+                source[1][j*n + i] = (j - (n-1) / 2.0) * (170.0 / n);
+            }
+        }
+        if (inverse) {
+            final double[][] projected = new double[2][n*n];
+            new ProjectionKernel.Scalar(projection, false).transform(source, projected);
+            source = projected;
+        }
+        final ProjectionKernel reference = new ProjectionKernel.Scalar(projection, inverse);
+        final double[][] expected = new double[2][n*n];
+        final double[][] actual   = new double[2][n*n];
+        reference.transform(source, expected);
+        kernel.transform(source, actual);
+        for (int r=0; r<2; r++) {
+            for (int i=0; i<n*n; i++) {
+                final double e = expected[r][i];
+                final double a = actual  [r][i];
+                if (!(Math.abs(a - e) <= tolerance) && Double.doubleToLongBits(a) != Double.doubleToLongBits(e)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
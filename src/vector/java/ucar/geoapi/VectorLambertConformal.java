@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import ucar.nc2.constants.CF;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+
+import static jdk.incubator.vector.VectorOperators.*;
+import static ucar.geoapi.VectorMath.SPECIES;
+
+
+/**
+ * Vectorized kernel of {@link ucar.unidata.geoloc.projection.LambertConformal}. This kernel computes the
+ * same spherical formulas than the netCDF library:
+ *
+ * <ul>
+ *   <li>Forward: <var>x</var> = ρ⋅sin θ and <var>y</var> = ρ₀ − ρ⋅cos θ where θ = <var>n</var>⋅Δλ and
+ *       ρ = <var>R</var>⋅<var>F</var> / tanⁿ(π/4 + φ/2), computed as <var>R</var>⋅<var>F</var>⋅exp(−<var>n</var>⋅atanh(sin φ)).</li>
+ *   <li>Inverse: θ = atan2(<var>x</var>, ρ₀ − <var>y</var>) and φ = 2⋅atan((<var>R</var>⋅<var>F</var>/ρ)<sup>1/<var>n</var></sup>) − π/2,
+ *       computed as 2⋅atan(tanh(<var>t</var>/2)) with <var>t</var> = ln(<var>R</var>⋅<var>F</var>/ρ)/<var>n</var>.</li>
+ * </ul>
+ *
+ * The rewritten formulas are the ones of {@link VectorMercator}, since tan(π/4 + φ/2) = exp(atanh(sin φ)).
+ * The constants <var>n</var>, <var>F</var> and ρ₀ are computed with the same expressions than the netCDF
+ * library. The elementary functions are approximated by {@link VectorMath} with errors of 2 ULP or less,
+ * which result in differences with the netCDF bulk methods smaller than {@value #LINEAR_TOLERANCE} km
+ * for projected coordinates between 85°S and 85°N, and smaller than {@value #ANGULAR_TOLERANCE}°
+ * for geographic coordinates.
+ *
+ * <p>Points for which the formulas above are not applied by the netCDF library, or would lose accuracy,
+ * are delegated to the netCDF scalar methods. This includes the points at less than 5° of a pole in the
+ * forward projection, the points at less than 1 metre of the apex of the cone in the inverse projection,
+ * the points at more than 180° of the central meridian, NaN values and the last points of a chunk
+ * when the chunk length is not a multiple of the vector length.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+final class VectorLambertConformal extends ProjectionKernel {
+    /**
+     * Maximal difference between the projected coordinates computed by this kernel
+     * and the ones computed by the netCDF library, in kilometres.
+     */
+    static final double LINEAR_TOLERANCE = 1E-9;
+
+    /**
+     * Maximal difference between the geographic coordinates computed by this kernel
+     * and the ones computed by the netCDF library, in degrees.
+     */
+    static final double ANGULAR_TOLERANCE = 1E-9;
+
+    /**
+     * Maximal absolute latitude, in degrees, of the points projected by the vectorized loop.
+     * Close to the pole opposite to the apex, ρ grows quickly and the netCDF formula loses accuracy.
+     */
+    private static final double MAX_LATITUDE = 85;
+
+    /**
+     * Maximal absolute value of <var>t</var> for the points unprojected by the vectorized loop.
+     * This is the limit of {@link VectorMath#expm1(DoubleVector)} domain.
+     */
+    private static final double MAX_T = 40;
+
+    /**
+     * Minimal distance from the apex of the cone, in kilometres, of the points unprojected by the vectorized loop.
+     */
+    private static final double MIN_RHO = 1E-3;
+
+    /**
+     * Conversion factors between degrees and radians, as used by {@link Math#toRadians(double)}.
+     */
+    private static final double DEG_TO_RAD = Math.PI / 180,
+                                RAD_TO_DEG = 180 / Math.PI;
+
+    /**
+     * The netCDF projection, used for the points that are not handled by the vectorized loop.
+     */
+    private final Projection projection;
+
+    /**
+     * {@code true} for the inverse projection.
+     */
+    private final boolean inverse;
+
+    /**
+     * Longitude of the central meridian in degrees.
+     */
+    private final double λ0;
+
+    /**
+     * The cone constant.
+     */
+    private final double n;
+
+    /**
+     * The Earth radius multiplied by the <var>F</var> constant, in kilometres.
+     * This value has the sign of <var>n</var>.
+     */
+    private final double RF;
+
+    /**
+     * The false easting in kilometres, and the false northing plus ρ₀ in kilometres.
+     */
+    private final double FE, FN;
+
+    /**
+     * Creates a new kernel for the given Lambert conformal conic projection. The false easting and false
+     * northing are taken from the projection of the origin, which avoid assumptions about the units of
+     * the corresponding netCDF parameters.
+     *
+     * @param  projection  the netCDF Lambert conformal conic projection.
+     * @param  inverse     {@code true} for the inverse projection.
+     */
+    VectorLambertConformal(final Projection projection, final boolean inverse) {
+        this.projection = projection;
+        this.inverse    = inverse;
+        final double φ0 = ProjectionDerivative.value(projection, CF.LATITUDE_OF_PROJECTION_ORIGIN, 0);
+        final double φ1 = Math.toRadians(ProjectionDerivative.value(projection, CF.STANDARD_PARALLEL, 0));
+        final double φ2 = Math.toRadians(ProjectionDerivative.value(projection, CF.STANDARD_PARALLEL, 1));
+        λ0 = ProjectionDerivative.value(projection, CF.LONGITUDE_OF_CENTRAL_MERIDIAN, 0);
+        final double t1 = Math.tan(Math.PI/4 + φ1/2);
+        if (Math.abs(φ1 - φ2) < 1E-10) {
+            n = Math.sin(φ1);
+        } else {
+            n = Math.log(Math.cos(φ1) / Math.cos(φ2)) / Math.log(Math.tan(Math.PI/4 + φ2/2) / t1);
+        }
+        RF = ProjectionDerivative.earthRadius(projection) * Math.cos(φ1) * Math.pow(t1, n) / n;
+        final ProjectionPoint origin = projection.latLonToProj(φ0, λ0);
+        FE = origin.getX();
+        FN = origin.getY() + RF / Math.pow(Math.tan(Math.PI/4 + Math.toRadians(φ0)/2), n);
+    }
+
+    /**
+     * Transforms all points in the given source buffer and stores the result in the given target buffer.
+     */
+    @Override
+    void transform(final double[][] source, final double[][] target) {
+        if (inverse) {
+            inverse(source[0], source[1], target[0], target[1]);
+        } else {
+            forward(source[0], source[1], target[0], target[1]);
+        }
+    }
+
+    /**
+     * Projects the given (λ,φ) coordinates in degrees.
+     */
+    private void forward(final double[] λs, final double[] φs, final double[] xs, final double[] ys) {
+        final VectorSpecies<Double> species = SPECIES;
+        final int upper = species.loopBound(λs.length);
+        int i = 0;
+        for (; i < upper; i += species.length()) {
+            final DoubleVector Δλ = DoubleVector.fromArray(species, λs, i).sub(λ0);
+            final DoubleVector φ  = DoubleVector.fromArray(species, φs, i);
+            final DoubleVector a  = φ.mul(DEG_TO_RAD);
+            final DoubleVector s  = VectorMath.sin(a.abs());
+            final DoubleVector L  = VectorMath.log(s.add(1).div(VectorMath.cos(a)));
+            final DoubleVector nL = L.blend(L.neg(), φ.compare(LT, 0)).mul(-n);
+            final DoubleVector ρ  = VectorMath.exp(nL).mul(RF);
+            final DoubleVector θ  = Δλ.mul(n * DEG_TO_RAD);
+            ρ.mul(VectorMath.sinWide(θ)).add(FE).intoArray(xs, i);
+            ρ.neg().fma(VectorMath.cos(θ), DoubleVector.broadcast(species, FN)).intoArray(ys, i);
+            final VectorMask<Double> valid = Δλ.abs().compare(LE, 180).and(φ.abs().compare(LE, MAX_LATITUDE));
+            if (!valid.allTrue()) {
+                for (int j=0; j < species.length(); j++) {
+                    if (!valid.laneIsSet(j)) {
+                        forward(λs, φs, xs, ys, i+j);
+                    }
+                }
+            }
+        }
+        for (; i < λs.length; i++) {
+            forward(λs, φs, xs, ys, i);
+        }
+    }
+
+    /**
+     * Projects the point at the given index using the netCDF scalar method.
+     */
+    private void forward(final double[] λs, final double[] φs, final double[] xs, final double[] ys, final int i) {
+        final ProjectionPoint pt = projection.latLonToProj(φs[i], λs[i]);
+        xs[i] = pt.getX();
+        ys[i] = pt.getY();
+    }
+
+    /**
+     * Converts the given (<var>x</var>,<var>y</var>) coordinates to (λ,φ) coordinates in degrees.
+     * For negative <var>n</var>, the signs of <var>x</var>, ρ₀ − <var>y</var> and ρ are reversed
+     * as in the netCDF library.
+     */
+    private void inverse(final double[] xs, final double[] ys, final double[] λs, final double[] φs) {
+        final VectorSpecies<Double> species = SPECIES;
+        final double sign = Math.signum(n);
+        final int upper = species.loopBound(xs.length);
+        int i = 0;
+        for (; i < upper; i += species.length()) {
+            final DoubleVector x  = DoubleVector.fromArray(species, xs, i).sub(FE).mul(sign);
+            final DoubleVector yd = DoubleVector.fromArray(species, ys, i).neg().add(FN).mul(sign);
+            final DoubleVector θ  = VectorMath.atan2(x, yd);
+            final DoubleVector ρ  = x.fma(x, yd.mul(yd)).sqrt();
+            final DoubleVector t  = VectorMath.log(DoubleVector.broadcast(species, Math.abs(RF)).div(ρ)).div(n);
+            final DoubleVector ta = t.abs();
+            final DoubleVector u  = VectorMath.expm1(ta);
+            final DoubleVector φ  = VectorMath.atan(u.div(u.add(2))).mul(2 * RAD_TO_DEG);
+            final DoubleVector λ  = θ.mul(RAD_TO_DEG / n).add(λ0);
+            λ.intoArray(λs, i);
+            φ.blend(φ.neg(), t.compare(LT, 0)).intoArray(φs, i);
+            final VectorMask<Double> valid = λ.abs().compare(LE, 180)
+                    .and(ta.compare(LE, MAX_T)).and(ρ.compare(GE, MIN_RHO));
+            if (!valid.allTrue()) {
+                for (int j=0; j < species.length(); j++) {
+                    if (!valid.laneIsSet(j)) {
+                        inverse(xs, ys, λs, φs, i+j);
+                    }
+                }
+            }
+        }
+        for (; i < xs.length; i++) {
+            inverse(xs, ys, λs, φs, i);
+        }
+    }
+
+    /**
+     * Converts the point at the given index using the netCDF scalar method.
+     */
+    private void inverse(final double[] xs, final double[] ys, final double[] λs, final double[] φs, final int i) {
+        final LatLonPoint pt = projection.projToLatLon(ProjectionPoint.create(xs[i], ys[i]));
+        λs[i] = pt.getLongitude();
+        φs[i] = pt.getLatitude();
+    }
+}
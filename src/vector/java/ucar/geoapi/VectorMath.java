@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.*;
+
+
+/**
+ * Polynomial approximations of elementary functions on vectors of {@code double} values.
+ * The {@code jdk.incubator.vector} module provides lanewise {@code SIN}, {@code LOG}, <i>etc.</i>
+ * operators, but they are not intrinsified on all platforms and are often slower than a loop
+ * invoking {@link Math}. The functions in this class use only additions, multiplications,
+ * divisions and bit manipulations, which are compiled to SIMD instructions on all platforms
+ * supported by the Vector API.
+ *
+ * <p>Each function is valid only on the domain documented in its Javadoc; callers are responsible
+ * for handling the other values (typically by a scalar fallback). The polynomials are truncated
+ * Taylor series with enough terms for the truncation error to be below 2<sup>−60</sup> relative
+ * to the result on the documented domain, so the error is dominated by the rounding errors
+ * of the Horner evaluation. The error bounds below have been measured against {@link StrictMath}
+ * on 10⁷ random arguments uniformly distributed in the documented domain:</p>
+ *
+ * <table class="doc">
+ *   <caption>Maximal errors in units in the last place (ULP)</caption>
+ *   <tr><th>Function</th>             <th>Domain</th>                 <th>Error</th></tr>
+ *   <tr><td>{@link #sin sin}</td>     <td>[−π/2 … π/2]</td>           <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #sinWide sinWide}</td> <td>[−π … π]</td>           <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #cos cos}</td>     <td>[−π … π]</td>               <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #log log}</td>     <td>positive normal values</td> <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #expm1 expm1}</td> <td>[0 … 40]</td>               <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #atan atan}</td>   <td>[0 … 1]</td>                <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #atan2 atan2}</td> <td>all finite pairs except (0,0)</td> <td>≤ 2 ULP</td></tr>
+ *   <tr><td>{@link #exp exp}</td>     <td>[−40 … 40]</td>             <td>≤ 2 ULP</td></tr>
+ * </table>
+ *
+ * The {@link #sinWide sinWide} and {@link #cos cos} functions reduce their argument to the domain
+ * of {@link #sin sin} with the π/2 − |<var>x</var>| and π − |<var>x</var>| identities, computed
+ * with π split in two parts for avoiding loss of accuracy.
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+final class VectorMath {
+    /**
+     * The vector species used by all kernels, which is the preferred species of the platform.
+     */
+    static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Natural logarithm of 2 split in a high part having only 32 significant bits (so that
+     * multiplications by small integers are exact) and a low part for the remaining bits.
+     * Those are the values used by fdlibm.
+     */
+    private static final double LN2_HI = 6.93147180369123816490e-01,
+                                LN2_LO = 1.90821492927058770002e-10;
+
+    /**
+     * π/2 and π split in a high part and a low part, for computing π/2 − <var>a</var>
+     * and π − <var>a</var> without loss of accuracy.
+     */
+    private static final double PI_2_HI = Math.PI / 2, PI_2_LO = 6.123233995736766E-17,
+                                PI_HI   = Math.PI,     PI_LO   = 1.2246467991473532E-16;
+
+    /**
+     * Mask of the sign bit of {@code double} values.
+     */
+    private static final long SIGN_BIT = 0x8000000000000000L;
+
+    /**
+     * Value added and subtracted for rounding a {@code double} to the nearest integer.
+     */
+    private static final double ROUNDING = 0x1.8p52;
+
+    /**
+     * Coefficients of sin(x) = x + x³⋅Σ S[k]⋅x²ᵏ, which are (−1)ᵏ⁺¹ / (2k+3)!.
+     */
+    private static final double[] SIN = new double[10];
+
+    /**
+     * Coefficients of ln((1+t)/(1−t)) = 2t + 2t³⋅Σ L[k]⋅t²ᵏ, which are 1 / (2k+3).
+     */
+    private static final double[] LOG = new double[11];
+
+    /**
+     * Coefficients of expm1(r) = r + r²⋅Σ E[k]⋅rᵏ, which are 1 / (k+2)!.
+     */
+    private static final double[] EXPM1 = new double[12];
+
+    /**
+     * Coefficients of atan(w) = w + w³⋅Σ A[k]⋅w²ᵏ, which are (−1)ᵏ⁺¹ / (2k+3).
+     */
+    private static final double[] ATAN = new double[22];
+    static {
+        double f = 1;
+        for (int k=0; k<SIN.length; k++) {
+            f /= -(2*k + 2) * (2*k + 3);
+            SIN[k] = f;
+        }
+        for (int k=0; k<LOG.length; k++) {
+            LOG[k] = 1.0 / (2*k + 3);
+        }
+        f = 1;
+        for (int k=0; k<EXPM1.length; k++) {
+            f /= (k + 2);
+            EXPM1[k] = f;
+        }
+        for (int k=0; k<ATAN.length; k++) {
+            ATAN[k] = ((k & 1) == 0 ? -1.0 : 1.0) / (2*k + 3);
+        }
+    }
+
+    /**
+     * Do not allow instantiation of this class.
+     */
+    private VectorMath() {
+    }
+
+    /**
+     * Evaluates the polynomial Σ c[k]⋅zᵏ using Horner's method.
+     */
+    private static DoubleVector polynomial(final DoubleVector z, final double[] c) {
+        int k = c.length - 1;
+        DoubleVector p = DoubleVector.broadcast(z.species(), c[k]);
+        while (--k >= 0) {
+            p = p.fma(z, DoubleVector.broadcast(z.species(), c[k]));
+        }
+        return p;
+    }
+
+    /**
+     * Computes the sine of angles in the [−π/2 … π/2] range.
+     * The result is unspecified for values outside that range.
+     *
+     * @param  x  the angles in radians.
+     * @return sine of the given angles.
+     */
+    static DoubleVector sin(final DoubleVector x) {
+        final DoubleVector z = x.mul(x);
+        return x.mul(z).fma(polynomial(z, SIN), x);
+    }
+
+    /**
+     * Computes the sine of angles in the [−π … π] range. Angles greater than π/2 in absolute value
+     * are reduced with sin(<var>x</var>) = sin(π − <var>x</var>). The result is unspecified for values
+     * outside that range.
+     *
+     * @param  x  the angles in radians.
+     * @return sine of the given angles.
+     */
+    static DoubleVector sinWide(final DoubleVector x) {
+        final DoubleVector a = x.abs();
+        final DoubleVector s = sin(a.blend(a.neg().add(PI_HI).add(PI_LO), a.compare(GT, PI_2_HI)));
+        return s.reinterpretAsLongs().or(x.reinterpretAsLongs().and(SIGN_BIT)).reinterpretAsDoubles();
+    }
+
+    /**
+     * Computes the cosine of angles in the [−π … π] range, as sin(π/2 − |<var>x</var>|).
+     * The result is unspecified for values outside that range.
+     *
+     * @param  x  the angles in radians.
+     * @return cosine of the given angles.
+     */
+    static DoubleVector cos(final DoubleVector x) {
+        return sin(x.abs().neg().add(PI_2_HI).add(PI_2_LO));
+    }
+
+    /**
+     * Computes the natural logarithm of positive normal values. The argument is decomposed as
+     * <var>m</var>⋅2<sup><var>e</var></sup> with <var>m</var> in [√½ … √2), then ln <var>m</var>
+     * is computed as 2⋅atanh(<var>t</var>) with <var>t</var> = (<var>m</var>−1)/(<var>m</var>+1)
+     * in [−0.172 … 0.172]. The result is unspecified for zero, negative, subnormal, infinite or NaN values.
+     *
+     * @param  x  the positive normal values.
+     * @return natural logarithm of the given values.
+     */
+    static DoubleVector log(final DoubleVector x) {
+        final VectorSpecies<Double> species = x.species();
+        final LongVector bits = x.reinterpretAsLongs();
+        DoubleVector e = (DoubleVector) bits.lanewise(LSHR, 52).sub(1023).convert(L2D, 0);
+        DoubleVector m = bits.and(0x000FFFFFFFFFFFFFL).or(0x3FF0000000000000L).reinterpretAsDoubles();
+        final VectorMask<Double> high = m.compare(GT, Math.sqrt(2));
+        m = m.mul(0.5, high);
+        e = e.add(1, high);
+        final DoubleVector t  = m.sub(1).div(m.add(1));
+        final DoubleVector s  = t.add(t);
+        final DoubleVector z  = t.mul(t);
+        final DoubleVector lm = s.mul(z).fma(polynomial(z, LOG), s);
+        return e.fma(DoubleVector.broadcast(species, LN2_LO), lm).add(e.mul(LN2_HI));
+    }
+
+    /**
+     * Computes e<sup><var>x</var></sup> − 1 for values in the [0 … 40] range. The argument is decomposed
+     * as <var>k</var>⋅ln 2 + <var>r</var> with <var>k</var> an integer and |<var>r</var>| ≤ ½ ln 2, then
+     * the result is computed as 2<sup><var>k</var></sup>⋅expm1(<var>r</var>) + (2<sup><var>k</var></sup> − 1).
+     * Contrarily to {@code exp(x) - 1}, this function is accurate for values close to zero.
+     * The result is unspecified for values outside the [0 … 40] range.
+     *
+     * @param  x  the values in the [0 … 40] range.
+     * @return e<sup><var>x</var></sup> − 1 for the given values.
+     */
+    static DoubleVector expm1(final DoubleVector x) {
+        final DoubleVector k = x.fma(1 / Math.log(2), ROUNDING).sub(ROUNDING);
+        final DoubleVector r = k.fma(DoubleVector.broadcast(x.species(), -LN2_HI), x).sub(k.mul(LN2_LO));
+        final DoubleVector q = r.mul(r).fma(polynomial(r, EXPM1), r);
+        final DoubleVector scale = ((LongVector) k.convert(D2L, 0)).add(1023).lanewise(LSHL, 52).reinterpretAsDoubles();
+        return scale.fma(q, scale.sub(1));
+    }
+
+    /**
+     * Computes the arc tangent of values in the [0 … 1] range. Values greater than tan(π/8) are reduced
+     * with atan(<var>v</var>) = π/4 + atan((<var>v</var>−1)/(<var>v</var>+1)), so the polynomial is
+     * evaluated only for arguments in the [−0.415 … 0.415] range.
+     * The result is unspecified for values outside the [0 … 1] range.
+     *
+     * @param  v  the values in the [0 … 1] range.
+     * @return arc tangent of the given values, in radians.
+     */
+    static DoubleVector atan(final DoubleVector v) {
+        final VectorMask<Double> high = v.compare(GT, Math.sqrt(2) - 1);
+        final DoubleVector w = v.blend(v.sub(1).div(v.add(1)), high);
+        final DoubleVector z = w.mul(w);
+        final DoubleVector a = w.mul(z).fma(polynomial(z, ATAN), w);
+        return a.add(Math.PI / 4, high);
+    }
+
+    /**
+     * Computes the angle of the (<var>x</var>, <var>y</var>) vectors, in the [−π … π] range.
+     * The ratio of the smallest to the largest absolute value is given to {@link #atan atan},
+     * then the result is reflected in the right octant. The sign of the result is the sign
+     * of <var>y</var>, including for negative zero. The result is unspecified if both
+     * <var>x</var> and <var>y</var> are zero, or if any of them is infinite or NaN.
+     *
+     * @param  y  the ordinates of the vectors.
+     * @param  x  the abscissas of the vectors.
+     * @return angles of the given vectors, in radians.
+     */
+    static DoubleVector atan2(final DoubleVector y, final DoubleVector x) {
+        final DoubleVector ya = y.abs();
+        final DoubleVector xa = x.abs();
+        DoubleVector a = atan(ya.min(xa).div(ya.max(xa)));
+        a = a.blend(a.neg().add(PI_2_HI).add(PI_2_LO), ya.compare(GT, xa));
+        a = a.blend(a.neg().add(PI_HI).add(PI_LO), x.compare(LT, 0));
+        return a.reinterpretAsLongs().or(y.reinterpretAsLongs().and(SIGN_BIT)).reinterpretAsDoubles();
+    }
+
+    /**
+     * Computes e<sup><var>x</var></sup> for values in the [−40 … 40] range. This function computes
+     * 1 + {@link #expm1 expm1}(|<var>x</var>|) and takes the reciprocal for negative values.
+     * The result is unspecified for values outside the [−40 … 40] range.
+     *
+     * @param  x  the values in the [−40 … 40] range.
+     * @return e<sup><var>x</var></sup> for the given values.
+     */
+    static DoubleVector exp(final DoubleVector x) {
+        final DoubleVector e = expm1(x.abs()).add(1);
+        return e.blend(DoubleVector.broadcast(x.species(), 1).div(e), x.compare(LT, 0));
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import ucar.nc2.constants.CF;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+
+import static jdk.incubator.vector.VectorOperators.*;
+import static ucar.geoapi.VectorMath.SPECIES;
+
+
+/**
+ * Vectorized kernel of {@link ucar.unidata.geoloc.projection.Mercator}. This kernel computes the same
+ * spherical formulas than the netCDF library:
+ *
+ * <ul>
+ *   <li>Forward: <var>x</var> = <var>A</var>⋅Δλ and <var>y</var> = <var>A</var>⋅atanh(sin φ),
+ *       computed as <var>A</var>⋅ln((1 + sin φ) / cos φ).</li>
+ *   <li>Inverse: φ = π/2 − 2⋅atan(exp(−<var>y</var>/<var>A</var>)),
+ *       computed as 2⋅atan(tanh(<var>y</var>/2<var>A</var>)).</li>
+ * </ul>
+ *
+ * where <var>A</var> = <var>R</var>⋅cos(φ₁). The rewritten formulas avoid the cancellation in
+ * 1 − sin φ near the poles and in 1 − exp(…) near the equator. The elementary functions are
+ * approximated by {@link VectorMath} with errors of 2 ULP or less, which result in differences
+ * with the netCDF bulk methods smaller than {@value #LINEAR_TOLERANCE} km for projected coordinates
+ * between 80°S and 80°N, and smaller than {@value #ANGULAR_TOLERANCE}° for geographic coordinates.
+ * Closer to the poles, the netCDF formula loses accuracy (the error reaches 10⁻⁵ km at 89.99°)
+ * while the error of this kernel stays below 2⋅10⁻¹¹ km.
+ *
+ * <p>Points for which the formulas above are not applied by the netCDF library, or would lose accuracy,
+ * are delegated to the netCDF scalar methods. This includes the points at less than 0.01° of a pole,
+ * the points at more than 180° of the central meridian, NaN values and the last points of a chunk when
+ * the chunk length is not a multiple of the vector length.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+final class VectorMercator extends ProjectionKernel {
+    /**
+     * Maximal difference between the projected coordinates computed by this kernel
+     * and the ones computed by the netCDF library, in kilometres.
+     */
+    static final double LINEAR_TOLERANCE = 1E-9;
+
+    /**
+     * Maximal difference between the geographic coordinates computed by this kernel
+     * and the ones computed by the netCDF library, in degrees.
+     */
+    static final double ANGULAR_TOLERANCE = 1E-11;
+
+    /**
+     * Maximal absolute latitude, in degrees, of the points projected by the vectorized loop.
+     */
+    private static final double MAX_LATITUDE = 89.99;
+
+    /**
+     * Maximal absolute value of <var>y</var>/<var>A</var> for the points unprojected by the vectorized loop.
+     * This is the limit of {@link VectorMath#expm1(DoubleVector)} domain and corresponds to latitudes closer
+     * to the poles than the {@code double} precision.
+     */
+    private static final double MAX_NORTHING = 40;
+
+    /**
+     * π/2 split in a high and a low part, for computing cos φ = sin(π/2 − |φ|) without loss of accuracy.
+     */
+    private static final double PI_2_HI = Math.PI / 2,
+                                PI_2_LO = 6.123233995736766E-17;
+
+    /**
+     * Conversion factors between degrees and radians, as used by {@link Math#toRadians(double)}.
+     */
+    private static final double DEG_TO_RAD = Math.PI / 180,
+                                RAD_TO_DEG = 180 / Math.PI;
+
+    /**
+     * The netCDF projection, used for the points that are not handled by the vectorized loop.
+     */
+    private final Projection projection;
+
+    /**
+     * {@code true} for the inverse projection.
+     */
+    private final boolean inverse;
+
+    /**
+     * Longitude of the central meridian in degrees.
+     */
+    private final double λ0;
+
+    /**
+     * The Earth radius multiplied by the cosine of the standard parallel, in kilometres.
+     */
+    private final double A;
+
+    /**
+     * The false easting and false northing in kilometres.
+     */
+    private final double FE, FN;
+
+    /**
+     * Creates a new kernel for the given Mercator projection. The false easting and false northing
+     * are taken from the projection of the natural origin, which avoid assumptions about the units
+     * of the corresponding netCDF parameters.
+     *
+     * @param  projection  the netCDF Mercator projection.
+     * @param  inverse     {@code true} for the inverse projection.
+     */
+    VectorMercator(final Projection projection, final boolean inverse) {
+        this.projection = projection;
+        this.inverse    = inverse;
+        λ0 = ProjectionDerivative.value(projection, CF.LONGITUDE_OF_PROJECTION_ORIGIN, 0);
+        A  = ProjectionDerivative.earthRadius(projection)
+           * Math.cos(Math.toRadians(ProjectionDerivative.value(projection, CF.STANDARD_PARALLEL, 0)));
+        final ProjectionPoint origin = projection.latLonToProj(0, λ0);
+        FE = origin.getX();
+        FN = origin.getY();
+    }
+
+    /**
+     * Transforms all points in the given source buffer and stores the result in the given target buffer.
+     */
+    @Override
+    void transform(final double[][] source, final double[][] target) {
+        if (inverse) {
+            inverse(source[0], source[1], target[0], target[1]);
+        } else {
+            forward(source[0], source[1], target[0], target[1]);
+        }
+    }
+
+    /**
+     * Projects the given (λ,φ) coordinates in degrees.
+     */
+    private void forward(final double[] λs, final double[] φs, final double[] xs, final double[] ys) {
+        final VectorSpecies<Double> species = SPECIES;
+        final int upper = species.loopBound(λs.length);
+        int i = 0;
+        for (; i < upper; i += species.length()) {
+            final DoubleVector λ  = DoubleVector.fromArray(species, λs, i).sub(λ0);
+            final DoubleVector φ  = DoubleVector.fromArray(species, φs, i);
+            final DoubleVector φa = φ.abs();
+            final DoubleVector a  = φa.mul(DEG_TO_RAD);
+            final DoubleVector s  = VectorMath.sin(a);
+            final DoubleVector c  = VectorMath.sin(a.neg().add(PI_2_HI).add(PI_2_LO));
+            final DoubleVector y  = VectorMath.log(s.add(1).div(c)).mul(A);
+            λ.mul(DEG_TO_RAD).mul(A).add(FE).intoArray(xs, i);
+            y.blend(y.neg(), φ.compare(LT, 0)).add(FN).intoArray(ys, i);
+            final VectorMask<Double> valid = λ.abs().compare(LE, 180).and(φa.compare(LE, MAX_LATITUDE));
+            if (!valid.allTrue()) {
+                for (int j=0; j < species.length(); j++) {
+                    if (!valid.laneIsSet(j)) {
+                        forward(λs, φs, xs, ys, i+j);
+                    }
+                }
+            }
+        }
+        for (; i < λs.length; i++) {
+            forward(λs, φs, xs, ys, i);
+        }
+    }
+
+    /**
+     * Projects the point at the given index using the netCDF scalar method.
+     */
+    private void forward(final double[] λs, final double[] φs, final double[] xs, final double[] ys, final int i) {
+        final ProjectionPoint pt = projection.latLonToProj(φs[i], λs[i]);
+        xs[i] = pt.getX();
+        ys[i] = pt.getY();
+    }
+
+    /**
+     * Converts the given (<var>x</var>,<var>y</var>) coordinates to (λ,φ) coordinates in degrees.
+     */
+    private void inverse(final double[] xs, final double[] ys, final double[] λs, final double[] φs) {
+        final VectorSpecies<Double> species = SPECIES;
+        final int upper = species.loopBound(xs.length);
+        int i = 0;
+        for (; i < upper; i += species.length()) {
+            final DoubleVector λ  = DoubleVector.fromArray(species, xs, i).sub(FE).div(A).mul(RAD_TO_DEG).add(λ0);
+            final DoubleVector t  = DoubleVector.fromArray(species, ys, i).sub(FN).div(A);
+            final DoubleVector ta = t.abs();
+            final DoubleVector u  = VectorMath.expm1(ta);
+            final DoubleVector φ  = VectorMath.atan(u.div(u.add(2))).mul(2 * RAD_TO_DEG);
+            λ.intoArray(λs, i);
+            φ.blend(φ.neg(), t.compare(LT, 0)).intoArray(φs, i);
+            final VectorMask<Double> valid = λ.abs().compare(LE, 180).and(ta.compare(LE, MAX_NORTHING));
+            if (!valid.allTrue()) {
+                for (int j=0; j < species.length(); j++) {
+                    if (!valid.laneIsSet(j)) {
+                        inverse(xs, ys, λs, φs, i+j);
+                    }
+                }
+            }
+        }
+        for (; i < xs.length; i++) {
+            inverse(xs, ys, λs, φs, i);
+        }
+    }
+
+    /**
+     * Converts the point at the given index using the netCDF scalar method.
+     */
+    private void inverse(final double[] xs, final double[] ys, final double[] λs, final double[] φs, final int i) {
+        final LatLonPoint pt = projection.projToLatLon(ProjectionPoint.create(xs[i], ys[i]));
+        λs[i] = pt.getLongitude();
+        φs[i] = pt.getLatitude();
+    }
+}
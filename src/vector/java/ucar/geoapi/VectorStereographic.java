@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2012-2021 Geomatys and University Corporation for Atmospheric Research/Unidata
+ * Distributed under the terms of the BSD 3-Clause License.
+ * SPDX-License-Identifier: BSD-3-Clause
+ * See LICENSE for license information.
+ */
+package ucar.geoapi;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import ucar.nc2.constants.CF;
+import ucar.unidata.geoloc.LatLonPoint;
+import ucar.unidata.geoloc.Projection;
+import ucar.unidata.geoloc.ProjectionPoint;
+
+import static jdk.incubator.vector.VectorOperators.*;
+import static ucar.geoapi.VectorMath.SPECIES;
+
+
+/**
+ * Vectorized kernel of {@link ucar.unidata.geoloc.projection.Stereographic}. This kernel computes the same
+ * spherical formulas than the netCDF library:
+ *
+ * <ul>
+ *   <li>Forward: <var>x</var> = <var>k</var>⋅cos φ⋅sin Δλ and
+ *       <var>y</var> = <var>k</var>⋅(cos φ₀⋅sin φ − sin φ₀⋅cos φ⋅cos Δλ) where
+ *       <var>k</var> = 2<var>S</var> / (1 + sin φ₀⋅sin φ + cos φ₀⋅cos φ⋅cos Δλ).</li>
+ *   <li>Inverse: with ρ = √(<var>x</var>² + <var>y</var>²)/<var>S</var> and <var>c</var> = 2⋅atan(ρ/2),
+ *       φ = asin(cos <var>c</var>⋅sin φ₀ + <var>y</var>⋅sin <var>c</var>⋅cos φ₀ / ρ) and
+ *       Δλ = atan2(<var>x</var>⋅sin <var>c</var>, ρ⋅cos φ₀⋅cos <var>c</var> − <var>y</var>⋅sin <var>c</var>⋅sin φ₀).</li>
+ * </ul>
+ *
+ * where <var>S</var> = <var>R</var>⋅<var>k₀</var>. In the inverse projection, sin <var>c</var> and
+ * cos <var>c</var> are computed from <var>u</var> = ρ/2 with the tangent half-angle identities
+ * 2<var>u</var>/(1+<var>u</var>²) and (1−<var>u</var>²)/(1+<var>u</var>²), which avoid trigonometric
+ * functions, and asin(<var>z</var>) is computed as atan2(<var>z</var>, √((1−<var>z</var>)(1+<var>z</var>))).
+ * The elementary functions are approximated by {@link VectorMath} with errors of 2 ULP or less,
+ * which result in differences with the netCDF bulk methods smaller than {@value #LINEAR_TOLERANCE} km
+ * for projected coordinates, and smaller than {@value #ANGULAR_TOLERANCE}° for geographic coordinates.
+ *
+ * <p>Points for which the formulas above are not applied by the netCDF library, or would lose accuracy,
+ * are delegated to the netCDF scalar methods. This includes the points where the <var>k</var> factor
+ * is more than {@value #MAX_SCALE} times the scale at the projection origin (which includes the
+ * antipode of the projection origin), the points at less than 0.01° of a pole in the inverse projection,
+ * the points at the projection origin, NaN values and the last points of a chunk when the chunk length
+ * is not a multiple of the vector length.</p>
+ *
+ * @author  Martin Desruisseaux (Geomatys)
+ */
+final class VectorStereographic extends ProjectionKernel {
+    /**
+     * Maximal difference between the projected coordinates computed by this kernel
+     * and the ones computed by the netCDF library, in kilometres.
+     */
+    static final double LINEAR_TOLERANCE = 1E-9;
+
+    /**
+     * Maximal difference between the geographic coordinates computed by this kernel
+     * and the ones computed by the netCDF library, in degrees.
+     */
+    static final double ANGULAR_TOLERANCE = 1E-9;
+
+    /**
+     * Maximal value of the <var>k</var> factor, relative to its value at the projection origin,
+     * for the points projected by the vectorized loop. Larger values are reached only close to
+     * the antipode of the projection origin, where the denominator of <var>k</var> loses accuracy.
+     */
+    private static final double MAX_SCALE = 4;
+
+    /**
+     * Sine of the maximal absolute latitude of the points unprojected by the vectorized loop.
+     * Closer to the poles, the arc sine amplifies the rounding errors.
+     */
+    private static final double MAX_SINE = 0.9999999847691291;         // sin(89.99°)
+
+    /**
+     * Minimal value of ρ for the points unprojected by the vectorized loop.
+     * The netCDF library handles the points closer to the origin in a special way.
+     */
+    private static final double MIN_RHO = 1E-5;
+
+    /**
+     * Conversion factors between degrees and radians, as used by {@link Math#toRadians(double)}.
+     */
+    private static final double DEG_TO_RAD = Math.PI / 180,
+                                RAD_TO_DEG = 180 / Math.PI;
+
+    /**
+     * The netCDF projection, used for the points that are not handled by the vectorized loop.
+     */
+    private final Projection projection;
+
+    /**
+     * {@code true} for the inverse projection.
+     */
+    private final boolean inverse;
+
+    /**
+     * {@code true} if the projection origin is a pole, in which case the netCDF library
+     * computes the longitude with a simplified formula.
+     */
+    private final boolean polar;
+
+    /**
+     * Longitude of the projection origin in degrees.
+     */
+    private final double λ0;
+
+    /**
+     * Sine and cosine of the latitude of the projection origin.
+     */
+    private final double sinφ0, cosφ0;
+
+    /**
+     * The Earth radius multiplied by the scale factor, in kilometres.
+     */
+    private final double S;
+
+    /**
+     * The false easting and false northing in kilometres.
+     */
+    private final double FE, FN;
+
+    /**
+     * Creates a new kernel for the given stereographic projection. The false easting and false northing
+     * are taken from the projection of the origin, which avoid assumptions about the units of the
+     * corresponding netCDF parameters.
+     *
+     * @param  projection  the netCDF stereographic projection.
+     * @param  inverse     {@code true} for the inverse projection.
+     */
+    VectorStereographic(final Projection projection, final boolean inverse) {
+        this.projection = projection;
+        this.inverse    = inverse;
+        final double φ0 = ProjectionDerivative.value(projection, CF.LATITUDE_OF_PROJECTION_ORIGIN, 0);
+        λ0    = ProjectionDerivative.value(projection, CF.LONGITUDE_OF_PROJECTION_ORIGIN, 0);
+        sinφ0 = Math.sin(Math.toRadians(φ0));
+        cosφ0 = Math.cos(Math.toRadians(φ0));
+        polar = Math.abs(cosφ0) < 1E-6;
+        S     = ProjectionDerivative.earthRadius(projection)
+              * ProjectionDerivative.value(projection, CF.SCALE_FACTOR_AT_PROJECTION_ORIGIN, 1.0);
+        final ProjectionPoint origin = projection.latLonToProj(φ0, λ0);
+        FE = origin.getX();
+        FN = origin.getY();
+    }
+
+    /**
+     * Transforms all points in the given source buffer and stores the result in the given target buffer.
+     */
+    @Override
+    void transform(final double[][] source, final double[][] target) {
+        if (inverse) {
+            inverse(source[0], source[1], target[0], target[1]);
+        } else {
+            forward(source[0], source[1], target[0], target[1]);
+        }
+    }
+
+    /**
+     * Projects the given (λ,φ) coordinates in degrees.
+     */
+    private void forward(final double[] λs, final double[] φs, final double[] xs, final double[] ys) {
+        final VectorSpecies<Double> species = SPECIES;
+        final int upper = species.loopBound(λs.length);
+        int i = 0;
+        for (; i < upper; i += species.length()) {
+            final DoubleVector Δλ   = DoubleVector.fromArray(species, λs, i).sub(λ0);
+            final DoubleVector φ    = DoubleVector.fromArray(species, φs, i).mul(DEG_TO_RAD);
+            final DoubleVector λr   = Δλ.mul(DEG_TO_RAD);
+            final DoubleVector sinφ = VectorMath.sin(φ);
+            final DoubleVector cosφ = VectorMath.cos(φ);
+            final DoubleVector sinΔ = VectorMath.sinWide(λr);
+            final DoubleVector cosΔ = VectorMath.cos(λr);
+            final DoubleVector cc   = cosφ.mul(cosΔ);
+            final DoubleVector d    = sinφ.mul(sinφ0).add(cc.mul(cosφ0)).add(1);
+            final DoubleVector k    = DoubleVector.broadcast(species, 2*S).div(d);
+            k.mul(cosφ).mul(sinΔ).add(FE).intoArray(xs, i);
+            k.mul(sinφ.mul(cosφ0).sub(cc.mul(sinφ0))).add(FN).intoArray(ys, i);
+            final VectorMask<Double> valid = Δλ.abs().compare(LE, 180).and(d.compare(GE, 2.0 / MAX_SCALE));
+            if (!valid.allTrue()) {
+                for (int j=0; j < species.length(); j++) {
+                    if (!valid.laneIsSet(j)) {
+                        forward(λs, φs, xs, ys, i+j);
+                    }
+                }
+            }
+        }
+        for (; i < λs.length; i++) {
+            forward(λs, φs, xs, ys, i);
+        }
+    }
+
+    /**
+     * Projects the point at the given index using the netCDF scalar method.
+     */
+    private void forward(final double[] λs, final double[] φs, final double[] xs, final double[] ys, final int i) {
+        final ProjectionPoint pt = projection.latLonToProj(φs[i], λs[i]);
+        xs[i] = pt.getX();
+        ys[i] = pt.getY();
+    }
+
+    /**
+     * Converts the given (<var>x</var>,<var>y</var>) coordinates to (λ,φ) coordinates in degrees.
+     */
+    private void inverse(final double[] xs, final double[] ys, final double[] λs, final double[] φs) {
+        final VectorSpecies<Double> species = SPECIES;
+        final DoubleVector one = DoubleVector.broadcast(species, 1);
+        final int upper = species.loopBound(xs.length);
+        int i = 0;
+        for (; i < upper; i += species.length()) {
+            final DoubleVector x  = DoubleVector.fromArray(species, xs, i).sub(FE).div(S);
+            final DoubleVector y  = DoubleVector.fromArray(species, ys, i).sub(FN).div(S);
+            final DoubleVector ρ2 = x.fma(x, y.mul(y));
+            final DoubleVector u2 = ρ2.mul(0.25);
+            final DoubleVector w  = one.div(u2.add(1));                     // sin(c)/ρ
+            final DoubleVector cosc = one.sub(u2).mul(w);
+            final DoubleVector z  = cosc.mul(sinφ0).add(y.mul(w).mul(cosφ0));
+            final DoubleVector φ  = VectorMath.atan2(z, one.sub(z).mul(one.add(z)).sqrt());
+            final DoubleVector Δλ;
+            if (polar) {
+                Δλ = VectorMath.atan2(x, sinφ0 > 0 ? y.neg() : y);
+            } else {
+                Δλ = VectorMath.atan2(x, one.sub(u2).mul(cosφ0).sub(y.mul(sinφ0)));
+            }
+            final DoubleVector λ = Δλ.mul(RAD_TO_DEG).add(λ0);
+            λ.intoArray(λs, i);
+            φ.mul(RAD_TO_DEG).intoArray(φs, i);
+            final VectorMask<Double> valid = λ.abs().compare(LE, 180)
+                    .and(z.abs().compare(LE, MAX_SINE)).and(ρ2.compare(GE, MIN_RHO * MIN_RHO));
+            if (!valid.allTrue()) {
+                for (int j=0; j < species.length(); j++) {
+                    if (!valid.laneIsSet(j)) {
+                        inverse(xs, ys, λs, φs, i+j);
+                    }
+                }
+            }
+        }
+        for (; i < xs.length; i++) {
+            inverse(xs, ys, λs, φs, i);
+        }
+    }
+
+    /**
+     * Converts the point at the given index using the netCDF scalar method.
+     */
+    private void inverse(final double[] xs, final double[] ys, final double[] λs, final double[] φs, final int i) {
+        final LatLonPoint pt = projection.projToLatLon(ProjectionPoint.create(xs[i], ys[i]));
+        λs[i] = pt.getLongitude();
+        φs[i] = pt.getLatitude();
+    }
+}